@@ -0,0 +1,16 @@
+-- Comment counter column on posts, shifted in the transaction of every comment insert and delete
+-- Hibernate adds the column with 0 for existing posts; run this script once to count their comments
+
+ALTER TABLE posts ADD COLUMN IF NOT EXISTS comments_count BIGINT NOT NULL DEFAULT 0;
+
+UPDATE posts p
+SET comments_count = c.comments
+FROM (SELECT post_id, COUNT(*) AS comments FROM comments GROUP BY post_id) c
+WHERE c.post_id = p.id AND p.comments_count <> c.comments;
+
+-- "Commented" flag of the bulk viewer states
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_comments_post_user ON comments (post_id, user_id);
+
+-- Verify the change
+\d posts;
+\d comments;
@@ -0,0 +1,11 @@
+-- Indexes backing the paginated conversation inbox (GET /messages/conversations)
+-- Each participant side is read in (updated_at, id) order, replacing the single-column participant indexes
+-- Run this script on large tables instead of letting Hibernate add the indexes inside a transaction
+
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_conversation_a_updated ON conversations (participant_a_id, updated_at DESC, id DESC);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_conversation_b_updated ON conversations (participant_b_id, updated_at DESC, id DESC);
+DROP INDEX CONCURRENTLY IF EXISTS idx_conversation_participant_a;
+DROP INDEX CONCURRENTLY IF EXISTS idx_conversation_participant_b;
+
+-- Verify the change
+\d conversations;
@@ -0,0 +1,13 @@
+-- Home feed materialization marker behind GET /posts/following
+-- Hibernate adds the column on startup; run this script to also mark the feeds that already exist,
+-- otherwise each of them is rebuilt once (a no-op insert) on its owner's next first-page request
+
+ALTER TABLE users ADD COLUMN IF NOT EXISTS home_feed_built_at TIMESTAMP WITH TIME ZONE;
+
+UPDATE users u SET home_feed_built_at = now()
+WHERE u.home_feed_built_at IS NULL
+  AND EXISTS (SELECT 1 FROM home_feed_entries e WHERE e.user_id = u.id);
+
+-- Verify the change
+\d users;
+SELECT COUNT(*) AS feeds_built FROM users WHERE home_feed_built_at IS NOT NULL;
@@ -0,0 +1,31 @@
+-- Composite indexes backing the keyset (cursor) paginated list endpoints
+-- Each index matches the filter and the (timestamp, id) order of one page query
+-- Run this script on large tables instead of letting Hibernate add the indexes inside a transaction
+
+-- GET /posts/public
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_posts_visibility_ts ON posts (visibility, ts DESC, id DESC);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_posts_location_ts ON posts (visibility, country, city, ts DESC, id DESC);
+
+-- GET /posts/trip/{tripId}
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_posts_trip_ts ON posts (trip_id, ts, id);
+
+-- GET /posts/{postId}/comments
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_comments_post_created ON comments (post_id, created_at, id);
+
+-- GET /notifications, replaces the index without the id tie-breaker
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_notification_user_created_id ON notifications (user_id, created_at DESC, id DESC);
+DROP INDEX CONCURRENTLY IF EXISTS idx_notification_user_created;
+
+-- GET /users/{userId}/followers and /users/{userId}/following
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_follows_following_created ON follows (following_id, created_at DESC, id DESC);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_follows_follower_created ON follows (follower_id, created_at DESC, id DESC);
+
+-- GET /trips/user/{userId}
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_trips_user_started ON trips (user_id, started_at DESC, id DESC);
+
+-- Verify the change
+\d posts;
+\d comments;
+\d notifications;
+\d follows;
+\d trips;
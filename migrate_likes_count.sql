@@ -0,0 +1,12 @@
+-- Like counter column on posts, maintained by the application's batched like count flushes
+-- Hibernate adds the column with 0 for existing posts; run this script once to count their likes
+
+ALTER TABLE posts ADD COLUMN IF NOT EXISTS likes_count BIGINT NOT NULL DEFAULT 0;
+
+UPDATE posts p
+SET likes_count = c.likes
+FROM (SELECT post_id, COUNT(*) AS likes FROM likes GROUP BY post_id) c
+WHERE c.post_id = p.id AND p.likes_count <> c.likes;
+
+-- Verify the change
+\d posts;
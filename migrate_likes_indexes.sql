@@ -0,0 +1,7 @@
+-- Index backing the keyset paginated likers list (GET /posts/{postId}/likes)
+-- Run this script on large tables instead of letting Hibernate add the index inside a transaction
+
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_likes_post_created ON likes (post_id, created_at DESC, id DESC);
+
+-- Verify the change
+\d likes;
@@ -0,0 +1,51 @@
+-- Grouped notifications: likes, comments and follows merge into one row per target while unread
+-- An open group holds its group_key, which is unique per user; reading or closing a group clears it
+-- Distinct actors of a group live in notification_actors so a returning actor is not counted twice,
+-- up to NotificationGroups.MAX_TRACKED_ACTORS per group, the count is approximate past that
+-- Run this script on large tables instead of letting Hibernate add the constraint inside a transaction
+
+ALTER TABLE notifications ADD COLUMN IF NOT EXISTS actor_count INTEGER;
+ALTER TABLE notifications ADD COLUMN IF NOT EXISTS group_key VARCHAR(255);
+UPDATE notifications SET actor_count = 1 WHERE actor_count IS NULL;
+
+-- Close read groups, and every open group but the latest one per key
+UPDATE notifications SET group_key = NULL WHERE group_key IS NOT NULL AND is_read = true;
+UPDATE notifications n SET group_key = NULL
+WHERE n.group_key IS NOT NULL
+  AND EXISTS (
+      SELECT 1 FROM notifications newer
+      WHERE newer.user_id = n.user_id AND newer.group_key = n.group_key
+        AND (newer.created_at, newer.id) > (n.created_at, n.id)
+  );
+
+-- Replaced by the unique constraint below
+DROP INDEX CONCURRENTLY IF EXISTS idx_notification_user_group;
+
+-- Conflict target of the group upsert
+CREATE UNIQUE INDEX CONCURRENTLY IF NOT EXISTS uk_notification_user_group ON notifications (user_id, group_key);
+-- Guarded so the script can be run again once the constraint exists
+DO $$
+BEGIN
+    IF NOT EXISTS (
+        SELECT 1 FROM pg_constraint
+        WHERE conname = 'uk_notification_user_group' AND conrelid = 'notifications'::regclass
+    ) THEN
+        ALTER TABLE notifications ADD CONSTRAINT uk_notification_user_group UNIQUE USING INDEX uk_notification_user_group;
+    END IF;
+END $$;
+
+CREATE TABLE IF NOT EXISTS notification_actors (
+    id UUID PRIMARY KEY,
+    notification_id UUID NOT NULL REFERENCES notifications (id) ON DELETE CASCADE,
+    actor_id UUID NOT NULL,
+    CONSTRAINT uk_notification_actor UNIQUE (notification_id, actor_id)
+);
+
+-- Existing groups only know their latest actor
+INSERT INTO notification_actors (id, notification_id, actor_id)
+SELECT gen_random_uuid(), id, actor_id FROM notifications WHERE group_key IS NOT NULL
+ON CONFLICT (notification_id, actor_id) DO NOTHING;
+
+-- Verify the change
+\d notifications;
+\d notification_actors;
@@ -0,0 +1,16 @@
+-- Attempt counter and dead-letter state of the notification outbox
+-- Hibernate adds the columns, this script adds a created_at index that skips dead events
+-- so claiming the oldest pending event never walks over dead-lettered rows
+
+ALTER TABLE notification_outbox ADD COLUMN IF NOT EXISTS attempts INTEGER NOT NULL DEFAULT 0;
+ALTER TABLE notification_outbox ADD COLUMN IF NOT EXISTS last_error TEXT;
+ALTER TABLE notification_outbox ADD COLUMN IF NOT EXISTS dead_at TIMESTAMP(6) WITH TIME ZONE;
+
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_notification_outbox_pending ON notification_outbox (created_at)
+    WHERE dead_at IS NULL;
+
+-- Dead-lettered events, to inspect and requeue with UPDATE ... SET attempts = 0, dead_at = NULL
+-- SELECT id, actor_id, type, attempts, last_error, dead_at FROM notification_outbox WHERE dead_at IS NOT NULL;
+
+-- Verify the change
+\d notification_outbox;
@@ -0,0 +1,36 @@
+-- Full-text post search: search documents table and its text indexes
+-- Hibernate creates the table and btree indexes, this script adds what it cannot express
+-- Run this script before enabling /posts/search on an existing database
+
+-- Trigram matching for typo tolerance (word_similarity and the <% operator)
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+CREATE TABLE IF NOT EXISTS post_search_documents (
+    post_id uuid PRIMARY KEY,
+    trip_id uuid NOT NULL,
+    user_id uuid NOT NULL,
+    document tsvector,
+    search_text text,
+    country varchar(255),
+    city varchar(255),
+    lat double precision,
+    lon double precision,
+    geohash varchar(12) COLLATE "C",
+    ts timestamp(6) with time zone NOT NULL
+);
+
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_post_search_document ON post_search_documents USING gin (document);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_post_search_text_trgm ON post_search_documents USING gin (search_text gin_trgm_ops);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_post_search_location ON post_search_documents (country, city);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_post_search_geohash ON post_search_documents (geohash);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_post_search_trip ON post_search_documents (trip_id);
+
+-- Existing public posts are indexed by PostSearchBackfillJob after startup
+-- Documents copied from a track point without geohash get theirs computed by the same job,
+-- found through this partial index, empty once every document has its geohash
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_post_search_missing_geohash ON post_search_documents (post_id)
+    WHERE geohash IS NULL AND lat IS NOT NULL;
+
+-- Verify the change
+\d post_search_documents;
+SELECT COUNT(*) AS indexed_posts FROM post_search_documents;
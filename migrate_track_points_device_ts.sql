@@ -0,0 +1,26 @@
+-- Make (trip_id, ts) unique on track_points so device timestamps can be used to skip duplicate uploads
+-- Run this script if adding uk_track_points_trip_ts fails because of existing duplicates
+
+-- Point posts at the first point of every (trip_id, ts) pair
+UPDATE posts p
+SET track_point_id = keep.id
+FROM track_points tp
+JOIN LATERAL (
+    SELECT MIN(k.id) AS id FROM track_points k WHERE k.trip_id = tp.trip_id AND k.ts = tp.ts
+) keep ON TRUE
+WHERE p.track_point_id = tp.id
+  AND tp.id <> keep.id;
+
+-- Keep the first point of every (trip_id, ts) pair
+DELETE FROM track_points tp
+USING track_points dup
+WHERE tp.trip_id = dup.trip_id
+  AND tp.ts = dup.ts
+  AND tp.id > dup.id;
+
+-- Add the constraint used by INSERT ... ON CONFLICT
+ALTER TABLE track_points
+    ADD CONSTRAINT uk_track_points_trip_ts UNIQUE (trip_id, ts);
+
+-- Verify the change
+\d track_points;
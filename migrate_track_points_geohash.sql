@@ -0,0 +1,16 @@
+-- Add the geohash spatial index to track_points
+-- Run this script on large tables instead of letting Hibernate add the index inside a transaction
+
+-- "C" collation keeps LIKE 'prefix%' searches on the btree index
+ALTER TABLE track_points ADD COLUMN IF NOT EXISTS geohash varchar(12) COLLATE "C";
+
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_track_points_geohash ON track_points (geohash);
+
+-- Existing rows are filled by TrackPointGeohashBackfillJob after startup
+-- Until then radius searches find them by bounding box through this partial index, empty once backfilled
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_track_points_missing_geohash ON track_points (lat, lon)
+    WHERE geohash IS NULL;
+
+-- Verify the change
+\d track_points;
+SELECT COUNT(*) AS missing_geohash FROM track_points WHERE geohash IS NULL;
@@ -0,0 +1,16 @@
+-- Switch track_points ids from an identity column to the pooled track_points_seq sequence
+-- Run this script once before deploying the version that uses the sequence generator
+
+-- Create the sequence Hibernate allocates from (blocks of 50 ids per call)
+CREATE SEQUENCE IF NOT EXISTS track_points_seq INCREMENT BY 50;
+ALTER SEQUENCE track_points_seq INCREMENT BY 50;
+
+-- Start allocating after the highest existing id
+SELECT setval('track_points_seq', (SELECT COALESCE(MAX(id), 0) FROM track_points) + 50);
+
+-- Ids are now assigned by the application, drop the identity default
+ALTER TABLE track_points ALTER COLUMN id DROP IDENTITY IF EXISTS;
+
+-- Verify the change
+\d track_points;
+SELECT last_value, increment_by FROM pg_sequences WHERE sequencename = 'track_points_seq';
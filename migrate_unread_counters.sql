@@ -0,0 +1,31 @@
+-- Backfill the cached unread counters of notifications and direct messages
+-- Hibernate adds the columns as NULL, which the application treats as "not computed yet"
+-- and counts on first read; run this script to compute them all upfront instead
+
+ALTER TABLE users ADD COLUMN IF NOT EXISTS unread_notifications_count INTEGER;
+ALTER TABLE conversations ADD COLUMN IF NOT EXISTS unread_count_a INTEGER;
+ALTER TABLE conversations ADD COLUMN IF NOT EXISTS unread_count_b INTEGER;
+
+-- GET /notifications/unread/count
+UPDATE users u
+SET unread_notifications_count = (
+    SELECT COUNT(*) FROM notifications n
+    WHERE n.user_id = u.id AND n.is_read = false
+)
+WHERE u.unread_notifications_count IS NULL;
+
+-- GET /messages/conversations, unread messages of each participant
+UPDATE conversations c
+SET unread_count_a = (
+        SELECT COUNT(*) FROM direct_messages dm
+        WHERE dm.conversation_id = c.id AND dm.sender_id <> c.participant_a_id AND dm.read_at IS NULL
+    ),
+    unread_count_b = (
+        SELECT COUNT(*) FROM direct_messages dm
+        WHERE dm.conversation_id = c.id AND dm.sender_id <> c.participant_b_id AND dm.read_at IS NULL
+    )
+WHERE c.unread_count_a IS NULL OR c.unread_count_b IS NULL;
+
+-- Verify the change
+\d users;
+\d conversations;
@@ -0,0 +1,24 @@
+-- Suggestions table and recomputation timestamp behind GET /users/{userId}/suggestions
+-- Hibernate creates both on startup; run this script on large tables instead so the indexes are built concurrently
+-- Users with a NULL suggestions_computed_at are computed first by the background job
+
+CREATE TABLE IF NOT EXISTS user_suggestions (
+    id UUID PRIMARY KEY,
+    user_id UUID NOT NULL,
+    suggested_user_id UUID NOT NULL,
+    score DOUBLE PRECISION NOT NULL,
+    mutual_follows INTEGER NOT NULL,
+    shared_places INTEGER NOT NULL,
+    computed_at TIMESTAMP WITH TIME ZONE NOT NULL,
+    CONSTRAINT uk_user_suggestion UNIQUE (user_id, suggested_user_id)
+);
+
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_user_suggestions_score ON user_suggestions (user_id, score DESC);
+
+ALTER TABLE users ADD COLUMN IF NOT EXISTS suggestions_computed_at TIMESTAMP WITH TIME ZONE;
+
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_users_suggestions_computed ON users (suggestions_computed_at);
+
+-- Verify the change
+\d user_suggestions;
+\d users;
@@ -0,0 +1,20 @@
+package tn.esprit.exam.config;
+
+import java.security.Principal;
+import java.util.UUID;
+
+/**
+ * Principal built from the claims of a verified access token
+ * getName() stays the email so existing auth.getName() callers are unchanged
+ *
+ * @param uid User id from the uid claim, null for tokens without it (refresh tokens)
+ * @param email Token subject
+ * @param role Role from the role claim, null for tokens without it
+ */
+public record AuthenticatedUser(UUID uid, String email, String role) implements Principal {
+
+    @Override
+    public String getName() {
+        return email;
+    }
+}
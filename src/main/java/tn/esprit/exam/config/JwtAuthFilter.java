@@ -10,10 +10,11 @@ import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
-import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 
 import java.io.IOException;
-import java.util.Collections;
+import java.util.List;
 
 @Component
 @RequiredArgsConstructor
@@ -36,13 +37,15 @@ public class JwtAuthFilter extends OncePerRequestFilter {
         }
 
         String token = authHeader.substring(7);
-        String username = jwtService.extractUsername(token);
+        AuthenticatedUser principal = jwtService.authenticate(token);
 
         // Only set authentication if not already set
-        if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-            User principal = new User(username, "", Collections.emptyList());
+        if (principal.email() != null && SecurityContextHolder.getContext().getAuthentication() == null) {
+            List<GrantedAuthority> authorities = principal.role() != null
+                    ? List.of(new SimpleGrantedAuthority("ROLE_" + principal.role()))
+                    : List.of();
             UsernamePasswordAuthenticationToken authToken =
-                    new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities());
+                    new UsernamePasswordAuthenticationToken(principal, null, authorities);
             authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
             SecurityContextHolder.getContext().setAuthentication(authToken);
         }
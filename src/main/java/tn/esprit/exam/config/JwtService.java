@@ -1,4 +1,5 @@
 package tn.esprit.exam.config;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
@@ -6,7 +7,10 @@ import java.nio.charset.StandardCharsets;
 import javax.crypto.SecretKey;
 import java.util.Date;
 import java.util.Map;
+import java.util.UUID;
 
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.security.Keys;
 
@@ -22,8 +26,16 @@ public class JwtService {
     @Value("${app.jwt.refresh-expiration:604800000}") // 7 days default
     private long refreshExpiration;
 
-    private SecretKey getSignKey() {
-        return Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8));
+    // Built once, both are immutable and thread safe
+    private SecretKey signKey;
+    private JwtParser parser;
+
+    @PostConstruct
+    void init() {
+        signKey = Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8));
+        parser = Jwts.parser()
+                .verifyWith(signKey)
+                .build();
     }
 
     public String generateToken(String subject, Map<String, Object> claims) {
@@ -32,7 +44,7 @@ public class JwtService {
                 .subject(subject)
                 .issuedAt(new Date())
                 .expiration(new Date(System.currentTimeMillis() + jwtExpiration))
-                .signWith(getSignKey())
+                .signWith(signKey)
                 .compact();
     }
 
@@ -41,16 +53,27 @@ public class JwtService {
                 .subject(subject)
                 .issuedAt(new Date())
                 .expiration(new Date(System.currentTimeMillis() + refreshExpiration))
-                .signWith(getSignKey())
+                .signWith(signKey)
                 .compact();
     }
 
     public String extractUsername(String token) {
-        return Jwts.parser()
-                .verifyWith(getSignKey())
-                .build()
-                .parseSignedClaims(token)
+        return parser.parseSignedClaims(token)
                 .getPayload()
                 .getSubject();
     }
+
+    /**
+     * Verify a bearer token and build its principal from the claims, without loading the user
+     * The signature check is one HMAC with the prebuilt key, cheaper than any cache lookup keyed by the token
+     */
+    public AuthenticatedUser authenticate(String token) {
+        Claims claims = parser.parseSignedClaims(token).getPayload();
+        String uid = claims.get("uid", String.class);
+        return new AuthenticatedUser(
+                uid != null ? UUID.fromString(uid) : null,
+                claims.getSubject(),
+                claims.get("role", String.class)
+        );
+    }
 }
@@ -8,11 +8,11 @@ import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 import tn.esprit.exam.dto.CommentRequest;
 import tn.esprit.exam.dto.CommentResponse;
+import tn.esprit.exam.dto.CursorPage;
 import tn.esprit.exam.dto.PostCommentUpdate;
 import tn.esprit.exam.service.ICommentService;
 import tn.esprit.exam.service.IUserService;
 
-import java.util.List;
 import java.util.UUID;
 
 @RestController
@@ -30,7 +30,7 @@ public class CommentController {
             @Valid @RequestBody CommentRequest request,
             Authentication auth
     ) {
-        UUID userId = userService.getUserIdByEmail(auth.getName());
+        UUID userId = userService.getCurrentUserId(auth);
         log.info("User {} adding comment to post {}", userId, postId);
         
         CommentRequest commentRequest = new CommentRequest(postId, request.content());
@@ -43,7 +43,7 @@ public class CommentController {
             @PathVariable UUID commentId,
             Authentication auth
     ) {
-        UUID userId = userService.getUserIdByEmail(auth.getName());
+        UUID userId = userService.getCurrentUserId(auth);
         log.info("User {} deleting comment {}", userId, commentId);
         
         commentService.deleteComment(commentId, userId);
@@ -51,11 +51,13 @@ public class CommentController {
     }
 
     @GetMapping("/{postId}/comments")
-    public ResponseEntity<List<CommentResponse>> getComments(
-            @PathVariable UUID postId
+    public ResponseEntity<CursorPage<CommentResponse>> getComments(
+            @PathVariable UUID postId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int limit
     ) {
         log.info("Fetching comments for post {}", postId);
-        return ResponseEntity.ok(commentService.getCommentsByPost(postId));
+        return ResponseEntity.ok(commentService.getCommentsByPost(postId, cursor, limit));
     }
 }
 
@@ -8,6 +8,7 @@ import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 import tn.esprit.exam.dto.ConversationCreateRequest;
 import tn.esprit.exam.dto.ConversationResponse;
+import tn.esprit.exam.dto.CursorPage;
 import tn.esprit.exam.dto.DirectMessageRequest;
 import tn.esprit.exam.dto.DirectMessageResponse;
 import tn.esprit.exam.service.IConversationService;
@@ -29,10 +30,14 @@ public class DirectMessageController {
     private final IUserService userService;
 
     @GetMapping("/conversations")
-    public ResponseEntity<List<ConversationResponse>> getConversations(Authentication authentication) {
-        UUID currentUserId = userService.getUserIdByEmail(authentication.getName());
+    public ResponseEntity<CursorPage<ConversationResponse>> getConversations(
+            Authentication authentication,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int limit
+    ) {
+        UUID currentUserId = userService.getCurrentUserId(authentication);
         log.info("Listing conversations for user {}", currentUserId);
-        return ResponseEntity.ok(conversationService.getUserConversations(currentUserId));
+        return ResponseEntity.ok(conversationService.getUserConversations(currentUserId, cursor, limit));
     }
 
     @PostMapping("/conversations")
@@ -44,7 +49,7 @@ public class DirectMessageController {
             throw new IllegalArgumentException("otherUserId is required");
         }
 
-        UUID currentUserId = userService.getUserIdByEmail(authentication.getName());
+        UUID currentUserId = userService.getCurrentUserId(authentication);
         log.info("Ensuring conversation for user {} with {}", currentUserId, request.otherUserId());
 
         ConversationResponse response = conversationService.ensureConversation(
@@ -60,7 +65,7 @@ public class DirectMessageController {
             @PathVariable UUID conversationId,
             Authentication authentication
     ) {
-        UUID currentUserId = userService.getUserIdByEmail(authentication.getName());
+        UUID currentUserId = userService.getCurrentUserId(authentication);
         log.info("Fetching conversation {} for user {}", conversationId, currentUserId);
         return ResponseEntity.ok(conversationService.getConversation(currentUserId, conversationId));
     }
@@ -73,7 +78,7 @@ public class DirectMessageController {
             @RequestParam(defaultValue = "50") int limit,
             Authentication authentication
     ) {
-        UUID currentUserId = userService.getUserIdByEmail(authentication.getName());
+        UUID currentUserId = userService.getCurrentUserId(authentication);
         int safeLimit = Math.max(1, Math.min(limit, 100));
 
         log.info("Fetching messages for conversation {} (before={}, limit={})",
@@ -99,7 +104,7 @@ public class DirectMessageController {
             throw new IllegalArgumentException("Message content is required");
         }
 
-        UUID senderId = userService.getUserIdByEmail(authentication.getName());
+        UUID senderId = userService.getCurrentUserId(authentication);
         log.info("User {} sending message in conversation {}", senderId, conversationId);
 
         DirectMessageResponse response = directMessageService.sendMessage(
@@ -116,7 +121,7 @@ public class DirectMessageController {
             @PathVariable UUID conversationId,
             Authentication authentication
     ) {
-        UUID currentUserId = userService.getUserIdByEmail(authentication.getName());
+        UUID currentUserId = userService.getCurrentUserId(authentication);
         log.info("Marking conversation {} as read for user {}", conversationId, currentUserId);
 
         directMessageService.markConversationAsRead(conversationId, currentUserId);
@@ -5,11 +5,11 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import tn.esprit.exam.dto.CursorPage;
 import tn.esprit.exam.dto.FollowResponse;
 import tn.esprit.exam.service.IFollowService;
 import tn.esprit.exam.service.IUserService;
 
-import java.util.List;
 import java.util.UUID;
 
 @RestController
@@ -26,7 +26,7 @@ public class FollowController {
             @PathVariable UUID userId,
             Authentication auth
     ) {
-        UUID currentUserId = userService.getUserIdByEmail(auth.getName());
+        UUID currentUserId = userService.getCurrentUserId(auth);
         log.info("User {} following user {}", currentUserId, userId);
         
         FollowResponse response = followService.followUser(currentUserId, userId);
@@ -38,7 +38,7 @@ public class FollowController {
             @PathVariable UUID userId,
             Authentication auth
     ) {
-        UUID currentUserId = userService.getUserIdByEmail(auth.getName());
+        UUID currentUserId = userService.getCurrentUserId(auth);
         log.info("User {} unfollowing user {}", currentUserId, userId);
         
         followService.unfollowUser(currentUserId, userId);
@@ -46,19 +46,23 @@ public class FollowController {
     }
 
     @GetMapping("/{userId}/followers")
-    public ResponseEntity<List<FollowResponse>> getFollowers(
-            @PathVariable UUID userId
+    public ResponseEntity<CursorPage<FollowResponse>> getFollowers(
+            @PathVariable UUID userId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int limit
     ) {
         log.info("Fetching followers for user {}", userId);
-        return ResponseEntity.ok(followService.getFollowers(userId));
+        return ResponseEntity.ok(followService.getFollowers(userId, cursor, limit));
     }
 
     @GetMapping("/{userId}/following")
-    public ResponseEntity<List<FollowResponse>> getFollowing(
-            @PathVariable UUID userId
+    public ResponseEntity<CursorPage<FollowResponse>> getFollowing(
+            @PathVariable UUID userId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int limit
     ) {
         log.info("Fetching following for user {}", userId);
-        return ResponseEntity.ok(followService.getFollowing(userId));
+        return ResponseEntity.ok(followService.getFollowing(userId, cursor, limit));
     }
 
     @GetMapping("/{userId}/follow-status")
@@ -66,7 +70,7 @@ public class FollowController {
             @PathVariable UUID userId,
             Authentication auth
     ) {
-        UUID currentUserId = userService.getUserIdByEmail(auth.getName());
+        UUID currentUserId = userService.getCurrentUserId(auth);
         log.info("Checking if user {} follows user {}", currentUserId, userId);
         
         boolean isFollowing = followService.isFollowing(currentUserId, userId);
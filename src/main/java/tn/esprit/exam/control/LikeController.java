@@ -5,12 +5,15 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import tn.esprit.exam.dto.CursorPage;
 import tn.esprit.exam.dto.LikeResponse;
+import tn.esprit.exam.dto.LikersPreview;
 import tn.esprit.exam.dto.PostLikeUpdate;
 import tn.esprit.exam.service.ILikeService;
 import tn.esprit.exam.service.IUserService;
 
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 @RestController
@@ -27,7 +30,7 @@ public class LikeController {
             @PathVariable UUID postId,
             Authentication auth
     ) {
-        UUID userId = userService.getUserIdByEmail(auth.getName());
+        UUID userId = userService.getCurrentUserId(auth);
         log.info("User {} liking post {}", userId, postId);
         
         PostLikeUpdate update = likeService.likePost(postId, userId);
@@ -39,7 +42,7 @@ public class LikeController {
             @PathVariable UUID postId,
             Authentication auth
     ) {
-        UUID userId = userService.getUserIdByEmail(auth.getName());
+        UUID userId = userService.getCurrentUserId(auth);
         log.info("User {} unliking post {}", userId, postId);
         
         PostLikeUpdate update = likeService.unlikePost(postId, userId);
@@ -47,11 +50,23 @@ public class LikeController {
     }
 
     @GetMapping("/{postId}/likes")
-    public ResponseEntity<List<LikeResponse>> getLikes(
-            @PathVariable UUID postId
+    public ResponseEntity<CursorPage<LikeResponse>> getLikes(
+            @PathVariable UUID postId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int limit
     ) {
         log.info("Fetching likes for post {}", postId);
-        return ResponseEntity.ok(likeService.getLikesByPost(postId));
+        return ResponseEntity.ok(likeService.getLikesByPost(postId, cursor, limit));
+    }
+
+    @GetMapping("/{postId}/likes/preview")
+    public ResponseEntity<LikersPreview> getLikersPreview(
+            @PathVariable UUID postId,
+            Authentication auth
+    ) {
+        UUID userId = userService.getCurrentUserId(auth);
+        log.info("Fetching likers preview of post {} for user {}", postId, userId);
+        return ResponseEntity.ok(likeService.getLikersPreview(postId, userId));
     }
 
     @GetMapping("/{postId}/like-status")
@@ -59,11 +74,20 @@ public class LikeController {
             @PathVariable UUID postId,
             Authentication auth
     ) {
-        UUID userId = userService.getUserIdByEmail(auth.getName());
+        UUID userId = userService.getCurrentUserId(auth);
         log.info("Checking if user {} liked post {}", userId, postId);
         
         boolean isLiked = likeService.isLiked(postId, userId);
         return ResponseEntity.ok(isLiked);
     }
-}
 
+    @GetMapping("/like-status")
+    public ResponseEntity<Map<UUID, Boolean>> getLikeStatuses(
+            @RequestParam List<UUID> postIds,
+            Authentication auth
+    ) {
+        UUID userId = userService.getCurrentUserId(auth);
+        log.info("Checking likes of user {} on {} posts", userId, postIds.size());
+        return ResponseEntity.ok(likeService.getLikeStatuses(postIds, userId));
+    }
+}
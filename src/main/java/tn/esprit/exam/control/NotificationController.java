@@ -5,6 +5,7 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import tn.esprit.exam.dto.CursorPage;
 import tn.esprit.exam.dto.NotificationResponse;
 import tn.esprit.exam.service.INotificationService;
 import tn.esprit.exam.service.IUserService;
@@ -22,19 +23,21 @@ public class NotificationController {
     private final IUserService userService;
     
     @GetMapping
-    public ResponseEntity<List<NotificationResponse>> getNotifications(
-            Authentication auth
+    public ResponseEntity<CursorPage<NotificationResponse>> getNotifications(
+            Authentication auth,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int limit
     ) {
-        UUID userId = userService.getUserIdByEmail(auth.getName());
+        UUID userId = userService.getCurrentUserId(auth);
         log.info("Fetching notifications for user: {}", userId);
-        return ResponseEntity.ok(notificationService.getNotifications(userId));
+        return ResponseEntity.ok(notificationService.getNotifications(userId, cursor, limit));
     }
     
     @GetMapping("/unread")
     public ResponseEntity<List<NotificationResponse>> getUnreadNotifications(
             Authentication auth
     ) {
-        UUID userId = userService.getUserIdByEmail(auth.getName());
+        UUID userId = userService.getCurrentUserId(auth);
         log.info("Fetching unread notifications for user: {}", userId);
         return ResponseEntity.ok(notificationService.getUnreadNotifications(userId));
     }
@@ -43,7 +46,7 @@ public class NotificationController {
     public ResponseEntity<Long> getUnreadCount(
             Authentication auth
     ) {
-        UUID userId = userService.getUserIdByEmail(auth.getName());
+        UUID userId = userService.getCurrentUserId(auth);
         log.info("Fetching unread count for user: {}", userId);
         return ResponseEntity.ok(notificationService.getUnreadCount(userId));
     }
@@ -53,7 +56,7 @@ public class NotificationController {
             @PathVariable UUID notificationId,
             Authentication auth
     ) {
-        UUID userId = userService.getUserIdByEmail(auth.getName());
+        UUID userId = userService.getCurrentUserId(auth);
         log.info("Marking notification {} as read for user: {}", notificationId, userId);
         notificationService.markAsRead(notificationId, userId);
         return ResponseEntity.noContent().build();
@@ -63,7 +66,7 @@ public class NotificationController {
     public ResponseEntity<Void> markAllAsRead(
             Authentication auth
     ) {
-        UUID userId = userService.getUserIdByEmail(auth.getName());
+        UUID userId = userService.getCurrentUserId(auth);
         log.info("Marking all notifications as read for user: {}", userId);
         notificationService.markAllAsRead(userId);
         return ResponseEntity.noContent().build();
@@ -74,7 +77,7 @@ public class NotificationController {
             @PathVariable UUID notificationId,
             Authentication auth
     ) {
-        UUID userId = userService.getUserIdByEmail(auth.getName());
+        UUID userId = userService.getCurrentUserId(auth);
         log.info("Deleting notification {} for user: {}", notificationId, userId);
         notificationService.deleteNotification(notificationId, userId);
         return ResponseEntity.noContent().build();
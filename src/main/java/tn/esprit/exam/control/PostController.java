@@ -6,9 +6,13 @@ import org.springframework.http.MediaType;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import tn.esprit.exam.dto.CursorPage;
 import tn.esprit.exam.dto.PostResponse;
+import tn.esprit.exam.dto.PostSearchResponse;
+import tn.esprit.exam.dto.PostViewerState;
 import tn.esprit.exam.entity.Visibility;
 import tn.esprit.exam.service.IPostService;
+import tn.esprit.exam.service.IUserService;
 
 import java.io.IOException;
 import java.util.List;
@@ -25,6 +29,7 @@ import java.util.UUID;
 public class PostController {
 
     private final IPostService postService;
+    private final IUserService userService;
 
     /**
      * Create a new post with media attachments
@@ -82,17 +87,21 @@ public class PostController {
     }
 
     /**
-     * Get all posts for a specific trip
+     * Get posts for a specific trip, one page at a time
      *
      * @param tripId Trip identifier
-     * @return List of posts with media
+     * @param cursor Cursor from the previous page
+     * @param limit Page size
+     * @return Page of posts with media
      */
     @GetMapping("/trip/{tripId}")
-    public List<PostResponse> getPostsByTrip(
-            @PathVariable UUID tripId
+    public CursorPage<PostResponse> getPostsByTrip(
+            @PathVariable UUID tripId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int limit
     ) {
         log.info("Fetching posts for trip: {}", tripId);
-        return postService.getPostsByTrip(tripId);
+        return postService.getPostsByTrip(tripId, cursor, limit);
     }
 
     /**
@@ -115,17 +124,48 @@ public class PostController {
      *
      * @param country Optional country filter
      * @param city Optional city filter
-     * @return List of public posts matching criteria
+     * @param cursor Cursor from the previous page
+     * @param limit Page size
+     * @return Page of public posts matching criteria
      */
     @GetMapping("/public")
-    public List<PostResponse> searchPublicPosts(
+    public CursorPage<PostResponse> searchPublicPosts(
             @RequestParam(required = false) String country,
-            @RequestParam(required = false) String city
+            @RequestParam(required = false) String city,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int limit
     ) {
         log.info("Searching public posts - country: {}, city: {}", 
                 country, 
                 city);
-        return postService.searchPublicPosts(country, city);
+        return postService.searchPublicPosts(country, city, cursor, limit);
+    }
+
+    /**
+     * Full-text search of public posts
+     * Matches text, place, trip title and author, with prefix and typo tolerance
+     *
+     * @param q Free text
+     * @param country Optional country filter
+     * @param city Optional city filter
+     * @param lat Optional latitude of a radius filter
+     * @param lon Optional longitude of a radius filter
+     * @param radius Radius in meters, required with lat and lon
+     * @param limit Maximum number of posts
+     * @return Ranked posts with country and city facets
+     */
+    @GetMapping("/search")
+    public PostSearchResponse searchPosts(
+            @RequestParam(required = false) String q,
+            @RequestParam(required = false) String country,
+            @RequestParam(required = false) String city,
+            @RequestParam(required = false) Double lat,
+            @RequestParam(required = false) Double lon,
+            @RequestParam(required = false) Double radius,
+            @RequestParam(defaultValue = "20") int limit
+    ) {
+        log.info("Searching posts - q: {}, country: {}, city: {}", q, country, city);
+        return postService.searchPosts(q, country, city, lat, lon, radius, limit);
     }
 
     /**
@@ -141,8 +181,29 @@ public class PostController {
     }
 
     @GetMapping("/following")
-    public List<PostResponse> getFollowingPosts(Authentication auth) {
+    public CursorPage<PostResponse> getFollowingPosts(
+            Authentication auth,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int limit
+    ) {
         log.info("Fetching posts from followed users for: {}", auth.getName());
-        return postService.getFollowingPosts(auth.getName());
+        return postService.getFollowingPosts(userService.getCurrentUserId(auth), cursor, limit);
+    }
+
+    /**
+     * Get the viewer state of a page of posts in one call
+     * Replaces per-card like status, like count and follow status requests
+     *
+     * @param postIds Posts of the page, at most 50
+     * @param auth Spring Security authentication object
+     * @return Counts and flags per post
+     */
+    @GetMapping("/viewer-state")
+    public List<PostViewerState> getViewerStates(
+            @RequestParam List<UUID> postIds,
+            Authentication auth
+    ) {
+        log.info("Fetching viewer state of {} posts for: {}", postIds.size(), auth.getName());
+        return postService.getViewerStates(userService.getCurrentUserId(auth), postIds);
     }
 }
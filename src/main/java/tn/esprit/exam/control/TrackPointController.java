@@ -4,11 +4,15 @@ import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import tn.esprit.exam.dto.EncodedTrackResponse;
 import tn.esprit.exam.dto.TrackPointRequest;
 import tn.esprit.exam.dto.TrackPointResponse;
 import tn.esprit.exam.service.ITrackPointService;
+import tn.esprit.exam.service.TrackCodec;
+import tn.esprit.exam.service.TrackSimplifier;
 
 import java.time.OffsetDateTime;
 import java.util.List;
@@ -69,6 +73,75 @@ public class TrackPointController {
         }
     }
 
+    /**
+     * Get the track as encoded polylines
+     * GET /trips/{tripId}/track-points/encoded
+     */
+    @GetMapping(value = "/encoded", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<EncodedTrackResponse> getEncodedTrackPoints(@PathVariable UUID tripId) {
+        log.info("Getting encoded track for trip: {}", tripId);
+        
+        try {
+            return ResponseEntity.ok(trackPointService.getEncodedTrackPoints(tripId));
+        } catch (RuntimeException e) {
+            log.error("Error getting encoded track for trip {}: {}", tripId, e.getMessage());
+            return ResponseEntity.notFound().build();
+        }
+    }
+
+    /**
+     * Get the track in the binary format, selected with Accept: application/vnd.trip-track
+     * GET /trips/{tripId}/track-points/encoded
+     */
+    @GetMapping(value = "/encoded", produces = TrackCodec.BINARY_MEDIA_TYPE)
+    public ResponseEntity<byte[]> getBinaryTrackPoints(@PathVariable UUID tripId) {
+        log.info("Getting binary track for trip: {}", tripId);
+        
+        try {
+            return ResponseEntity.ok()
+                    .contentType(MediaType.parseMediaType(TrackCodec.BINARY_MEDIA_TYPE))
+                    .body(trackPointService.getBinaryTrackPoints(tripId));
+        } catch (RuntimeException e) {
+            log.error("Error getting binary track for trip {}: {}", tripId, e.getMessage());
+            return ResponseEntity.notFound().build();
+        }
+    }
+
+    /**
+     * Get a simplified track sized for a map zoom level
+     * GET /trips/{tripId}/track-points?zoom=...
+     */
+    @GetMapping(params = "zoom")
+    public ResponseEntity<List<TrackPointResponse>> getTrackPointsForZoom(
+            @PathVariable UUID tripId,
+            @RequestParam int zoom) {
+        
+        log.info("Getting track points for trip {} at zoom {}", tripId, zoom);
+        return getSimplifiedTrackPoints(tripId, TrackSimplifier.toleranceForZoom(zoom));
+    }
+
+    /**
+     * Get a simplified track within a tolerance in meters
+     * GET /trips/{tripId}/track-points?tolerance=...
+     */
+    @GetMapping(params = "tolerance")
+    public ResponseEntity<List<TrackPointResponse>> getTrackPointsWithTolerance(
+            @PathVariable UUID tripId,
+            @RequestParam double tolerance) {
+        
+        log.info("Getting track points for trip {} with tolerance {}m", tripId, tolerance);
+        return getSimplifiedTrackPoints(tripId, tolerance);
+    }
+
+    private ResponseEntity<List<TrackPointResponse>> getSimplifiedTrackPoints(UUID tripId, double tolerance) {
+        try {
+            return ResponseEntity.ok(trackPointService.getSimplifiedTrackPoints(tripId, tolerance));
+        } catch (RuntimeException e) {
+            log.error("Error getting simplified track points for trip {}: {}", tripId, e.getMessage());
+            return ResponseEntity.notFound().build();
+        }
+    }
+
     /**
      * Get track points within a time range
      * GET /trips/{tripId}/track-points?startTime=...&endTime=...
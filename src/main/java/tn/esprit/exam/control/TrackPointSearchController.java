@@ -0,0 +1,51 @@
+package tn.esprit.exam.control;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+import tn.esprit.exam.dto.TrackPointResponse;
+import tn.esprit.exam.service.ITrackPointService;
+import tn.esprit.exam.service.IUserService;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * REST Controller for spatial track point searches spanning several trips
+ */
+@Slf4j
+@RestController
+@RequestMapping("/track-points")
+@RequiredArgsConstructor
+public class TrackPointSearchController {
+
+    private final ITrackPointService trackPointService;
+    private final IUserService userService;
+
+    /**
+     * Get track points of all visible trips, or of one user's trips, near a location
+     * GET /track-points/nearby?lat=...&lon=...&radius=...&userId=...&limit=...
+     */
+    @GetMapping("/nearby")
+    public ResponseEntity<List<TrackPointResponse>> getTrackPointsNearby(
+            @RequestParam Double lat,
+            @RequestParam Double lon,
+            @RequestParam Double radius,
+            @RequestParam(required = false) UUID userId,
+            @RequestParam(defaultValue = "200") int limit,
+            Authentication authentication) {
+        
+        log.info("Getting track points near ({}, {}) within {}m for user: {}", lat, lon, radius, userId);
+        
+        try {
+            UUID viewerId = userService.getCurrentUserId(authentication);
+            return ResponseEntity.ok(trackPointService
+                    .getTrackPointsNearLocationAcrossTrips(viewerId, userId, lat, lon, radius, limit));
+        } catch (IllegalArgumentException e) {
+            log.error("Invalid nearby track point search: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
+    }
+}
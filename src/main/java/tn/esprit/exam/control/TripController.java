@@ -1,15 +1,23 @@
 package tn.esprit.exam.control;
 
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.WebAsyncTask;
+import tn.esprit.exam.dto.CursorPage;
 import tn.esprit.exam.dto.TimelineResponse;
 import tn.esprit.exam.dto.TripRequest;
 import tn.esprit.exam.dto.TripResponse;
+import tn.esprit.exam.dto.TripStatsDTO;
+import tn.esprit.exam.entity.Trip;
 import tn.esprit.exam.service.ITripService;
+import tn.esprit.exam.service.ITripStatsService;
+import tn.esprit.exam.service.TripStatsRebuildJob;
+import tn.esprit.exam.service.TripTrackExporter;
 
-import java.util.List;
 import java.util.UUID;
 
 @Tag(name = "Trip Web Service")
@@ -19,7 +27,13 @@ import java.util.UUID;
 @Slf4j
 public class TripController {
 
+    // Long exports outlive the default async timeout, which stays in force for every other endpoint
+    private static final long EXPORT_TIMEOUT_MS = 600_000;
+
     private final ITripService tripService;
+    private final ITripStatsService tripStatsService;
+    private final TripStatsRebuildJob tripStatsRebuildJob;
+    private final TripTrackExporter tripTrackExporter;
 
     @PostMapping("/start/{userId}")
     public TripResponse startTrip(@PathVariable UUID userId,
@@ -33,8 +47,12 @@ public class TripController {
     }
 
     @GetMapping("/user/{userId}")
-    public List<TripResponse> getTripsByUser(@PathVariable UUID userId) {
-        return tripService.getTripsByUser(userId);
+    public CursorPage<TripResponse> getTripsByUser(
+            @PathVariable UUID userId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int limit
+    ) {
+        return tripService.getTripsByUser(userId, cursor, limit);
     }
 
     @GetMapping("/{tripId}")
@@ -48,11 +66,47 @@ public class TripController {
     }
 
     @GetMapping("/{tripId}/timeline")
-    public TimelineResponse getTimeline(@PathVariable UUID tripId) {
+    public TimelineResponse getTimeline(
+            @PathVariable UUID tripId,
+            @RequestParam(defaultValue = "false") boolean compact
+    ) {
         log.info(
-                "Fetching timeline for trip: {}", 
-                tripId
+                "Fetching timeline for trip: {} (compact: {})", 
+                tripId,
+                compact
         );
-        return tripService.getTimeline(tripId);
+        return tripService.getTimeline(tripId, compact);
+    }
+
+    @GetMapping("/{tripId}/export")
+    public WebAsyncTask<Void> exportTrack(
+            @PathVariable UUID tripId,
+            @RequestParam(defaultValue = "gpx") String format,
+            HttpServletResponse response
+    ) {
+        TripTrackExporter.Format exportFormat = TripTrackExporter.Format.parse(format);
+        Trip trip = tripTrackExporter.getTrip(tripId);
+        log.info("Exporting track of trip {} as {}", tripId, exportFormat);
+
+        response.setContentType(exportFormat.contentType());
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                "attachment; filename=\"trip-" + tripId + "." + exportFormat.extension() + "\"");
+
+        return new WebAsyncTask<>(EXPORT_TIMEOUT_MS, () -> {
+            tripTrackExporter.export(trip, exportFormat, response.getOutputStream());
+            return null;
+        });
+    }
+
+    @PostMapping("/{tripId}/stats/rebuild")
+    public TripStatsDTO rebuildTripStats(@PathVariable UUID tripId) {
+        log.info("Rebuilding stats for trip: {}", tripId);
+        return tripStatsService.rebuildTripStats(tripId);
+    }
+
+    @PostMapping("/stats/rebuild")
+    public int rebuildAllTripStats() {
+        log.info("Rebuilding stats for all trips");
+        return tripStatsRebuildJob.rebuildAll();
     }
 }
@@ -5,10 +5,14 @@ import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 import tn.esprit.exam.dto.UserRequest;
 import tn.esprit.exam.dto.UserResponse;
+import tn.esprit.exam.dto.UserStatsConsistencyReport;
 import tn.esprit.exam.dto.UserStatsResponse;
+import tn.esprit.exam.dto.UserSuggestionResponse;
 import tn.esprit.exam.service.IUserService;
 import tn.esprit.exam.service.ITripService;
 import tn.esprit.exam.service.IMediaService;
+import tn.esprit.exam.service.IUserTravelStatsService;
+import tn.esprit.exam.service.IUserSuggestionService;
 import tn.esprit.exam.repository.UserRepository;
 import tn.esprit.exam.repository.MediaRepository;
 import tn.esprit.exam.entity.User;
@@ -32,6 +36,8 @@ public class UserController {
     UserRepository userRepository;
     IMediaService mediaService;
     MediaRepository mediaRepository;
+    IUserTravelStatsService userTravelStatsService;
+    IUserSuggestionService userSuggestionService;
 
     @GetMapping
     public List<UserResponse> getAllUsers() {
@@ -74,6 +80,30 @@ public class UserController {
         return tripService.getUserTravelStats(userId);
     }
 
+    @GetMapping("/{userId}/travel-stats/consistency")
+    public UserStatsConsistencyReport checkTravelStatsConsistency(@PathVariable UUID userId) {
+        return userTravelStatsService.checkConsistency(userId);
+    }
+
+    @PostMapping("/{userId}/travel-stats/rebuild")
+    public UserStatsResponse rebuildTravelStats(@PathVariable UUID userId) {
+        return userTravelStatsService.rebuildUserTravelStats(userId);
+    }
+
+    @GetMapping("/{userId}/suggestions")
+    public List<UserSuggestionResponse> getSuggestions(
+            Authentication auth,
+            @PathVariable UUID userId,
+            @RequestParam(defaultValue = "10") int limit) {
+        if (auth == null) {
+            throw new RuntimeException("User not authenticated");
+        }
+        if (!userService.getCurrentUserId(auth).equals(userId)) {
+            throw new RuntimeException("Suggestions are only visible to their user");
+        }
+        return userSuggestionService.getSuggestions(userId, limit);
+    }
+
     @PostMapping("/add")
     public UserResponse addUser(@RequestBody UserRequest request) {
         return userService.addUser(request);
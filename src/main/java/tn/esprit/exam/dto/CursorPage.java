@@ -0,0 +1,52 @@
+package tn.esprit.exam.dto;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * One page of a keyset-paginated list
+ * nextCursor is null on the last page
+ */
+public record CursorPage<T>(
+    List<T> items,
+    String nextCursor
+) {
+    public static final int DEFAULT_SIZE = 20;
+    public static final int MAX_SIZE = 50;
+
+    /**
+     * Clamp a page size requested by a client
+     */
+    public static int size(int requested) {
+        return requested <= 0 ? DEFAULT_SIZE : Math.min(requested, MAX_SIZE);
+    }
+
+    /**
+     * Build a page from rows fetched with limit + 1
+     * The extra row only tells whether another page exists and is not returned
+     *
+     * @param rows Rows in keyset order, at most limit + 1
+     * @param limit Page size
+     * @param position Keyset position of a row
+     * @param mapper Row to response
+     */
+    public static <E, T> CursorPage<T> of(
+            List<E> rows,
+            int limit,
+            Function<? super E, PageCursor> position,
+            Function<? super E, ? extends T> mapper
+    ) {
+        boolean hasMore = rows.size() > limit;
+        List<E> page = hasMore ? rows.subList(0, limit) : rows;
+        List<T> items = page.stream().<T>map(mapper).toList();
+        String nextCursor = hasMore ? position.apply(page.get(limit - 1)).encode() : null;
+        return new CursorPage<>(items, nextCursor);
+    }
+
+    /**
+     * Same page with its items converted in one batch
+     */
+    public <R> CursorPage<R> mapItems(Function<? super List<T>, List<R>> mapper) {
+        return new CursorPage<>(mapper.apply(items), nextCursor);
+    }
+}
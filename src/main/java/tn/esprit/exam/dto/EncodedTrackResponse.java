@@ -0,0 +1,30 @@
+package tn.esprit.exam.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+
+import java.time.OffsetDateTime;
+import java.util.UUID;
+
+/**
+ * Compact track representation for map clients
+ * Every series uses the Google encoded polyline algorithm on deltas between consecutive points
+ */
+public record EncodedTrackResponse(
+    UUID tripId,
+    Integer pointsCount,
+    
+    @JsonFormat(pattern = "yyyy-MM-dd'T'HH:mm:ss.SSSXXX")
+    OffsetDateTime startTs,
+    
+    // Latitude/longitude pairs at 1e-5 degree precision
+    String polyline,
+    
+    // Seconds since startTs
+    String timestamps,
+    
+    // Speed in 0.1 m/s units, -1 when unknown
+    String speeds,
+    
+    // Track point ids, needed to attach posts to the geometry
+    String trackPointIds
+) {}
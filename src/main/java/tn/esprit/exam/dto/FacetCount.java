@@ -0,0 +1,9 @@
+package tn.esprit.exam.dto;
+
+/**
+ * Number of search hits sharing one facet value
+ */
+public record FacetCount(
+    String value,
+    long count
+) {}
@@ -8,7 +8,7 @@ public record LikeResponse(
     UUID postId,
     UUID userId,
     String username,
+    String avatarUrl,
     OffsetDateTime createdAt
 ) {
 }
-
@@ -0,0 +1,13 @@
+package tn.esprit.exam.dto;
+
+import java.util.List;
+
+/**
+ * Likers shown under a post: followed users who liked it first, then the latest likers
+ */
+public record LikersPreview(
+    long likesCount,
+    List<LikeResponse> friends,
+    List<LikeResponse> recent
+) {
+}
@@ -18,6 +18,7 @@ public record NotificationResponse(
         Boolean isRead,
         UUID postId,
         UUID commentId,
-        String content
+        String content,
+        Integer actorCount // Actors merged into a grouped notification
 ) {}
 
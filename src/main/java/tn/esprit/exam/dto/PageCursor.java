@@ -0,0 +1,52 @@
+package tn.esprit.exam.dto;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.Base64;
+import java.util.UUID;
+
+/**
+ * Keyset position in a list ordered by (ts DESC, id DESC) or (ts ASC, id ASC)
+ * Sent to clients as an opaque base64 string
+ */
+public record PageCursor(
+    OffsetDateTime ts,
+    UUID id
+) {
+    /**
+     * Opaque representation, epoch microseconds and id
+     */
+    public String encode() {
+        long micros = ChronoUnit.MICROS.between(Instant.EPOCH, ts.toInstant());
+        String raw = micros + ":" + id;
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Parse a cursor sent back by a client
+     *
+     * @return Cursor, null for the first page
+     * @throws IllegalArgumentException if the cursor is malformed
+     */
+    public static PageCursor decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.indexOf(':');
+            long micros = Long.parseLong(raw.substring(0, separator));
+            Instant instant = Instant.EPOCH.plus(micros, ChronoUnit.MICROS);
+            return new PageCursor(
+                    OffsetDateTime.ofInstant(instant, ZoneOffset.UTC),
+                    UUID.fromString(raw.substring(separator + 1))
+            );
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+}
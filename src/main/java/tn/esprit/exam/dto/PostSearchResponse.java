@@ -0,0 +1,13 @@
+package tn.esprit.exam.dto;
+
+import java.util.List;
+
+/**
+ * Ranked post search hits with country and city facets
+ * Facets count at most the first 10,000 matches and are empty for a search without any criteria
+ */
+public record PostSearchResponse(
+    List<PostResponse> posts,
+    List<FacetCount> countries,
+    List<FacetCount> cities
+) {}
@@ -0,0 +1,16 @@
+package tn.esprit.exam.dto;
+
+import java.util.UUID;
+
+/**
+ * Counters of a post and what the current user did with it, for rendering a post card
+ */
+public record PostViewerState(
+    UUID postId,
+    long likesCount,
+    long commentsCount,
+    boolean liked,
+    boolean commented,
+    boolean followingAuthor
+) {
+}
@@ -10,7 +10,9 @@ import java.util.List;
 @Builder
 public record TimelineResponse(
         List<TimelineItemResponse> items,
-        TimelineStats stats
+        TimelineStats stats,
+        // Whole track as encoded polylines, only set for compact timelines
+        EncodedTrackResponse track
 ) {
     @Builder
     public record TimelineStats(
@@ -4,6 +4,8 @@ import jakarta.validation.constraints.DecimalMax;
 import jakarta.validation.constraints.DecimalMin;
 import jakarta.validation.constraints.NotNull;
 
+import java.time.OffsetDateTime;
+
 /**
  * DTO for creating track points
  * Contains validation annotations for data integrity
@@ -25,7 +27,10 @@ public record TrackPointRequest(
     @DecimalMin(value = "0.0", message = "Speed must be positive")
     Double speedMps,
     
-    String locationName
+    String locationName,
+    
+    // Time the point was recorded on the device, server receive time when absent
+    OffsetDateTime recordedAt
 ) {
     /**
      * Validates that the coordinates are within reasonable bounds
@@ -0,0 +1,16 @@
+package tn.esprit.exam.dto;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Result of comparing a user's travel stats rollup with a full recompute
+ */
+public record UserStatsConsistencyReport(
+        UUID userId,
+        boolean consistent,
+        UserStatsResponse stored,
+        UserStatsResponse recomputed,
+        List<String> differences
+) {
+}
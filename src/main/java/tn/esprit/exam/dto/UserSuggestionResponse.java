@@ -0,0 +1,15 @@
+package tn.esprit.exam.dto;
+
+import java.util.UUID;
+
+/**
+ * A user the current user may know, with the reasons
+ */
+public record UserSuggestionResponse(
+    UUID userId,
+    String username,
+    String avatarUrl,
+    Integer mutualFollows,
+    Integer sharedPlaces
+) {
+}
@@ -8,7 +8,10 @@ import java.time.OffsetDateTime;
 import java.util.UUID;
 
 @Entity
-@Table(name = "comments")
+@Table(name = "comments", indexes = {
+    @Index(name = "idx_comments_post_created", columnList = "post_id, created_at, id"),
+    @Index(name = "idx_comments_post_user", columnList = "post_id, user_id")
+})
 @Getter
 @Setter
 @AllArgsConstructor
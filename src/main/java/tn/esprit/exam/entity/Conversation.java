@@ -18,8 +18,8 @@ import java.util.UUID;
         ),
         indexes = {
                 @Index(name = "idx_conversation_updated", columnList = "updated_at DESC"),
-                @Index(name = "idx_conversation_participant_a", columnList = "participant_a_id"),
-                @Index(name = "idx_conversation_participant_b", columnList = "participant_b_id")
+                @Index(name = "idx_conversation_a_updated", columnList = "participant_a_id, updated_at DESC, id DESC"),
+                @Index(name = "idx_conversation_b_updated", columnList = "participant_b_id, updated_at DESC, id DESC")
         }
 )
 @Getter
@@ -47,6 +47,13 @@ public class Conversation {
     @Column(nullable = false, name = "updated_at")
     OffsetDateTime updatedAt = OffsetDateTime.now();
 
+    // Unread messages of each participant, written only with atomic updates by UnreadCounters
+    @Column(name = "unread_count_a", insertable = false, updatable = false)
+    Integer unreadCountA;
+
+    @Column(name = "unread_count_b", insertable = false, updatable = false)
+    Integer unreadCountB;
+
     @OneToMany(
             mappedBy = "conversation",
             cascade = CascadeType.ALL,
@@ -10,6 +10,9 @@ import java.util.UUID;
 @Entity
 @Table(name = "follows", uniqueConstraints = {
     @UniqueConstraint(columnNames = {"follower_id", "following_id"})
+}, indexes = {
+    @Index(name = "idx_follows_following_created", columnList = "following_id, created_at DESC, id DESC"),
+    @Index(name = "idx_follows_follower_created", columnList = "follower_id, created_at DESC, id DESC")
 })
 @Getter
 @Setter
@@ -0,0 +1,45 @@
+package tn.esprit.exam.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+import java.time.OffsetDateTime;
+import java.util.UUID;
+
+/**
+ * Post pushed into a follower's home feed when it was published
+ * Plain ids instead of relations, rows are only read as (ts, post id) keys
+ */
+@Entity
+@Table(
+        name = "home_feed_entries",
+        uniqueConstraints = @UniqueConstraint(name = "uk_home_feed_user_post", columnNames = {"user_id", "post_id"}),
+        indexes = {
+                @Index(name = "idx_home_feed_user_ts", columnList = "user_id, ts, post_id"),
+                @Index(name = "idx_home_feed_user_author", columnList = "user_id, author_id")
+        }
+)
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class HomeFeedEntry {
+
+    @Id
+    @GeneratedValue
+    UUID id;
+
+    @Column(name = "user_id", nullable = false)
+    UUID userId;
+
+    @Column(name = "post_id", nullable = false)
+    UUID postId;
+
+    @Column(name = "author_id", nullable = false)
+    UUID authorId;
+
+    @Column(nullable = false)
+    OffsetDateTime ts;
+}
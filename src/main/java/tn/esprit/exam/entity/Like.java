@@ -10,6 +10,8 @@ import java.util.UUID;
 @Entity
 @Table(name = "likes", uniqueConstraints = {
     @UniqueConstraint(columnNames = {"post_id", "user_id"})
+}, indexes = {
+    @Index(name = "idx_likes_post_created", columnList = "post_id, created_at DESC, id DESC")
 })
 @Getter
 @Setter
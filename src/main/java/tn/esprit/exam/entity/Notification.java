@@ -8,8 +8,10 @@ import java.time.OffsetDateTime;
 import java.util.UUID;
 
 @Entity
-@Table(name = "notifications", indexes = {
-    @Index(name = "idx_notification_user_created", columnList = "user_id, created_at DESC")
+@Table(name = "notifications", uniqueConstraints = {
+    @UniqueConstraint(name = "uk_notification_user_group", columnNames = {"user_id", "group_key"})
+}, indexes = {
+    @Index(name = "idx_notification_user_created_id", columnList = "user_id, created_at DESC, id DESC")
 })
 @Getter
 @Setter
@@ -28,7 +30,13 @@ public class Notification {
 
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "actor_id", nullable = false)
-    User actor; // The user who performed the action
+    User actor; // The user who performed the action, the latest one for a group
+
+    @Column(name = "actor_count")
+    Integer actorCount = 1; // Distinct actors merged into this notification, see NotificationActor
+
+    @Column(name = "group_key")
+    String groupKey; // Unique per user while the group is open, null for ungrouped types and once read or closed
 
     @Enumerated(EnumType.STRING)
     @Column(nullable = false)
@@ -48,6 +56,10 @@ public class Notification {
     // Helper method to generate notification content
     public String generateContent() {
         String actorName = actor != null ? actor.getUsername() : "Someone";
+        int others = actorCount != null ? actorCount - 1 : 0;
+        if (others > 0) {
+            actorName += " and " + others + (others == 1 ? " other" : " others");
+        }
         return switch (type) {
             case LIKE -> actorName + " liked your post";
             case COMMENT -> actorName + " commented on your post";
@@ -0,0 +1,39 @@
+package tn.esprit.exam.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
+
+import java.util.UUID;
+
+/**
+ * Distinct actor of a grouped notification, written with INSERT ... ON CONFLICT DO NOTHING
+ * so the actor count only grows the first time an actor joins the group
+ * At most NotificationGroups.MAX_TRACKED_ACTORS rows per group
+ */
+@Entity
+@Table(
+        name = "notification_actors",
+        uniqueConstraints = @UniqueConstraint(name = "uk_notification_actor", columnNames = {"notification_id", "actor_id"})
+)
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class NotificationActor {
+
+    @Id
+    @GeneratedValue
+    UUID id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "notification_id", nullable = false)
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    Notification notification;
+
+    @Column(name = "actor_id", nullable = false)
+    UUID actorId;
+}
@@ -0,0 +1,61 @@
+package tn.esprit.exam.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+import java.time.OffsetDateTime;
+import java.util.UUID;
+
+/**
+ * Pending follower notification fan-out, written in the same transaction as the post
+ * The cursor is the (created_at, id) of the last follow already notified, so a run can resume
+ * An event that keeps failing is dead-lettered, kept for inspection but no longer claimed
+ */
+@Entity
+@Table(
+        name = "notification_outbox",
+        indexes = @Index(name = "idx_notification_outbox_created", columnList = "created_at")
+)
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class NotificationOutboxEvent {
+
+    @Id
+    @GeneratedValue
+    UUID id;
+
+    @Column(name = "actor_id", nullable = false)
+    UUID actorId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    NotificationType type;
+
+    @Column(name = "post_id")
+    UUID postId;
+
+    @Column(name = "created_at", nullable = false)
+    OffsetDateTime createdAt = OffsetDateTime.now();
+
+    @Column(name = "cursor_ts")
+    OffsetDateTime cursorTs;
+
+    @Column(name = "cursor_id")
+    UUID cursorId;
+
+    // Failed batches, written only by NotificationOutboxRepository.recordFailure
+    @Column(name = "attempts", insertable = false, updatable = false,
+            columnDefinition = "integer not null default 0")
+    Integer attempts;
+
+    @Column(name = "last_error", insertable = false, updatable = false, columnDefinition = "TEXT")
+    String lastError;
+
+    // Set once attempts reaches the limit, the event is then skipped by claimNext
+    @Column(name = "dead_at", insertable = false, updatable = false)
+    OffsetDateTime deadAt;
+}
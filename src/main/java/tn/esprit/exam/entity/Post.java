@@ -10,7 +10,11 @@ import java.util.List;
 import java.util.UUID;
 
 @Entity
-@Table(name = "posts")
+@Table(name = "posts", indexes = {
+    @Index(name = "idx_posts_visibility_ts", columnList = "visibility, ts DESC, id DESC"),
+    @Index(name = "idx_posts_location_ts", columnList = "visibility, country, city, ts DESC, id DESC"),
+    @Index(name = "idx_posts_trip_ts", columnList = "trip_id, ts, id")
+})
 @Getter
 @Setter
 @AllArgsConstructor
@@ -49,6 +53,16 @@ public class Post {
     @JoinColumn(name = "track_point_id", nullable = true)
     private TrackPoint trackPoint;
 
+    // Written only by LikeCounter flushes, so a stale entity never overwrites it
+    @Column(name = "likes_count", insertable = false, updatable = false,
+            columnDefinition = "bigint not null default 0")
+    Long likesCount;
+
+    // Shifted by CommentServiceImpl in the comment's transaction, never written from the entity
+    @Column(name = "comments_count", insertable = false, updatable = false,
+            columnDefinition = "bigint not null default 0")
+    Long commentsCount;
+
     @JsonIgnore
     @OneToMany(mappedBy = "post", cascade = CascadeType.ALL, orphanRemoval = true)
     List<Media> media;
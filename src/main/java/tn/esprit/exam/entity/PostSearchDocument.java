@@ -0,0 +1,59 @@
+package tn.esprit.exam.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+import java.time.OffsetDateTime;
+import java.util.UUID;
+
+/**
+ * Denormalized search document of a public post
+ * Written with SQL by PostSearchIndexer, the text search indexes are created by migrate_post_search.sql
+ */
+@Entity
+@Table(
+        name = "post_search_documents",
+        indexes = {
+                @Index(name = "idx_post_search_location", columnList = "country, city"),
+                @Index(name = "idx_post_search_geohash", columnList = "geohash"),
+                @Index(name = "idx_post_search_trip", columnList = "trip_id")
+        }
+)
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class PostSearchDocument {
+
+    @Id
+    @Column(name = "post_id")
+    UUID postId;
+
+    @Column(name = "trip_id", nullable = false)
+    UUID tripId;
+
+    @Column(name = "user_id", nullable = false)
+    UUID userId;
+
+    // Weighted lexemes of text (A), place (B), trip title and author (C)
+    @Column(columnDefinition = "tsvector", insertable = false, updatable = false)
+    String document;
+
+    // Lowercased plain text of the same fields, for trigram typo tolerance
+    @Column(name = "search_text", columnDefinition = "TEXT")
+    String searchText;
+
+    String country;
+    String city;
+
+    Double lat;
+    Double lon;
+
+    @Column(columnDefinition = "varchar(12) COLLATE \"C\"")
+    String geohash;
+
+    @Column(nullable = false)
+    OffsetDateTime ts;
+}
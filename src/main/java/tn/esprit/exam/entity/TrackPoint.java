@@ -8,7 +8,11 @@ import java.time.OffsetDateTime;
 import java.util.UUID;
 
 @Entity
-@Table(name = "track_points")
+@Table(
+        name = "track_points",
+        uniqueConstraints = @UniqueConstraint(name = "uk_track_points_trip_ts", columnNames = {"trip_id", "ts"}),
+        indexes = @Index(name = "idx_track_points_geohash", columnList = "geohash")
+)
 @Getter
 @Setter
 @AllArgsConstructor
@@ -16,8 +20,13 @@ import java.util.UUID;
 @FieldDefaults(level = AccessLevel.PRIVATE)
 public class TrackPoint {
 
+    public static final int ID_ALLOCATION_SIZE = 50;
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    // Pooled sequence so inserts can be batched, see migrate_track_points_sequence.sql
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "track_points_seq")
+    @SequenceGenerator(name = "track_points_seq", sequenceName = "track_points_seq",
+            allocationSize = TrackPoint.ID_ALLOCATION_SIZE)
     Long id;
 
     @ManyToOne(fetch = FetchType.LAZY)
@@ -32,4 +41,8 @@ public class TrackPoint {
     Double accuracyM;
     Double speedMps;
     String locationName;
+
+    // Spatial index key, "C" collation so prefix searches can use the index
+    @Column(columnDefinition = "varchar(12) COLLATE \"C\"")
+    String geohash;
 }
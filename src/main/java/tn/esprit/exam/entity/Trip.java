@@ -10,7 +10,9 @@ import java.util.List;
 import java.util.UUID;
 
 @Entity
-@Table(name = "trips")
+@Table(name = "trips", indexes = {
+    @Index(name = "idx_trips_user_started", columnList = "user_id, started_at DESC, id DESC")
+})
 @Getter
 @Setter
 @AllArgsConstructor
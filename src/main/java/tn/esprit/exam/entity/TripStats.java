@@ -0,0 +1,94 @@
+package tn.esprit.exam.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+import java.time.OffsetDateTime;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Materialized statistics of a trip
+ * Maintained incrementally by the track point and post write paths,
+ * so reading a trip does not require loading its points and posts
+ */
+@Entity
+@Table(name = "trip_stats")
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class TripStats {
+
+    @Id
+    @Column(name = "trip_id")
+    UUID tripId;
+
+    @Column(name = "points_count", nullable = false)
+    long pointsCount = 0;
+
+    @Column(name = "distance_km", nullable = false)
+    double distanceKm = 0;
+
+    // Last accepted point, used to extend the running distance
+    @Column(name = "last_lat")
+    Double lastLat;
+
+    @Column(name = "last_lon")
+    Double lastLon;
+
+    @Column(name = "last_ts")
+    OffsetDateTime lastTs;
+
+    // Distance per transport mode, in kilometers
+    @Column(name = "walking_km", nullable = false)
+    double walkingKm = 0;
+
+    @Column(name = "biking_km", nullable = false)
+    double bikingKm = 0;
+
+    @Column(name = "driving_km", nullable = false)
+    double drivingKm = 0;
+
+    @Column(name = "flying_km", nullable = false)
+    double flyingKm = 0;
+
+    @Column(name = "posts_count", nullable = false)
+    int postsCount = 0;
+
+    @Column(name = "photos_count", nullable = false)
+    int photosCount = 0;
+
+    @Column(name = "countries_count", nullable = false)
+    int countriesCount = 0;
+
+    @Column(name = "cities_count", nullable = false)
+    int citiesCount = 0;
+
+    // Distinct sets, only loaded on the write path
+    @ElementCollection
+    @CollectionTable(name = "trip_stats_countries", joinColumns = @JoinColumn(name = "trip_id"))
+    @Column(name = "country", nullable = false)
+    Set<String> countries = new HashSet<>();
+
+    @ElementCollection
+    @CollectionTable(name = "trip_stats_cities", joinColumns = @JoinColumn(name = "trip_id"))
+    @Column(name = "city", nullable = false)
+    Set<String> cities = new HashSet<>();
+
+    @Column(name = "updated_at", nullable = false)
+    OffsetDateTime updatedAt = OffsetDateTime.now();
+
+    @PrePersist
+    @PreUpdate
+    void onUpdate() {
+        updatedAt = OffsetDateTime.now();
+    }
+
+    public TripStats(UUID tripId) {
+        this.tripId = tripId;
+    }
+}
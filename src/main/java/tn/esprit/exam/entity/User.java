@@ -15,7 +15,9 @@ import java.util.UUID;
 @NoArgsConstructor
 @ToString
 @FieldDefaults(level = AccessLevel.PRIVATE)
-@Table(name = "users")
+@Table(name = "users", indexes = {
+    @Index(name = "idx_users_suggestions_computed", columnList = "suggestions_computed_at")
+})
 public class User
 
 {
@@ -55,9 +57,22 @@ public class User
     @Column(name = "steps_count")
     Integer stepsCount = 0;
 
-    @Column(name = "followers_count")
+    // Changed only with atomic updates by FollowServiceImpl, never by a stale entity flush
+    @Column(name = "followers_count", updatable = false)
     Integer followersCount = 0;
 
-    @Column(name = "following_count")
+    @Column(name = "following_count", updatable = false)
     Integer followingCount = 0;
+
+    // Written only with atomic updates by UnreadCounters, null until first computed
+    @Column(name = "unread_notifications_count", insertable = false, updatable = false)
+    Integer unreadNotificationsCount;
+
+    // Set once the home feed was materialized, see HomeFeedServiceImpl.getFeedPage
+    @Column(name = "home_feed_built_at", insertable = false, updatable = false)
+    OffsetDateTime homeFeedBuiltAt;
+
+    // Last run of UserSuggestionJob for this user, null when due
+    @Column(name = "suggestions_computed_at", insertable = false, updatable = false)
+    OffsetDateTime suggestionsComputedAt;
 }
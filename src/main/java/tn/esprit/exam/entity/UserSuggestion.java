@@ -0,0 +1,55 @@
+package tn.esprit.exam.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+import java.time.OffsetDateTime;
+import java.util.UUID;
+
+/**
+ * Precomputed "people you may know" candidate of a user
+ * Written with SQL by UserSuggestionJob, replaced as a whole on every run for the user
+ */
+@Entity
+@Table(
+        name = "user_suggestions",
+        uniqueConstraints = @UniqueConstraint(
+                name = "uk_user_suggestion",
+                columnNames = {"user_id", "suggested_user_id"}
+        ),
+        indexes = {
+                @Index(name = "idx_user_suggestions_score", columnList = "user_id, score DESC")
+        }
+)
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class UserSuggestion {
+
+    @Id
+    @GeneratedValue
+    UUID id;
+
+    @Column(name = "user_id", nullable = false)
+    UUID userId;
+
+    @Column(name = "suggested_user_id", nullable = false)
+    UUID suggestedUserId;
+
+    @Column(nullable = false)
+    Double score;
+
+    // Followed users who follow the candidate
+    @Column(name = "mutual_follows", nullable = false)
+    Integer mutualFollows;
+
+    // Cities both users posted in
+    @Column(name = "shared_places", nullable = false)
+    Integer sharedPlaces;
+
+    @Column(name = "computed_at", nullable = false)
+    OffsetDateTime computedAt;
+}
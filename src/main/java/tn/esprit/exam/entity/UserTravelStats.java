@@ -0,0 +1,70 @@
+package tn.esprit.exam.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+import java.time.OffsetDateTime;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Travel statistics of a user rolled up across all of their trips
+ * Kept current by the trip, track point and post write paths
+ */
+@Entity
+@Table(name = "user_travel_stats")
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class UserTravelStats {
+
+    @Id
+    @Column(name = "user_id")
+    UUID userId;
+
+    @Column(name = "trips_count", nullable = false)
+    int tripsCount = 0;
+
+    @Column(name = "distance_km", nullable = false)
+    double distanceKm = 0;
+
+    @Column(name = "posts_count", nullable = false)
+    int postsCount = 0;
+
+    @Column(name = "photos_count", nullable = false)
+    int photosCount = 0;
+
+    @Column(name = "countries_count", nullable = false)
+    int countriesCount = 0;
+
+    @Column(name = "cities_count", nullable = false)
+    int citiesCount = 0;
+
+    // Distinct sets, only loaded on the write path
+    @ElementCollection
+    @CollectionTable(name = "user_travel_stats_countries", joinColumns = @JoinColumn(name = "user_id"))
+    @Column(name = "country", nullable = false)
+    Set<String> countries = new HashSet<>();
+
+    @ElementCollection
+    @CollectionTable(name = "user_travel_stats_cities", joinColumns = @JoinColumn(name = "user_id"))
+    @Column(name = "city", nullable = false)
+    Set<String> cities = new HashSet<>();
+
+    @Column(name = "updated_at", nullable = false)
+    OffsetDateTime updatedAt = OffsetDateTime.now();
+
+    @PrePersist
+    @PreUpdate
+    void onUpdate() {
+        updatedAt = OffsetDateTime.now();
+    }
+
+    public UserTravelStats(UUID userId) {
+        this.userId = userId;
+    }
+}
@@ -1,20 +1,34 @@
 package tn.esprit.exam.repository;
 
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import tn.esprit.exam.entity.Comment;
 
+import java.time.OffsetDateTime;
 import java.util.List;
 import java.util.UUID;
 
 public interface CommentRepository extends JpaRepository<Comment, UUID> {
     
-    List<Comment> findByPostIdOrderByCreatedAtAsc(UUID postId);
-    
     long countByPostId(UUID postId);
     
-    @Query("SELECT c FROM Comment c WHERE c.post.id = :postId ORDER BY c.createdAt ASC")
-    List<Comment> findAllByPostIdOrderByCreatedAt(@Param("postId") UUID postId);
+    @Query("SELECT c FROM Comment c JOIN FETCH c.user WHERE c.post.id = :postId " +
+           "ORDER BY c.createdAt ASC, c.id ASC")
+    List<Comment> findPageByPostId(
+            @Param("postId") UUID postId,
+            Limit limit
+    );
+
+    @Query("SELECT c FROM Comment c JOIN FETCH c.user WHERE c.post.id = :postId " +
+           "AND (c.createdAt > :createdAt OR (c.createdAt = :createdAt AND c.id > :commentId)) " +
+           "ORDER BY c.createdAt ASC, c.id ASC")
+    List<Comment> findPageByPostIdAfter(
+            @Param("postId") UUID postId,
+            @Param("createdAt") OffsetDateTime createdAt,
+            @Param("commentId") UUID commentId,
+            Limit limit
+    );
 }
 
@@ -1,11 +1,11 @@
 package tn.esprit.exam.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import tn.esprit.exam.entity.Conversation;
 
-import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -22,12 +22,47 @@ public interface ConversationRepository extends JpaRepository<Conversation, UUID
     );
 
     @Query("""
-            SELECT c FROM Conversation c
-            JOIN FETCH c.participantA
-            JOIN FETCH c.participantB
-            WHERE c.participantA.id = :userId OR c.participantB.id = :userId
-            ORDER BY c.updatedAt DESC
+            SELECT CASE WHEN c.participantA.id = :userId THEN c.unreadCountA ELSE c.unreadCountB END
+            FROM Conversation c
+            WHERE c.id = :conversationId
             """)
-    List<Conversation> findAllForUser(@Param("userId") UUID userId);
-}
+    Integer findUnreadCount(
+            @Param("conversationId") UUID conversationId,
+            @Param("userId") UUID userId
+    );
+
+    /**
+     * Lock the conversation row, serializing unread counter writes
+     */
+    @Query(nativeQuery = true, value = "SELECT id FROM conversations WHERE id = :conversationId FOR UPDATE")
+    Optional<UUID> lockById(@Param("conversationId") UUID conversationId);
+
+    /**
+     * Count one more unread message for a participant
+     * A counter that was never computed stays null
+     */
+    @Modifying
+    @Query("""
+            UPDATE Conversation c
+            SET c.unreadCountA = CASE WHEN c.participantA.id = :userId THEN c.unreadCountA + 1 ELSE c.unreadCountA END,
+                c.unreadCountB = CASE WHEN c.participantB.id = :userId THEN c.unreadCountB + 1 ELSE c.unreadCountB END
+            WHERE c.id = :conversationId
+            """)
+    int incrementUnread(
+            @Param("conversationId") UUID conversationId,
+            @Param("userId") UUID userId
+    );
 
+    @Modifying
+    @Query("""
+            UPDATE Conversation c
+            SET c.unreadCountA = CASE WHEN c.participantA.id = :userId THEN :count ELSE c.unreadCountA END,
+                c.unreadCountB = CASE WHEN c.participantB.id = :userId THEN :count ELSE c.unreadCountB END
+            WHERE c.id = :conversationId
+            """)
+    int setUnread(
+            @Param("conversationId") UUID conversationId,
+            @Param("userId") UUID userId,
+            @Param("count") int count
+    );
+}
@@ -14,8 +14,6 @@ public interface DirectMessageRepository extends JpaRepository<DirectMessage, UU
 
     List<DirectMessage> findTop50ByConversationIdOrderByCreatedAtDesc(UUID conversationId);
 
-    DirectMessage findTop1ByConversationIdOrderByCreatedAtDesc(UUID conversationId);
-
     List<DirectMessage> findTop50ByConversationIdAndCreatedAtBeforeOrderByCreatedAtDesc(
             UUID conversationId,
             OffsetDateTime createdAt
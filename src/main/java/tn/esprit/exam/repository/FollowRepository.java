@@ -1,29 +1,77 @@
 package tn.esprit.exam.repository;
 
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import tn.esprit.exam.entity.Follow;
-import tn.esprit.exam.entity.User;
 
+import java.time.OffsetDateTime;
 import java.util.List;
-import java.util.Optional;
 import java.util.UUID;
 
 public interface FollowRepository extends JpaRepository<Follow, UUID> {
     
-    Optional<Follow> findByFollowerAndFollowing(User follower, User following);
+    /**
+     * Insert a follow unless it already exists, the unique constraint decides
+     *
+     * @return 1 when inserted, 0 when already following
+     */
+    @Modifying
+    @Query(nativeQuery = true, value =
+            "INSERT INTO follows (id, follower_id, following_id, created_at) " +
+            "VALUES (:id, :followerId, :followingId, :createdAt) " +
+            "ON CONFLICT (follower_id, following_id) DO NOTHING")
+    int insertIfAbsent(
+            @Param("id") UUID id,
+            @Param("followerId") UUID followerId,
+            @Param("followingId") UUID followingId,
+            @Param("createdAt") OffsetDateTime createdAt
+    );
     
-    boolean existsByFollowerIdAndFollowingId(UUID followerId, UUID followingId);
+    /**
+     * @return 1 when a follow was removed, 0 otherwise
+     */
+    @Modifying
+    @Query("DELETE FROM Follow f WHERE f.follower.id = :followerId AND f.following.id = :followingId")
+    int deleteByFollowerIdAndFollowingId(
+            @Param("followerId") UUID followerId,
+            @Param("followingId") UUID followingId
+    );
     
-    @Query("SELECT f.following FROM Follow f WHERE f.follower.id = :followerId")
-    List<User> findFollowingByFollowerId(@Param("followerId") UUID followerId);
-    
-    @Query("SELECT f.follower FROM Follow f WHERE f.following.id = :followingId")
-    List<User> findFollowersByFollowingId(@Param("followingId") UUID followingId);
-    
-    long countByFollowerId(UUID followerId);
-    
-    long countByFollowingId(UUID followingId);
+    @Query("SELECT f FROM Follow f JOIN FETCH f.follower WHERE f.following.id = :followingId " +
+           "ORDER BY f.createdAt DESC, f.id DESC")
+    List<Follow> findFollowersPage(
+            @Param("followingId") UUID followingId,
+            Limit limit
+    );
+
+    @Query("SELECT f FROM Follow f JOIN FETCH f.follower WHERE f.following.id = :followingId " +
+           "AND (f.createdAt < :createdAt OR (f.createdAt = :createdAt AND f.id < :followId)) " +
+           "ORDER BY f.createdAt DESC, f.id DESC")
+    List<Follow> findFollowersPageAfter(
+            @Param("followingId") UUID followingId,
+            @Param("createdAt") OffsetDateTime createdAt,
+            @Param("followId") UUID followId,
+            Limit limit
+    );
+
+    @Query("SELECT f FROM Follow f JOIN FETCH f.following WHERE f.follower.id = :followerId " +
+           "ORDER BY f.createdAt DESC, f.id DESC")
+    List<Follow> findFollowingPage(
+            @Param("followerId") UUID followerId,
+            Limit limit
+    );
+
+    @Query("SELECT f FROM Follow f JOIN FETCH f.following WHERE f.follower.id = :followerId " +
+           "AND (f.createdAt < :createdAt OR (f.createdAt = :createdAt AND f.id < :followId)) " +
+           "ORDER BY f.createdAt DESC, f.id DESC")
+    List<Follow> findFollowingPageAfter(
+            @Param("followerId") UUID followerId,
+            @Param("createdAt") OffsetDateTime createdAt,
+            @Param("followId") UUID followId,
+            Limit limit
+    );
 }
 
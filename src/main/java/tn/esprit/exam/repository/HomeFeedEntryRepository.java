@@ -0,0 +1,113 @@
+package tn.esprit.exam.repository;
+
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import tn.esprit.exam.dto.PageCursor;
+import tn.esprit.exam.entity.HomeFeedEntry;
+
+import java.time.OffsetDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Repository for the materialized home feeds
+ */
+public interface HomeFeedEntryRepository extends JpaRepository<HomeFeedEntry, UUID> {
+
+    /**
+     * Push a post into the feed of every follower of its author in one statement
+     */
+    @Modifying
+    @Query(nativeQuery = true, value =
+            "INSERT INTO home_feed_entries (id, user_id, post_id, author_id, ts) " +
+            "SELECT gen_random_uuid(), f.follower_id, :postId, :authorId, :ts " +
+            "FROM follows f WHERE f.following_id = :authorId " +
+            "ON CONFLICT (user_id, post_id) DO NOTHING")
+    int fanOut(
+            @Param("postId") UUID postId,
+            @Param("authorId") UUID authorId,
+            @Param("ts") OffsetDateTime ts
+    );
+
+    /**
+     * Copy the latest public posts of an author into one feed, used when a user follows someone
+     */
+    @Modifying
+    @Query(nativeQuery = true, value =
+            "INSERT INTO home_feed_entries (id, user_id, post_id, author_id, ts) " +
+            "SELECT gen_random_uuid(), :userId, p.id, p.user_id, p.ts FROM posts p " +
+            "WHERE p.user_id = :authorId AND p.visibility = 'PUBLIC' " +
+            "ORDER BY p.ts DESC LIMIT :limit " +
+            "ON CONFLICT (user_id, post_id) DO NOTHING")
+    int copyAuthorPosts(
+            @Param("userId") UUID userId,
+            @Param("authorId") UUID authorId,
+            @Param("limit") int limit
+    );
+
+    /**
+     * Rebuild one feed from the latest public posts of the followed accounts that are fanned out on write
+     */
+    @Modifying
+    @Query(nativeQuery = true, value =
+            "INSERT INTO home_feed_entries (id, user_id, post_id, author_id, ts) " +
+            "SELECT gen_random_uuid(), :userId, p.id, p.user_id, p.ts FROM posts p " +
+            "JOIN follows f ON f.following_id = p.user_id " +
+            "JOIN users u ON u.id = p.user_id " +
+            "WHERE f.follower_id = :userId AND p.visibility = 'PUBLIC' " +
+            "AND COALESCE(u.followers_count, 0) <= :maxFollowers " +
+            "ORDER BY p.ts DESC LIMIT :limit " +
+            "ON CONFLICT (user_id, post_id) DO NOTHING")
+    int rebuildFeed(
+            @Param("userId") UUID userId,
+            @Param("maxFollowers") int maxFollowers,
+            @Param("limit") int limit
+    );
+
+    /**
+     * Remove every post of an author from one feed, used on unfollow
+     */
+    @Modifying
+    @Query("DELETE FROM HomeFeedEntry e WHERE e.userId = :userId AND e.authorId = :authorId")
+    int deleteByUserIdAndAuthorId(@Param("userId") UUID userId, @Param("authorId") UUID authorId);
+
+    /**
+     * First page of a feed, newest first
+     */
+    @Query("SELECT new tn.esprit.exam.dto.PageCursor(e.ts, e.postId) FROM HomeFeedEntry e " +
+           "WHERE e.userId = :userId ORDER BY e.ts DESC, e.postId DESC")
+    List<PageCursor> findPage(@Param("userId") UUID userId, Limit limit);
+
+    /**
+     * Page of a feed strictly after a cursor, newest first
+     */
+    @Query("SELECT new tn.esprit.exam.dto.PageCursor(e.ts, e.postId) FROM HomeFeedEntry e " +
+           "WHERE e.userId = :userId AND (e.ts < :ts OR (e.ts = :ts AND e.postId < :postId)) " +
+           "ORDER BY e.ts DESC, e.postId DESC")
+    List<PageCursor> findPageAfter(
+            @Param("userId") UUID userId,
+            @Param("ts") OffsetDateTime ts,
+            @Param("postId") UUID postId,
+            Limit limit
+    );
+
+    /**
+     * Keep only the newest entries of the given feeds
+     * Each feed is cut at its capacity-th newest entry through idx_home_feed_user_ts, so the cost is
+     * bounded by the number of feeds and the capacity, not by the size of the table
+     */
+    @Modifying
+    @Query(nativeQuery = true, value =
+            "DELETE FROM home_feed_entries e USING (" +
+            "  SELECT u.id AS user_id, cut.ts, cut.post_id FROM users u " +
+            "  CROSS JOIN LATERAL (" +
+            "    SELECT h.ts, h.post_id FROM home_feed_entries h WHERE h.user_id = u.id " +
+            "    ORDER BY h.ts DESC, h.post_id DESC OFFSET :capacity LIMIT 1" +
+            "  ) cut WHERE u.id IN (:userIds)" +
+            ") oldest WHERE e.user_id = oldest.user_id AND (e.ts, e.post_id) <= (oldest.ts, oldest.post_id)")
+    int trimFeeds(@Param("userIds") Collection<UUID> userIds, @Param("capacity") int capacity);
+}
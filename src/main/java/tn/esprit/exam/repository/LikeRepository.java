@@ -1,10 +1,18 @@
 package tn.esprit.exam.repository;
 
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import tn.esprit.exam.dto.LikeResponse;
 import tn.esprit.exam.entity.Like;
 import tn.esprit.exam.entity.Post;
 import tn.esprit.exam.entity.User;
 
+import java.time.OffsetDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -14,8 +22,67 @@ public interface LikeRepository extends JpaRepository<Like, UUID> {
     
     boolean existsByPostIdAndUserId(UUID postId, UUID userId);
     
-    long countByPostId(UUID postId);
+    @Query("SELECT new tn.esprit.exam.dto.LikeResponse(l.id, l.post.id, u.id, u.username, am.url, l.createdAt) " +
+           "FROM Like l JOIN l.user u LEFT JOIN u.avatarMedia am WHERE l.post.id = :postId " +
+           "ORDER BY l.createdAt DESC, l.id DESC")
+    List<LikeResponse> findPageByPostId(
+            @Param("postId") UUID postId,
+            Limit limit
+    );
     
-    void deleteByPostIdAndUserId(UUID postId, UUID userId);
+    @Query("SELECT new tn.esprit.exam.dto.LikeResponse(l.id, l.post.id, u.id, u.username, am.url, l.createdAt) " +
+           "FROM Like l JOIN l.user u LEFT JOIN u.avatarMedia am WHERE l.post.id = :postId " +
+           "AND (l.createdAt < :createdAt OR (l.createdAt = :createdAt AND l.id < :likeId)) " +
+           "ORDER BY l.createdAt DESC, l.id DESC")
+    List<LikeResponse> findPageByPostIdAfter(
+            @Param("postId") UUID postId,
+            @Param("createdAt") OffsetDateTime createdAt,
+            @Param("likeId") UUID likeId,
+            Limit limit
+    );
+    
+    /**
+     * Latest likers of a post among the users a viewer follows
+     */
+    @Query("SELECT new tn.esprit.exam.dto.LikeResponse(l.id, l.post.id, u.id, u.username, am.url, l.createdAt) " +
+           "FROM Like l JOIN l.user u LEFT JOIN u.avatarMedia am WHERE l.post.id = :postId " +
+           "AND u.id IN (SELECT f.following.id FROM Follow f WHERE f.follower.id = :viewerId) " +
+           "ORDER BY l.createdAt DESC, l.id DESC")
+    List<LikeResponse> findFollowedLikers(
+            @Param("postId") UUID postId,
+            @Param("viewerId") UUID viewerId,
+            Limit limit
+    );
+    
+    /**
+     * Which of the given posts a user liked, one index lookup per post
+     */
+    @Query("SELECT l.post.id FROM Like l WHERE l.user.id = :userId AND l.post.id IN :postIds")
+    List<UUID> findLikedPostIds(
+            @Param("userId") UUID userId,
+            @Param("postIds") Collection<UUID> postIds
+    );
+    
+    /**
+     * Insert a like unless the user already liked the post, the unique constraint decides
+     *
+     * @return 1 when inserted, 0 when the like already existed
+     */
+    @Modifying
+    @Query(nativeQuery = true, value =
+            "INSERT INTO likes (id, post_id, user_id, created_at) VALUES (:id, :postId, :userId, :createdAt) " +
+            "ON CONFLICT (post_id, user_id) DO NOTHING")
+    int insertIfAbsent(
+            @Param("id") UUID id,
+            @Param("postId") UUID postId,
+            @Param("userId") UUID userId,
+            @Param("createdAt") OffsetDateTime createdAt
+    );
+    
+    /**
+     * @return 1 when a like was removed, 0 otherwise
+     */
+    @Modifying
+    @Query("DELETE FROM Like l WHERE l.post.id = :postId AND l.user.id = :userId")
+    int deleteByPostIdAndUserId(@Param("postId") UUID postId, @Param("userId") UUID userId);
 }
-
@@ -1,9 +1,37 @@
 package tn.esprit.exam.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import tn.esprit.exam.entity.Media;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.UUID;
 
 public interface MediaRepository extends JpaRepository<Media, UUID> {
+
+    /**
+     * Find all media attached to a set of posts in a single query
+     */
+    @Query("SELECT m FROM Media m WHERE m.post.id IN :postIds")
+    List<Media> findByPostIdIn(@Param("postIds") Collection<UUID> postIds);
+
+    /**
+     * Find all media attached to the posts of a trip in a single query
+     */
+    @Query("SELECT m FROM Media m WHERE m.post.trip.id = :tripId")
+    List<Media> findByPostTripId(@Param("tripId") UUID tripId);
+
+    /**
+     * Count media attached to the posts of a trip
+     */
+    @Query("SELECT COUNT(m) FROM Media m WHERE m.post.trip.id = :tripId")
+    long countByPostTripId(@Param("tripId") UUID tripId);
+
+    /**
+     * Count media attached to the posts of all trips of a user
+     */
+    @Query("SELECT COUNT(m) FROM Media m WHERE m.post.trip.user.id = :userId")
+    long countByPostTripUserId(@Param("userId") UUID userId);
 }
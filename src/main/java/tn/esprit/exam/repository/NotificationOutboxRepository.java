@@ -0,0 +1,37 @@
+package tn.esprit.exam.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import tn.esprit.exam.entity.NotificationOutboxEvent;
+
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Repository for pending notification fan-outs
+ */
+public interface NotificationOutboxRepository extends JpaRepository<NotificationOutboxEvent, UUID> {
+
+    /**
+     * Lock the oldest pending event, skipping dead-lettered events and events another instance is working on
+     */
+    @Query(nativeQuery = true, value =
+            "SELECT * FROM notification_outbox WHERE dead_at IS NULL " +
+            "ORDER BY created_at LIMIT 1 FOR UPDATE SKIP LOCKED")
+    Optional<NotificationOutboxEvent> claimNext();
+
+    /**
+     * Count a failed batch of an event, dead-lettering it once it failed maxAttempts times
+     * Runs in its own transaction, the failed batch was rolled back
+     *
+     * @return 1 if the event still exists
+     */
+    @Modifying
+    @Query(nativeQuery = true, value =
+            "UPDATE notification_outbox SET attempts = attempts + 1, last_error = :error, " +
+            "dead_at = CASE WHEN attempts + 1 >= :maxAttempts THEN now() END " +
+            "WHERE id = :id")
+    int recordFailure(@Param("id") UUID id, @Param("error") String error, @Param("maxAttempts") int maxAttempts);
+}
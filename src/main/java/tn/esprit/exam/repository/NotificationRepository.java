@@ -1,17 +1,34 @@
 package tn.esprit.exam.repository;
 
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import tn.esprit.exam.entity.Notification;
 
+import java.time.OffsetDateTime;
 import java.util.List;
 import java.util.UUID;
 
 public interface NotificationRepository extends JpaRepository<Notification, UUID> {
     
-    List<Notification> findByUserIdOrderByCreatedAtDesc(UUID userId);
+    @Query("SELECT n FROM Notification n JOIN FETCH n.actor a LEFT JOIN FETCH a.avatarMedia WHERE n.user.id = :userId " +
+           "ORDER BY n.createdAt DESC, n.id DESC")
+    List<Notification> findPageByUserId(
+            @Param("userId") UUID userId,
+            Limit limit
+    );
+
+    @Query("SELECT n FROM Notification n JOIN FETCH n.actor a LEFT JOIN FETCH a.avatarMedia WHERE n.user.id = :userId " +
+           "AND (n.createdAt < :createdAt OR (n.createdAt = :createdAt AND n.id < :notificationId)) " +
+           "ORDER BY n.createdAt DESC, n.id DESC")
+    List<Notification> findPageByUserIdAfter(
+            @Param("userId") UUID userId,
+            @Param("createdAt") OffsetDateTime createdAt,
+            @Param("notificationId") UUID notificationId,
+            Limit limit
+    );
     
     @Query("SELECT n FROM Notification n WHERE n.user.id = :userId AND n.isRead = false ORDER BY n.createdAt DESC")
     List<Notification> findUnreadByUserId(@Param("userId") UUID userId);
@@ -20,11 +37,14 @@ public interface NotificationRepository extends JpaRepository<Notification, UUID
     Long countUnreadByUserId(@Param("userId") UUID userId);
     
     @Modifying
-    @Query("UPDATE Notification n SET n.isRead = true WHERE n.user.id = :userId AND n.isRead = false")
+    @Query("UPDATE Notification n SET n.isRead = true, n.groupKey = NULL WHERE n.user.id = :userId AND n.isRead = false")
     void markAllAsRead(@Param("userId") UUID userId);
     
+    /**
+     * @return 1 when the notification was unread, 0 otherwise
+     */
     @Modifying
-    @Query("UPDATE Notification n SET n.isRead = true WHERE n.id = :notificationId")
-    void markAsRead(@Param("notificationId") UUID notificationId);
+    @Query("UPDATE Notification n SET n.isRead = true, n.groupKey = NULL WHERE n.id = :notificationId AND n.isRead = false")
+    int markAsRead(@Param("notificationId") UUID notificationId);
 }
 
@@ -1,32 +1,92 @@
 package tn.esprit.exam.repository;
 
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
+import tn.esprit.exam.dto.PageCursor;
 import tn.esprit.exam.entity.Post;
 import tn.esprit.exam.entity.Visibility;
 
+import java.time.OffsetDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
 public interface PostRepository extends JpaRepository<Post, UUID> {
     @Query("SELECT p FROM Post p JOIN FETCH p.user WHERE p.trip.id = :tripId")
     List<Post> findByTripId(@Param("tripId") UUID tripId);
-    
-    @Query("SELECT p FROM Post p JOIN FETCH p.user WHERE p.visibility = :visibility " +
-           "AND (:country IS NULL OR p.country = :country) " +
-           "AND (:city IS NULL OR p.city = :city) " +
-           "ORDER BY p.ts DESC")
-    List<Post> findByVisibilityAndCountryAndCity(
-            @Param("visibility") Visibility visibility, 
-            @Param("country") String country, 
-            @Param("city") String city
+
+    @Query("SELECT p FROM Post p JOIN FETCH p.user LEFT JOIN FETCH p.trackPoint " +
+           "WHERE p.trip.id = :tripId ORDER BY p.ts ASC")
+    List<Post> findByTripIdWithTrackPoint(@Param("tripId") UUID tripId);
+
+    @Query("SELECT p FROM Post p JOIN FETCH p.user LEFT JOIN FETCH p.trackPoint " +
+           "WHERE p.visibility = :visibility " +
+           "ORDER BY p.ts DESC, p.id DESC")
+    List<Post> findPageByVisibility(
+            @Param("visibility") Visibility visibility,
+            Limit limit
+    );
+
+    @Query("SELECT p FROM Post p JOIN FETCH p.user LEFT JOIN FETCH p.trackPoint " +
+           "WHERE p.visibility = :visibility " +
+           "AND (p.ts < :ts OR (p.ts = :ts AND p.id < :postId)) " +
+           "ORDER BY p.ts DESC, p.id DESC")
+    List<Post> findPageByVisibilityAfter(
+            @Param("visibility") Visibility visibility,
+            @Param("ts") OffsetDateTime ts,
+            @Param("postId") UUID postId,
+            Limit limit
+    );
+
+    @Query("SELECT p FROM Post p JOIN FETCH p.user LEFT JOIN FETCH p.trackPoint " +
+           "WHERE p.visibility = :visibility " +
+           "AND p.country = :country AND p.city = :city " +
+           "ORDER BY p.ts DESC, p.id DESC")
+    List<Post> findPageByVisibilityAndLocation(
+            @Param("visibility") Visibility visibility,
+            @Param("country") String country,
+            @Param("city") String city,
+            Limit limit
+    );
+
+    @Query("SELECT p FROM Post p JOIN FETCH p.user LEFT JOIN FETCH p.trackPoint " +
+           "WHERE p.visibility = :visibility " +
+           "AND p.country = :country AND p.city = :city " +
+           "AND (p.ts < :ts OR (p.ts = :ts AND p.id < :postId)) " +
+           "ORDER BY p.ts DESC, p.id DESC")
+    List<Post> findPageByVisibilityAndLocationAfter(
+            @Param("visibility") Visibility visibility,
+            @Param("country") String country,
+            @Param("city") String city,
+            @Param("ts") OffsetDateTime ts,
+            @Param("postId") UUID postId,
+            Limit limit
+    );
+
+    @Query("SELECT p FROM Post p JOIN FETCH p.user LEFT JOIN FETCH p.trackPoint " +
+           "WHERE p.trip.id = :tripId " +
+           "ORDER BY p.ts ASC, p.id ASC")
+    List<Post> findPageByTripId(
+            @Param("tripId") UUID tripId,
+            Limit limit
+    );
+
+    @Query("SELECT p FROM Post p JOIN FETCH p.user LEFT JOIN FETCH p.trackPoint " +
+           "WHERE p.trip.id = :tripId " +
+           "AND (p.ts > :ts OR (p.ts = :ts AND p.id > :postId)) " +
+           "ORDER BY p.ts ASC, p.id ASC")
+    List<Post> findPageByTripIdAfter(
+            @Param("tripId") UUID tripId,
+            @Param("ts") OffsetDateTime ts,
+            @Param("postId") UUID postId,
+            Limit limit
     );
     
-    @Query("SELECT p FROM Post p JOIN FETCH p.user WHERE p.visibility = :visibility ORDER BY p.ts DESC")
-    List<Post> findByVisibilityOrderByTsDesc(Visibility visibility);
-    
-    @Query("SELECT p FROM Post p JOIN FETCH p.user WHERE p.trackPoint.id = :trackPointId")
+    @Query("SELECT p FROM Post p JOIN FETCH p.user LEFT JOIN FETCH p.trackPoint WHERE p.trackPoint.id = :trackPointId")
     List<Post> findByTrackPointId(@Param("trackPointId") Long trackPointId);
     
     @Query("SELECT p FROM Post p JOIN FETCH p.user WHERE p.user.id IN :userIds AND p.visibility = :visibility ORDER BY p.ts DESC")
@@ -34,4 +94,64 @@ public interface PostRepository extends JpaRepository<Post, UUID> {
             @Param("userIds") List<UUID> userIds, 
             @Param("visibility") Visibility visibility
     );
+
+    @Query("SELECT p FROM Post p JOIN FETCH p.user LEFT JOIN FETCH p.trackPoint WHERE p.id IN :ids")
+    List<Post> findAllByIdWithDetails(@Param("ids") Collection<UUID> ids);
+
+    @Query("SELECT new tn.esprit.exam.dto.PageCursor(p.ts, p.id) FROM Post p " +
+           "WHERE p.visibility = :visibility AND p.user.id IN (" +
+           "SELECT f.following.id FROM Follow f WHERE f.follower.id = :userId " +
+           "AND f.following.followersCount > :minFollowers) " +
+           "ORDER BY p.ts DESC, p.id DESC")
+    List<PageCursor> findFollowedAccountsPage(
+            @Param("userId") UUID userId,
+            @Param("minFollowers") int minFollowers,
+            @Param("visibility") Visibility visibility,
+            Limit limit
+    );
+
+    @Query("SELECT new tn.esprit.exam.dto.PageCursor(p.ts, p.id) FROM Post p " +
+           "WHERE p.visibility = :visibility AND p.user.id IN (" +
+           "SELECT f.following.id FROM Follow f WHERE f.follower.id = :userId " +
+           "AND f.following.followersCount > :minFollowers) " +
+           "AND (p.ts < :ts OR (p.ts = :ts AND p.id < :postId)) " +
+           "ORDER BY p.ts DESC, p.id DESC")
+    List<PageCursor> findFollowedAccountsPageAfter(
+            @Param("userId") UUID userId,
+            @Param("minFollowers") int minFollowers,
+            @Param("visibility") Visibility visibility,
+            @Param("ts") OffsetDateTime ts,
+            @Param("postId") UUID postId,
+            Limit limit
+    );
+
+    @Query("SELECT COUNT(p) FROM Post p WHERE p.trip.user.id = :userId")
+    long countByTripUserId(@Param("userId") UUID userId);
+
+    @Query("SELECT DISTINCT p.country FROM Post p WHERE p.trip.user.id = :userId AND p.country IS NOT NULL")
+    List<String> findDistinctCountriesByTripUserId(@Param("userId") UUID userId);
+
+    @Query("SELECT DISTINCT p.city FROM Post p WHERE p.trip.user.id = :userId AND p.city IS NOT NULL")
+    List<String> findDistinctCitiesByTripUserId(@Param("userId") UUID userId);
+
+    @Query("SELECT p.likesCount FROM Post p WHERE p.id = :postId")
+    Optional<Long> findLikesCount(@Param("postId") UUID postId);
+
+    @Query("SELECT p.commentsCount FROM Post p WHERE p.id = :postId")
+    Optional<Long> findCommentsCount(@Param("postId") UUID postId);
+
+    /**
+     * Shift the comment counter of a post, in the transaction that adds or deletes the comment
+     * Flushes first, so a comment delete that finds no row fails before the counter moves
+     */
+    @Modifying(flushAutomatically = true)
+    @Query("""
+            UPDATE Post p
+            SET p.commentsCount = CASE
+                WHEN p.commentsCount + :delta < 0 THEN 0
+                ELSE p.commentsCount + :delta
+            END
+            WHERE p.id = :postId
+            """)
+    int addCommentsCount(@Param("postId") UUID postId, @Param("delta") long delta);
 }
@@ -1,7 +1,10 @@
 package tn.esprit.exam.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import tn.esprit.exam.entity.TrackPoint;
 
@@ -9,6 +12,7 @@ import java.time.OffsetDateTime;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 /**
  * Repository for TrackPoint operations
@@ -35,6 +39,33 @@ public interface TrackPointRepository extends JpaRepository<TrackPoint, Long> {
      */
     Optional<TrackPoint> findTopByTripIdOrderByTsDesc(UUID tripId);
     
+    /**
+     * Find the last track point recorded strictly before a timestamp
+     */
+    Optional<TrackPoint> findTopByTripIdAndTsLessThanOrderByTsDesc(UUID tripId, OffsetDateTime ts);
+    
+    /**
+     * Stream all track points of a trip ordered by timestamp
+     * Rows are fetched in chunks through a forward-only cursor, callers must close the stream
+     */
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+        @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT tp FROM TrackPoint tp WHERE tp.trip.id = :tripId ORDER BY tp.ts ASC")
+    Stream<TrackPoint> streamByTripId(@Param("tripId") UUID tripId);
+    
+    /**
+     * Stream the track points of a trip recorded at or after a timestamp
+     * Used to merge late points without loading the whole trip
+     */
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+        @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT tp FROM TrackPoint tp WHERE tp.trip.id = :tripId AND tp.ts >= :from ORDER BY tp.ts ASC")
+    Stream<TrackPoint> streamByTripIdFrom(@Param("tripId") UUID tripId, @Param("from") OffsetDateTime from);
+    
     /**
      * Count track points for a trip
      */
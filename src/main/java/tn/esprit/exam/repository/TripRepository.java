@@ -1,12 +1,44 @@
 package tn.esprit.exam.repository;
 
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import tn.esprit.exam.entity.Trip;
 
+import java.time.OffsetDateTime;
 import java.util.List;
 import java.util.UUID;
 
 public interface TripRepository extends JpaRepository<Trip, UUID> {
     List<Trip> findByUserId(UUID userId);
 
+    long countByUserId(UUID userId);
+
+    @Query("SELECT t FROM Trip t WHERE t.user.id = :userId " +
+           "ORDER BY t.startedAt DESC, t.id DESC")
+    List<Trip> findPageByUserId(
+            @Param("userId") UUID userId,
+            Limit limit
+    );
+
+    @Query("SELECT t FROM Trip t WHERE t.user.id = :userId " +
+           "AND (t.startedAt < :startedAt OR (t.startedAt = :startedAt AND t.id < :tripId)) " +
+           "ORDER BY t.startedAt DESC, t.id DESC")
+    List<Trip> findPageByUserIdAfter(
+            @Param("userId") UUID userId,
+            @Param("startedAt") OffsetDateTime startedAt,
+            @Param("tripId") UUID tripId,
+            Limit limit
+    );
+
+    @Query("SELECT t.id FROM Trip t ORDER BY t.startedAt ASC")
+    List<UUID> findAllIds();
+
+    /**
+     * Trips without a materialized stats row, oldest first
+     */
+    @Query("SELECT t.id FROM Trip t WHERE NOT EXISTS (SELECT 1 FROM TripStats s WHERE s.tripId = t.id) " +
+           "ORDER BY t.startedAt ASC")
+    List<UUID> findIdsWithoutStats(Limit limit);
 }
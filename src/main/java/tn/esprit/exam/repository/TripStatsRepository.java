@@ -0,0 +1,41 @@
+package tn.esprit.exam.repository;
+
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import tn.esprit.exam.entity.TripStats;
+
+import java.util.Optional;
+import java.util.UUID;
+
+public interface TripStatsRepository extends JpaRepository<TripStats, UUID> {
+
+    /**
+     * Lock the stats row of a trip so concurrent writers apply their deltas in turn
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM TripStats s WHERE s.tripId = :tripId")
+    Optional<TripStats> findByIdForUpdate(@Param("tripId") UUID tripId);
+
+    /**
+     * Create an empty stats row, a no-op when another writer created it first
+     *
+     * @return 1 if the row was created, 0 if it already existed
+     */
+    @Modifying
+    @Query(value = "INSERT INTO trip_stats (trip_id, points_count, distance_km, walking_km, biking_km, " +
+                   "driving_km, flying_km, posts_count, photos_count, countries_count, cities_count, updated_at) " +
+                   "VALUES (:tripId, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, now()) " +
+                   "ON CONFLICT (trip_id) DO NOTHING",
+           nativeQuery = true)
+    int insertIfAbsent(@Param("tripId") UUID tripId);
+
+    /**
+     * Total materialized distance of a user's trips, trips without a stats row count as 0
+     */
+    @Query("SELECT COALESCE(SUM(s.distanceKm), 0) FROM TripStats s, Trip t WHERE t.id = s.tripId AND t.user.id = :userId")
+    double sumDistanceKmByUserId(@Param("userId") UUID userId);
+}
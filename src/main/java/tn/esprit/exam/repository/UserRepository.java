@@ -1,12 +1,82 @@
 package tn.esprit.exam.repository;
 
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import tn.esprit.exam.entity.User;
 
+import java.time.OffsetDateTime;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
 public interface UserRepository extends JpaRepository<User, UUID> {
     Optional<User> findByEmail(String email);
 
+    /**
+     * Record that a user's home feed was materialized
+     *
+     * @return 1 the first time only, so concurrent first requests rebuild the feed once
+     */
+    @Modifying
+    @Query("UPDATE User u SET u.homeFeedBuiltAt = :now WHERE u.id = :userId AND u.homeFeedBuiltAt IS NULL")
+    int markHomeFeedBuilt(@Param("userId") UUID userId, @Param("now") OffsetDateTime now);
+
+    /**
+     * User ids in id order, for jobs that walk every user in batches
+     */
+    @Query("SELECT u.id FROM User u WHERE u.id > :after ORDER BY u.id")
+    List<UUID> findIdsAfter(@Param("after") UUID after, Limit limit);
+
+    @Query("SELECT u.unreadNotificationsCount FROM User u WHERE u.id = :userId")
+    Integer findUnreadNotificationsCount(@Param("userId") UUID userId);
+
+    /**
+     * Lock the user row, serializing unread counter writes
+     */
+    @Query(nativeQuery = true, value = "SELECT id FROM users WHERE id = :userId FOR UPDATE")
+    Optional<UUID> lockById(@Param("userId") UUID userId);
+
+    /**
+     * Shift the unread notification counter, never below zero
+     * A counter that was never computed stays null
+     */
+    @Modifying
+    @Query("""
+            UPDATE User u
+            SET u.unreadNotificationsCount = CASE
+                WHEN u.unreadNotificationsCount + :delta < 0 THEN 0
+                ELSE u.unreadNotificationsCount + :delta
+            END
+            WHERE u.id = :userId
+            """)
+    int addUnreadNotifications(@Param("userId") UUID userId, @Param("delta") int delta);
+
+    @Modifying
+    @Query("UPDATE User u SET u.unreadNotificationsCount = :count WHERE u.id = :userId")
+    int setUnreadNotifications(@Param("userId") UUID userId, @Param("count") int count);
+
+    /**
+     * Shift the follow counters of both ends of a follow in one statement, so rows are always locked in the same order
+     */
+    @Modifying
+    @Query("""
+            UPDATE User u
+            SET u.followingCount = CASE
+                    WHEN u.id = :followerId THEN COALESCE(u.followingCount, 0) + :delta
+                    ELSE u.followingCount
+                END,
+                u.followersCount = CASE
+                    WHEN u.id = :followingId THEN COALESCE(u.followersCount, 0) + :delta
+                    ELSE u.followersCount
+                END
+            WHERE u.id IN (:followerId, :followingId)
+            """)
+    int addFollowCounts(
+            @Param("followerId") UUID followerId,
+            @Param("followingId") UUID followingId,
+            @Param("delta") int delta
+    );
 }
@@ -0,0 +1,38 @@
+package tn.esprit.exam.repository;
+
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import tn.esprit.exam.dto.UserSuggestionResponse;
+import tn.esprit.exam.entity.UserSuggestion;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Repository for precomputed user suggestions
+ */
+public interface UserSuggestionRepository extends JpaRepository<UserSuggestion, UUID> {
+
+    /**
+     * Best suggestions of a user, skipping users followed since the last computation
+     */
+    @Query("SELECT new tn.esprit.exam.dto.UserSuggestionResponse(u.id, u.username, am.url, s.mutualFollows, s.sharedPlaces) " +
+           "FROM UserSuggestion s JOIN User u ON u.id = s.suggestedUserId LEFT JOIN u.avatarMedia am " +
+           "WHERE s.userId = :userId " +
+           "AND NOT EXISTS (SELECT 1 FROM Follow f WHERE f.follower.id = :userId AND f.following.id = u.id) " +
+           "ORDER BY s.score DESC, u.id")
+    List<UserSuggestionResponse> findTopByUserId(
+            @Param("userId") UUID userId,
+            Limit limit
+    );
+
+    @Modifying
+    @Query("DELETE FROM UserSuggestion s WHERE s.userId = :userId AND s.suggestedUserId = :suggestedUserId")
+    int deleteByUserIdAndSuggestedUserId(
+            @Param("userId") UUID userId,
+            @Param("suggestedUserId") UUID suggestedUserId
+    );
+}
@@ -0,0 +1,35 @@
+package tn.esprit.exam.repository;
+
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import tn.esprit.exam.entity.UserTravelStats;
+
+import java.util.Optional;
+import java.util.UUID;
+
+public interface UserTravelStatsRepository extends JpaRepository<UserTravelStats, UUID> {
+
+    /**
+     * Lock the rollup row of a user so concurrent writers apply their deltas in turn
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM UserTravelStats s WHERE s.userId = :userId")
+    Optional<UserTravelStats> findByIdForUpdate(@Param("userId") UUID userId);
+
+    /**
+     * Create an empty rollup row, a no-op when another writer created it first
+     *
+     * @return 1 if the row was created, 0 if it already existed
+     */
+    @Modifying
+    @Query(value = "INSERT INTO user_travel_stats (user_id, trips_count, distance_km, posts_count, photos_count, " +
+                   "countries_count, cities_count, updated_at) " +
+                   "VALUES (:userId, 0, 0, 0, 0, 0, 0, now()) " +
+                   "ON CONFLICT (user_id) DO NOTHING",
+           nativeQuery = true)
+    int insertIfAbsent(@Param("userId") UUID userId);
+}
@@ -0,0 +1,207 @@
+package tn.esprit.exam.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Read-through cache bounded by entry count and by age, behind the feature caches of the service layer
+ * Hits take no lock. Concurrent misses on a key share one load, and evicting a key only discards
+ * the load in flight for that key, so writes never block or invalidate unrelated entries
+ * Over capacity, expired entries go first, then the least recently read down to 90% of the bound
+ */
+public final class BoundedTtlCache<K, V> {
+
+    private final int maxEntries;
+    private final long ttlMillis;
+
+    private final ConcurrentHashMap<K, Entry<V>> entries = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<K, Load<V>> loads = new ConcurrentHashMap<>();
+    private final AtomicBoolean sweeping = new AtomicBoolean();
+
+    private final Counter hits;
+    private final Counter misses;
+
+    /**
+     * @param name Meter name, hits and misses are tagged result=hit|miss and the size is name.size
+     * @param subject What is cached, used in the meter descriptions
+     */
+    public BoundedTtlCache(MeterRegistry meterRegistry, String name, String subject, int maxEntries, long ttlMillis) {
+        this.maxEntries = maxEntries;
+        this.ttlMillis = ttlMillis;
+        this.hits = Counter.builder(name)
+                .tag("result", "hit")
+                .description(subject + " served from the cache")
+                .register(meterRegistry);
+        this.misses = Counter.builder(name)
+                .tag("result", "miss")
+                .description(subject + " loaded from the database")
+                .register(meterRegistry);
+        Gauge.builder(name + ".size", entries, Map::size)
+                .description("Cached " + subject.toLowerCase())
+                .register(meterRegistry);
+    }
+
+    /**
+     * Cached value of a key, loading it on a miss
+     * The loader runs once per key at a time, other callers missing the same key wait for its result
+     *
+     * @param loader Loads the value, must not return null
+     */
+    public V get(K key, Supplier<V> loader) {
+        long now = System.currentTimeMillis();
+        Entry<V> entry = entries.get(key);
+        if (entry != null && now - entry.loadedAt < ttlMillis) {
+            entry.lastRead = now;
+            hits.increment();
+            return entry.value;
+        }
+
+        misses.increment();
+        Load<V> load = new Load<>();
+        Load<V> inFlight = loads.putIfAbsent(key, load);
+        if (inFlight != null) {
+            return inFlight.await();
+        }
+
+        V value;
+        try {
+            value = loader.get();
+        } catch (RuntimeException e) {
+            loads.remove(key, load);
+            load.result.completeExceptionally(e);
+            throw e;
+        }
+        synchronized (load) {
+            // Dropped when the key was evicted while loading, the value may predate the write
+            if (!load.discarded) {
+                entries.put(key, new Entry<>(value, now));
+            }
+        }
+        loads.remove(key, load);
+        load.result.complete(value);
+
+        if (entries.size() > maxEntries) {
+            sweep(now);
+        }
+        return value;
+    }
+
+    /**
+     * Drop a key once the current transaction commits, or right away outside a transaction
+     */
+    public void evict(K key) {
+        afterCommit(() -> invalidate(key));
+    }
+
+    /**
+     * Drop a key once the current transaction commits, only if its cached value is affected by the write
+     * A load in flight at that point may predate the write and is discarded either way
+     *
+     * @param affected Tells whether the committed write changes a cached value
+     */
+    public void evictIf(K key, Predicate<V> affected) {
+        afterCommit(() -> {
+            Entry<V> entry = entries.get(key);
+            if (loads.containsKey(key) || (entry != null && affected.test(entry.value))) {
+                invalidate(key);
+            }
+        });
+    }
+
+    /**
+     * Drop a key now, and keep a load of it in flight from being cached
+     */
+    public void invalidate(K key) {
+        Load<V> load = loads.remove(key);
+        if (load != null) {
+            synchronized (load) {
+                load.discarded = true;
+            }
+        }
+        entries.remove(key);
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    private void sweep(long now) {
+        if (!sweeping.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            entries.entrySet().removeIf(e -> now - e.getValue().loadedAt >= ttlMillis);
+            int excess = entries.size() - maxEntries * 9 / 10;
+            if (excess <= 0) {
+                return;
+            }
+            List<Map.Entry<K, Entry<V>>> byLastRead = new ArrayList<>(entries.entrySet());
+            byLastRead.sort(Comparator.comparingLong(e -> e.getValue().lastRead));
+            for (int i = 0; i < excess && i < byLastRead.size(); i++) {
+                Map.Entry<K, Entry<V>> oldest = byLastRead.get(i);
+                entries.remove(oldest.getKey(), oldest.getValue());
+            }
+        } finally {
+            sweeping.set(false);
+        }
+    }
+
+    private static final class Entry<V> {
+
+        final V value;
+        final long loadedAt;
+        // Racy on purpose, only used to pick eviction victims
+        volatile long lastRead;
+
+        Entry(V value, long loadedAt) {
+            this.value = value;
+            this.loadedAt = loadedAt;
+            this.lastRead = loadedAt;
+        }
+    }
+
+    private static final class Load<V> {
+
+        final CompletableFuture<V> result = new CompletableFuture<>();
+        // Guarded by the load itself
+        boolean discarded;
+
+        V await() {
+            try {
+                return result.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException cause) {
+                    throw cause;
+                }
+                throw e;
+            }
+        }
+    }
+}
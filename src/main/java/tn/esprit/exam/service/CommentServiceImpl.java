@@ -2,11 +2,14 @@ package tn.esprit.exam.service;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Limit;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import tn.esprit.exam.dto.CommentRequest;
 import tn.esprit.exam.dto.CommentResponse;
+import tn.esprit.exam.dto.CursorPage;
+import tn.esprit.exam.dto.PageCursor;
 import tn.esprit.exam.dto.PostCommentUpdate;
 import tn.esprit.exam.entity.Comment;
 import tn.esprit.exam.entity.Post;
@@ -17,7 +20,6 @@ import tn.esprit.exam.repository.UserRepository;
 
 import java.util.List;
 import java.util.UUID;
-import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
@@ -48,7 +50,8 @@ public class CommentServiceImpl implements ICommentService {
         
         Comment saved = commentRepository.save(comment);
         
-        long commentsCount = commentRepository.countByPostId(request.postId());
+        postRepository.addCommentsCount(request.postId(), 1);
+        long commentsCount = postRepository.findCommentsCount(request.postId()).orElse(0L);
         
         PostCommentUpdate update = new PostCommentUpdate(
                 request.postId(),
@@ -89,7 +92,8 @@ public class CommentServiceImpl implements ICommentService {
         UUID postId = comment.getPost().getId();
         commentRepository.delete(comment);
         
-        long commentsCount = commentRepository.countByPostId(postId);
+        postRepository.addCommentsCount(postId, -1);
+        long commentsCount = postRepository.findCommentsCount(postId).orElse(0L);
         
         PostCommentUpdate update = new PostCommentUpdate(
                 postId,
@@ -104,17 +108,28 @@ public class CommentServiceImpl implements ICommentService {
     }
 
     @Override
-    public List<CommentResponse> getCommentsByPost(UUID postId) {
-        return commentRepository.findAllByPostIdOrderByCreatedAt(postId).stream()
-                .map(comment -> new CommentResponse(
+    @Transactional(readOnly = true)
+    public CursorPage<CommentResponse> getCommentsByPost(UUID postId, String cursor, int limit) {
+        PageCursor after = PageCursor.decode(cursor);
+        int size = CursorPage.size(limit);
+        // One extra row tells whether another page exists
+        List<Comment> comments = after == null
+                ? commentRepository.findPageByPostId(postId, Limit.of(size + 1))
+                : commentRepository.findPageByPostIdAfter(postId, after.ts(), after.id(), Limit.of(size + 1));
+        
+        return CursorPage.of(
+                comments,
+                size,
+                comment -> new PageCursor(comment.getCreatedAt(), comment.getId()),
+                comment -> new CommentResponse(
                         comment.getId(),
-                        comment.getPost().getId(),
+                        postId,
                         comment.getUser().getId(),
                         comment.getUser().getUsername(),
                         comment.getContent(),
                         comment.getCreatedAt()
-                ))
-                .collect(Collectors.toList());
+                )
+        );
     }
 
     @Override
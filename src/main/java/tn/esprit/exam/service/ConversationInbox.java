@@ -0,0 +1,117 @@
+package tn.esprit.exam.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import tn.esprit.exam.dto.ConversationResponse;
+import tn.esprit.exam.dto.CursorPage;
+import tn.esprit.exam.dto.PageCursor;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Inbox read model: conversations with the other participant, last message and unread count in one statement
+ * The last message comes from a lateral index lookup on idx_dm_conversation_created,
+ * the unread count from the cached counter, counted inline only while it was never computed
+ */
+@Component
+@RequiredArgsConstructor
+public class ConversationInbox {
+
+    // Every ? is the current user id
+    private static final String COLUMNS_SQL =
+            "SELECT c.id, c.updated_at, o.id AS other_id, o.username AS other_username, " +
+            "am.url AS other_avatar_url, lm.content AS last_message, lm.created_at AS last_message_at, " +
+            "COALESCE(CASE WHEN c.participant_a_id = ? THEN c.unread_count_a ELSE c.unread_count_b END, " +
+            "(SELECT COUNT(*) FROM direct_messages u " +
+            "WHERE u.conversation_id = c.id AND u.sender_id <> ? AND u.read_at IS NULL)) AS unread_count ";
+
+    private static final String JOINS_SQL =
+            "JOIN users o ON o.id = CASE WHEN c.participant_a_id = ? THEN c.participant_b_id ELSE c.participant_a_id END " +
+            "LEFT JOIN media am ON am.id = o.avatar_media_id " +
+            "LEFT JOIN LATERAL (SELECT dm.content, dm.created_at FROM direct_messages dm " +
+            "WHERE dm.conversation_id = c.id ORDER BY dm.created_at DESC LIMIT 1) lm ON true ";
+
+    private static final String FIND_SQL =
+            COLUMNS_SQL + "FROM conversations c " + JOINS_SQL +
+            "WHERE c.id = ? AND (c.participant_a_id = ? OR c.participant_b_id = ?)";
+
+    private static final String FIRST_PAGE_SQL = pageSql("");
+
+    private static final String PAGE_AFTER_SQL = pageSql(" AND (updated_at, id) < (?, ?)");
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * One page of a user's conversations, most recently active first
+     */
+    public CursorPage<ConversationResponse> page(UUID userId, PageCursor after, int size) {
+        // One extra row tells whether another page exists
+        int fetch = size + 1;
+        List<InboxRow> rows = after == null
+                ? jdbcTemplate.query(FIRST_PAGE_SQL, this::mapRow,
+                        userId, fetch,
+                        userId, userId, fetch,
+                        fetch,
+                        userId, userId, userId)
+                : jdbcTemplate.query(PAGE_AFTER_SQL, this::mapRow,
+                        userId, after.ts(), after.id(), fetch,
+                        userId, userId, after.ts(), after.id(), fetch,
+                        fetch,
+                        userId, userId, userId);
+
+        return CursorPage.of(rows, size, row -> new PageCursor(row.updatedAt(), row.response().id()), InboxRow::response);
+    }
+
+    /**
+     * One conversation as seen by a user, empty when the user is not a participant
+     */
+    public Optional<ConversationResponse> find(UUID userId, UUID conversationId) {
+        return jdbcTemplate.query(FIND_SQL, this::mapRow,
+                        userId, userId, userId, conversationId, userId, userId)
+                .stream()
+                .findFirst()
+                .map(InboxRow::response);
+    }
+
+    private InboxRow mapRow(ResultSet rs, int rowNum) throws SQLException {
+        OffsetDateTime updatedAt = rs.getObject("updated_at", OffsetDateTime.class);
+        OffsetDateTime lastMessageAt = rs.getObject("last_message_at", OffsetDateTime.class);
+        return new InboxRow(
+                updatedAt,
+                new ConversationResponse(
+                        rs.getObject("id", UUID.class),
+                        rs.getObject("other_id", UUID.class),
+                        rs.getString("other_username"),
+                        rs.getString("other_avatar_url"),
+                        rs.getString("last_message"),
+                        lastMessageAt != null ? lastMessageAt : updatedAt,
+                        rs.getLong("unread_count")
+                )
+        );
+    }
+
+    /**
+     * Page ids from both participant sides, each read in order from its own index with its own limit,
+     * so the user's conversations are never all scanned and sorted; details are joined for the page only
+     */
+    private static String pageSql(String cursorCondition) {
+        String order = " ORDER BY updated_at DESC, id DESC LIMIT ?";
+        return "WITH page AS (" +
+                "(SELECT id, updated_at FROM conversations WHERE participant_a_id = ?" + cursorCondition + order + ")" +
+                " UNION ALL " +
+                // A conversation with oneself is only read from the first side
+                "(SELECT id, updated_at FROM conversations WHERE participant_b_id = ? AND participant_a_id <> ?" +
+                cursorCondition + order + ")" +
+                order + ") " +
+                COLUMNS_SQL + "FROM page JOIN conversations c ON c.id = page.id " + JOINS_SQL +
+                "ORDER BY c.updated_at DESC, c.id DESC";
+    }
+
+    private record InboxRow(OffsetDateTime updatedAt, ConversationResponse response) {}
+}
@@ -5,11 +5,11 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import tn.esprit.exam.dto.ConversationResponse;
+import tn.esprit.exam.dto.CursorPage;
+import tn.esprit.exam.dto.PageCursor;
 import tn.esprit.exam.entity.Conversation;
-import tn.esprit.exam.entity.DirectMessage;
 import tn.esprit.exam.entity.User;
 import tn.esprit.exam.repository.ConversationRepository;
-import tn.esprit.exam.repository.DirectMessageRepository;
 import tn.esprit.exam.repository.UserRepository;
 
 import java.util.Comparator;
@@ -22,8 +22,8 @@ import java.util.UUID;
 public class ConversationServiceImpl implements IConversationService {
 
     private final ConversationRepository conversationRepository;
-    private final DirectMessageRepository directMessageRepository;
     private final UserRepository userRepository;
+    private final ConversationInbox inbox;
 
     @Override
     @Transactional
@@ -54,65 +54,30 @@ public class ConversationServiceImpl implements IConversationService {
                     created.setParticipantA(participantA);
                     created.setParticipantB(participantB);
                     log.info("Creating new conversation between {} and {}", participantA.getId(), participantB.getId());
-                    return conversationRepository.save(created);
+                    // Flushed so the inbox query sees it
+                    return conversationRepository.saveAndFlush(created);
                 });
 
-        return mapToResponse(conversation, currentUserId);
+        return inbox.find(currentUserId, conversation.getId())
+                .orElseThrow(() -> new RuntimeException("Conversation not found"));
     }
 
     @Override
     @Transactional(readOnly = true)
-    public List<ConversationResponse> getUserConversations(UUID currentUserId) {
+    public CursorPage<ConversationResponse> getUserConversations(UUID currentUserId, String cursor, int limit) {
         log.info("Fetching conversations for user {}", currentUserId);
-        List<Conversation> conversations = conversationRepository.findAllForUser(currentUserId);
-        return conversations.stream()
-                .map(conversation -> mapToResponse(conversation, currentUserId))
-                .toList();
+        return inbox.page(currentUserId, PageCursor.decode(cursor), CursorPage.size(limit));
     }
 
     @Override
     @Transactional(readOnly = true)
     public ConversationResponse getConversation(UUID currentUserId, UUID conversationId) {
         log.info("Fetching conversation {} for user {}", conversationId, currentUserId);
-        Conversation conversation = conversationRepository.findById(conversationId)
-                .orElseThrow(() -> new RuntimeException("Conversation not found"));
-
-        if (!isParticipant(conversation, currentUserId)) {
-            throw new RuntimeException("You are not a participant of this conversation");
+        if (!conversationRepository.existsById(conversationId)) {
+            throw new RuntimeException("Conversation not found");
         }
 
-        return mapToResponse(conversation, currentUserId);
-    }
-
-    private ConversationResponse mapToResponse(Conversation conversation, UUID currentUserId) {
-        User other = conversation.getParticipantA().getId().equals(currentUserId)
-                ? conversation.getParticipantB()
-                : conversation.getParticipantA();
-
-        DirectMessage lastMessage = directMessageRepository
-                .findTop1ByConversationIdOrderByCreatedAtDesc(conversation.getId());
-
-        Long unreadCount = directMessageRepository
-                .countUnreadForUser(conversation.getId(), currentUserId);
-
-        String avatarUrl = other.getAvatarMedia() != null
-                ? other.getAvatarMedia().getUrl()
-                : null;
-
-        return new ConversationResponse(
-                conversation.getId(),
-                other.getId(),
-                other.getUsername(),
-                avatarUrl,
-                lastMessage != null ? lastMessage.getContent() : null,
-                lastMessage != null ? lastMessage.getCreatedAt() : conversation.getUpdatedAt(),
-                unreadCount
-        );
-    }
-
-    private boolean isParticipant(Conversation conversation, UUID userId) {
-        return conversation.getParticipantA().getId().equals(userId)
-                || conversation.getParticipantB().getId().equals(userId);
+        return inbox.find(currentUserId, conversationId)
+                .orElseThrow(() -> new RuntimeException("You are not a participant of this conversation"));
     }
 }
-
@@ -27,6 +27,7 @@ public class DirectMessageServiceImpl implements IDirectMessageService {
     private final ConversationRepository conversationRepository;
     private final DirectMessageRepository directMessageRepository;
     private final UserRepository userRepository;
+    private final UnreadCounters unreadCounters;
     private final SimpMessagingTemplate messagingTemplate;
 
     @Override
@@ -91,8 +92,8 @@ public class DirectMessageServiceImpl implements IDirectMessageService {
                 ? conversation.getParticipantB().getId()
                 : conversation.getParticipantA().getId();
 
-        Long recipientUnreadCount = directMessageRepository
-                .countUnreadForUser(conversationId, recipientId);
+        unreadCounters.incrementConversation(conversationId, recipientId);
+        Long recipientUnreadCount = unreadCounters.conversation(conversationId, recipientId);
 
         DirectMessageResponse response = mapToResponse(saved);
 
@@ -117,6 +118,7 @@ public class DirectMessageServiceImpl implements IDirectMessageService {
 
         validateParticipant(conversation, userId);
 
+        unreadCounters.resetConversation(conversationId, userId);
         directMessageRepository.markConversationMessagesAsRead(conversationId, userId);
 
         DirectMessageUpdate update = new DirectMessageUpdate(
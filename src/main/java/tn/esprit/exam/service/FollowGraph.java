@@ -0,0 +1,256 @@
+package tn.esprit.exam.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory cache of who each user follows, for membership checks without a query
+ * Each cached user holds a sorted array of (most, least) significant bits pairs: 16 bytes per edge, binary searched
+ * Bounded by total edges (least recently used users go first) and by age, since other instances also write follows
+ * A user charges at least one edge, so users following nobody still count against the bound
+ * Expired users are dropped when read, and swept out when the bound is reached
+ */
+@Component
+public class FollowGraph {
+
+    private static final long MAX_EDGES = 2_000_000;
+    private static final int MAX_FOLLOWING_CACHED = 20_000;
+    private static final long TTL_MILLIS = 300_000;
+    private static final long SWEEP_INTERVAL_MILLIS = 30_000;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final LinkedHashMap<UUID, Adjacency> following = new LinkedHashMap<>(1024, 0.75f, true);
+    // Sum of weight() over the cached users
+    private long cachedEdges;
+    private long lastSweep;
+
+    // Bumped on every write so a load racing with it is not cached
+    private final AtomicLong invalidations = new AtomicLong();
+
+    private final Counter hits;
+    private final Counter misses;
+
+    public FollowGraph(JdbcTemplate jdbcTemplate, MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.hits = Counter.builder("follows.graph.cache")
+                .tag("result", "hit")
+                .description("Follow checks answered from memory")
+                .register(meterRegistry);
+        this.misses = Counter.builder("follows.graph.cache")
+                .tag("result", "miss")
+                .description("Follow checks that loaded the adjacency from the database")
+                .register(meterRegistry);
+        Gauge.builder("follows.graph.cache.edges", this, FollowGraph::edges)
+                .description("Follow edges held in memory, at least one per cached user")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Whether followerId follows followingId
+     */
+    public boolean isFollowing(UUID followerId, UUID followingId) {
+        long now = System.currentTimeMillis();
+        Adjacency adjacency;
+        synchronized (this) {
+            adjacency = following.get(followerId);
+            if (adjacency != null && adjacency.expired(now)) {
+                following.remove(followerId);
+                cachedEdges -= adjacency.weight();
+                adjacency = null;
+            }
+        }
+        if (adjacency != null) {
+            hits.increment();
+            return adjacency.contains(followingId);
+        }
+
+        misses.increment();
+        long version = invalidations.get();
+        long[] edges = load(followerId);
+        if (edges == null) {
+            // Too many to keep in memory, the unique constraint index answers
+            return Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                    "SELECT EXISTS (SELECT 1 FROM follows WHERE follower_id = ? AND following_id = ?)",
+                    Boolean.class, followerId, followingId));
+        }
+        Adjacency loaded = new Adjacency(edges, now);
+        if (version == invalidations.get()) {
+            put(followerId, loaded);
+        }
+        return loaded.contains(followingId);
+    }
+
+    /**
+     * Apply a follow or unfollow to the cached adjacency once the current transaction commits
+     */
+    public void onChange(UUID followerId, UUID followingId, boolean follows) {
+        invalidations.incrementAndGet();
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            apply(followerId, followingId, follows);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                invalidations.incrementAndGet();
+                if (status == STATUS_COMMITTED) {
+                    apply(followerId, followingId, follows);
+                }
+            }
+        });
+    }
+
+    private synchronized void apply(UUID followerId, UUID followingId, boolean follows) {
+        Adjacency adjacency = following.get(followerId);
+        if (adjacency == null) {
+            return;
+        }
+        Adjacency updated = follows ? adjacency.with(followingId) : adjacency.without(followingId);
+        if (updated != adjacency) {
+            put(followerId, updated);
+        }
+    }
+
+    private synchronized void put(UUID followerId, Adjacency adjacency) {
+        Adjacency previous = following.put(followerId, adjacency);
+        cachedEdges += adjacency.weight() - (previous != null ? previous.weight() : 0);
+        if (cachedEdges <= MAX_EDGES) {
+            return;
+        }
+
+        // A full scan, at most once per SWEEP_INTERVAL_MILLIS while the cache is full
+        long now = System.currentTimeMillis();
+        if (now - lastSweep >= SWEEP_INTERVAL_MILLIS) {
+            lastSweep = now;
+            Iterator<Adjacency> expired = following.values().iterator();
+            while (expired.hasNext()) {
+                Adjacency cached = expired.next();
+                if (cached != adjacency && cached.expired(now)) {
+                    cachedEdges -= cached.weight();
+                    expired.remove();
+                }
+            }
+        }
+
+        Iterator<Adjacency> eldest = following.values().iterator();
+        while (cachedEdges > MAX_EDGES && eldest.hasNext()) {
+            Adjacency evicted = eldest.next();
+            if (evicted != adjacency) {
+                cachedEdges -= evicted.weight();
+                eldest.remove();
+            }
+        }
+    }
+
+    private synchronized long edges() {
+        return cachedEdges;
+    }
+
+    /**
+     * Sorted edges of a user, null when there are too many to cache
+     */
+    private long[] load(UUID followerId) {
+        List<UUID> ids = new ArrayList<>();
+        jdbcTemplate.query(
+                "SELECT following_id FROM follows WHERE follower_id = ? LIMIT ?",
+                (RowCallbackHandler) rs -> ids.add(rs.getObject("following_id", UUID.class)),
+                followerId, MAX_FOLLOWING_CACHED + 1
+        );
+        if (ids.size() > MAX_FOLLOWING_CACHED) {
+            return null;
+        }
+        ids.sort(null);
+        long[] edges = new long[ids.size() * 2];
+        for (int i = 0; i < ids.size(); i++) {
+            edges[2 * i] = ids.get(i).getMostSignificantBits();
+            edges[2 * i + 1] = ids.get(i).getLeastSignificantBits();
+        }
+        return edges;
+    }
+
+    /**
+     * Immutable sorted set of followed ids, replaced on every change
+     * Sorted in UUID.compareTo order: signed most significant bits, then signed least significant bits
+     */
+    private record Adjacency(long[] edges, long loadedAt) {
+
+        int size() {
+            return edges.length / 2;
+        }
+
+        /**
+         * Charge against MAX_EDGES, an empty adjacency still costs its map entry
+         */
+        long weight() {
+            return Math.max(size(), 1);
+        }
+
+        boolean expired(long now) {
+            return now - loadedAt >= TTL_MILLIS;
+        }
+
+        boolean contains(UUID id) {
+            return indexOf(id) >= 0;
+        }
+
+        Adjacency with(UUID id) {
+            int index = indexOf(id);
+            if (index >= 0) {
+                return this;
+            }
+            int at = -index - 1;
+            long[] copy = new long[edges.length + 2];
+            System.arraycopy(edges, 0, copy, 0, 2 * at);
+            copy[2 * at] = id.getMostSignificantBits();
+            copy[2 * at + 1] = id.getLeastSignificantBits();
+            System.arraycopy(edges, 2 * at, copy, 2 * at + 2, edges.length - 2 * at);
+            return new Adjacency(copy, loadedAt);
+        }
+
+        Adjacency without(UUID id) {
+            int index = indexOf(id);
+            if (index < 0) {
+                return this;
+            }
+            long[] copy = new long[edges.length - 2];
+            System.arraycopy(edges, 0, copy, 0, 2 * index);
+            System.arraycopy(edges, 2 * index + 2, copy, 2 * index, edges.length - 2 * index - 2);
+            return new Adjacency(copy, loadedAt);
+        }
+
+        /**
+         * Binary search over the pairs, same contract as Arrays.binarySearch
+         */
+        private int indexOf(UUID id) {
+            long most = id.getMostSignificantBits();
+            long least = id.getLeastSignificantBits();
+            int low = 0;
+            int high = size() - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                int cmp = Long.compare(edges[2 * mid], most);
+                if (cmp == 0) {
+                    cmp = Long.compare(edges[2 * mid + 1], least);
+                }
+                if (cmp < 0) {
+                    low = mid + 1;
+                } else if (cmp > 0) {
+                    high = mid - 1;
+                } else {
+                    return mid;
+                }
+            }
+            return -(low + 1);
+        }
+    }
+}
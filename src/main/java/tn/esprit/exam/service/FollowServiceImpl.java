@@ -2,17 +2,20 @@ package tn.esprit.exam.service;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import tn.esprit.exam.dto.CursorPage;
 import tn.esprit.exam.dto.FollowResponse;
+import tn.esprit.exam.dto.PageCursor;
 import tn.esprit.exam.entity.Follow;
 import tn.esprit.exam.entity.User;
 import tn.esprit.exam.repository.FollowRepository;
 import tn.esprit.exam.repository.UserRepository;
 
+import java.time.OffsetDateTime;
 import java.util.List;
 import java.util.UUID;
-import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
@@ -22,6 +25,9 @@ public class FollowServiceImpl implements IFollowService {
     private final FollowRepository followRepository;
     private final UserRepository userRepository;
     private final INotificationService notificationService;
+    private final IHomeFeedService homeFeedService;
+    private final FollowGraph followGraph;
+    private final IUserSuggestionService userSuggestionService;
 
     @Override
     @Transactional
@@ -38,17 +44,17 @@ public class FollowServiceImpl implements IFollowService {
         User following = userRepository.findById(followingId)
                 .orElseThrow(() -> new RuntimeException("Following user not found"));
         
-        if (followRepository.existsByFollowerIdAndFollowingId(followerId, followingId)) {
+        // The unique constraint decides, so two concurrent follows cannot both count
+        UUID followId = UUID.randomUUID();
+        OffsetDateTime createdAt = OffsetDateTime.now();
+        if (followRepository.insertIfAbsent(followId, followerId, followingId, createdAt) == 0) {
             throw new IllegalArgumentException("Already following this user");
         }
         
-        Follow follow = new Follow();
-        follow.setFollower(follower);
-        follow.setFollowing(following);
-        
-        Follow saved = followRepository.save(follow);
-        
-        updateFollowCounts(followerId, followingId);
+        userRepository.addFollowCounts(followerId, followingId, 1);
+        followGraph.onChange(followerId, followingId, true);
+        homeFeedService.onFollow(followerId, followingId);
+        userSuggestionService.onFollow(followerId, followingId);
         
         // Create notification for the user being followed
         notificationService.createNotification(
@@ -59,7 +65,14 @@ public class FollowServiceImpl implements IFollowService {
                 null
         );
         
-        return mapToResponse(saved);
+        return new FollowResponse(
+                followId,
+                followerId,
+                follower.getUsername(),
+                followingId,
+                following.getUsername(),
+                createdAt
+        );
     }
 
     @Override
@@ -67,82 +80,83 @@ public class FollowServiceImpl implements IFollowService {
     public void unfollowUser(UUID followerId, UUID followingId) {
         log.info("User {} unfollowing user {}", followerId, followingId);
         
-        Follow follow = followRepository.findByFollowerAndFollowing(
-                userRepository.findById(followerId)
-                        .orElseThrow(() -> new RuntimeException("Follower not found")),
-                userRepository.findById(followingId)
-                        .orElseThrow(() -> new RuntimeException("Following user not found"))
-        ).orElseThrow(() -> new RuntimeException("Follow relationship not found"));
-        
-        followRepository.delete(follow);
+        if (followRepository.deleteByFollowerIdAndFollowingId(followerId, followingId) == 0) {
+            throw new RuntimeException("Follow relationship not found");
+        }
         
-        updateFollowCounts(followerId, followingId);
+        userRepository.addFollowCounts(followerId, followingId, -1);
+        followGraph.onChange(followerId, followingId, false);
+        homeFeedService.onUnfollow(followerId, followingId);
+        userSuggestionService.onUnfollow(followerId, followingId);
     }
 
     @Override
     public boolean isFollowing(UUID followerId, UUID followingId) {
-        return followRepository.existsByFollowerIdAndFollowingId(followerId, followingId);
+        return followGraph.isFollowing(followerId, followingId);
     }
 
     @Override
-    public List<FollowResponse> getFollowers(UUID userId) {
-        return followRepository.findFollowersByFollowingId(userId).stream()
-                .map(user -> new FollowResponse(
-                        null,
-                        user.getId(),
-                        user.getUsername(),
+    @Transactional(readOnly = true)
+    public CursorPage<FollowResponse> getFollowers(UUID userId, String cursor, int limit) {
+        PageCursor after = PageCursor.decode(cursor);
+        int size = CursorPage.size(limit);
+        // One extra row tells whether another page exists, newest followers first
+        List<Follow> follows = after == null
+                ? followRepository.findFollowersPage(userId, Limit.of(size + 1))
+                : followRepository.findFollowersPageAfter(userId, after.ts(), after.id(), Limit.of(size + 1));
+        
+        return CursorPage.of(
+                follows,
+                size,
+                follow -> new PageCursor(follow.getCreatedAt(), follow.getId()),
+                follow -> new FollowResponse(
+                        follow.getId(),
+                        follow.getFollower().getId(),
+                        follow.getFollower().getUsername(),
                         userId,
                         null,
-                        null
-                ))
-                .collect(Collectors.toList());
+                        follow.getCreatedAt()
+                )
+        );
     }
 
     @Override
-    public List<FollowResponse> getFollowing(UUID userId) {
-        return followRepository.findFollowingByFollowerId(userId).stream()
-                .map(user -> new FollowResponse(
-                        null,
+    @Transactional(readOnly = true)
+    public CursorPage<FollowResponse> getFollowing(UUID userId, String cursor, int limit) {
+        PageCursor after = PageCursor.decode(cursor);
+        int size = CursorPage.size(limit);
+        List<Follow> follows = after == null
+                ? followRepository.findFollowingPage(userId, Limit.of(size + 1))
+                : followRepository.findFollowingPageAfter(userId, after.ts(), after.id(), Limit.of(size + 1));
+        
+        return CursorPage.of(
+                follows,
+                size,
+                follow -> new PageCursor(follow.getCreatedAt(), follow.getId()),
+                follow -> new FollowResponse(
+                        follow.getId(),
                         userId,
                         null,
-                        user.getId(),
-                        user.getUsername(),
-                        null
-                ))
-                .collect(Collectors.toList());
+                        follow.getFollowing().getId(),
+                        follow.getFollowing().getUsername(),
+                        follow.getCreatedAt()
+                )
+        );
     }
 
     @Override
     public long getFollowersCount(UUID userId) {
-        return followRepository.countByFollowingId(userId);
+        return userRepository.findById(userId)
+                .map(User::getFollowersCount)
+                .map(Integer::longValue)
+                .orElse(0L);
     }
 
     @Override
     public long getFollowingCount(UUID userId) {
-        return followRepository.countByFollowerId(userId);
-    }
-
-    private FollowResponse mapToResponse(Follow follow) {
-        return new FollowResponse(
-                follow.getId(),
-                follow.getFollower().getId(),
-                follow.getFollower().getUsername(),
-                follow.getFollowing().getId(),
-                follow.getFollowing().getUsername(),
-                follow.getCreatedAt()
-        );
-    }
-
-    @Transactional
-    private void updateFollowCounts(UUID followerId, UUID followingId) {
-        User follower = userRepository.findById(followerId).orElseThrow();
-        User following = userRepository.findById(followingId).orElseThrow();
-        
-        follower.setFollowingCount((int) followRepository.countByFollowerId(followerId));
-        following.setFollowersCount((int) followRepository.countByFollowingId(followingId));
-        
-        userRepository.save(follower);
-        userRepository.save(following);
+        return userRepository.findById(userId)
+                .map(User::getFollowingCount)
+                .map(Integer::longValue)
+                .orElse(0L);
     }
 }
-
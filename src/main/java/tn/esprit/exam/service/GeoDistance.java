@@ -0,0 +1,42 @@
+package tn.esprit.exam.service;
+
+/**
+ * Great-circle distances with the Haversine formula, shared by the track, stats and search code
+ */
+public final class GeoDistance {
+
+    public static final double EARTH_RADIUS_M = 6_371_000.0;
+
+    private GeoDistance() {
+    }
+
+    /**
+     * Distance between two coordinates, in meters
+     */
+    public static double meters(double lat1, double lon1, double lat2, double lon2) {
+        double latDistance = Math.toRadians(lat2 - lat1);
+        double lonDistance = Math.toRadians(lon2 - lon1);
+        double a = Math.sin(latDistance / 2) * Math.sin(latDistance / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2))
+                * Math.sin(lonDistance / 2) * Math.sin(lonDistance / 2);
+        double c = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+        return EARTH_RADIUS_M * c;
+    }
+
+    /**
+     * Distance between two coordinates, in kilometers
+     */
+    public static double km(double lat1, double lon1, double lat2, double lon2) {
+        return meters(lat1, lon1, lat2, lon2) / 1000;
+    }
+
+    /**
+     * Same distance as a PostgreSQL expression, in meters, from the given columns to a point
+     * Binds three parameters: the point's latitude twice, then its longitude
+     */
+    public static String sqlMeters(String latColumn, String lonColumn) {
+        return "(2 * " + EARTH_RADIUS_M + " * asin(sqrt(power(sin(radians(" + latColumn + " - ?) / 2), 2) " +
+               "+ cos(radians(?)) * cos(radians(" + latColumn + ")) " +
+               "* power(sin(radians(" + lonColumn + " - ?) / 2), 2))))";
+    }
+}
@@ -0,0 +1,116 @@
+package tn.esprit.exam.service;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Geohash encoding for the track point spatial index
+ * A hash prefix is a lat/lon cell, so points of one cell share an index range
+ */
+public final class Geohash {
+
+    // Precision stored in track_points.geohash, about 1.2m x 0.6m cells
+    public static final int STORED_PRECISION = 10;
+
+    private static final char[] BASE32 = "0123456789bcdefghjkmnpqrstuvwxyz".toCharArray();
+    private static final double METERS_PER_DEGREE = 111_320.0;
+
+    private Geohash() {
+    }
+
+    /**
+     * Encode a coordinate
+     */
+    public static String encode(double lat, double lon, int precision) {
+        double minLat = -90, maxLat = 90;
+        double minLon = -180, maxLon = 180;
+        StringBuilder hash = new StringBuilder(precision);
+        boolean evenBit = true;
+        int bit = 0;
+        int ch = 0;
+
+        while (hash.length() < precision) {
+            if (evenBit) {
+                double mid = (minLon + maxLon) / 2;
+                if (lon >= mid) {
+                    ch = (ch << 1) | 1;
+                    minLon = mid;
+                } else {
+                    ch <<= 1;
+                    maxLon = mid;
+                }
+            } else {
+                double mid = (minLat + maxLat) / 2;
+                if (lat >= mid) {
+                    ch = (ch << 1) | 1;
+                    minLat = mid;
+                } else {
+                    ch <<= 1;
+                    maxLat = mid;
+                }
+            }
+            evenBit = !evenBit;
+
+            if (++bit == 5) {
+                hash.append(BASE32[ch]);
+                bit = 0;
+                ch = 0;
+            }
+        }
+        return hash.toString();
+    }
+
+    /**
+     * Longest precision whose cells are at least as large as the radius around the given latitude
+     * The 3x3 block of cells around the center then covers the whole circle
+     *
+     * @return Precision, 0 when even single character cells are too small
+     */
+    public static int precisionForRadius(double lat, double radiusMeters) {
+        double cosLat = Math.max(Math.cos(Math.toRadians(lat)), 0.01);
+        for (int precision = STORED_PRECISION; precision > 0; precision--) {
+            if (cellHeightDegrees(precision) * METERS_PER_DEGREE >= radiusMeters
+                    && cellWidthDegrees(precision) * METERS_PER_DEGREE * cosLat >= radiusMeters) {
+                return precision;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Cells covering a circle: the center cell and its eight neighbours
+     *
+     * @return Distinct cell hashes, empty when the radius needs a full scan
+     */
+    public static Set<String> coveringCells(double lat, double lon, double radiusMeters) {
+        int precision = precisionForRadius(lat, radiusMeters);
+        Set<String> cells = new LinkedHashSet<>();
+        if (precision == 0) {
+            return cells;
+        }
+
+        double height = cellHeightDegrees(precision);
+        double width = cellWidthDegrees(precision);
+        for (int dy = -1; dy <= 1; dy++) {
+            double cellLat = Math.max(-90, Math.min(90, lat + dy * height));
+            for (int dx = -1; dx <= 1; dx++) {
+                double cellLon = lon + dx * width;
+                if (cellLon >= 180) {
+                    cellLon -= 360;
+                } else if (cellLon < -180) {
+                    cellLon += 360;
+                }
+                cells.add(encode(cellLat, cellLon, precision));
+            }
+        }
+        return cells;
+    }
+
+    private static double cellHeightDegrees(int precision) {
+        return 180.0 / Math.pow(2, (5 * precision) / 2);
+    }
+
+    private static double cellWidthDegrees(int precision) {
+        return 360.0 / Math.pow(2, (5 * precision + 1) / 2);
+    }
+}
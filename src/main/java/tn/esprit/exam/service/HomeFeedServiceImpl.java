@@ -0,0 +1,148 @@
+package tn.esprit.exam.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import tn.esprit.exam.dto.CursorPage;
+import tn.esprit.exam.dto.PageCursor;
+import tn.esprit.exam.entity.Post;
+import tn.esprit.exam.entity.User;
+import tn.esprit.exam.entity.Visibility;
+import tn.esprit.exam.repository.HomeFeedEntryRepository;
+import tn.esprit.exam.repository.PostRepository;
+import tn.esprit.exam.repository.UserRepository;
+
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Function;
+
+/**
+ * Service implementation for the materialized home feeds
+ * Fan-out on write into home_feed_entries, fan-out on read for accounts above CELEBRITY_FOLLOWERS
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class HomeFeedServiceImpl implements IHomeFeedService {
+
+    // Accounts with more followers are not pushed to every follower on publish
+    static final int CELEBRITY_FOLLOWERS = 10_000;
+
+    // Entries kept per feed, older ones are trimmed
+    private static final int FEED_CAPACITY = 800;
+
+    // Posts copied into a feed when following an account
+    private static final int FOLLOW_BACKFILL = 50;
+
+    // Feeds trimmed per transaction by the hourly job
+    private static final int TRIM_BATCH = 1000;
+
+    // Same order as ORDER BY ts DESC, id DESC: Postgres compares uuids as unsigned bytes,
+    // UUID.compareTo compares signed longs and would misplace ties across the two sources
+    private static final Comparator<PageCursor> NEWEST_FIRST = Comparator
+            .comparing(PageCursor::ts)
+            .thenComparing(PageCursor::id, HomeFeedServiceImpl::compareUnsigned)
+            .reversed();
+
+    private final HomeFeedEntryRepository homeFeedEntryRepository;
+    private final PostRepository postRepository;
+    private final UserRepository userRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    @Override
+    @Transactional
+    public void publish(Post post) {
+        if (post.getVisibility() != Visibility.PUBLIC || isCelebrity(post.getUser())) {
+            return;
+        }
+        int pushed = homeFeedEntryRepository.fanOut(post.getId(), post.getUser().getId(), post.getTs());
+        log.info("Pushed post {} into {} home feeds", post.getId(), pushed);
+    }
+
+    @Override
+    @Transactional
+    public void onFollow(UUID followerId, UUID authorId) {
+        if (homeFeedEntryRepository.copyAuthorPosts(followerId, authorId, FOLLOW_BACKFILL) > 0) {
+            homeFeedEntryRepository.trimFeeds(List.of(followerId), FEED_CAPACITY);
+        }
+    }
+
+    @Override
+    @Transactional
+    public void onUnfollow(UUID followerId, UUID authorId) {
+        homeFeedEntryRepository.deleteByUserIdAndAuthorId(followerId, authorId);
+    }
+
+    @Override
+    @Transactional
+    public CursorPage<PageCursor> getFeedPage(UUID userId, PageCursor after, int limit) {
+        if (after == null && userRepository.markHomeFeedBuilt(userId, OffsetDateTime.now()) > 0) {
+            // Feed never materialized, e.g. an account older than the feed store
+            // The marker keeps feeds that are legitimately empty from being rebuilt on every request
+            int copied = homeFeedEntryRepository.rebuildFeed(userId, CELEBRITY_FOLLOWERS, FEED_CAPACITY);
+            log.info("Materialized home feed of user {} with {} posts", userId, copied);
+        }
+
+        // One extra row per source tells whether another page exists
+        Limit fetch = Limit.of(limit + 1);
+        List<PageCursor> pushed = after == null
+                ? homeFeedEntryRepository.findPage(userId, fetch)
+                : homeFeedEntryRepository.findPageAfter(userId, after.ts(), after.id(), fetch);
+        List<PageCursor> pulled = after == null
+                ? postRepository.findFollowedAccountsPage(userId, CELEBRITY_FOLLOWERS, Visibility.PUBLIC, fetch)
+                : postRepository.findFollowedAccountsPageAfter(
+                        userId, CELEBRITY_FOLLOWERS, Visibility.PUBLIC, after.ts(), after.id(), fetch);
+
+        // A post can come from both sources when its author crossed the threshold
+        Set<PageCursor> distinct = new LinkedHashSet<>(pushed);
+        distinct.addAll(pulled);
+        List<PageCursor> merged = new ArrayList<>(distinct);
+        merged.sort(NEWEST_FIRST);
+
+        return CursorPage.of(merged, limit, Function.identity(), Function.identity());
+    }
+
+    /**
+     * Bound every feed to FEED_CAPACITY entries
+     * Walks the users in id order, one transaction per batch of feeds
+     */
+    @Scheduled(cron = "0 30 * * * *")
+    public void trimFeeds() {
+        int trimmed = 0;
+        UUID after = new UUID(0, 0);
+        List<UUID> userIds;
+        do {
+            userIds = userRepository.findIdsAfter(after, Limit.of(TRIM_BATCH));
+            if (userIds.isEmpty()) {
+                break;
+            }
+            List<UUID> batch = userIds;
+            Integer deleted = transactionTemplate.execute(status ->
+                    homeFeedEntryRepository.trimFeeds(batch, FEED_CAPACITY));
+            trimmed += deleted != null ? deleted : 0;
+            after = userIds.get(userIds.size() - 1);
+        } while (userIds.size() == TRIM_BATCH);
+
+        if (trimmed > 0) {
+            log.info("Trimmed {} home feed entries", trimmed);
+        }
+    }
+
+    private static int compareUnsigned(UUID a, UUID b) {
+        int high = Long.compareUnsigned(a.getMostSignificantBits(), b.getMostSignificantBits());
+        return high != 0 ? high : Long.compareUnsigned(a.getLeastSignificantBits(), b.getLeastSignificantBits());
+    }
+
+    private boolean isCelebrity(User author) {
+        return author.getFollowersCount() != null && author.getFollowersCount() > CELEBRITY_FOLLOWERS;
+    }
+}
@@ -2,9 +2,9 @@ package tn.esprit.exam.service;
 
 import tn.esprit.exam.dto.CommentRequest;
 import tn.esprit.exam.dto.CommentResponse;
+import tn.esprit.exam.dto.CursorPage;
 import tn.esprit.exam.dto.PostCommentUpdate;
 
-import java.util.List;
 import java.util.UUID;
 
 public interface ICommentService {
@@ -13,7 +13,7 @@ public interface ICommentService {
     
     void deleteComment(UUID commentId, UUID userId);
     
-    List<CommentResponse> getCommentsByPost(UUID postId);
+    CursorPage<CommentResponse> getCommentsByPost(UUID postId, String cursor, int limit);
     
     long getCommentsCount(UUID postId);
 }
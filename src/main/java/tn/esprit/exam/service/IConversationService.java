@@ -1,15 +1,15 @@
 package tn.esprit.exam.service;
 
 import tn.esprit.exam.dto.ConversationResponse;
+import tn.esprit.exam.dto.CursorPage;
 
-import java.util.List;
 import java.util.UUID;
 
 public interface IConversationService {
 
     ConversationResponse ensureConversation(UUID currentUserId, UUID otherUserId);
 
-    List<ConversationResponse> getUserConversations(UUID currentUserId);
+    CursorPage<ConversationResponse> getUserConversations(UUID currentUserId, String cursor, int limit);
 
     ConversationResponse getConversation(UUID currentUserId, UUID conversationId);
 }
@@ -1,8 +1,8 @@
 package tn.esprit.exam.service;
 
+import tn.esprit.exam.dto.CursorPage;
 import tn.esprit.exam.dto.FollowResponse;
 
-import java.util.List;
 import java.util.UUID;
 
 public interface IFollowService {
@@ -13,9 +13,9 @@ public interface IFollowService {
     
     boolean isFollowing(UUID followerId, UUID followingId);
     
-    List<FollowResponse> getFollowers(UUID userId);
+    CursorPage<FollowResponse> getFollowers(UUID userId, String cursor, int limit);
     
-    List<FollowResponse> getFollowing(UUID userId);
+    CursorPage<FollowResponse> getFollowing(UUID userId, String cursor, int limit);
     
     long getFollowersCount(UUID userId);
     
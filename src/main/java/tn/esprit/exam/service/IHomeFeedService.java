@@ -0,0 +1,48 @@
+package tn.esprit.exam.service;
+
+import tn.esprit.exam.dto.CursorPage;
+import tn.esprit.exam.dto.PageCursor;
+import tn.esprit.exam.entity.Post;
+
+import java.util.UUID;
+
+/**
+ * Service interface for the materialized home feeds
+ * Posts of regular accounts are pushed to followers on publish,
+ * posts of accounts with many followers are merged in on read
+ */
+public interface IHomeFeedService {
+
+    /**
+     * Push a newly published public post into the feeds of its author's followers
+     *
+     * @param post Saved post
+     */
+    void publish(Post post);
+
+    /**
+     * Add the recent posts of a newly followed account to the follower's feed
+     *
+     * @param followerId User who followed
+     * @param authorId Followed account
+     */
+    void onFollow(UUID followerId, UUID authorId);
+
+    /**
+     * Remove the posts of an unfollowed account from the follower's feed
+     *
+     * @param followerId User who unfollowed
+     * @param authorId Unfollowed account
+     */
+    void onUnfollow(UUID followerId, UUID authorId);
+
+    /**
+     * Read one page of a home feed, newest first
+     *
+     * @param userId Feed owner
+     * @param after Cursor of the last post of the previous page, null for the first page
+     * @param limit Page size
+     * @return Post positions and the cursor of the next page
+     */
+    CursorPage<PageCursor> getFeedPage(UUID userId, PageCursor after, int limit);
+}
@@ -1,9 +1,12 @@
 package tn.esprit.exam.service;
 
+import tn.esprit.exam.dto.CursorPage;
 import tn.esprit.exam.dto.LikeResponse;
+import tn.esprit.exam.dto.LikersPreview;
 import tn.esprit.exam.dto.PostLikeUpdate;
 
-import java.util.List;
+import java.util.Collection;
+import java.util.Map;
 import java.util.UUID;
 
 public interface ILikeService {
@@ -14,8 +17,12 @@ public interface ILikeService {
     
     boolean isLiked(UUID postId, UUID userId);
     
+    Map<UUID, Boolean> getLikeStatuses(Collection<UUID> postIds, UUID userId);
+    
     long getLikesCount(UUID postId);
     
-    List<LikeResponse> getLikesByPost(UUID postId);
+    CursorPage<LikeResponse> getLikesByPost(UUID postId, String cursor, int limit);
+    
+    LikersPreview getLikersPreview(UUID postId, UUID viewerId);
 }
 
@@ -1,5 +1,6 @@
 package tn.esprit.exam.service;
 
+import tn.esprit.exam.dto.CursorPage;
 import tn.esprit.exam.dto.NotificationResponse;
 import tn.esprit.exam.entity.NotificationType;
 
@@ -20,9 +21,15 @@ public interface INotificationService {
     );
     
     /**
-     * Get all notifications for a user
+     * Queue a notification for every follower of the actor
+     * Delivered asynchronously by NotificationFanOutProcessor, durable with the current transaction
      */
-    List<NotificationResponse> getNotifications(UUID userId);
+    void notifyFollowers(UUID actorId, NotificationType type, UUID postId);
+    
+    /**
+     * Get a page of notifications for a user, newest first
+     */
+    CursorPage<NotificationResponse> getNotifications(UUID userId, String cursor, int limit);
     
     /**
      * Get unread notifications for a user
@@ -1,7 +1,10 @@
 package tn.esprit.exam.service;
 
 import org.springframework.web.multipart.MultipartFile;
+import tn.esprit.exam.dto.CursorPage;
 import tn.esprit.exam.dto.PostResponse;
+import tn.esprit.exam.dto.PostSearchResponse;
+import tn.esprit.exam.dto.PostViewerState;
 import tn.esprit.exam.entity.Visibility;
 
 import java.io.IOException;
@@ -43,21 +46,47 @@ public interface IPostService {
     ) throws IOException;
 
     /**
-     * Get all posts for a trip
+     * Get a page of posts for a trip, oldest first
      *
      * @param tripId Trip identifier
-     * @return List of posts
+     * @param cursor Cursor from the previous page, null for the first page
+     * @param limit Page size
+     * @return Page of posts
      */
-    List<PostResponse> getPostsByTrip(UUID tripId);
+    CursorPage<PostResponse> getPostsByTrip(UUID tripId, String cursor, int limit);
 
     /**
      * Search public posts by location
      *
      * @param country Optional country filter
      * @param city Optional city filter
-     * @return List of public posts
+     * @param cursor Cursor from the previous page, null for the first page
+     * @param limit Page size
+     * @return Page of public posts, newest first
      */
-    List<PostResponse> searchPublicPosts(String country, String city);
+    CursorPage<PostResponse> searchPublicPosts(String country, String city, String cursor, int limit);
+
+    /**
+     * Full-text search of public posts with facets
+     *
+     * @param query Free text, prefixes and small typos match
+     * @param country Optional country filter
+     * @param city Optional city filter
+     * @param lat Optional latitude of a geo-radius filter
+     * @param lon Optional longitude of a geo-radius filter
+     * @param radiusMeters Radius of the geo filter
+     * @param limit Maximum number of posts
+     * @return Ranked posts with country and city facets
+     */
+    PostSearchResponse searchPosts(
+            String query,
+            String country,
+            String city,
+            Double lat,
+            Double lon,
+            Double radiusMeters,
+            int limit
+    );
 
     /**
      * Get post by ID
@@ -76,10 +105,21 @@ public interface IPostService {
     List<PostResponse> getPostsByTrackPoint(Long trackPointId);
 
     /**
-     * Get posts from users that the current user follows
+     * Get one page of the home feed: posts from users that the current user follows
+     *
+     * @param userId Current user ID
+     * @param cursor Cursor returned with the previous page, null for the first page
+     * @param limit Page size
+     * @return Page of posts from followed users, newest first
+     */
+    CursorPage<PostResponse> getFollowingPosts(UUID userId, String cursor, int limit);
+
+    /**
+     * Get like and comment counts and the current user's like, comment and follow flags for a page of posts
      *
-     * @param userEmail Current user email
-     * @return List of posts from followed users
+     * @param userId Current user ID
+     * @param postIds Posts of the page, at most CursorPage.MAX_SIZE
+     * @return One state per existing post the user can see, in request order
      */
-    List<PostResponse> getFollowingPosts(String userEmail);
+    List<PostViewerState> getViewerStates(UUID userId, List<UUID> postIds);
 }
@@ -1,5 +1,6 @@
 package tn.esprit.exam.service;
 
+import tn.esprit.exam.dto.EncodedTrackResponse;
 import tn.esprit.exam.dto.TrackPointRequest;
 import tn.esprit.exam.dto.TrackPointResponse;
 
@@ -29,6 +30,31 @@ public interface ITrackPointService {
      */
     List<TrackPointResponse> getTrackPointsByTrip(UUID tripId);
     
+    /**
+     * Get a simplified track for map display
+     * @param tripId The ID of the trip
+     * @param toleranceMeters Maximum deviation from the raw track, in meters
+     * @return List of track points ordered by timestamp, raw points below the finest level
+     * @throws RuntimeException if trip not found
+     */
+    List<TrackPointResponse> getSimplifiedTrackPoints(UUID tripId, double toleranceMeters);
+    
+    /**
+     * Get the track of a trip as encoded polylines
+     * @param tripId The ID of the trip
+     * @return Geometry, timestamps, speeds and ids encoded as strings
+     * @throws RuntimeException if trip not found
+     */
+    EncodedTrackResponse getEncodedTrackPoints(UUID tripId);
+    
+    /**
+     * Get the track of a trip in the binary format described by TrackCodec
+     * @param tripId The ID of the trip
+     * @return Encoded bytes
+     * @throws RuntimeException if trip not found
+     */
+    byte[] getBinaryTrackPoints(UUID tripId);
+    
     /**
      * Get track points for a trip within a time range
      * @param tripId The ID of the trip
@@ -78,6 +104,25 @@ public interface ITrackPointService {
         Double radiusMeters
     );
     
+    /**
+     * Get track points of every trip the viewer may see within a radius of a location
+     * @param viewerId User running the search
+     * @param userId Optional owner of the trips to search
+     * @param lat Latitude of center point
+     * @param lon Longitude of center point
+     * @param radiusMeters Radius in meters
+     * @param limit Maximum number of points returned
+     * @return List of track points ordered by distance, closest first
+     */
+    List<TrackPointResponse> getTrackPointsNearLocationAcrossTrips(
+        UUID viewerId,
+        UUID userId,
+        Double lat,
+        Double lon,
+        Double radiusMeters,
+        int limit
+    );
+    
     /**
      * Add multiple track points in a single batch operation
      * @param tripId The ID of the trip
@@ -1,17 +1,17 @@
 package tn.esprit.exam.service;
 
+import tn.esprit.exam.dto.CursorPage;
 import tn.esprit.exam.dto.TimelineResponse;
 import tn.esprit.exam.dto.TripRequest;
 import tn.esprit.exam.dto.TripResponse;
 import tn.esprit.exam.dto.UserStatsResponse;
 
-import java.util.List;
 import java.util.UUID;
 
 public interface ITripService {
     TripResponse startTrip(UUID userId, TripRequest request);
     TripResponse endTrip(UUID tripId);
-    List<TripResponse> getTripsByUser(UUID userId);
+    CursorPage<TripResponse> getTripsByUser(UUID userId, String cursor, int limit);
     TripResponse getTrip(UUID tripId);
     void deleteTrip(UUID tripId);
     
@@ -23,6 +23,15 @@ public interface ITripService {
      */
     TimelineResponse getTimeline(UUID tripId);
 
+    /**
+     * Get timeline for a trip, optionally with the track encoded as polylines
+     *
+     * @param tripId Trip identifier
+     * @param compact Only list points with posts and encode the whole track
+     * @return Timeline with items and statistics
+     */
+    TimelineResponse getTimeline(UUID tripId, boolean compact);
+
     /**
      * Aggregated travel statistics for a user across all trips.
      *
@@ -0,0 +1,81 @@
+package tn.esprit.exam.service;
+
+import tn.esprit.exam.dto.TripStatsDTO;
+import tn.esprit.exam.entity.TrackPoint;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Service interface for the materialized per-trip statistics
+ */
+public interface ITripStatsService {
+
+    /**
+     * Get the statistics of a trip, rebuilding them if they were never materialized
+     *
+     * @param tripId Trip identifier
+     * @return Trip statistics
+     */
+    TripStatsDTO getTripStats(UUID tripId);
+
+    /**
+     * Get the statistics of several trips with a single read
+     * Read-only: trips whose statistics were never materialized get zeroed statistics
+     *
+     * @param tripIds Trip identifiers
+     * @return Statistics keyed by trip id
+     */
+    Map<UUID, TripStatsDTO> getTripStats(Collection<UUID> tripIds);
+
+    /**
+     * Create an empty statistics row for a new trip
+     *
+     * @param tripId Trip identifier
+     */
+    void initTripStats(UUID tripId);
+
+    /**
+     * Extend the running statistics with newly appended track points
+     *
+     * @param tripId Trip identifier
+     * @param trackPoints Saved track points, in timestamp order
+     * @return Distance added to the trip, in kilometers
+     */
+    double recordTrackPoints(UUID tripId, List<TrackPoint> trackPoints);
+
+    /**
+     * Account for a newly created post
+     *
+     * @param tripId Trip identifier
+     * @param country Optional country of the post
+     * @param city Optional city of the post
+     * @param photosCount Number of media attached to the post
+     */
+    void recordPost(UUID tripId, String country, String city, int photosCount);
+
+    /**
+     * Account for media attached to an existing post
+     *
+     * @param tripId Trip identifier
+     * @param mediaCount Number of media added
+     */
+    void recordMedia(UUID tripId, int mediaCount);
+
+    /**
+     * Recompute the statistics of a trip from its track points and posts
+     *
+     * @param tripId Trip identifier
+     * @return Rebuilt statistics
+     */
+    TripStatsDTO rebuildTripStats(UUID tripId);
+
+    /**
+     * Delete the statistics of a trip
+     *
+     * @param tripId Trip identifier
+     */
+    void deleteTripStats(UUID tripId);
+}
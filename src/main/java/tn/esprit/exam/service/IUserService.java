@@ -1,5 +1,6 @@
 package tn.esprit.exam.service;
 
+import org.springframework.security.core.Authentication;
 import tn.esprit.exam.dto.UserRequest;
 import tn.esprit.exam.dto.UserResponse;
 import tn.esprit.exam.entity.User;
@@ -15,4 +16,9 @@ public interface IUserService {
     UserResponse modifyUser(UUID userId, UserRequest user);
     void removeUser(UUID userId);
     UUID getUserIdByEmail(String email);
+
+    /**
+     * Id of the authenticated user, from the token claims when present, by email otherwise
+     */
+    UUID getCurrentUserId(Authentication auth);
 }
@@ -0,0 +1,36 @@
+package tn.esprit.exam.service;
+
+import tn.esprit.exam.dto.UserSuggestionResponse;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Service interface for "people you may know", computed in the background by UserSuggestionJob
+ */
+public interface IUserSuggestionService {
+
+    /**
+     * Stored suggestions of a user, best first
+     *
+     * @param userId User to suggest accounts to
+     * @param limit Maximum number of suggestions
+     */
+    List<UserSuggestionResponse> getSuggestions(UUID userId, int limit);
+
+    /**
+     * Drop a followed account from the follower's suggestions and add the accounts it follows as mutual follows
+     *
+     * @param followerId User who followed
+     * @param followingId Followed account
+     */
+    void onFollow(UUID followerId, UUID followingId);
+
+    /**
+     * Take the accounts a former followee follows off the follower's mutual follows
+     *
+     * @param followerId User who unfollowed
+     * @param followingId Unfollowed account
+     */
+    void onUnfollow(UUID followerId, UUID followingId);
+}
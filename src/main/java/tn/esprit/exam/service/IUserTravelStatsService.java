@@ -0,0 +1,69 @@
+package tn.esprit.exam.service;
+
+import tn.esprit.exam.dto.UserStatsConsistencyReport;
+import tn.esprit.exam.dto.UserStatsResponse;
+
+import java.util.UUID;
+
+/**
+ * Service interface for the per-user travel stats rollup
+ */
+public interface IUserTravelStatsService {
+
+    /**
+     * Read the rollup of a user, materializing it on first access
+     *
+     * @param userId User identifier
+     * @return Aggregated travel statistics
+     */
+    UserStatsResponse getUserTravelStats(UUID userId);
+
+    /**
+     * Account for a newly started trip
+     *
+     * @param userId Trip owner
+     */
+    void recordTrip(UUID userId);
+
+    /**
+     * Add travelled distance to the rollup
+     *
+     * @param userId Trip owner
+     * @param distanceKm Distance delta in kilometers, may be negative
+     */
+    void recordDistance(UUID userId, double distanceKm);
+
+    /**
+     * Account for a newly created post
+     *
+     * @param userId Trip owner
+     * @param country Optional country of the post
+     * @param city Optional city of the post
+     * @param photosCount Number of media attached to the post
+     */
+    void recordPost(UUID userId, String country, String city, int photosCount);
+
+    /**
+     * Account for media attached to an existing post
+     *
+     * @param userId Trip owner
+     * @param mediaCount Number of media added
+     */
+    void recordMedia(UUID userId, int mediaCount);
+
+    /**
+     * Replace the rollup with a full recompute from trips, track points and posts
+     *
+     * @param userId User identifier
+     * @return Recomputed statistics
+     */
+    UserStatsResponse rebuildUserTravelStats(UUID userId);
+
+    /**
+     * Compare the stored rollup with a full recompute without modifying it
+     *
+     * @param userId User identifier
+     * @return Report listing every field that differs
+     */
+    UserStatsConsistencyReport checkConsistency(UUID userId);
+}
@@ -0,0 +1,253 @@
+package tn.esprit.exam.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import tn.esprit.exam.repository.PostRepository;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.*;
+import java.util.function.Supplier;
+
+/**
+ * Like counts of posts: posts.likes_count plus deltas accumulated in memory and flushed in batches
+ * A burst of likes on one post costs one row update per flush instead of one per like,
+ * and reading a count is a primary key lookup instead of a COUNT over likes
+ * <p>
+ * Loss bound: a crash loses the deltas not yet flushed, about one second of likes on this instance,
+ * and deltas pending on another instance are not seen here until it flushes them
+ * reconcile() rewrites likes_count from COUNT(*) over likes, a slice of posts per run,
+ * so a lost delta is repaired within one pass over the posts table
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class LikeCounter {
+
+    private static final int STRIPES = 64;
+    private static final long READ_WAIT_NANOS = Duration.ofMillis(200).toNanos();
+
+    private static final int RECONCILE_BATCH = 1000;
+    // Deltas of recent likes may still be pending on some instance, such posts wait for the next pass
+    private static final Duration RECONCILE_QUIET = Duration.ofMinutes(1);
+    private static final UUID FIRST_ID = new UUID(0, 0);
+
+    private static final String RECONCILE_SQL =
+            "UPDATE posts p SET likes_count = (SELECT COUNT(*) FROM likes l WHERE l.post_id = p.id) " +
+            "WHERE p.id > ? AND p.id <= ? " +
+            "AND p.likes_count <> (SELECT COUNT(*) FROM likes l WHERE l.post_id = p.id) " +
+            "AND NOT EXISTS (SELECT 1 FROM likes l WHERE l.post_id = p.id AND l.created_at > ?)";
+
+    private final PostRepository postRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    // Deltas not yet written, striped by post so likes on different posts rarely share a lock
+    private final Stripe[] stripes = createStripes();
+
+    // Even while likes_count is stable, odd while a flush or reconcile may be committing to it
+    private final Object commitMonitor = new Object();
+    private volatile long generation;
+
+    private UUID reconcileCursor = FIRST_ID;
+
+    private static final class Stripe {
+        Map<UUID, Long> deltas = new HashMap<>();
+        // Deltas of the running flush, counted until the flush is over
+        Map<UUID, Long> flushing = Map.of();
+    }
+
+    /**
+     * Apply a like or unlike once the current transaction commits
+     *
+     * @return Count including this change
+     */
+    public long add(UUID postId, long delta) {
+        long count = get(postId) + delta;
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    accumulate(postId, delta);
+                }
+            });
+        } else {
+            accumulate(postId, delta);
+        }
+        return Math.max(count, 0);
+    }
+
+    /**
+     * Current like count of a post
+     */
+    public long get(UUID postId) {
+        return read(() -> withPending(postId, postRepository.findLikesCount(postId).orElse(0L)));
+    }
+
+    /**
+     * Runs a read of likes_count that goes through withPending, again if a flush committed meanwhile,
+     * so a count never misses the deltas being written nor adds them twice
+     * Waits at most 200 ms for a running flush, then keeps the last attempt
+     */
+    public <T> T read(Supplier<T> counts) {
+        long deadline = System.nanoTime() + READ_WAIT_NANOS;
+        while (true) {
+            long seen = awaitStable(deadline);
+            T result = counts.get();
+            if (seen == generation || System.nanoTime() - deadline > 0) {
+                return result;
+            }
+        }
+    }
+
+    /**
+     * Like count of a post from its likes_count column, read by the caller inside read()
+     */
+    public long withPending(UUID postId, long persisted) {
+        Stripe stripe = stripe(postId);
+        long pending;
+        synchronized (stripe) {
+            pending = stripe.deltas.getOrDefault(postId, 0L) + stripe.flushing.getOrDefault(postId, 0L);
+        }
+        return Math.max(persisted + pending, 0);
+    }
+
+    /**
+     * Write the accumulated deltas with one JDBC batch in one transaction
+     * A failed batch goes back to the stripes and is retried on the next run
+     */
+    @Scheduled(fixedDelay = 1000)
+    public synchronized void flush() {
+        // Moved under the stripe lock, readers count them as flushing from the same instant
+        Map<UUID, Long> deltas = new HashMap<>();
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                stripe.deltas.values().removeIf(delta -> delta == 0);
+                if (!stripe.deltas.isEmpty()) {
+                    stripe.flushing = stripe.deltas;
+                    stripe.deltas = new HashMap<>();
+                    deltas.putAll(stripe.flushing);
+                }
+            }
+        }
+        if (deltas.isEmpty()) {
+            return;
+        }
+
+        boolean written = false;
+        beginCommit();
+        try {
+            List<Object[]> rows = new ArrayList<>(deltas.size());
+            deltas.forEach((postId, delta) -> rows.add(new Object[]{delta, postId}));
+            transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(
+                    "UPDATE posts SET likes_count = GREATEST(likes_count + ?, 0) WHERE id = ?", rows));
+            written = true;
+            log.debug("Flushed like counts of {} posts", deltas.size());
+        } catch (RuntimeException e) {
+            log.error("Like count flush failed, retrying on the next run", e);
+        } finally {
+            for (Stripe stripe : stripes) {
+                synchronized (stripe) {
+                    if (!written) {
+                        stripe.flushing.forEach((postId, delta) -> stripe.deltas.merge(postId, delta, Long::sum));
+                    }
+                    stripe.flushing = Map.of();
+                }
+            }
+            endCommit();
+        }
+    }
+
+    /**
+     * Rewrite likes_count from the likes of the next slice of posts, in id order
+     * Flushes first, so this instance has no pending delta for a post liked before the quiet window
+     */
+    @Scheduled(initialDelay = 60_000, fixedDelay = 10_000)
+    public synchronized void reconcile() {
+        flush();
+        List<UUID> ids = jdbcTemplate.queryForList(
+                "SELECT id FROM posts WHERE id > ? ORDER BY id LIMIT ?", UUID.class, reconcileCursor, RECONCILE_BATCH);
+        if (ids.isEmpty()) {
+            reconcileCursor = FIRST_ID;
+            return;
+        }
+
+        UUID last = ids.get(ids.size() - 1);
+        beginCommit();
+        try {
+            int fixed = jdbcTemplate.update(RECONCILE_SQL, reconcileCursor, last, OffsetDateTime.now().minus(RECONCILE_QUIET));
+            if (fixed > 0) {
+                log.warn("Reconciled like counts of {} posts", fixed);
+            }
+        } finally {
+            endCommit();
+        }
+        reconcileCursor = ids.size() < RECONCILE_BATCH ? FIRST_ID : last;
+    }
+
+    @PreDestroy
+    void flushOnShutdown() {
+        flush();
+    }
+
+    private void accumulate(UUID postId, long delta) {
+        Stripe stripe = stripe(postId);
+        synchronized (stripe) {
+            stripe.deltas.merge(postId, delta, Long::sum);
+        }
+    }
+
+    private void beginCommit() {
+        synchronized (commitMonitor) {
+            generation++;
+        }
+    }
+
+    private void endCommit() {
+        synchronized (commitMonitor) {
+            generation++;
+            commitMonitor.notifyAll();
+        }
+    }
+
+    /**
+     * Generation once no flush is committing, or the current one at the deadline
+     */
+    private long awaitStable(long deadline) {
+        long seen = generation;
+        if ((seen & 1) == 0) {
+            return seen;
+        }
+        synchronized (commitMonitor) {
+            long remaining;
+            while ((generation & 1) != 0 && (remaining = deadline - System.nanoTime()) > 0) {
+                try {
+                    commitMonitor.wait(Math.max(remaining / 1_000_000, 1));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+            return generation;
+        }
+    }
+
+    private Stripe stripe(UUID postId) {
+        return stripes[(postId.hashCode() & Integer.MAX_VALUE) % STRIPES];
+    }
+
+    private static Stripe[] createStripes() {
+        Stripe[] stripes = new Stripe[STRIPES];
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe();
+        }
+        return stripes;
+    }
+}
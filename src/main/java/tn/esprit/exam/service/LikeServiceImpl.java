@@ -2,32 +2,39 @@ package tn.esprit.exam.service;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Limit;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import tn.esprit.exam.dto.CursorPage;
 import tn.esprit.exam.dto.LikeResponse;
+import tn.esprit.exam.dto.LikersPreview;
+import tn.esprit.exam.dto.PageCursor;
 import tn.esprit.exam.dto.PostLikeUpdate;
-import tn.esprit.exam.entity.Like;
 import tn.esprit.exam.entity.Post;
 import tn.esprit.exam.entity.User;
 import tn.esprit.exam.repository.LikeRepository;
 import tn.esprit.exam.repository.PostRepository;
 import tn.esprit.exam.repository.UserRepository;
 
-import java.util.List;
-import java.util.UUID;
-import java.util.stream.Collectors;
+import java.time.OffsetDateTime;
+import java.util.*;
+import java.util.function.Function;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class LikeServiceImpl implements ILikeService {
 
+    private static final int PREVIEW_SIZE = 3;
+
     private final LikeRepository likeRepository;
     private final PostRepository postRepository;
     private final UserRepository userRepository;
     private final SimpMessagingTemplate messagingTemplate;
     private final INotificationService notificationService;
+    private final LikeCounter likeCounter;
+    private final LikersPreviewCache likersPreviewCache;
 
     @Override
     @Transactional
@@ -40,17 +47,12 @@ public class LikeServiceImpl implements ILikeService {
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new RuntimeException("User not found"));
         
-        if (likeRepository.existsByPostIdAndUserId(postId, userId)) {
+        // The unique constraint decides, so two concurrent likes cannot both count
+        if (likeRepository.insertIfAbsent(UUID.randomUUID(), postId, userId, OffsetDateTime.now()) == 0) {
             throw new IllegalArgumentException("Post already liked");
         }
         
-        Like like = new Like();
-        like.setPost(post);
-        like.setUser(user);
-        
-        likeRepository.save(like);
-        
-        long likesCount = likeRepository.countByPostId(postId);
+        long likesCount = likeCounter.add(postId, 1);
         
         PostLikeUpdate update = new PostLikeUpdate(
                 postId,
@@ -80,12 +82,18 @@ public class LikeServiceImpl implements ILikeService {
     public PostLikeUpdate unlikePost(UUID postId, UUID userId) {
         log.info("User {} unliking post {}", userId, postId);
         
-        likeRepository.deleteByPostIdAndUserId(postId, userId);
+        int removed = likeRepository.deleteByPostIdAndUserId(postId, userId);
         
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new RuntimeException("User not found"));
         
-        long likesCount = likeRepository.countByPostId(postId);
+        long likesCount;
+        if (removed > 0) {
+            likesCount = likeCounter.add(postId, -1);
+            likersPreviewCache.evictLiker(postId, userId);
+        } else {
+            likesCount = likeCounter.get(postId);
+        }
         
         PostLikeUpdate update = new PostLikeUpdate(
                 postId,
@@ -105,23 +113,53 @@ public class LikeServiceImpl implements ILikeService {
         return likeRepository.existsByPostIdAndUserId(postId, userId);
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public Map<UUID, Boolean> getLikeStatuses(Collection<UUID> postIds, UUID userId) {
+        if (postIds.size() > CursorPage.MAX_SIZE) {
+            throw new IllegalArgumentException("At most " + CursorPage.MAX_SIZE + " posts per request");
+        }
+        Map<UUID, Boolean> statuses = new LinkedHashMap<>();
+        postIds.forEach(postId -> statuses.put(postId, false));
+        if (!postIds.isEmpty()) {
+            likeRepository.findLikedPostIds(userId, postIds)
+                    .forEach(postId -> statuses.put(postId, true));
+        }
+        return statuses;
+    }
+
     @Override
     public long getLikesCount(UUID postId) {
-        return likeRepository.countByPostId(postId);
+        return likeCounter.get(postId);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public CursorPage<LikeResponse> getLikesByPost(UUID postId, String cursor, int limit) {
+        PageCursor after = PageCursor.decode(cursor);
+        int size = CursorPage.size(limit);
+        // One extra row tells whether another page exists
+        List<LikeResponse> likes = after == null
+                ? likeRepository.findPageByPostId(postId, Limit.of(size + 1))
+                : likeRepository.findPageByPostIdAfter(postId, after.ts(), after.id(), Limit.of(size + 1));
+
+        return CursorPage.of(
+                likes,
+                size,
+                like -> new PageCursor(like.createdAt(), like.id()),
+                Function.identity()
+        );
     }
 
     @Override
-    public List<LikeResponse> getLikesByPost(UUID postId) {
-        return likeRepository.findAll().stream()
-                .filter(like -> like.getPost().getId().equals(postId))
-                .map(like -> new LikeResponse(
-                        like.getId(),
-                        like.getPost().getId(),
-                        like.getUser().getId(),
-                        like.getUser().getUsername(),
-                        like.getCreatedAt()
-                ))
-                .collect(Collectors.toList());
+    @Transactional(readOnly = true)
+    public LikersPreview getLikersPreview(UUID postId, UUID viewerId) {
+        List<LikeResponse> friends = likeRepository.findFollowedLikers(postId, viewerId, Limit.of(PREVIEW_SIZE));
+        List<LikeResponse> recent = likersPreviewCache.recentLikers(
+                postId,
+                () -> likeRepository.findPageByPostId(postId, Limit.of(PREVIEW_SIZE))
+        );
+        return new LikersPreview(likeCounter.get(postId), friends, recent);
     }
 
     private void sendLikeUpdate(PostLikeUpdate update) {
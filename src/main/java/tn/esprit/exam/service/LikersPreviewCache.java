@@ -0,0 +1,44 @@
+package tn.esprit.exam.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+import tn.esprit.exam.dto.LikeResponse;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+/**
+ * Read-through cache of the latest likers of a post, the viewer independent part of the likers preview
+ * Likes do not evict: a hot post would never hit, the preview catches up within TTL_MILLIS instead
+ * Unlikes evict when the user is in the cached preview, so a withdrawn like disappears right away
+ */
+@Component
+public class LikersPreviewCache {
+
+    private static final int MAX_ENTRIES = 10_000;
+    private static final long TTL_MILLIS = 5_000;
+
+    private final BoundedTtlCache<UUID, List<LikeResponse>> recentLikers;
+
+    public LikersPreviewCache(MeterRegistry meterRegistry) {
+        this.recentLikers = new BoundedTtlCache<>(meterRegistry, "likes.preview.cache",
+                "Likers previews", MAX_ENTRIES, TTL_MILLIS);
+    }
+
+    /**
+     * Get the latest likers of a post
+     *
+     * @param loader Loads them on a miss
+     */
+    public List<LikeResponse> recentLikers(UUID postId, Supplier<List<LikeResponse>> loader) {
+        return recentLikers.get(postId, () -> List.copyOf(loader.get()));
+    }
+
+    /**
+     * Drop the likers of a post once the current transaction commits, if the user is one of them
+     */
+    public void evictLiker(UUID postId, UUID userId) {
+        recentLikers.evictIf(postId, likers -> likers.stream().anyMatch(like -> like.userId().equals(userId)));
+    }
+}
@@ -22,6 +22,8 @@ public class MediaServiceImpl implements IMediaService {
 
     private final MediaRepository mediaRepository;
     private final PostRepository postRepository;
+    private final ITripStatsService tripStatsService;
+    private final IUserTravelStatsService userTravelStatsService;
 
     private final String UPLOAD_DIR = System.getProperty("user.dir") + "/uploads/";
 
@@ -46,6 +48,9 @@ public class MediaServiceImpl implements IMediaService {
         media.setSizeBytes(file.getSize());
 
         Media saved = mediaRepository.save(media);
+        tripStatsService.recordMedia(post.getTrip().getId(), 1);
+        userTravelStatsService.recordMedia(post.getTrip().getUser().getId(), 1);
+
         return new MediaResponse(saved.getId(), saved.getType(), saved.getUrl(),
                 saved.getSizeBytes(), saved.getWidth(), saved.getHeight(), saved.getDurationS());
     }
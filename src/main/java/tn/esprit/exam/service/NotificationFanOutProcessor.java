@@ -0,0 +1,206 @@
+package tn.esprit.exam.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import tn.esprit.exam.dto.NotificationUpdate;
+import tn.esprit.exam.entity.Notification;
+import tn.esprit.exam.entity.NotificationOutboxEvent;
+import tn.esprit.exam.entity.User;
+import tn.esprit.exam.repository.NotificationOutboxRepository;
+import tn.esprit.exam.repository.UserRepository;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.OffsetDateTime;
+import java.util.*;
+
+/**
+ * Delivers follower notifications queued in notification_outbox
+ * Each batch of followers is inserted with one JDBC batch, bumps its unread counters with one update
+ * and moves the event cursor in the same transaction, so a crash never notifies a follower twice
+ * WebSocket pushes go out once the batches commit, at most one per recipient and run, rate limited per user
+ * A failing event is retried on the next runs and dead-lettered after MAX_ATTEMPTS, so it cannot stall the outbox
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class NotificationFanOutProcessor {
+
+    private static final int BATCH_SIZE = 1000;
+    private static final int MAX_BATCHES_PER_RUN = 50;
+    private static final int MAX_ATTEMPTS = 5;
+
+    private static final String FOLLOWERS_SQL =
+            "SELECT id, created_at, follower_id FROM follows " +
+            "WHERE following_id = ? AND follower_id <> following_id " +
+            "ORDER BY created_at DESC, id DESC LIMIT ?";
+
+    private static final String FOLLOWERS_AFTER_SQL =
+            "SELECT id, created_at, follower_id FROM follows " +
+            "WHERE following_id = ? AND follower_id <> following_id AND (created_at, id) < (?, ?) " +
+            "ORDER BY created_at DESC, id DESC LIMIT ?";
+
+    private static final String INSERT_SQL =
+            "INSERT INTO notifications (id, user_id, actor_id, actor_count, type, created_at, is_read, post_id, content) " +
+            "VALUES (?, ?, ?, 1, ?, ?, false, ?, ?)";
+
+    private final NotificationOutboxRepository outboxRepository;
+    private final UserRepository userRepository;
+    private final UnreadCounters unreadCounters;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final NotificationPushThrottle pushThrottle;
+
+    @Scheduled(fixedDelay = 1000)
+    public void process() {
+        long start = System.nanoTime();
+        Map<UUID, NotificationUpdate> pushes = new LinkedHashMap<>();
+        int notified = 0;
+
+        for (int batches = 0; batches < MAX_BATCHES_PER_RUN; batches++) {
+            // Pushes of a batch only count once its transaction committed
+            Map<UUID, NotificationUpdate> batchPushes = new HashMap<>();
+            UUID[] claimedId = new UUID[1];
+            Integer count;
+            try {
+                count = transactionTemplate.execute(status -> processBatch(claimedId, batchPushes));
+            } catch (RuntimeException e) {
+                recordFailure(claimedId[0], e);
+                break;
+            }
+            if (count == null) {
+                break;
+            }
+            pushes.putAll(batchPushes);
+            notified += count;
+        }
+
+        // Only the latest update per recipient, it carries the newest unread count
+        for (NotificationUpdate update : pushes.values()) {
+            pushThrottle.push(update);
+        }
+
+        if (notified > 0) {
+            log.info("Fanned out {} notifications with {} pushes in {} ms",
+                    notified, pushes.size(), (System.nanoTime() - start) / 1_000_000);
+        }
+    }
+
+    /**
+     * Count the failure of a rolled back batch against its event
+     */
+    private void recordFailure(UUID eventId, RuntimeException error) {
+        if (eventId == null) {
+            log.error("Notification fan-out batch failed, retrying on the next run", error);
+            return;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status ->
+                    outboxRepository.recordFailure(eventId, String.valueOf(error), MAX_ATTEMPTS));
+        } catch (RuntimeException e) {
+            log.error("Could not record the failure of notification event {}", eventId, e);
+        }
+        log.error("Notification fan-out of event {} failed, retried on the next run up to {} attempts",
+                eventId, MAX_ATTEMPTS, error);
+    }
+
+    /**
+     * Notify the next batch of followers of the oldest pending event
+     *
+     * @param claimedId Receives the id of the claimed event, to count a failure after the rollback
+     * @return Followers notified, null when nothing is pending
+     */
+    private Integer processBatch(UUID[] claimedId, Map<UUID, NotificationUpdate> pushes) {
+        Optional<NotificationOutboxEvent> claimed = outboxRepository.claimNext();
+        if (claimed.isEmpty()) {
+            return null;
+        }
+        NotificationOutboxEvent event = claimed.get();
+        claimedId[0] = event.getId();
+
+        User actor = userRepository.findById(event.getActorId()).orElse(null);
+        if (actor == null) {
+            log.warn("Dropping notification event {}, actor {} not found", event.getId(), event.getActorId());
+            outboxRepository.delete(event);
+            return 0;
+        }
+
+        List<FollowerRow> followers = event.getCursorTs() == null
+                ? jdbcTemplate.query(FOLLOWERS_SQL, this::mapFollower, event.getActorId(), BATCH_SIZE)
+                : jdbcTemplate.query(FOLLOWERS_AFTER_SQL, this::mapFollower,
+                        event.getActorId(), event.getCursorTs(), event.getCursorId(), BATCH_SIZE);
+
+        if (!followers.isEmpty()) {
+            notify(event, actor, followers, pushes);
+        }
+
+        if (followers.size() < BATCH_SIZE) {
+            outboxRepository.delete(event);
+        } else {
+            FollowerRow last = followers.get(followers.size() - 1);
+            event.setCursorTs(last.createdAt());
+            event.setCursorId(last.followId());
+        }
+        return followers.size();
+    }
+
+    private void notify(NotificationOutboxEvent event, User actor, List<FollowerRow> followers,
+                        Map<UUID, NotificationUpdate> pushes) {
+        // Same content for every recipient
+        Notification template = new Notification();
+        template.setActor(actor);
+        template.setType(event.getType());
+        String content = template.generateContent();
+        String avatarUrl = actor.getAvatarMedia() != null ? actor.getAvatarMedia().getUrl() : null;
+        OffsetDateTime now = OffsetDateTime.now();
+
+        List<Object[]> rows = new ArrayList<>(followers.size());
+        List<UUID> notificationIds = new ArrayList<>(followers.size());
+        for (FollowerRow follower : followers) {
+            UUID notificationId = UUID.randomUUID();
+            notificationIds.add(notificationId);
+            rows.add(new Object[]{
+                    notificationId,
+                    follower.followerId(),
+                    actor.getId(),
+                    event.getType().name(),
+                    now,
+                    event.getPostId(),
+                    content
+            });
+        }
+        jdbcTemplate.batchUpdate(INSERT_SQL, rows);
+
+        Map<UUID, Long> unreadCounts = unreadCounters.incrementNotifications(
+                followers.stream().map(FollowerRow::followerId).toList());
+        for (int i = 0; i < followers.size(); i++) {
+            UUID followerId = followers.get(i).followerId();
+            pushes.put(followerId, new NotificationUpdate(
+                    notificationIds.get(i),
+                    followerId,
+                    actor.getId(),
+                    actor.getUsername(),
+                    avatarUrl,
+                    event.getType(),
+                    event.getPostId(),
+                    null,
+                    content,
+                    unreadCounts.getOrDefault(followerId, 0L)
+            ));
+        }
+    }
+
+    private FollowerRow mapFollower(ResultSet rs, int rowNum) throws SQLException {
+        return new FollowerRow(
+                rs.getObject("id", UUID.class),
+                rs.getObject("created_at", OffsetDateTime.class),
+                rs.getObject("follower_id", UUID.class)
+        );
+    }
+
+    private record FollowerRow(UUID followId, OffsetDateTime createdAt, UUID followerId) {}
+}
@@ -0,0 +1,98 @@
+package tn.esprit.exam.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import tn.esprit.exam.entity.NotificationType;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Open notification groups: at most one row per (user_id, group_key), see uk_notification_user_group
+ * Joining a group is an upsert, so concurrent events only wait on that group's row, never on the recipient
+ * A group closes when it is read, or when an event arrives after the grouping window
+ * Only the first MAX_TRACKED_ACTORS actors of a group are stored, past that the actor count is approximate
+ */
+@Component
+@RequiredArgsConstructor
+public class NotificationGroups {
+
+    // xmax is 0 only for a row this statement inserted
+    private static final String JOIN_SQL =
+            "INSERT INTO notifications (id, user_id, actor_id, actor_count, group_key, type, created_at, is_read, post_id, comment_id) " +
+            "VALUES (?, ?, ?, 1, ?, ?, ?, false, ?, ?) " +
+            "ON CONFLICT (user_id, group_key) DO UPDATE " +
+            "SET actor_id = EXCLUDED.actor_id, comment_id = EXCLUDED.comment_id, created_at = EXCLUDED.created_at " +
+            "WHERE notifications.created_at > ? " +
+            "RETURNING id, actor_count, (xmax = 0) AS created";
+
+    private static final String CLOSE_SQL =
+            "UPDATE notifications SET group_key = NULL WHERE user_id = ? AND group_key = ? AND created_at <= ?";
+
+    private static final String ADD_ACTOR_SQL =
+            "INSERT INTO notification_actors (id, notification_id, actor_id) VALUES (?, ?, ?) " +
+            "ON CONFLICT (notification_id, actor_id) DO NOTHING";
+
+    // Once a group is full, an actor that is not stored counts again each time it returns
+    private static final String COUNT_UNTRACKED_SQL =
+            "UPDATE notifications SET actor_count = actor_count + 1 WHERE id = ? " +
+            "AND NOT EXISTS (SELECT 1 FROM notification_actors a WHERE a.notification_id = ? AND a.actor_id = ?)";
+
+    // Bounds notification_actors to this many rows per group, a viral post cannot grow it without limit
+    static final int MAX_TRACKED_ACTORS = 100;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public record Joined(UUID notificationId, boolean created) {}
+
+    /**
+     * Adds an event to the user's open group, creating the group when there is none
+     * The row stays locked until the caller commits, so its actor count and content are written in turn
+     *
+     * @param since Start of the grouping window, an older group is closed and a new one started
+     */
+    public Joined join(
+            UUID userId,
+            UUID actorId,
+            NotificationType type,
+            String groupKey,
+            UUID postId,
+            UUID commentId,
+            OffsetDateTime since
+    ) {
+        OffsetDateTime now = OffsetDateTime.now();
+        for (int attempt = 0; attempt < 2; attempt++) {
+            int[] actorCount = new int[1];
+            List<Joined> rows = jdbcTemplate.query(
+                    JOIN_SQL,
+                    (rs, rowNum) -> {
+                        actorCount[0] = rs.getInt("actor_count");
+                        return new Joined(rs.getObject("id", UUID.class), rs.getBoolean("created"));
+                    },
+                    UUID.randomUUID(), userId, actorId, groupKey, type.name(), now, postId, commentId, since
+            );
+            if (!rows.isEmpty()) {
+                Joined joined = rows.get(0);
+                addActor(joined, actorId, actorCount[0]);
+                return joined;
+            }
+            // The open group is older than the window: close it, the retry starts a new one
+            jdbcTemplate.update(CLOSE_SQL, userId, groupKey, since);
+        }
+        throw new IllegalStateException("Could not join notification group " + groupKey + " of user " + userId);
+    }
+
+    private void addActor(Joined joined, UUID actorId, int actorCount) {
+        UUID notificationId = joined.notificationId();
+        if (joined.created() || actorCount < MAX_TRACKED_ACTORS) {
+            boolean newActor = jdbcTemplate.update(ADD_ACTOR_SQL, UUID.randomUUID(), notificationId, actorId) > 0;
+            if (newActor && !joined.created()) {
+                jdbcTemplate.update("UPDATE notifications SET actor_count = actor_count + 1 WHERE id = ?", notificationId);
+            }
+        } else {
+            jdbcTemplate.update(COUNT_UNTRACKED_SQL, notificationId, notificationId, actorId);
+        }
+    }
+}
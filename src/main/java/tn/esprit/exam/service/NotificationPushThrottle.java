@@ -0,0 +1,94 @@
+package tn.esprit.exam.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import tn.esprit.exam.dto.NotificationUpdate;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Rate limits notification pushes to one per user and interval
+ * Updates arriving inside the interval replace each other, the latest one is sent when it ends:
+ * it carries the newest unread count, so coalescing loses nothing the client displays
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class NotificationPushThrottle {
+
+    private static final long INTERVAL_MS = 5_000;
+
+    private final SimpMessagingTemplate messagingTemplate;
+
+    // Last push per user, entries older than the interval are dropped by flush
+    private final Map<UUID, Long> lastSent = new ConcurrentHashMap<>();
+    private final Map<UUID, NotificationUpdate> pending = new ConcurrentHashMap<>();
+
+    /**
+     * Push a new notification once the current transaction commits, or coalesce it when the user was pushed recently
+     */
+    public void push(NotificationUpdate update) {
+        afterCommit(() -> {
+            long now = System.currentTimeMillis();
+            Long last = lastSent.get(update.userId());
+            if (last != null && now - last < INTERVAL_MS) {
+                pending.put(update.userId(), update);
+            } else {
+                send(update, now);
+            }
+        });
+    }
+
+    /**
+     * Push a read state change right away, replacing any coalesced update it makes stale
+     */
+    public void pushNow(NotificationUpdate update) {
+        afterCommit(() -> {
+            pending.remove(update.userId());
+            send(update, System.currentTimeMillis());
+        });
+    }
+
+    @Scheduled(fixedDelay = 1000)
+    public void flush() {
+        long now = System.currentTimeMillis();
+        int sent = 0;
+        for (NotificationUpdate update : pending.values()) {
+            Long last = lastSent.get(update.userId());
+            if ((last == null || now - last >= INTERVAL_MS) && pending.remove(update.userId(), update)) {
+                send(update, now);
+                sent++;
+            }
+        }
+        lastSent.values().removeIf(last -> now - last >= INTERVAL_MS);
+
+        if (sent > 0) {
+            log.debug("Flushed {} coalesced notification pushes", sent);
+        }
+    }
+
+    private void send(NotificationUpdate update, long now) {
+        lastSent.put(update.userId(), now);
+        messagingTemplate.convertAndSend("/topic/notifications/" + update.userId(), update);
+    }
+
+    private void afterCommit(Runnable task) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            task.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                task.run();
+            }
+        });
+    }
+}
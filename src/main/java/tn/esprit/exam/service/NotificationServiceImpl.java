@@ -2,17 +2,23 @@ package tn.esprit.exam.service;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import tn.esprit.exam.dto.CursorPage;
 import tn.esprit.exam.dto.NotificationResponse;
 import tn.esprit.exam.dto.NotificationUpdate;
+import tn.esprit.exam.dto.PageCursor;
 import tn.esprit.exam.entity.Notification;
+import tn.esprit.exam.entity.NotificationOutboxEvent;
 import tn.esprit.exam.entity.NotificationType;
 import tn.esprit.exam.entity.User;
+import tn.esprit.exam.repository.NotificationOutboxRepository;
 import tn.esprit.exam.repository.NotificationRepository;
 import tn.esprit.exam.repository.UserRepository;
 
+import java.time.Duration;
+import java.time.OffsetDateTime;
 import java.util.List;
 import java.util.UUID;
 
@@ -21,9 +27,15 @@ import java.util.UUID;
 @Slf4j
 public class NotificationServiceImpl implements INotificationService {
     
+    // Likes, comments and follows merge into one notification per target while it is unread
+    private static final Duration GROUP_WINDOW = Duration.ofHours(6);
+    
     private final NotificationRepository notificationRepository;
     private final UserRepository userRepository;
-    private final SimpMessagingTemplate messagingTemplate;
+    private final NotificationOutboxRepository outboxRepository;
+    private final NotificationGroups notificationGroups;
+    private final UnreadCounters unreadCounters;
+    private final NotificationPushThrottle pushThrottle;
     
     @Override
     @Transactional
@@ -49,19 +61,34 @@ public class NotificationServiceImpl implements INotificationService {
         User actor = userRepository.findById(actorId)
                 .orElseThrow(() -> new RuntimeException("Actor not found"));
         
-        Notification notification = new Notification();
-        notification.setUser(user);
-        notification.setActor(actor);
-        notification.setType(type);
-        notification.setPostId(postId);
-        notification.setCommentId(commentId);
+        String groupKey = groupKey(type, postId);
+        Notification notification;
+        boolean grouped = false;
+        if (groupKey != null) {
+            NotificationGroups.Joined joined = notificationGroups.join(
+                    userId, actorId, type, groupKey, postId, commentId, OffsetDateTime.now().minus(GROUP_WINDOW)
+            );
+            grouped = !joined.created();
+            notification = notificationRepository.findById(joined.notificationId())
+                    .orElseThrow(() -> new RuntimeException("Notification not found"));
+        } else {
+            notification = new Notification();
+            notification.setUser(user);
+            notification.setActor(actor);
+            notification.setType(type);
+            notification.setPostId(postId);
+            notification.setCommentId(commentId);
+            notification.setIsRead(false);
+        }
         notification.setContent(notification.generateContent());
-        notification.setIsRead(false);
         
         Notification saved = notificationRepository.save(notification);
         
-        // Get unread count
-        Long unreadCount = notificationRepository.countUnreadByUserId(userId);
+        // Get unread count, a grouped notification already counts as unread
+        if (!grouped) {
+            unreadCounters.addNotifications(userId, 1);
+        }
+        Long unreadCount = unreadCounters.notifications(userId);
         
         // Send real-time notification via WebSocket
         NotificationUpdate update = new NotificationUpdate(
@@ -77,24 +104,41 @@ public class NotificationServiceImpl implements INotificationService {
                 unreadCount
         );
         
-        messagingTemplate.convertAndSend(
-                "/topic/notifications/" + userId,
-                update
-        );
+        pushThrottle.push(update);
         
-        log.info("Notification created and sent via WebSocket: {}", saved.getId());
+        log.info("Notification {} {} and queued for WebSocket", saved.getId(), grouped ? "grouped" : "created");
         
         return mapToResponse(saved);
     }
     
+    @Override
+    @Transactional
+    public void notifyFollowers(UUID actorId, NotificationType type, UUID postId) {
+        NotificationOutboxEvent event = new NotificationOutboxEvent();
+        event.setActorId(actorId);
+        event.setType(type);
+        event.setPostId(postId);
+        outboxRepository.save(event);
+        log.info("Queued {} notifications to followers of user {}", type, actorId);
+    }
+    
     @Override
     @Transactional(readOnly = true)
-    public List<NotificationResponse> getNotifications(UUID userId) {
+    public CursorPage<NotificationResponse> getNotifications(UUID userId, String cursor, int limit) {
         log.info("Fetching notifications for user: {}", userId);
-        return notificationRepository.findByUserIdOrderByCreatedAtDesc(userId)
-                .stream()
-                .map(this::mapToResponse)
-                .toList();
+        PageCursor after = PageCursor.decode(cursor);
+        int size = CursorPage.size(limit);
+        // One extra row tells whether another page exists
+        List<Notification> notifications = after == null
+                ? notificationRepository.findPageByUserId(userId, Limit.of(size + 1))
+                : notificationRepository.findPageByUserIdAfter(userId, after.ts(), after.id(), Limit.of(size + 1));
+        
+        return CursorPage.of(
+                notifications,
+                size,
+                notification -> new PageCursor(notification.getCreatedAt(), notification.getId()),
+                this::mapToResponse
+        );
     }
     
     @Override
@@ -108,9 +152,10 @@ public class NotificationServiceImpl implements INotificationService {
     }
     
     @Override
-    @Transactional(readOnly = true)
+    @Transactional
     public Long getUnreadCount(UUID userId) {
-        return notificationRepository.countUnreadByUserId(userId);
+        // Read-write: the first call computes the counter
+        return unreadCounters.notifications(userId);
     }
     
     @Override
@@ -125,10 +170,12 @@ public class NotificationServiceImpl implements INotificationService {
             throw new RuntimeException("Not authorized to mark this notification as read");
         }
         
-        notificationRepository.markAsRead(notificationId);
+        if (notificationRepository.markAsRead(notificationId) > 0) {
+            unreadCounters.addNotifications(userId, -1);
+        }
         
         // Send update via WebSocket
-        Long unreadCount = notificationRepository.countUnreadByUserId(userId);
+        Long unreadCount = unreadCounters.notifications(userId);
         NotificationUpdate update = new NotificationUpdate(
                 notificationId,
                 userId,
@@ -143,16 +190,14 @@ public class NotificationServiceImpl implements INotificationService {
                 unreadCount
         );
         
-        messagingTemplate.convertAndSend(
-                "/topic/notifications/" + userId,
-                update
-        );
+        pushThrottle.pushNow(update);
     }
     
     @Override
     @Transactional
     public void markAllAsRead(UUID userId) {
         log.info("Marking all notifications as read for user: {}", userId);
+        unreadCounters.resetNotifications(userId);
         notificationRepository.markAllAsRead(userId);
         
         // Send update via WebSocket
@@ -170,10 +215,7 @@ public class NotificationServiceImpl implements INotificationService {
                 unreadCount
         );
         
-        messagingTemplate.convertAndSend(
-                "/topic/notifications/" + userId,
-                update
-        );
+        pushThrottle.pushNow(update);
     }
     
     @Override
@@ -188,9 +230,25 @@ public class NotificationServiceImpl implements INotificationService {
             throw new RuntimeException("Not authorized to delete this notification");
         }
         
+        // Conditional update, so a concurrent mark-as-read cannot decrement twice
+        if (notificationRepository.markAsRead(notificationId) > 0) {
+            unreadCounters.addNotifications(userId, -1);
+        }
+        
         notificationRepository.delete(notification);
     }
     
+    /**
+     * Key of the group an event joins, null for types that are never grouped
+     */
+    private static String groupKey(NotificationType type, UUID postId) {
+        return switch (type) {
+            case LIKE, COMMENT -> postId != null ? type + ":" + postId : null;
+            case FOLLOW -> type.name();
+            case NEW_POST, MENTION -> null;
+        };
+    }
+    
     private NotificationResponse mapToResponse(Notification notification) {
         return new NotificationResponse(
                 notification.getId(),
@@ -203,7 +261,8 @@ public class NotificationServiceImpl implements INotificationService {
                 notification.getIsRead(),
                 notification.getPostId(),
                 notification.getCommentId(),
-                notification.getContent()
+                notification.getContent(),
+                notification.getActorCount() != null ? notification.getActorCount() : 1
         );
     }
 }
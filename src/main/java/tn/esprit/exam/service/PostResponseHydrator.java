@@ -0,0 +1,169 @@
+package tn.esprit.exam.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Hibernate;
+import org.springframework.stereotype.Component;
+import tn.esprit.exam.dto.MediaResponse;
+import tn.esprit.exam.dto.PostResponse;
+import tn.esprit.exam.entity.Media;
+import tn.esprit.exam.entity.Post;
+import tn.esprit.exam.entity.TrackPoint;
+import tn.esprit.exam.entity.User;
+import tn.esprit.exam.repository.MediaRepository;
+import tn.esprit.exam.repository.PostRepository;
+import tn.esprit.exam.repository.TrackPointRepository;
+import tn.esprit.exam.repository.UserRepository;
+
+import java.util.*;
+import java.util.function.Predicate;
+
+/**
+ * Builds PostResponse lists with a constant number of queries
+ * Authors, track points and media of a whole page are loaded with one IN query each,
+ * and only when they are not already fetched with the posts
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class PostResponseHydrator {
+
+    private final PostRepository postRepository;
+    private final MediaRepository mediaRepository;
+    private final UserRepository userRepository;
+    private final TrackPointRepository trackPointRepository;
+
+    /**
+     * Responses for already loaded posts, in the same order
+     * Must run inside a transaction so lazy references can be resolved
+     */
+    public List<PostResponse> hydrate(List<Post> posts) {
+        if (posts.isEmpty()) {
+            return List.of();
+        }
+
+        preloadReferences(posts);
+        Map<UUID, List<MediaResponse>> mediaByPost = loadMedia(
+                posts.stream().map(Post::getId).toList()
+        );
+
+        List<PostResponse> responses = new ArrayList<>(posts.size());
+        for (Post post : posts) {
+            TrackPoint trackPoint = post.getTrackPoint();
+            responses.add(toResponse(
+                    post,
+                    trackPoint != null ? trackPoint.getLat() : null,
+                    trackPoint != null ? trackPoint.getLon() : null,
+                    mediaByPost.getOrDefault(post.getId(), List.of())
+            ));
+        }
+        return responses;
+    }
+
+    /**
+     * Responses for a list of post ids, in the order of the ids
+     * Posts that are gone or rejected by the filter are dropped
+     */
+    public List<PostResponse> hydrateIds(List<UUID> postIds, Predicate<Post> include) {
+        if (postIds.isEmpty()) {
+            return List.of();
+        }
+
+        Map<UUID, Post> postsById = new HashMap<>();
+        for (Post post : postRepository.findAllByIdWithDetails(postIds)) {
+            postsById.put(post.getId(), post);
+        }
+
+        List<Post> posts = new ArrayList<>(postIds.size());
+        for (UUID postId : postIds) {
+            Post post = postsById.get(postId);
+            if (post != null && include.test(post)) {
+                posts.add(post);
+            }
+        }
+        return hydrate(posts);
+    }
+
+    /**
+     * Map a post with the given coordinates and media
+     */
+    public PostResponse toResponse(
+            Post post,
+            Double latitude,
+            Double longitude,
+            List<MediaResponse> media
+    ) {
+        // Ensure user is loaded (should be with JOIN FETCH, but add safety check)
+        if (post.getUser() == null) {
+            log.error("Post {} has null user, cannot create response", post.getId());
+            throw new RuntimeException("Post user is null");
+        }
+
+        return new PostResponse(
+                post.getId(),
+                post.getText(),
+                post.getVisibility(),
+                post.getTs(),
+                // Reading the id of the lazy trip proxy does not initialize it
+                post.getTrip().getId(),
+                post.getTrackPoint() != null ?
+                        post.getTrackPoint().getId() : null,
+                latitude,
+                longitude,
+                post.getUser().getId(),
+                post.getUser().getEmail(),
+                post.getUser().getUsername(),
+                post.getCity(),
+                post.getCountry(),
+                media
+        );
+    }
+
+    public static MediaResponse toMediaResponse(Media media) {
+        return new MediaResponse(
+                media.getId(),
+                media.getType(),
+                media.getUrl(),
+                media.getSizeBytes(),
+                media.getWidth(),
+                media.getHeight(),
+                media.getDurationS()
+        );
+    }
+
+    /**
+     * Load the authors and track points still behind lazy proxies in two IN queries
+     * Once loaded they sit in the persistence context, so the proxies resolve without a query
+     */
+    private void preloadReferences(List<Post> posts) {
+        Set<UUID> userIds = new HashSet<>();
+        Set<Long> trackPointIds = new HashSet<>();
+        for (Post post : posts) {
+            User user = post.getUser();
+            if (user != null && !Hibernate.isInitialized(user)) {
+                userIds.add(user.getId());
+            }
+            TrackPoint trackPoint = post.getTrackPoint();
+            if (trackPoint != null && !Hibernate.isInitialized(trackPoint)) {
+                trackPointIds.add(trackPoint.getId());
+            }
+        }
+
+        if (!userIds.isEmpty()) {
+            userRepository.findAllById(userIds);
+        }
+        if (!trackPointIds.isEmpty()) {
+            trackPointRepository.findAllById(trackPointIds);
+        }
+    }
+
+    private Map<UUID, List<MediaResponse>> loadMedia(List<UUID> postIds) {
+        Map<UUID, List<MediaResponse>> mediaByPost = new HashMap<>();
+        for (Media m : mediaRepository.findByPostIdIn(postIds)) {
+            // Reading the id of the lazy post proxy does not initialize it
+            mediaByPost.computeIfAbsent(m.getPost().getId(), k -> new ArrayList<>())
+                    .add(toMediaResponse(m));
+        }
+        return mediaByPost;
+    }
+}
@@ -0,0 +1,50 @@
+package tn.esprit.exam.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Indexes public posts that have no search document yet
+ * Covers posts stored before the search index existed and writes whose indexing failed
+ * Also fills the geohash of documents indexed before their track point was backfilled
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class PostSearchBackfillJob {
+
+    private static final int BATCH_SIZE = 1000;
+
+    private final PostSearchIndexer indexer;
+
+    /**
+     * Runs until every public post has a document with its geohash,
+     * then only costs one anti-join and one partial index lookup per run
+     */
+    @Scheduled(initialDelay = 90_000, fixedDelay = 600_000)
+    public void backfill() {
+        int total = 0;
+        int indexed;
+        do {
+            indexed = indexer.indexMissing(BATCH_SIZE);
+            total += indexed;
+        } while (indexed == BATCH_SIZE);
+
+        if (total > 0) {
+            log.info("Indexed {} posts for search", total);
+        }
+
+        int geohashed = 0;
+        int filled;
+        do {
+            filled = indexer.fillMissingGeohash(BATCH_SIZE);
+            geohashed += filled;
+        } while (filled == BATCH_SIZE);
+
+        if (geohashed > 0) {
+            log.info("Filled the geohash of {} search documents", geohashed);
+        }
+    }
+}
@@ -0,0 +1,222 @@
+package tn.esprit.exam.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+import tn.esprit.exam.dto.FacetCount;
+
+import java.util.*;
+
+/**
+ * Ranked post search over post_search_documents
+ * Terms match as prefixes through the tsvector GIN index, or approximately through the trigram index,
+ * and the geo filter prunes by geohash cell before the exact distance check
+ * Typo tolerance needs the pg_trgm extension from migrate_post_search.sql; without it searches
+ * fall back to prefix matching and a warning is logged once
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class PostSearchEngine {
+
+    private static final int MAX_TERMS = 8;
+    private static final int FACET_SIZE = 20;
+
+    // Matches counted for the facets, so broad queries do not aggregate the whole table
+    private static final int FACET_SAMPLE = 10_000;
+
+    // Documents can lag behind a post made private, the post row is the authority
+    private static final String VISIBLE = "EXISTS (SELECT 1 FROM posts p WHERE p.id = d.post_id AND p.visibility = 'PUBLIC')";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    // Null until the first text search checks for pg_trgm
+    private volatile Boolean trigramAvailable;
+
+    public record Hits(List<UUID> postIds, List<FacetCount> countries, List<FacetCount> cities) {}
+
+    /**
+     * Search public posts
+     *
+     * @param text Free text, matched against text, place, trip title and author
+     * @param country Optional country filter
+     * @param city Optional city filter
+     * @param lat Latitude of the geo filter, null without one
+     * @param lon Longitude of the geo filter
+     * @param radiusMeters Radius of the geo filter
+     * @param limit Maximum number of hits
+     * @return Hits by relevance (newest first without text), with facets over the first FACET_SAMPLE matches,
+     * empty for a search without any criteria
+     */
+    public Hits search(String text, String country, String city,
+                       Double lat, Double lon, Double radiusMeters, int limit) {
+        long start = System.nanoTime();
+        List<Object> args = new ArrayList<>();
+        StringBuilder from = new StringBuilder(" FROM post_search_documents d");
+        List<String> where = new ArrayList<>();
+        where.add(VISIBLE);
+
+        String rawText = normalize(text);
+        String tsQuery = toPrefixQuery(rawText);
+        boolean trigram = tsQuery != null && trigramAvailable();
+        if (tsQuery != null) {
+            from.append(", to_tsquery('simple', ?) tsq");
+            args.add(tsQuery);
+            if (trigram) {
+                // <% is word similarity, tolerates typos the prefix query misses
+                where.add("(d.document @@ tsq OR ? <% d.search_text)");
+                args.add(rawText);
+            } else {
+                where.add("d.document @@ tsq");
+            }
+        }
+        if (country != null && !country.isBlank()) {
+            where.add("d.country = ?");
+            args.add(country);
+        }
+        if (city != null && !city.isBlank()) {
+            where.add("d.city = ?");
+            args.add(city);
+        }
+        if (lat != null) {
+            addGeoFilter(where, args, lat, lon, radiusMeters);
+        }
+
+        String filter = from.toString() + whereClause(where);
+        List<Object> hitArgs = new ArrayList<>(args);
+        String order;
+        if (trigram) {
+            order = " ORDER BY ts_rank_cd(d.document, tsq) + word_similarity(?, d.search_text) DESC, d.ts DESC";
+            hitArgs.add(rawText);
+        } else if (tsQuery != null) {
+            order = " ORDER BY ts_rank_cd(d.document, tsq) DESC, d.ts DESC";
+        } else {
+            order = " ORDER BY d.ts DESC";
+        }
+        hitArgs.add(limit);
+
+        List<UUID> postIds = jdbcTemplate.query(
+                "SELECT d.post_id" + filter + order + " LIMIT ?",
+                (rs, rowNum) -> rs.getObject("post_id", UUID.class),
+                hitArgs.toArray()
+        );
+        // Only the visibility condition: facets of an unfiltered search would count the whole table
+        boolean filtered = where.size() > 1;
+        List<FacetCount> countries = new ArrayList<>();
+        List<FacetCount> cities = new ArrayList<>();
+        if (filtered) {
+            facets(filter, args, countries, cities);
+        }
+
+        log.debug("Post search '{}' returned {} hits in {} ms",
+                rawText, postIds.size(), (System.nanoTime() - start) / 1_000_000);
+        return new Hits(postIds, countries, cities);
+    }
+
+    /**
+     * Country and city counts over a bounded sample of the matches, in one scan
+     */
+    private void facets(String filter, List<Object> args, List<FacetCount> countries, List<FacetCount> cities) {
+        List<Object> facetArgs = new ArrayList<>(args);
+        facetArgs.add(FACET_SAMPLE);
+        jdbcTemplate.query(
+                "SELECT s.country, s.city, GROUPING(s.country) AS by_city, COUNT(*) AS hits " +
+                "FROM (SELECT d.country, d.city" + filter + " LIMIT ?) s " +
+                "GROUP BY GROUPING SETS ((s.country), (s.city))",
+                (RowCallbackHandler) rs -> {
+                    if (rs.getInt("by_city") == 0) {
+                        addFacet(countries, rs.getString("country"), rs.getLong("hits"));
+                    } else {
+                        addFacet(cities, rs.getString("city"), rs.getLong("hits"));
+                    }
+                },
+                facetArgs.toArray()
+        );
+        topFacets(countries);
+        topFacets(cities);
+    }
+
+    private static void addFacet(List<FacetCount> facets, String value, long hits) {
+        if (value != null) {
+            facets.add(new FacetCount(value, hits));
+        }
+    }
+
+    private static void topFacets(List<FacetCount> facets) {
+        facets.sort(Comparator.comparingLong(FacetCount::count).reversed().thenComparing(FacetCount::value));
+        if (facets.size() > FACET_SIZE) {
+            facets.subList(FACET_SIZE, facets.size()).clear();
+        }
+    }
+
+    private boolean trigramAvailable() {
+        Boolean available = trigramAvailable;
+        if (available == null) {
+            available = Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                    "SELECT EXISTS (SELECT 1 FROM pg_extension WHERE extname = 'pg_trgm')", Boolean.class));
+            if (!available) {
+                log.warn("pg_trgm is not installed, post search falls back to prefix matching; run migrate_post_search.sql");
+            }
+            trigramAvailable = available;
+        }
+        return available;
+    }
+
+    private static String whereClause(List<String> conditions) {
+        return conditions.isEmpty() ? "" : " WHERE " + String.join(" AND ", conditions);
+    }
+
+    private void addGeoFilter(List<String> where, List<Object> args, double lat, double lon, double radiusMeters) {
+        // One index range per covering cell, skipped when the radius needs a full scan
+        Set<String> cells = Geohash.coveringCells(lat, lon, radiusMeters);
+        if (!cells.isEmpty()) {
+            StringJoiner ranges = new StringJoiner(" OR ", "(", ")");
+            for (String cell : cells) {
+                ranges.add("d.geohash LIKE ?");
+                args.add(cell + "%");
+            }
+            where.add(ranges.toString());
+        }
+
+        where.add(GeoDistance.sqlMeters("d.lat", "d.lon") + " <= ?");
+        args.add(lat);
+        args.add(lat);
+        args.add(lon);
+        args.add(radiusMeters);
+    }
+
+    /**
+     * Lowercased words of the query, null when there are none
+     */
+    private static String normalize(String text) {
+        if (text == null) {
+            return null;
+        }
+        String normalized = String.join(" ", terms(text));
+        return normalized.isEmpty() ? null : normalized;
+    }
+
+    /**
+     * Every word as a prefix, all required: "pari tow" becomes "pari:* & tow:*"
+     */
+    private static String toPrefixQuery(String normalized) {
+        if (normalized == null) {
+            return null;
+        }
+        StringJoiner query = new StringJoiner(" & ");
+        for (String term : normalized.split(" ")) {
+            query.add(term + ":*");
+        }
+        return query.toString();
+    }
+
+    // Letters and digits only, so nothing in a term is tsquery syntax
+    private static List<String> terms(String text) {
+        return Arrays.stream(text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+"))
+                .filter(term -> !term.isEmpty())
+                .limit(MAX_TERMS)
+                .toList();
+    }
+}
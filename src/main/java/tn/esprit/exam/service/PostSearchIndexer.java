@@ -0,0 +1,127 @@
+package tn.esprit.exam.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Keeps post_search_documents in sync with the post write paths
+ * Documents are built in SQL from the post, its trip, its author and its track point
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class PostSearchIndexer {
+
+    // 'simple' configuration: posts are written in several languages, so no stemming or stop words
+    private static final String UPSERT_SQL =
+            "INSERT INTO post_search_documents " +
+            "(post_id, trip_id, user_id, document, search_text, country, city, lat, lon, geohash, ts) " +
+            "SELECT p.id, p.trip_id, p.user_id, " +
+            "setweight(to_tsvector('simple', coalesce(p.text, '')), 'A') " +
+            "|| setweight(to_tsvector('simple', concat_ws(' ', p.city, p.country)), 'B') " +
+            "|| setweight(to_tsvector('simple', concat_ws(' ', t.title, u.username)), 'C'), " +
+            "lower(concat_ws(' ', p.text, p.city, p.country, t.title, u.username)), " +
+            "p.country, p.city, tp.lat, tp.lon, tp.geohash, p.ts " +
+            "FROM posts p " +
+            "JOIN trips t ON t.id = p.trip_id " +
+            "JOIN users u ON u.id = p.user_id " +
+            "LEFT JOIN track_points tp ON tp.id = p.track_point_id " +
+            "WHERE p.visibility = 'PUBLIC' AND ";
+
+    private static final String ON_CONFLICT_SQL =
+            " ON CONFLICT (post_id) DO UPDATE SET " +
+            "document = EXCLUDED.document, search_text = EXCLUDED.search_text, " +
+            "country = EXCLUDED.country, city = EXCLUDED.city, " +
+            "lat = EXCLUDED.lat, lon = EXCLUDED.lon, geohash = EXCLUDED.geohash";
+
+    // Documents copied from a track point the geohash backfill had not reached yet
+    private static final String MISSING_GEOHASH_SQL =
+            "SELECT post_id, lat, lon FROM post_search_documents " +
+            "WHERE geohash IS NULL AND lat IS NOT NULL AND lon IS NOT NULL LIMIT ?";
+
+    private static final String SET_GEOHASH_SQL = "UPDATE post_search_documents SET geohash = ? WHERE post_id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Index a post once the current transaction commits, so the SQL sees the committed row
+     * A failure is only logged, the backfill job picks the post up later
+     */
+    public void index(UUID postId) {
+        afterCommit(() -> jdbcTemplate.update(UPSERT_SQL + "p.id = ?" + ON_CONFLICT_SQL, postId));
+    }
+
+    /**
+     * Rebuild the documents of an author's posts, e.g. after a username change
+     */
+    public void reindexAuthor(UUID userId) {
+        afterCommit(() -> {
+            int updated = jdbcTemplate.update(UPSERT_SQL + "p.user_id = ?" + ON_CONFLICT_SQL, userId);
+            log.info("Reindexed {} posts of user {}", updated, userId);
+        });
+    }
+
+    /**
+     * Drop the documents of a trip's posts, in the current transaction
+     */
+    public void removeTrip(UUID tripId) {
+        jdbcTemplate.update("DELETE FROM post_search_documents WHERE trip_id = ?", tripId);
+    }
+
+    /**
+     * Index up to batchSize public posts that have no document yet
+     *
+     * @return Number of posts indexed
+     */
+    public int indexMissing(int batchSize) {
+        return jdbcTemplate.update(UPSERT_SQL +
+                "NOT EXISTS (SELECT 1 FROM post_search_documents d WHERE d.post_id = p.id) " +
+                "LIMIT ?" + ON_CONFLICT_SQL, batchSize);
+    }
+
+    /**
+     * Compute the geohash of up to batchSize documents that have coordinates but no geohash
+     * The geo filter prunes by geohash cell, so such documents are invisible to radius searches until then
+     *
+     * @return Number of documents updated
+     */
+    public int fillMissingGeohash(int batchSize) {
+        List<Object[]> updates = jdbcTemplate.query(MISSING_GEOHASH_SQL, (rs, rowNum) -> new Object[]{
+                Geohash.encode(rs.getDouble("lat"), rs.getDouble("lon"), Geohash.STORED_PRECISION),
+                rs.getObject("post_id", UUID.class)
+        }, batchSize);
+
+        if (!updates.isEmpty()) {
+            jdbcTemplate.batchUpdate(SET_GEOHASH_SQL, updates);
+        }
+        return updates.size();
+    }
+
+    private void afterCommit(Runnable task) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            run(task);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                run(task);
+            }
+        });
+    }
+
+    private void run(Runnable task) {
+        try {
+            task.run();
+        } catch (RuntimeException e) {
+            log.warn("Post search indexing failed: {}", e.getMessage());
+        }
+    }
+}
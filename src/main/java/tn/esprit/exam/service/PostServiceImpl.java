@@ -2,13 +2,17 @@ package tn.esprit.exam.service;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
+import tn.esprit.exam.dto.CursorPage;
 import tn.esprit.exam.dto.MediaResponse;
+import tn.esprit.exam.dto.PageCursor;
 import tn.esprit.exam.dto.PostResponse;
+import tn.esprit.exam.dto.PostSearchResponse;
+import tn.esprit.exam.dto.PostViewerState;
 import tn.esprit.exam.entity.*;
-import tn.esprit.exam.repository.FollowRepository;
 import tn.esprit.exam.repository.MediaRepository;
 import tn.esprit.exam.repository.PostRepository;
 import tn.esprit.exam.repository.TrackPointRepository;
@@ -20,9 +24,8 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.time.OffsetDateTime;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.UUID;
+import java.util.*;
+import java.util.function.Function;
 
 /**
  * Service implementation for post operations
@@ -38,8 +41,15 @@ public class PostServiceImpl implements IPostService {
     private final UserRepository userRepository;
     private final TrackPointRepository trackPointRepository;
     private final MediaRepository mediaRepository;
-    private final FollowRepository followRepository;
     private final INotificationService notificationService;
+    private final ITripStatsService tripStatsService;
+    private final IUserTravelStatsService userTravelStatsService;
+    private final IHomeFeedService homeFeedService;
+    private final PostResponseHydrator hydrator;
+    private final PublicPostSearchCache searchCache;
+    private final PostSearchEngine searchEngine;
+    private final PostSearchIndexer searchIndexer;
+    private final PostViewerStates viewerStates;
 
     private static final String UPLOAD_DIR = 
             System.getProperty("user.dir") + "/uploads/posts/";
@@ -112,22 +122,23 @@ public class PostServiceImpl implements IPostService {
                     savedPost.getId());
         }
 
-        // Notify followers if post is public
+        tripStatsService.recordPost(tripId, country, city, mediaResponses.size());
+        userTravelStatsService.recordPost(
+                trip.getUser().getId(), country, city, mediaResponses.size());
+
+        homeFeedService.publish(savedPost);
+
         if (visibility == Visibility.PUBLIC) {
-            List<User> followers = followRepository.findFollowersByFollowingId(user.getId());
-            for (User follower : followers) {
-                notificationService.createNotification(
-                        follower.getId(),
-                        user.getId(),
-                        NotificationType.NEW_POST,
-                        savedPost.getId(),
-                        null
-                );
-            }
-            log.info("Sent {} new post notifications to followers", followers.size());
+            searchCache.evict(country, city);
+            searchIndexer.index(savedPost.getId());
         }
 
-        return mapToResponse(savedPost, latitude, longitude, mediaResponses);
+        // Notify followers if post is public, fanned out in the background
+        if (visibility == Visibility.PUBLIC) {
+            notificationService.notifyFollowers(user.getId(), NotificationType.NEW_POST, savedPost.getId());
+        }
+
+        return hydrator.toResponse(savedPost, latitude, longitude, mediaResponses);
     }
 
     /**
@@ -178,60 +189,107 @@ public class PostServiceImpl implements IPostService {
 
             Media savedMedia = mediaRepository.save(media);
             
-            mediaResponses.add(new MediaResponse(
-                    savedMedia.getId(),
-                    savedMedia.getType(),
-                    savedMedia.getUrl(),
-                    savedMedia.getSizeBytes(),
-                    savedMedia.getWidth(),
-                    savedMedia.getHeight(),
-                    savedMedia.getDurationS()
-            ));
+            mediaResponses.add(PostResponseHydrator.toMediaResponse(savedMedia));
         }
 
         return mediaResponses;
     }
 
     @Override
-    public List<PostResponse> getPostsByTrip(UUID tripId) {
+    @Transactional(readOnly = true)
+    public CursorPage<PostResponse> getPostsByTrip(UUID tripId, String cursor, int limit) {
         log.info("Fetching posts for trip: {}", tripId);
         
-        return postRepository.findByTripId(tripId)
-                .stream()
-                .map(this::mapToResponseWithMedia)
-                .toList();
+        PageCursor after = PageCursor.decode(cursor);
+        int size = CursorPage.size(limit);
+        // One extra row tells whether another page exists
+        List<Post> posts = after == null
+                ? postRepository.findPageByTripId(tripId, Limit.of(size + 1))
+                : postRepository.findPageByTripIdAfter(tripId, after.ts(), after.id(), Limit.of(size + 1));
+        
+        return CursorPage.of(posts, size, this::position, Function.identity())
+                .mapItems(hydrator::hydrate);
     }
 
     @Override
-    public List<PostResponse> searchPublicPosts(String country, String city) {
+    @Transactional(readOnly = true)
+    public CursorPage<PostResponse> searchPublicPosts(String country, String city, String cursor, int limit) {
         log.info("Searching public posts - country: {}, city: {}", 
                 country, 
                 city);
         
-        // If both country and city are provided, use filtered search
-        if (country != null && !country.isEmpty() && 
-            city != null && !city.isEmpty()) {
-            return postRepository
-                    .findByVisibilityAndCountryAndCity(
-                            Visibility.PUBLIC, 
-                            country, 
-                            city
-                    )
-                    .stream()
-                    .map(this::mapToResponseWithMedia)
-                    .toList();
+        // Only filter when both country and city are provided
+        boolean filtered = country != null && !country.isEmpty() && 
+                city != null && !city.isEmpty();
+        String countryFilter = filtered ? country : null;
+        String cityFilter = filtered ? city : null;
+        
+        PageCursor after = PageCursor.decode(cursor);
+        if (after == null) {
+            // Discovery pages mostly ask for the same first pages, serve them from the cache
+            return searchCache.firstPage(countryFilter, cityFilter, CursorPage.size(limit),
+                    () -> loadPublicPage(countryFilter, cityFilter, null, CursorPage.MAX_SIZE));
+        }
+        return loadPublicPage(countryFilter, cityFilter, after, CursorPage.size(limit));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public PostSearchResponse searchPosts(
+            String query,
+            String country,
+            String city,
+            Double lat,
+            Double lon,
+            Double radiusMeters,
+            int limit
+    ) {
+        log.info("Searching posts - query: {}, country: {}, city: {}, near: {},{} within {}m",
+                query, country, city, lat, lon, radiusMeters);
+        
+        if (lat != null || lon != null || radiusMeters != null) {
+            if (lat == null || lon == null || lat < -90 || lat > 90 || lon < -180 || lon > 180) {
+                throw new IllegalArgumentException("Invalid location coordinates");
+            }
+            if (radiusMeters == null || radiusMeters <= 0) {
+                throw new IllegalArgumentException("Radius must be positive");
+            }
         }
         
-        // Otherwise, return all public posts ordered by timestamp
-        log.info("Fetching all public posts");
-        return postRepository
-                .findByVisibilityOrderByTsDesc(Visibility.PUBLIC)
-                .stream()
-                .map(this::mapToResponseWithMedia)
-                .toList();
+        PostSearchEngine.Hits hits = searchEngine.search(
+                query, country, city, lat, lon, radiusMeters, CursorPage.size(limit));
+        
+        return new PostSearchResponse(
+                hydrator.hydrateIds(hits.postIds(), post -> post.getVisibility() == Visibility.PUBLIC),
+                hits.countries(),
+                hits.cities()
+        );
+    }
+
+    private CursorPage<PostResponse> loadPublicPage(String country, String city, PageCursor after, int size) {
+        Limit fetch = Limit.of(size + 1);
+        List<Post> posts;
+        
+        if (country != null) {
+            posts = after == null
+                    ? postRepository.findPageByVisibilityAndLocation(
+                            Visibility.PUBLIC, country, city, fetch)
+                    : postRepository.findPageByVisibilityAndLocationAfter(
+                            Visibility.PUBLIC, country, city, after.ts(), after.id(), fetch);
+        } else {
+            // Otherwise, page through all public posts ordered by timestamp
+            posts = after == null
+                    ? postRepository.findPageByVisibility(Visibility.PUBLIC, fetch)
+                    : postRepository.findPageByVisibilityAfter(
+                            Visibility.PUBLIC, after.ts(), after.id(), fetch);
+        }
+        
+        return CursorPage.of(posts, size, this::position, Function.identity())
+                .mapItems(hydrator::hydrate);
     }
 
     @Override
+    @Transactional(readOnly = true)
     public PostResponse getPostById(UUID postId) {
         log.info("Fetching post: {}", postId);
         
@@ -241,120 +299,50 @@ public class PostServiceImpl implements IPostService {
                     return new RuntimeException("Post not found");
                 });
         
-        return mapToResponseWithMedia(post);
+        return hydrator.hydrate(List.of(post)).get(0);
     }
 
     @Override
+    @Transactional(readOnly = true)
     public List<PostResponse> getPostsByTrackPoint(Long trackPointId) {
         log.info("Fetching posts for track point: {}", trackPointId);
         
-        return postRepository.findByTrackPointId(trackPointId)
-                .stream()
-                .map(this::mapToResponseWithMedia)
-                .toList();
+        return hydrator.hydrate(postRepository.findByTrackPointId(trackPointId));
     }
 
-    /**
-     * Map post entity to response DTO with media
-     * Private helper method for code reusability
-     */
-    private PostResponse mapToResponseWithMedia(Post post) {
-        List<MediaResponse> mediaResponses = post.getMedia()
-                .stream()
-                .map(m -> new MediaResponse(
-                        m.getId(),
-                        m.getType(),
-                        m.getUrl(),
-                        m.getSizeBytes(),
-                        m.getWidth(),
-                        m.getHeight(),
-                        m.getDurationS()
-                ))
-                .toList();
+    private PageCursor position(Post post) {
+        return new PageCursor(post.getTs(), post.getId());
+    }
 
-        // Ensure user is loaded (should be with JOIN FETCH, but add safety check)
-        if (post.getUser() == null) {
-            log.error("Post {} has null user, cannot create response", post.getId());
-            throw new RuntimeException("Post user is null");
-        }
+    @Override
+    @Transactional
+    public CursorPage<PostResponse> getFollowingPosts(UUID currentUserId, String cursor, int limit) {
+        log.info("Fetching posts from followed users for: {}", currentUserId);
         
-        return new PostResponse(
-                post.getId(),
-                post.getText(),
-                post.getVisibility(),
-                post.getTs(),
-                post.getTrip().getId(),
-                post.getTrackPoint() != null ? 
-                        post.getTrackPoint().getId() : null,
-                post.getTrackPoint() != null ? 
-                        post.getTrackPoint().getLat() : null,
-                post.getTrackPoint() != null ? 
-                        post.getTrackPoint().getLon() : null,
-                post.getUser().getId(),
-                post.getUser().getEmail(),
-                post.getUser().getUsername(),
-                post.getCity(),
-                post.getCountry(),
-                mediaResponses
+        CursorPage<PageCursor> page = homeFeedService.getFeedPage(
+                currentUserId,
+                PageCursor.decode(cursor),
+                CursorPage.size(limit)
         );
-    }
-
-    /**
-     * Map post to response with provided coordinates
-     */
-    private PostResponse mapToResponse(
-            Post post, 
-            Double latitude, 
-            Double longitude, 
-            List<MediaResponse> media
-    ) {
-        // Ensure user is loaded (should be with JOIN FETCH, but add safety check)
-        if (post.getUser() == null) {
-            log.error("Post {} has null user, cannot create response", post.getId());
-            throw new RuntimeException("Post user is null");
-        }
         
-        return new PostResponse(
-                post.getId(),
-                post.getText(),
-                post.getVisibility(),
-                post.getTs(),
-                post.getTrip().getId(),
-                post.getTrackPoint() != null ? 
-                        post.getTrackPoint().getId() : null,
-                latitude,
-                longitude,
-                post.getUser().getId(),
-                post.getUser().getEmail(),
-                post.getUser().getUsername(),
-                post.getCity(),
-                post.getCountry(),
-                media
+        List<UUID> postIds = page.items().stream()
+                .map(PageCursor::id)
+                .toList();
+        
+        // Posts can be deleted or made private after they were fanned out
+        return new CursorPage<>(
+                hydrator.hydrateIds(postIds, post -> post.getVisibility() == Visibility.PUBLIC),
+                page.nextCursor()
         );
     }
 
     @Override
-    public List<PostResponse> getFollowingPosts(String userEmail) {
-        log.info("Fetching posts from followed users for: {}", userEmail);
-        
-        User currentUser = userRepository.findByEmail(userEmail)
-                .orElseThrow(() -> new RuntimeException("User not found"));
-        
-        List<User> followingUsers = followRepository.findFollowingByFollowerId(currentUser.getId());
-        
-        if (followingUsers.isEmpty()) {
-            return List.of();
+    @Transactional(readOnly = true)
+    public List<PostViewerState> getViewerStates(UUID currentUserId, List<UUID> postIds) {
+        if (postIds.size() > CursorPage.MAX_SIZE) {
+            throw new IllegalArgumentException("At most " + CursorPage.MAX_SIZE + " posts per request");
         }
-        
-        List<UUID> followingUserIds = followingUsers.stream()
-                .map(User::getId)
-                .toList();
-        
-        return postRepository.findByUserIdInAndVisibilityOrderByTsDesc(
-                followingUserIds, 
-                Visibility.PUBLIC
-        ).stream()
-                .map(this::mapToResponseWithMedia)
-                .toList();
+
+        return viewerStates.load(currentUserId, postIds);
     }
 }
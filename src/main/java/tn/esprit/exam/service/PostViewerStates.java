@@ -0,0 +1,65 @@
+package tn.esprit.exam.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import tn.esprit.exam.dto.PostViewerState;
+
+import java.util.*;
+
+/**
+ * Viewer state of a page of posts in one statement
+ * Every flag is an index lookup (likes and follows unique constraints, idx_comments_post_user),
+ * both counts come from the posts counter columns
+ * Private posts of other users are left out like unknown ones
+ */
+@Component
+@RequiredArgsConstructor
+public class PostViewerStates {
+
+    // The four ? are the viewer id
+    private static final String SELECT_SQL =
+            "SELECT p.id, p.likes_count, p.comments_count, " +
+            "EXISTS (SELECT 1 FROM likes l WHERE l.post_id = p.id AND l.user_id = ?) AS liked, " +
+            "EXISTS (SELECT 1 FROM comments c WHERE c.post_id = p.id AND c.user_id = ?) AS commented, " +
+            "EXISTS (SELECT 1 FROM follows f WHERE f.follower_id = ? AND f.following_id = p.user_id) AS following_author " +
+            "FROM posts p WHERE (p.visibility = 'PUBLIC' OR p.user_id = ?) AND p.id IN ";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final LikeCounter likeCounter;
+
+    /**
+     * @return States in the order of postIds, unknown posts and posts the viewer cannot see are left out
+     */
+    public List<PostViewerState> load(UUID viewerId, List<UUID> postIds) {
+        if (postIds.isEmpty()) {
+            return List.of();
+        }
+
+        List<Object> args = new ArrayList<>(List.of(viewerId, viewerId, viewerId, viewerId));
+        args.addAll(postIds);
+        Map<UUID, PostViewerState> states = new HashMap<>();
+        // Inside read(), so a like count flush committing meanwhile is not counted twice
+        likeCounter.read(() -> jdbcTemplate.query(
+                SELECT_SQL + "(" + String.join(", ", Collections.nCopies(postIds.size(), "?")) + ")",
+                (rs, rowNum) -> {
+                    UUID postId = rs.getObject("id", UUID.class);
+                    return new PostViewerState(
+                            postId,
+                            likeCounter.withPending(postId, rs.getLong("likes_count")),
+                            rs.getLong("comments_count"),
+                            rs.getBoolean("liked"),
+                            rs.getBoolean("commented"),
+                            rs.getBoolean("following_author")
+                    );
+                },
+                args.toArray()
+        )).forEach(state -> states.put(state.postId(), state));
+
+        return postIds.stream()
+                .distinct()
+                .map(states::get)
+                .filter(Objects::nonNull)
+                .toList();
+    }
+}
@@ -0,0 +1,88 @@
+package tn.esprit.exam.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+import tn.esprit.exam.dto.CursorPage;
+import tn.esprit.exam.dto.PageCursor;
+import tn.esprit.exam.dto.PostResponse;
+import tn.esprit.exam.entity.Post;
+import tn.esprit.exam.entity.Visibility;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * Read-through cache of the first page of public post searches, per (country, city)
+ * Entries hold a full page of CursorPage.MAX_SIZE posts so any smaller limit is a slice of it
+ */
+@Component
+public class PublicPostSearchCache {
+
+    private static final int MAX_ENTRIES = 1000;
+    private static final long TTL_MILLIS = 60_000;
+
+    // Key of the unfiltered search
+    private static final Key ALL = new Key(null, null);
+
+    private final BoundedTtlCache<Key, CursorPage<PostResponse>> firstPages;
+
+    public PublicPostSearchCache(MeterRegistry meterRegistry) {
+        this.firstPages = new BoundedTtlCache<>(meterRegistry, "posts.public.search.cache",
+                "First page public post searches", MAX_ENTRIES, TTL_MILLIS);
+    }
+
+    /**
+     * Get the first page of a search
+     *
+     * @param country Country filter, null when unfiltered
+     * @param city City filter, null when unfiltered
+     * @param limit Page size, at most CursorPage.MAX_SIZE
+     * @param loader Loads the first CursorPage.MAX_SIZE posts on a miss
+     * @return First page of at most limit posts
+     */
+    public CursorPage<PostResponse> firstPage(String country, String city, int limit,
+                                              Supplier<CursorPage<PostResponse>> loader) {
+        CursorPage<PostResponse> page = firstPages.get(new Key(country, city), () -> {
+            CursorPage<PostResponse> loaded = loader.get();
+            return new CursorPage<>(List.copyOf(loaded.items()), loaded.nextCursor());
+        });
+        return slice(page, limit);
+    }
+
+    /**
+     * Drop the searches a new or removed public post shows up in, once the current transaction commits
+     */
+    public void evict(String country, String city) {
+        firstPages.evict(ALL);
+        if (country != null && city != null) {
+            firstPages.evict(new Key(country, city));
+        }
+    }
+
+    /**
+     * Drop the searches any of the given posts shows up in, once the current transaction commits
+     */
+    public void evictPosts(Collection<Post> posts) {
+        Set<Key> keys = new HashSet<>();
+        for (Post post : posts) {
+            if (post.getVisibility() == Visibility.PUBLIC && keys.add(new Key(post.getCountry(), post.getCity()))) {
+                evict(post.getCountry(), post.getCity());
+            }
+        }
+    }
+
+    private CursorPage<PostResponse> slice(CursorPage<PostResponse> page, int limit) {
+        List<PostResponse> items = page.items();
+        if (items.size() <= limit) {
+            return page;
+        }
+        List<PostResponse> sliced = items.subList(0, limit);
+        PostResponse last = sliced.get(limit - 1);
+        return new CursorPage<>(sliced, new PageCursor(last.ts(), last.id()).encode());
+    }
+
+    private record Key(String country, String city) {}
+}
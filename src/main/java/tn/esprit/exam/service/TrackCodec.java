@@ -0,0 +1,219 @@
+package tn.esprit.exam.service;
+
+import tn.esprit.exam.dto.EncodedTrackResponse;
+import tn.esprit.exam.entity.TrackPoint;
+
+import java.io.ByteArrayOutputStream;
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Compact encodings of a trip track
+ * The encoders take primitive columns one point at a time, so a track can be
+ * encoded straight from a JDBC result set without per-point objects
+ */
+public final class TrackCodec {
+
+    public static final String BINARY_MEDIA_TYPE = "application/vnd.trip-track";
+
+    // Format version written as the first byte of the binary encoding
+    private static final int BINARY_VERSION = 1;
+
+    private static final double COORDINATE_FACTOR = 1e5;
+    private static final double SPEED_FACTOR = 10;
+
+    private TrackCodec() {
+    }
+
+    /**
+     * Encode a track as polyline strings
+     *
+     * @param tripId Trip identifier
+     * @param trackPoints Track points ordered by timestamp
+     */
+    public static EncodedTrackResponse encode(UUID tripId, List<TrackPoint> trackPoints) {
+        PolylineEncoder encoder = new PolylineEncoder(trackPoints.size());
+        for (TrackPoint tp : trackPoints) {
+            encoder.add(tp.getId(), tp.getLat(), tp.getLon(), tp.getTs(), speed(tp));
+        }
+        return encoder.finish(tripId);
+    }
+
+    /**
+     * Encode a track as binary
+     *
+     * @param trackPoints Track points ordered by timestamp
+     */
+    public static byte[] toBinary(List<TrackPoint> trackPoints) {
+        BinaryEncoder encoder = new BinaryEncoder(trackPoints.size());
+        for (TrackPoint tp : trackPoints) {
+            encoder.add(tp.getId(), tp.getLat(), tp.getLon(), tp.getTs().toEpochSecond(), speed(tp));
+        }
+        return encoder.finish();
+    }
+
+    private static double speed(TrackPoint tp) {
+        return tp.getSpeedMps() != null ? tp.getSpeedMps() : Double.NaN;
+    }
+
+    private static long speedUnits(double speedMps) {
+        return Double.isNaN(speedMps) ? -1 : Math.round(speedMps * SPEED_FACTOR);
+    }
+
+    /**
+     * Polyline series of a track, fed one point at a time in timestamp order
+     */
+    public static final class PolylineEncoder {
+
+        private final StringBuilder polyline;
+        private final StringBuilder timestamps;
+        private final StringBuilder speeds;
+        private final StringBuilder ids;
+
+        private int count;
+        private OffsetDateTime startTs;
+        private long startSecond;
+        private long lastLat, lastLon, lastSecond, lastSpeed, lastId;
+
+        public PolylineEncoder(int expectedPoints) {
+            polyline = new StringBuilder(expectedPoints * 8);
+            timestamps = new StringBuilder(expectedPoints * 2);
+            speeds = new StringBuilder(expectedPoints * 2);
+            ids = new StringBuilder(expectedPoints * 2);
+        }
+
+        /**
+         * Whether the next point is the first, callers pass its timestamp to {@link #add}
+         */
+        public boolean isEmpty() {
+            return count == 0;
+        }
+
+        /**
+         * @param ts Timestamp of the first point, only read for it
+         * @param speedMps Speed in m/s, NaN when unknown
+         */
+        public void add(long id, double latitude, double longitude, OffsetDateTime ts, double speedMps) {
+            if (count == 0) {
+                startTs = ts;
+                startSecond = ts.toEpochSecond();
+            }
+            add(id, latitude, longitude, count == 0 ? startSecond : ts.toEpochSecond(), speedMps);
+        }
+
+        /**
+         * @param epochSecond Timestamp in whole epoch seconds; the first point must go through the other overload
+         * @param speedMps Speed in m/s, NaN when unknown
+         */
+        public void add(long id, double latitude, double longitude, long epochSecond, double speedMps) {
+            long lat = Math.round(latitude * COORDINATE_FACTOR);
+            long lon = Math.round(longitude * COORDINATE_FACTOR);
+            long second = epochSecond - startSecond;
+            long speed = speedUnits(speedMps);
+
+            appendSigned(polyline, lat - lastLat);
+            appendSigned(polyline, lon - lastLon);
+            appendSigned(timestamps, second - lastSecond);
+            appendSigned(speeds, speed - lastSpeed);
+            appendSigned(ids, id - lastId);
+
+            lastLat = lat;
+            lastLon = lon;
+            lastSecond = second;
+            lastSpeed = speed;
+            lastId = id;
+            count++;
+        }
+
+        public EncodedTrackResponse finish(UUID tripId) {
+            return new EncodedTrackResponse(
+                tripId,
+                count,
+                startTs,
+                polyline.toString(),
+                timestamps.toString(),
+                speeds.toString(),
+                ids.toString()
+            );
+        }
+    }
+
+    /**
+     * Binary encoding of a track, fed one point at a time in timestamp order
+     * Layout: version byte, point count, start epoch second, then per point zigzag varint deltas of
+     * latitude, longitude (1e-5 degrees), seconds, speed (0.1 m/s, -1 unknown) and id
+     */
+    public static final class BinaryEncoder {
+
+        private final ByteArrayOutputStream body;
+
+        private int count;
+        private long startSecond;
+        private long lastLat, lastLon, lastSecond, lastSpeed, lastId;
+
+        public BinaryEncoder(int expectedPoints) {
+            body = new ByteArrayOutputStream(16 + expectedPoints * 10);
+        }
+
+        /**
+         * @param speedMps Speed in m/s, NaN when unknown
+         */
+        public void add(long id, double latitude, double longitude, long epochSecond, double speedMps) {
+            if (count == 0) {
+                startSecond = epochSecond;
+            }
+            long lat = Math.round(latitude * COORDINATE_FACTOR);
+            long lon = Math.round(longitude * COORDINATE_FACTOR);
+            long second = epochSecond - startSecond;
+            long speed = speedUnits(speedMps);
+
+            writeVarint(body, zigzag(lat - lastLat));
+            writeVarint(body, zigzag(lon - lastLon));
+            writeVarint(body, zigzag(second - lastSecond));
+            writeVarint(body, zigzag(speed - lastSpeed));
+            writeVarint(body, zigzag(id - lastId));
+
+            lastLat = lat;
+            lastLon = lon;
+            lastSecond = second;
+            lastSpeed = speed;
+            lastId = id;
+            count++;
+        }
+
+        public byte[] finish() {
+            // The header needs the point count, so it is written once the body is complete
+            ByteArrayOutputStream out = new ByteArrayOutputStream(body.size() + 16);
+            out.write(BINARY_VERSION);
+            writeVarint(out, count);
+            writeVarint(out, zigzag(startSecond));
+            out.writeBytes(body.toByteArray());
+            return out.toByteArray();
+        }
+    }
+
+    /**
+     * Polyline algorithm: zigzag the value, then emit 5-bit chunks offset by 63
+     */
+    private static void appendSigned(StringBuilder sb, long value) {
+        long v = value < 0 ? ~(value << 1) : value << 1;
+        while (v >= 0x20) {
+            sb.append((char) ((0x20 | (v & 0x1f)) + 63));
+            v >>>= 5;
+        }
+        sb.append((char) (v + 63));
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static void writeVarint(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+}
@@ -0,0 +1,73 @@
+package tn.esprit.exam.service;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+import tn.esprit.exam.dto.EncodedTrackResponse;
+
+import javax.sql.DataSource;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.OffsetDateTime;
+import java.util.UUID;
+
+/**
+ * Streams the track points of a trip from JDBC straight into {@link TrackCodec}
+ * Rows are read as primitive columns, no entity or boxed value is built per point
+ * Callers run inside a transaction so the fetch size turns into a server side cursor
+ */
+@Component
+public class TrackEncodingReader {
+
+    private static final int FETCH_SIZE = 1000;
+
+    // Whole epoch seconds, as OffsetDateTime.toEpochSecond rounds them
+    private static final String SELECT_SQL =
+            "SELECT id, ts, floor(extract(epoch FROM ts))::bigint AS epoch_second, lat, lon, speed_mps " +
+            "FROM track_points WHERE trip_id = ? ORDER BY ts ASC";
+
+    private static final String COUNT_SQL = "SELECT count(*) FROM track_points WHERE trip_id = ?";
+
+    private final JdbcTemplate cursorTemplate;
+
+    public TrackEncodingReader(DataSource dataSource) {
+        this.cursorTemplate = new JdbcTemplate(dataSource);
+        this.cursorTemplate.setFetchSize(FETCH_SIZE);
+    }
+
+    public EncodedTrackResponse encode(UUID tripId) {
+        TrackCodec.PolylineEncoder encoder = new TrackCodec.PolylineEncoder(expectedPoints(tripId));
+        cursorTemplate.query(SELECT_SQL, (RowCallbackHandler) rs -> {
+            if (encoder.isEmpty()) {
+                encoder.add(rs.getLong("id"), rs.getDouble("lat"), rs.getDouble("lon"),
+                        rs.getObject("ts", OffsetDateTime.class), speed(rs));
+            } else {
+                encoder.add(rs.getLong("id"), rs.getDouble("lat"), rs.getDouble("lon"),
+                        rs.getLong("epoch_second"), speed(rs));
+            }
+        }, tripId);
+        return encoder.finish(tripId);
+    }
+
+    public byte[] toBinary(UUID tripId) {
+        TrackCodec.BinaryEncoder encoder = new TrackCodec.BinaryEncoder(expectedPoints(tripId));
+        cursorTemplate.query(SELECT_SQL, (RowCallbackHandler) rs -> encoder.add(
+                rs.getLong("id"), rs.getDouble("lat"), rs.getDouble("lon"),
+                rs.getLong("epoch_second"), speed(rs)
+        ), tripId);
+        return encoder.finish();
+    }
+
+    /**
+     * Sizes the output buffers up front so they are not regrown while streaming
+     */
+    private int expectedPoints(UUID tripId) {
+        Integer count = cursorTemplate.queryForObject(COUNT_SQL, Integer.class, tripId);
+        return count != null ? count : 0;
+    }
+
+    private static double speed(ResultSet rs) throws SQLException {
+        double speed = rs.getDouble("speed_mps");
+        return rs.wasNull() ? Double.NaN : speed;
+    }
+}
@@ -0,0 +1,64 @@
+package tn.esprit.exam.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Fills the geohash column of track points stored before the spatial index existed
+ * Works in small batches so each update commits on its own
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class TrackPointGeohashBackfillJob {
+
+    private static final int BATCH_SIZE = 1000;
+
+    private static final String SELECT_SQL =
+            "SELECT id, lat, lon FROM track_points " +
+            "WHERE geohash IS NULL AND lat IS NOT NULL AND lon IS NOT NULL LIMIT ?";
+
+    private static final String UPDATE_SQL = "UPDATE track_points SET geohash = ? WHERE id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    // Set once a run finds nothing left, new points always carry their geohash
+    private volatile boolean complete;
+
+    /**
+     * Whether every stored track point has its geohash, so searches can skip the fallback for missing ones
+     */
+    public boolean isComplete() {
+        return complete;
+    }
+
+    /**
+     * Runs until no track point is missing its geohash, then only costs one index lookup per run
+     */
+    @Scheduled(initialDelay = 60_000, fixedDelay = 600_000)
+    public void backfill() {
+        int total = 0;
+        while (true) {
+            List<Object[]> updates = jdbcTemplate.query(SELECT_SQL, (rs, rowNum) -> new Object[]{
+                    Geohash.encode(rs.getDouble("lat"), rs.getDouble("lon"), Geohash.STORED_PRECISION),
+                    rs.getLong("id")
+            }, BATCH_SIZE);
+
+            if (updates.isEmpty()) {
+                complete = true;
+                break;
+            }
+            jdbcTemplate.batchUpdate(UPDATE_SQL, updates);
+            total += updates.size();
+        }
+
+        if (total > 0) {
+            log.info("Backfilled geohash of {} track points", total);
+        }
+    }
+}
@@ -0,0 +1,358 @@
+package tn.esprit.exam.service;
+
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import tn.esprit.exam.dto.TrackPointRequest;
+import tn.esprit.exam.entity.TrackPoint;
+import tn.esprit.exam.entity.Trip;
+import tn.esprit.exam.repository.TrackPointRepository;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * GPS ingestion pipeline for track points
+ * Keeps the last point of each active trip in memory, merges a sorted batch into
+ * the trip's series in one pass and writes the accepted points with JDBC batching
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class TrackPointIngestionPipeline {
+
+    // Constants for optimization
+    static final double MIN_DISTANCE_METERS = 10.0; // Minimum distance between points
+    static final long MIN_TIME_SECONDS = 30; // Minimum time between points
+
+    private static final int MAX_ACTIVE_TRIPS = 10_000;
+    private static final int LOCK_STRIPES = 64;
+    private static final int JDBC_BATCH_SIZE = 500;
+    private static final long REPORT_INTERVAL_NANOS = Duration.ofMinutes(1).toNanos();
+
+    // Duplicate (trip_id, ts) pairs are ignored so that re-sent batches are idempotent
+    private static final String INSERT_SQL =
+            "INSERT INTO track_points (id, trip_id, ts, lat, lon, accuracy_m, speed_mps, location_name, geohash) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?) ON CONFLICT (trip_id, ts) DO NOTHING";
+
+    // Each value of the pooled sequence reserves the block (value - allocationSize, value],
+    // except values below allocationSize: on a new sequence Hibernate reads 1 as the start of the first block
+    private static final String RESERVE_IDS_SQL =
+            "SELECT nextval('track_points_seq') FROM generate_series(1, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TrackPointRepository trackPointRepository;
+    private final EntityManager entityManager;
+
+    // Latest stored point per trip, least recently used trips are evicted first
+    private final Map<UUID, LastPoint> lastStored = Collections.synchronizedMap(
+            new LinkedHashMap<>(256, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<UUID, LastPoint> eldest) {
+                    return size() > MAX_ACTIVE_TRIPS;
+                }
+            }
+    );
+
+    // Serializes batches of the same trip without a global lock
+    private final Object[] tripLocks = createLocks();
+
+    // Throughput since the last report, logged at most once per REPORT_INTERVAL_NANOS
+    private final AtomicLong intervalReceived = new AtomicLong();
+    private final AtomicLong intervalAccepted = new AtomicLong();
+    private final AtomicLong intervalNanos = new AtomicLong();
+    private final AtomicLong lastReport = new AtomicLong(System.nanoTime());
+
+    /**
+     * Filter and persist a batch of already validated requests
+     * Must run inside a transaction
+     *
+     * @param trip Trip the points belong to
+     * @param requests Requests in any order, device timestamps may be older than stored points
+     * @return Persisted track points, in timestamp order
+     */
+    public List<TrackPoint> ingest(Trip trip, List<TrackPointRequest> requests) {
+        long start = System.nanoTime();
+        UUID tripId = trip.getId();
+        List<Candidate> candidates = toSortedCandidates(requests);
+        List<TrackPoint> accepted;
+
+        // Only the merge against the in-memory tail is serialized, the insert runs outside the lock
+        // A concurrent batch of the same trip already merges against the new tail, ON CONFLICT drops overlaps
+        synchronized (lockFor(tripId)) {
+            LastPoint tail = lastStored.get(tripId);
+            if (tail == null) {
+                tail = trackPointRepository.findTopByTripIdOrderByTsDesc(tripId)
+                        .map(LastPoint::stored)
+                        .orElse(null);
+            }
+
+            if (candidates.isEmpty() || tail == null || candidates.get(0).ts().isAfter(tail.ts())) {
+                // Common case, the whole batch is newer than the trip
+                accepted = merge(trip, candidates, tail, Collections.emptyIterator());
+            } else {
+                accepted = mergeLate(trip, candidates);
+            }
+
+            if (!accepted.isEmpty()) {
+                TrackPoint last = accepted.get(accepted.size() - 1);
+                if (tail == null || last.getTs().isAfter(tail.ts())) {
+                    tail = new LastPoint(last.getLat(), last.getLon(), last.getTs(), true);
+                }
+                lastStored.put(tripId, tail);
+                evictOnRollback(tripId);
+            }
+        }
+
+        List<TrackPoint> saved = accepted.isEmpty() ? List.of() : insertBatch(accepted);
+        recordThroughput(tripId, requests.size(), saved.size(), System.nanoTime() - start);
+        return saved;
+    }
+
+    /**
+     * Forget the in-memory state of a trip
+     * Called when the trip ends or when its persisted points change
+     */
+    public void evict(UUID tripId) {
+        lastStored.remove(tripId);
+    }
+
+    /**
+     * Merge a batch that reaches back before the trip's latest point
+     * Stored points from the batch's first timestamp onwards are streamed, never loaded at once
+     */
+    private List<TrackPoint> mergeLate(Trip trip, List<Candidate> candidates) {
+        UUID tripId = trip.getId();
+        OffsetDateTime from = candidates.get(0).ts();
+
+        LastPoint predecessor = trackPointRepository.findTopByTripIdAndTsLessThanOrderByTsDesc(tripId, from)
+                .map(LastPoint::stored)
+                .orElse(null);
+
+        try (Stream<TrackPoint> stored = trackPointRepository.streamByTripIdFrom(tripId, from)) {
+            Iterator<LastPoint> storedPoints = stored
+                    .map(tp -> {
+                        entityManager.detach(tp);
+                        return LastPoint.stored(tp);
+                    })
+                    .iterator();
+            List<TrackPoint> accepted = merge(trip, candidates, predecessor, storedPoints);
+            log.info("Merged {} late points into trip {} after {}", accepted.size(), tripId, from);
+            return accepted;
+        }
+    }
+
+    /**
+     * Single pass over the sorted batch and the stored points it overlaps
+     * Each candidate is compared to the point right before it, stored or accepted
+     */
+    private List<TrackPoint> merge(Trip trip, List<Candidate> candidates, LastPoint previous,
+                                   Iterator<LastPoint> storedPoints) {
+        List<TrackPoint> accepted = new ArrayList<>(candidates.size());
+        LastPoint nextStored = storedPoints.hasNext() ? storedPoints.next() : null;
+
+        for (Candidate candidate : candidates) {
+            while (nextStored != null && nextStored.ts().isBefore(candidate.ts())) {
+                previous = nextStored;
+                nextStored = storedPoints.hasNext() ? storedPoints.next() : null;
+            }
+
+            if (nextStored != null && nextStored.ts().isEqual(candidate.ts())) {
+                continue; // Already stored
+            }
+            if (shouldSkip(previous, candidate)) {
+                continue;
+            }
+
+            TrackPoint trackPoint = new TrackPoint();
+            trackPoint.setTrip(trip);
+            trackPoint.setTs(candidate.ts());
+            trackPoint.setLat(candidate.request().lat());
+            trackPoint.setLon(candidate.request().lon());
+            trackPoint.setAccuracyM(candidate.request().accuracyM());
+            trackPoint.setSpeedMps(candidate.request().speedMps());
+            trackPoint.setLocationName(candidate.request().locationName());
+            trackPoint.setGeohash(Geohash.encode(
+                    trackPoint.getLat(), trackPoint.getLon(), Geohash.STORED_PRECISION));
+            accepted.add(trackPoint);
+
+            previous = new LastPoint(trackPoint.getLat(), trackPoint.getLon(), trackPoint.getTs(), false);
+        }
+        return accepted;
+    }
+
+    /**
+     * Distance and time rules against the previous point of the series
+     * Points without a device timestamp are stamped with the receive time, so the
+     * time rule only compares them to stored points, as before device timestamps
+     */
+    private boolean shouldSkip(LastPoint previous, Candidate candidate) {
+        if (previous == null) {
+            return false; // First point, don't skip
+        }
+        if (previous.ts().isEqual(candidate.ts())) {
+            return true; // Duplicate within the batch
+        }
+
+        double distance = GeoDistance.meters(previous.lat(), previous.lon(),
+                candidate.request().lat(), candidate.request().lon());
+        if (distance < MIN_DISTANCE_METERS) {
+            return true; // Too close to last point
+        }
+
+        if (candidate.deviceTime() || previous.stored()) {
+            long timeDiff = Math.abs(Duration.between(previous.ts(), candidate.ts()).getSeconds());
+            return timeDiff < MIN_TIME_SECONDS; // Too soon after last point
+        }
+        return false;
+    }
+
+    /**
+     * Resolve timestamps and sort the batch
+     * Receive times are spread by a microsecond per point to keep the batch order and (trip, ts) unique
+     */
+    private List<Candidate> toSortedCandidates(List<TrackPointRequest> requests) {
+        OffsetDateTime receivedAt = OffsetDateTime.now();
+        List<Candidate> candidates = new ArrayList<>(requests.size());
+        for (int i = 0; i < requests.size(); i++) {
+            TrackPointRequest request = requests.get(i);
+            if (request.recordedAt() != null) {
+                candidates.add(new Candidate(request, request.recordedAt(), true));
+            } else {
+                candidates.add(new Candidate(request, receivedAt.plusNanos(i * 1000L), false));
+            }
+        }
+        candidates.sort(Comparator.comparing(Candidate::ts));
+        return candidates;
+    }
+
+    /**
+     * Reserve id blocks in one round trip, then insert with JDBC batches
+     * Blocks follow Hibernate's pooled optimizer so both writers share the sequence
+     *
+     * @return Points that were actually inserted, duplicates of stored points are left out
+     */
+    private List<TrackPoint> insertBatch(List<TrackPoint> trackPoints) {
+        int blockSize = TrackPoint.ID_ALLOCATION_SIZE;
+        int blocks = (trackPoints.size() + blockSize - 1) / blockSize;
+        List<Long> hiValues = reserveBlocks(blocks, blockSize);
+        for (int i = 0; i < trackPoints.size(); i++) {
+            long hi = hiValues.get(i / blockSize);
+            trackPoints.get(i).setId(hi - blockSize + 1 + i % blockSize);
+        }
+
+        int[][] counts = jdbcTemplate.batchUpdate(INSERT_SQL, trackPoints, JDBC_BATCH_SIZE, (ps, tp) -> {
+            ps.setLong(1, tp.getId());
+            ps.setObject(2, tp.getTrip().getId());
+            ps.setObject(3, tp.getTs());
+            ps.setObject(4, tp.getLat());
+            ps.setObject(5, tp.getLon());
+            ps.setObject(6, tp.getAccuracyM());
+            ps.setObject(7, tp.getSpeedMps());
+            ps.setString(8, tp.getLocationName());
+            ps.setString(9, tp.getGeohash());
+        });
+
+        List<TrackPoint> inserted = new ArrayList<>(trackPoints.size());
+        int index = 0;
+        for (int[] batch : counts) {
+            for (int count : batch) {
+                if (count != 0) {
+                    inserted.add(trackPoints.get(index));
+                }
+                index++;
+            }
+        }
+        if (inserted.size() < trackPoints.size()) {
+            log.info("Ignored {} track points already stored concurrently", trackPoints.size() - inserted.size());
+        }
+        return inserted;
+    }
+
+    /**
+     * Upper ids of the reserved blocks
+     * A value below blockSize can only be the sequence's initial value; Hibernate's pooled optimizer
+     * starts its first block at that value, so it is skipped rather than read as the block ending there
+     */
+    private List<Long> reserveBlocks(int blocks, int blockSize) {
+        List<Long> hiValues = new ArrayList<>(blocks);
+        while (hiValues.size() < blocks) {
+            for (Long hi : jdbcTemplate.queryForList(RESERVE_IDS_SQL, Long.class, blocks - hiValues.size())) {
+                if (hi >= blockSize) {
+                    hiValues.add(hi);
+                }
+            }
+        }
+        return hiValues;
+    }
+
+    /**
+     * The in-memory state is updated before commit, drop it if the transaction fails
+     */
+    private void evictOnRollback(UUID tripId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_COMMITTED) {
+                    evict(tripId);
+                }
+            }
+        });
+    }
+
+    /**
+     * Per batch at DEBUG, and a summary of the last interval at INFO from the first batch after it ends
+     */
+    private void recordThroughput(UUID tripId, int received, int accepted, long nanos) {
+        log.debug("Ingested {}/{} points for trip {} in {} ms", accepted, received, tripId, nanos / 1_000_000);
+        intervalReceived.addAndGet(received);
+        intervalAccepted.addAndGet(accepted);
+        intervalNanos.addAndGet(nanos);
+
+        long now = System.nanoTime();
+        long last = lastReport.get();
+        if (now - last < REPORT_INTERVAL_NANOS || !lastReport.compareAndSet(last, now)) {
+            return;
+        }
+        long allReceived = intervalReceived.getAndSet(0);
+        long allAccepted = intervalAccepted.getAndSet(0);
+        long allNanos = intervalNanos.getAndSet(0);
+        log.info("Ingested {}/{} points in the last {} s ({} points/s while ingesting)",
+                allAccepted, allReceived, (now - last) / 1_000_000_000L, pointsPerSecond(allReceived, allNanos));
+    }
+
+    private long pointsPerSecond(long points, long nanos) {
+        return nanos > 0 ? points * 1_000_000_000L / nanos : 0;
+    }
+
+    private Object lockFor(UUID tripId) {
+        return tripLocks[Math.floorMod(tripId.hashCode(), LOCK_STRIPES)];
+    }
+
+    private static Object[] createLocks() {
+        Object[] locks = new Object[LOCK_STRIPES];
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new Object();
+        }
+        return locks;
+    }
+
+    private record Candidate(TrackPointRequest request, OffsetDateTime ts, boolean deviceTime) {}
+
+    private record LastPoint(Double lat, Double lon, OffsetDateTime ts, boolean stored) {
+
+        static LastPoint stored(TrackPoint trackPoint) {
+            return new LastPoint(trackPoint.getLat(), trackPoint.getLon(), trackPoint.getTs(), true);
+        }
+    }
+}
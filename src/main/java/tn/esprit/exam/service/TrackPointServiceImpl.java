@@ -4,6 +4,7 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import tn.esprit.exam.dto.EncodedTrackResponse;
 import tn.esprit.exam.dto.TrackPointRequest;
 import tn.esprit.exam.dto.TrackPointResponse;
 import tn.esprit.exam.entity.TrackPoint;
@@ -27,11 +28,17 @@ public class TrackPointServiceImpl implements ITrackPointService {
 
     private final TrackPointRepository trackPointRepository;
     private final TripRepository tripRepository;
+    private final ITripStatsService tripStatsService;
+    private final IUserTravelStatsService userTravelStatsService;
+    private final TrackPointIngestionPipeline ingestionPipeline;
+    private final TrackSimplifier trackSimplifier;
+    private final TrackPointSpatialIndex spatialIndex;
+    private final TrackEncodingReader trackEncodingReader;
+    
+    private static final int MAX_NEARBY_RESULTS = 1000;
     
-    // Constants for optimization
-    private static final double MIN_DISTANCE_METERS = 10.0; // Minimum distance between points
-    private static final long MIN_TIME_SECONDS = 30; // Minimum time between points
     private static final double MAX_SPEED_KMH = 200.0; // Maximum reasonable speed
+    private static final long MAX_CLOCK_SKEW_SECONDS = 300; // Tolerated device clock drift
 
     @Override
     @Transactional
@@ -45,26 +52,19 @@ public class TrackPointServiceImpl implements ITrackPointService {
         // Validate request data
         validateTrackPointRequest(request);
         
-        // Check if we should skip this point (optimization)
-        if (shouldSkipTrackPoint(tripId, request)) {
+        // Filter against the trip's last accepted point and persist
+        List<TrackPoint> saved = ingestionPipeline.ingest(trip, List.of(request));
+        if (saved.isEmpty()) {
             log.debug("Skipping track point due to optimization rules");
             return null; // Or return the last point
         }
+        log.info("Track point saved with id: {} for trip: {}", saved.get(0).getId(), tripId);
         
-        // Create and save track point
-        TrackPoint trackPoint = new TrackPoint();
-        trackPoint.setTrip(trip);
-        trackPoint.setTs(OffsetDateTime.now());
-        trackPoint.setLat(request.lat());
-        trackPoint.setLon(request.lon());
-        trackPoint.setAccuracyM(request.accuracyM());
-        trackPoint.setSpeedMps(request.speedMps());
-        trackPoint.setLocationName(request.locationName());
-        
-        TrackPoint saved = trackPointRepository.save(trackPoint);
-        log.info("Track point saved with id: {} for trip: {}", saved.getId(), tripId);
+        trackSimplifier.evict(tripId);
+        double addedKm = tripStatsService.recordTrackPoints(tripId, saved);
+        userTravelStatsService.recordDistance(trip.getUser().getId(), addedKm);
         
-        return TrackPointResponse.fromEntity(saved);
+        return TrackPointResponse.fromEntity(saved.get(0));
     }
 
     @Override
@@ -83,6 +83,50 @@ public class TrackPointServiceImpl implements ITrackPointService {
                 .toList();
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public List<TrackPointResponse> getSimplifiedTrackPoints(UUID tripId, double toleranceMeters) {
+        log.debug("Getting track points for trip: {} with tolerance {}m", tripId, toleranceMeters);
+        
+        if (trackSimplifier.isRaw(toleranceMeters)) {
+            return getTrackPointsByTrip(tripId);
+        }
+        
+        // Validate trip exists
+        if (!tripRepository.existsById(tripId)) {
+            throw new RuntimeException("Trip not found with id: " + tripId);
+        }
+        
+        return trackSimplifier.simplify(tripId, toleranceMeters,
+                () -> trackPointRepository.findByTripIdOrderByTsAsc(tripId));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public EncodedTrackResponse getEncodedTrackPoints(UUID tripId) {
+        log.debug("Getting encoded track for trip: {}", tripId);
+        
+        // Validate trip exists
+        if (!tripRepository.existsById(tripId)) {
+            throw new RuntimeException("Trip not found with id: " + tripId);
+        }
+        
+        return trackEncodingReader.encode(tripId);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public byte[] getBinaryTrackPoints(UUID tripId) {
+        log.debug("Getting binary track for trip: {}", tripId);
+        
+        // Validate trip exists
+        if (!tripRepository.existsById(tripId)) {
+            throw new RuntimeException("Trip not found with id: " + tripId);
+        }
+        
+        return trackEncodingReader.toBinary(tripId);
+    }
+
     @Override
     @Transactional(readOnly = true)
     public List<TrackPointResponse> getTrackPointsByTripAndTimeRange(
@@ -110,8 +154,21 @@ public class TrackPointServiceImpl implements ITrackPointService {
         TrackPoint trackPoint = trackPointRepository.findById(trackPointId)
                 .orElseThrow(() -> new RuntimeException("Track point not found with id: " + trackPointId));
         
+        Trip trip = trackPoint.getTrip();
+        double distanceBefore = tripStatsService.getTripStats(trip.getId()).distanceKm();
+        
         trackPointRepository.delete(trackPoint);
+        trackPointRepository.flush();
+        ingestionPipeline.evict(trip.getId());
+        trackSimplifier.evict(trip.getId());
         log.info("Track point deleted with id: {}", trackPointId);
+        
+        // Removing a point changes the distance of its neighbours, recompute
+        double distanceAfter = tripStatsService.rebuildTripStats(trip.getId()).distanceKm();
+        userTravelStatsService.recordDistance(
+                trip.getUser().getId(),
+                distanceAfter - distanceBefore
+        );
     }
 
     @Override
@@ -159,13 +216,31 @@ public class TrackPointServiceImpl implements ITrackPointService {
             throw new RuntimeException("Trip not found with id: " + tripId);
         }
         
-        // Get all track points and filter by distance
-        return getTrackPointsByTrip(tripId)
-                .stream()
-                .filter(tp -> tp.distanceTo(new TrackPointResponse(
-                        null, null, null, lat, lon, null, null, null, null, null, null, null
-                )) <= radiusMeters)
-                .toList();
+        // Prune by geohash cell, then check the exact distance
+        return spatialIndex.findNearInTrip(tripId, lat, lon, radiusMeters);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<TrackPointResponse> getTrackPointsNearLocationAcrossTrips(
+            UUID viewerId,
+            UUID userId,
+            Double lat,
+            Double lon,
+            Double radiusMeters,
+            int limit) {
+        log.debug("Getting track points near location ({}, {}) within {}m across trips of user: {}", 
+                lat, lon, radiusMeters, userId);
+        
+        if (lat == null || lon == null || lat < -90 || lat > 90 || lon < -180 || lon > 180) {
+            throw new IllegalArgumentException("Invalid location coordinates");
+        }
+        if (radiusMeters == null || radiusMeters <= 0) {
+            throw new IllegalArgumentException("Radius must be positive");
+        }
+        
+        return spatialIndex.findNear(viewerId, userId, lat, lon, radiusMeters,
+                Math.max(1, Math.min(limit, MAX_NEARBY_RESULTS)));
     }
     
     /**
@@ -188,43 +263,17 @@ public class TrackPointServiceImpl implements ITrackPointService {
             throw new RuntimeException("Speed must be positive");
         }
         
+        if (request.recordedAt() != null
+                && request.recordedAt().isAfter(OffsetDateTime.now().plusSeconds(MAX_CLOCK_SKEW_SECONDS))) {
+            throw new RuntimeException("Recorded time cannot be in the future");
+        }
+        
         // Check for unreasonable speed
         if (request.speedMps() != null && (request.speedMps() * 3.6) > MAX_SPEED_KMH) {
             log.warn("Unusually high speed detected: {} km/h", request.speedMps() * 3.6);
         }
     }
     
-    /**
-     * Determines if a track point should be skipped for optimization
-     */
-    private boolean shouldSkipTrackPoint(UUID tripId, TrackPointRequest request) {
-        TrackPointResponse latest = getLatestTrackPoint(tripId);
-        
-        if (latest == null) {
-            return false; // First point, don't skip
-        }
-        
-        // Check distance
-        double distance = latest.distanceTo(new TrackPointResponse(
-                null, null, null, request.lat(), request.lon(), null, null, null, null, null, null, null
-        ));
-        
-        if (distance < MIN_DISTANCE_METERS) {
-            return true; // Too close to last point
-        }
-        
-        // Check time
-        long timeDiff = latest.timeDifferenceSeconds(new TrackPointResponse(
-                null, null, OffsetDateTime.now(), null, null, null, null, null, null, null, null, null
-        ));
-        
-        if (timeDiff < MIN_TIME_SECONDS) {
-            return true; // Too soon after last point
-        }
-        
-        return false;
-    }
-    
     @Override
     @Transactional
     public List<TrackPointResponse> addTrackPointsBulk(UUID tripId, List<TrackPointRequest> requests) {
@@ -234,44 +283,24 @@ public class TrackPointServiceImpl implements ITrackPointService {
         Trip trip = tripRepository.findById(tripId)
                 .orElseThrow(() -> new RuntimeException("Trip not found with id: " + tripId));
         
-        // Apply smart filtering to remove points that should be skipped
-        List<TrackPointRequest> filteredRequests = requests.stream()
-                .filter(request -> {
-                    // Validate request data
-                    validateTrackPointRequest(request);
-                    // Check if we should skip this point
-                    return !shouldSkipTrackPoint(tripId, request);
-                })
-                .collect(Collectors.toList());
+        for (TrackPointRequest request : requests) {
+            validateTrackPointRequest(request);
+        }
         
-        log.info("After filtering: {} track points will be saved ({} skipped)", 
-                filteredRequests.size(), requests.size() - filteredRequests.size());
+        // One pass over the batch, then a single JDBC batch insert
+        List<TrackPoint> savedTrackPoints = ingestionPipeline.ingest(trip, requests);
         
-        if (filteredRequests.isEmpty()) {
+        log.info("After filtering: {} track points saved ({} skipped)", 
+                savedTrackPoints.size(), requests.size() - savedTrackPoints.size());
+        
+        if (savedTrackPoints.isEmpty()) {
             log.info("No track points to save after filtering");
             return List.of();
         }
         
-        // Batch create track points
-        List<TrackPoint> trackPoints = filteredRequests.stream()
-                .map(request -> {
-                    TrackPoint trackPoint = new TrackPoint();
-                    trackPoint.setTrip(trip);
-                    trackPoint.setTs(OffsetDateTime.now());
-                    trackPoint.setLat(request.lat());
-                    trackPoint.setLon(request.lon());
-                    trackPoint.setAccuracyM(request.accuracyM());
-                    trackPoint.setSpeedMps(request.speedMps());
-                    trackPoint.setLocationName(request.locationName());
-                    return trackPoint;
-                })
-                .collect(Collectors.toList());
-        
-        // Batch save all track points in a single database operation
-        List<TrackPoint> savedTrackPoints = trackPointRepository.saveAll(trackPoints);
-        
-        log.info("Successfully saved {} track points in bulk for trip: {}", 
-                savedTrackPoints.size(), tripId);
+        trackSimplifier.evict(tripId);
+        double addedKm = tripStatsService.recordTrackPoints(tripId, savedTrackPoints);
+        userTravelStatsService.recordDistance(trip.getUser().getId(), addedKm);
         
         // Convert to response DTOs
         return savedTrackPoints.stream()
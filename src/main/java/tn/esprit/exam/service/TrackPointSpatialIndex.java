@@ -0,0 +1,128 @@
+package tn.esprit.exam.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Component;
+import tn.esprit.exam.dto.TrackPointResponse;
+
+import java.time.OffsetDateTime;
+import java.util.*;
+
+/**
+ * Radius search over track_points using the geohash column
+ * Candidates are pruned by cell prefix through the index, then the exact distance,
+ * ordering and limit are applied by PostgreSQL so only returned rows reach the application
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class TrackPointSpatialIndex {
+
+    private static final double METERS_PER_DEGREE = 111_320.0;
+
+    private static final String COLUMNS =
+            "tp.id, tp.trip_id, tp.ts, tp.lat, tp.lon, tp.accuracy_m, tp.speed_mps, tp.location_name";
+
+    // Distance to the search center, binds its latitude twice then its longitude
+    private static final String DISTANCE = GeoDistance.sqlMeters("tp.lat", "tp.lon");
+
+    private static final RowMapper<TrackPointResponse> ROW_MAPPER = (rs, rowNum) -> {
+        Double speedMps = rs.getObject("speed_mps", Double.class);
+        return new TrackPointResponse(
+                rs.getLong("id"),
+                rs.getObject("trip_id", UUID.class),
+                rs.getObject("ts", OffsetDateTime.class),
+                rs.getDouble("lat"),
+                rs.getDouble("lon"),
+                rs.getObject("accuracy_m", Double.class),
+                speedMps,
+                speedMps != null ? speedMps * 3.6 : null, // Convert m/s to km/h
+                rs.getString("location_name"),
+                false,
+                null,
+                null
+        );
+    };
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TrackPointGeohashBackfillJob geohashBackfill;
+
+    /**
+     * Track points of one trip within a radius, ordered by timestamp
+     * Radii too large for a cell prefix fall back to scanning the trip
+     */
+    public List<TrackPointResponse> findNearInTrip(UUID tripId, double lat, double lon, double radiusMeters) {
+        List<Object> args = new ArrayList<>(List.of(lat, lat, lon));
+        StringBuilder sql = new StringBuilder("SELECT " + COLUMNS + ", " + DISTANCE + " AS distance_m " +
+                "FROM track_points tp WHERE tp.trip_id = ?");
+        args.add(tripId);
+        appendCells(sql, args, Geohash.coveringCells(lat, lon, radiusMeters), lat, lon, radiusMeters);
+
+        String query = "SELECT * FROM (" + sql + ") c WHERE c.distance_m <= ? ORDER BY c.ts ASC";
+        args.add(radiusMeters);
+        return jdbcTemplate.query(query, ROW_MAPPER, args.toArray());
+    }
+
+    /**
+     * Track points within a radius, of one user's trips or of every trip the viewer may see
+     * Other users' points are only returned when their owner shares by default, see users.default_visibility
+     *
+     * @param viewerId User running the search, always sees their own trips
+     * @param userId Optional owner of the trips
+     * @param limit Maximum number of points, closest first
+     * @return Track points ordered by distance
+     */
+    public List<TrackPointResponse> findNear(UUID viewerId, UUID userId, double lat, double lon,
+                                             double radiusMeters, int limit) {
+        Set<String> cells = Geohash.coveringCells(lat, lon, radiusMeters);
+        if (cells.isEmpty()) {
+            throw new IllegalArgumentException("Radius too large for a cross-trip search");
+        }
+
+        List<Object> args = new ArrayList<>(List.of(lat, lat, lon));
+        StringBuilder sql = new StringBuilder("SELECT " + COLUMNS + ", " + DISTANCE + " AS distance_m " +
+                "FROM track_points tp JOIN trips t ON t.id = tp.trip_id JOIN users u ON u.id = t.user_id " +
+                "WHERE (u.id = ? OR u.default_visibility = 'PUBLIC')");
+        args.add(viewerId);
+        if (userId != null) {
+            sql.append(" AND t.user_id = ?");
+            args.add(userId);
+        }
+        appendCells(sql, args, cells, lat, lon, radiusMeters);
+
+        String query = "SELECT * FROM (" + sql + ") c WHERE c.distance_m <= ? ORDER BY c.distance_m LIMIT ?";
+        args.add(radiusMeters);
+        args.add(limit);
+        List<TrackPointResponse> points = jdbcTemplate.query(query, ROW_MAPPER, args.toArray());
+
+        log.debug("Radius search over {} cells returned {} points within {}m", cells.size(), points.size(), radiusMeters);
+        return points;
+    }
+
+    private void appendCells(StringBuilder sql, List<Object> args, Set<String> cells,
+                             double lat, double lon, double radiusMeters) {
+        if (cells.isEmpty()) {
+            return;
+        }
+        // One index range per cell, the column uses the "C" collation so LIKE prefixes are indexable
+        StringJoiner ranges = new StringJoiner(" OR ", " AND (", ")");
+        for (String cell : cells) {
+            ranges.add("tp.geohash LIKE ?");
+            args.add(cell + "%");
+        }
+        if (!geohashBackfill.isComplete()) {
+            // Points stored before the geohash column are found by bounding box until the backfill ends,
+            // through the partial index of migrate_track_points_geohash.sql
+            double latDelta = radiusMeters / METERS_PER_DEGREE;
+            double lonDelta = radiusMeters / (METERS_PER_DEGREE * Math.max(Math.cos(Math.toRadians(lat)), 0.01));
+            ranges.add("(tp.geohash IS NULL AND tp.lat BETWEEN ? AND ? AND tp.lon BETWEEN ? AND ?)");
+            args.add(lat - latDelta);
+            args.add(lat + latDelta);
+            args.add(lon - lonDelta);
+            args.add(lon + lonDelta);
+        }
+        sql.append(ranges);
+    }
+}
@@ -0,0 +1,220 @@
+package tn.esprit.exam.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import tn.esprit.exam.dto.TrackPointResponse;
+import tn.esprit.exam.entity.TrackPoint;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Level-of-detail geometry for trip tracks
+ * Simplifies a track with Douglas-Peucker at fixed tolerances and caches every level per trip,
+ * the cache is bounded by the total number of points it holds
+ */
+@Component
+@Slf4j
+public class TrackSimplifier {
+
+    // Tolerances (in meters) of the precomputed levels, finest first
+    static final double[] LEVEL_TOLERANCES_M = {2, 8, 32, 128, 512, 2048};
+
+    // Ground resolution of a web map tile pixel at zoom 0 on the equator
+    private static final double METERS_PER_PIXEL_ZOOM_0 = 156543.03;
+
+    // Points held over all cached levels of all trips, least recently used trips go first
+    private static final long MAX_CACHED_POINTS = 1_000_000;
+    // Longer tracks are simplified on every request rather than pushing out many short ones
+    private static final long MAX_POINTS_PER_TRIP = MAX_CACHED_POINTS / 10;
+
+    private final LinkedHashMap<UUID, Levels> levelsByTrip = new LinkedHashMap<>(64, 0.75f, true);
+    private long cachedPoints;
+
+    // Bumped on every eviction so a load racing with a write is not cached
+    private final AtomicLong invalidations = new AtomicLong();
+
+    /**
+     * Tolerance matching one screen pixel at a map zoom level
+     */
+    public static double toleranceForZoom(int zoom) {
+        return METERS_PER_PIXEL_ZOOM_0 / Math.pow(2, zoom);
+    }
+
+    /**
+     * Whether a tolerance is below the finest level, in which case raw points should be served
+     */
+    public boolean isRaw(double toleranceMeters) {
+        return toleranceMeters < LEVEL_TOLERANCES_M[0];
+    }
+
+    /**
+     * Get the coarsest cached level whose tolerance does not exceed the requested one
+     *
+     * @param tripId Trip identifier
+     * @param toleranceMeters Maximum deviation from the raw track, in meters
+     * @param loader Loads the raw track ordered by timestamp on a cache miss
+     * @return Simplified track points ordered by timestamp
+     */
+    public List<TrackPointResponse> simplify(UUID tripId, double toleranceMeters,
+                                             Supplier<List<TrackPoint>> loader) {
+        int level = 0;
+        while (level + 1 < LEVEL_TOLERANCES_M.length && LEVEL_TOLERANCES_M[level + 1] <= toleranceMeters) {
+            level++;
+        }
+
+        Levels levels;
+        synchronized (this) {
+            levels = levelsByTrip.get(tripId);
+        }
+        if (levels == null) {
+            long version = invalidations.get();
+            levels = buildLevels(tripId, loader.get());
+            if (version == invalidations.get() && levels.points() <= MAX_POINTS_PER_TRIP) {
+                put(tripId, levels);
+            }
+        }
+        return levels.levels().get(level);
+    }
+
+    /**
+     * Drop the cached levels of a trip once the current transaction commits
+     */
+    public void evict(UUID tripId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            invalidate(tripId);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                invalidate(tripId);
+            }
+        });
+    }
+
+    private synchronized void invalidate(UUID tripId) {
+        invalidations.incrementAndGet();
+        Levels removed = levelsByTrip.remove(tripId);
+        if (removed != null) {
+            cachedPoints -= removed.points();
+        }
+    }
+
+    private synchronized void put(UUID tripId, Levels levels) {
+        Levels previous = levelsByTrip.put(tripId, levels);
+        cachedPoints += levels.points() - (previous != null ? previous.points() : 0);
+
+        Iterator<Levels> eldest = levelsByTrip.values().iterator();
+        while (cachedPoints > MAX_CACHED_POINTS && eldest.hasNext()) {
+            Levels evicted = eldest.next();
+            if (evicted != levels) {
+                cachedPoints -= evicted.points();
+                eldest.remove();
+            }
+        }
+    }
+
+    private Levels buildLevels(UUID tripId, List<TrackPoint> trackPoints) {
+        long start = System.nanoTime();
+
+        // Sinusoidal projection around the track's mean meridian: each point is scaled by the
+        // cosine of its own latitude, so east-west distances stay right on tracks that cross
+        // many degrees of latitude, where a single scale factor would drift by several percent
+        int n = trackPoints.size();
+        double[] x = new double[n];
+        double[] y = new double[n];
+        double meanLon = 0;
+        for (TrackPoint tp : trackPoints) {
+            meanLon += tp.getLon() / n;
+        }
+        for (int i = 0; i < n; i++) {
+            TrackPoint tp = trackPoints.get(i);
+            double cosLat = Math.cos(Math.toRadians(tp.getLat()));
+            x[i] = Math.toRadians(tp.getLon() - meanLon) * cosLat * GeoDistance.EARTH_RADIUS_M;
+            y[i] = Math.toRadians(tp.getLat()) * GeoDistance.EARTH_RADIUS_M;
+        }
+
+        List<List<TrackPointResponse>> levels = new ArrayList<>(LEVEL_TOLERANCES_M.length);
+        // An empty track still costs an entry
+        long points = 1;
+        StringBuilder summary = new StringBuilder();
+        for (double tolerance : LEVEL_TOLERANCES_M) {
+            boolean[] keep = douglasPeucker(x, y, tolerance);
+            List<TrackPointResponse> level = new ArrayList<>();
+            for (int i = 0; i < n; i++) {
+                if (keep[i]) {
+                    level.add(TrackPointResponse.fromEntity(trackPoints.get(i)));
+                }
+            }
+            levels.add(List.copyOf(level));
+            points += level.size();
+            summary.append(' ').append((int) tolerance).append("m=").append(level.size());
+        }
+
+        log.info("Simplified trip {} ({} points) in {} ms:{}",
+                tripId, n, (System.nanoTime() - start) / 1_000_000, summary);
+        return new Levels(levels, points);
+    }
+
+    /**
+     * Iterative Douglas-Peucker, marks the points to keep
+     */
+    static boolean[] douglasPeucker(double[] x, double[] y, double tolerance) {
+        int n = x.length;
+        boolean[] keep = new boolean[n];
+        if (n <= 2) {
+            Arrays.fill(keep, true);
+            return keep;
+        }
+        keep[0] = true;
+        keep[n - 1] = true;
+
+        Deque<int[]> stack = new ArrayDeque<>();
+        stack.push(new int[]{0, n - 1});
+        while (!stack.isEmpty()) {
+            int[] range = stack.pop();
+            int first = range[0];
+            int last = range[1];
+
+            double maxDistance = 0;
+            int index = -1;
+            for (int i = first + 1; i < last; i++) {
+                double distance = segmentDistance(x[i], y[i], x[first], y[first], x[last], y[last]);
+                if (distance > maxDistance) {
+                    maxDistance = distance;
+                    index = i;
+                }
+            }
+
+            if (index != -1 && maxDistance > tolerance) {
+                keep[index] = true;
+                stack.push(new int[]{first, index});
+                stack.push(new int[]{index, last});
+            }
+        }
+        return keep;
+    }
+
+    /**
+     * Distance from a point to the segment between two others, in projected meters
+     */
+    private static double segmentDistance(double px, double py, double ax, double ay, double bx, double by) {
+        double dx = bx - ax;
+        double dy = by - ay;
+        double lengthSquared = dx * dx + dy * dy;
+        if (lengthSquared == 0) {
+            return Math.hypot(px - ax, py - ay);
+        }
+        double t = Math.max(0, Math.min(1, ((px - ax) * dx + (py - ay) * dy) / lengthSquared));
+        return Math.hypot(px - (ax + t * dx), py - (ay + t * dy));
+    }
+
+    /**
+     * Simplified tracks of a trip, finest first, and the number of points they hold
+     */
+    private record Levels(List<List<TrackPointResponse>> levels, long points) {}
+}
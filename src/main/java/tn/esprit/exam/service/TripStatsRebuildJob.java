@@ -0,0 +1,77 @@
+package tn.esprit.exam.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import tn.esprit.exam.repository.TripRepository;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Backfills and repairs the materialized trip statistics
+ * Each trip is rebuilt in its own transaction so a failure only affects that trip
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class TripStatsRebuildJob {
+
+    private static final int BATCH_SIZE = 500;
+
+    private final TripRepository tripRepository;
+    private final ITripStatsService tripStatsService;
+
+    /**
+     * Rebuild the statistics of every trip
+     *
+     * @return Number of trips successfully rebuilt
+     */
+    public int rebuildAll() {
+        List<UUID> tripIds = tripRepository.findAllIds();
+        log.info("Rebuilding stats for {} trips", tripIds.size());
+
+        int rebuilt = rebuild(tripIds);
+
+        log.info("Rebuilt stats for {}/{} trips", rebuilt, tripIds.size());
+        return rebuilt;
+    }
+
+    /**
+     * Materialize the stats of trips that have none, in batches
+     * Runs until every trip has a row, then only costs one anti-join per run
+     */
+    @Scheduled(initialDelay = 60_000, fixedDelay = 600_000)
+    public void backfillMissing() {
+        int total = 0;
+        List<UUID> tripIds;
+        do {
+            tripIds = tripRepository.findIdsWithoutStats(Limit.of(BATCH_SIZE));
+            int rebuilt = rebuild(tripIds);
+            total += rebuilt;
+            if (rebuilt == 0) {
+                // Every trip of the batch failed, retry on the next run
+                break;
+            }
+        } while (tripIds.size() == BATCH_SIZE);
+
+        if (total > 0) {
+            log.info("Materialized stats for {} trips", total);
+        }
+    }
+
+    private int rebuild(List<UUID> tripIds) {
+        int rebuilt = 0;
+        for (UUID tripId : tripIds) {
+            try {
+                tripStatsService.rebuildTripStats(tripId);
+                rebuilt++;
+            } catch (RuntimeException e) {
+                log.error("Failed to rebuild stats for trip {}: {}", tripId, e.getMessage());
+            }
+        }
+        return rebuilt;
+    }
+}
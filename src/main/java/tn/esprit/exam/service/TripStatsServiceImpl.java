@@ -0,0 +1,319 @@
+package tn.esprit.exam.service;
+
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import tn.esprit.exam.dto.TripStatsDTO;
+import tn.esprit.exam.entity.Post;
+import tn.esprit.exam.entity.TrackPoint;
+import tn.esprit.exam.entity.TripStats;
+import tn.esprit.exam.repository.MediaRepository;
+import tn.esprit.exam.repository.PostRepository;
+import tn.esprit.exam.repository.TrackPointRepository;
+import tn.esprit.exam.repository.TripStatsRepository;
+
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Service implementation for materialized trip statistics
+ * Write paths apply deltas under a row lock; reads are a single lookup
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class TripStatsServiceImpl implements ITripStatsService {
+
+    // Speed thresholds (in km/h) used to detect transport methods
+    private static final double WALKING_MAX_KMH = 6;
+    private static final double BIKING_MAX_KMH = 25;
+    private static final double DRIVING_MAX_KMH = 150;
+
+    // Transport methods below this distance (in km) are not reported
+    private static final double MIN_TRANSPORT_DISTANCE_KM = 0.1;
+
+    private static final TripStatsDTO EMPTY_STATS = new TripStatsDTO(0, 0, 0, 0, 0, Map.of());
+
+    private final TripStatsRepository tripStatsRepository;
+    private final TrackPointRepository trackPointRepository;
+    private final PostRepository postRepository;
+    private final MediaRepository mediaRepository;
+    private final EntityManager entityManager;
+
+    @Override
+    @Transactional
+    public TripStatsDTO getTripStats(UUID tripId) {
+        return tripStatsRepository.findById(tripId)
+                .map(this::mapToDto)
+                .orElseGet(() -> rebuildTripStats(tripId));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Map<UUID, TripStatsDTO> getTripStats(Collection<UUID> tripIds) {
+        Map<UUID, TripStatsDTO> result = new HashMap<>();
+        for (TripStats stats : tripStatsRepository.findAllById(tripIds)) {
+            result.put(stats.getTripId(), mapToDto(stats));
+        }
+
+        // Never writes, so list pages stay read-only: trips without a row yet show zeros
+        // until TripStatsRebuildJob materializes them
+        for (UUID tripId : tripIds) {
+            result.putIfAbsent(tripId, EMPTY_STATS);
+        }
+        return result;
+    }
+
+    @Override
+    @Transactional
+    public void initTripStats(UUID tripId) {
+        tripStatsRepository.insertIfAbsent(tripId);
+    }
+
+    @Override
+    @Transactional
+    public double recordTrackPoints(UUID tripId, List<TrackPoint> trackPoints) {
+        if (trackPoints.isEmpty()) {
+            return 0;
+        }
+
+        Optional<TripStats> locked = tripStatsRepository.findByIdForUpdate(tripId);
+        if (locked.isEmpty()) {
+            // Trip never materialized: the rebuild already includes the new points
+            return materialize(tripId, trackPoints);
+        }
+
+        TripStats stats = locked.get();
+        double distanceBefore = stats.getDistanceKm();
+        
+        if (stats.getLastTs() != null && !trackPoints.get(0).getTs().isAfter(stats.getLastTs())) {
+            // Late points change the distance of their neighbours, replay the series
+            rebuild(stats);
+            tripStatsRepository.save(stats);
+            log.info("Trip {} stats replayed after {} late points", tripId, trackPoints.size());
+            return stats.getDistanceKm() - distanceBefore;
+        }
+        
+        for (TrackPoint trackPoint : trackPoints) {
+            appendPoint(stats, trackPoint);
+        }
+        tripStatsRepository.save(stats);
+
+        log.debug("Trip {} stats extended with {} points, distance now {} km",
+                tripId, trackPoints.size(), stats.getDistanceKm());
+        return stats.getDistanceKm() - distanceBefore;
+    }
+
+    @Override
+    @Transactional
+    public void recordPost(UUID tripId, String country, String city, int photosCount) {
+        Optional<TripStats> locked = tripStatsRepository.findByIdForUpdate(tripId);
+        if (locked.isEmpty()) {
+            rebuildTripStats(tripId);
+            return;
+        }
+
+        TripStats stats = locked.get();
+        stats.setPostsCount(stats.getPostsCount() + 1);
+        stats.setPhotosCount(stats.getPhotosCount() + photosCount);
+        addPlace(stats, country, city);
+        tripStatsRepository.save(stats);
+    }
+
+    @Override
+    @Transactional
+    public void recordMedia(UUID tripId, int mediaCount) {
+        Optional<TripStats> locked = tripStatsRepository.findByIdForUpdate(tripId);
+        if (locked.isEmpty()) {
+            rebuildTripStats(tripId);
+            return;
+        }
+
+        TripStats stats = locked.get();
+        stats.setPhotosCount(stats.getPhotosCount() + mediaCount);
+        tripStatsRepository.save(stats);
+    }
+
+    @Override
+    @Transactional
+    public TripStatsDTO rebuildTripStats(UUID tripId) {
+        log.info("Rebuilding stats for trip {}", tripId);
+
+        TripStats stats = lockOrCreate(tripId);
+        rebuild(stats);
+
+        TripStats saved = tripStatsRepository.save(stats);
+        log.info("Stats rebuilt for trip {}: {} points, {} km, {} posts, {} photos",
+                tripId, saved.getPointsCount(), saved.getDistanceKm(),
+                saved.getPostsCount(), saved.getPhotosCount());
+
+        return mapToDto(saved);
+    }
+
+    @Override
+    @Transactional
+    public void deleteTripStats(UUID tripId) {
+        if (tripStatsRepository.existsById(tripId)) {
+            tripStatsRepository.deleteById(tripId);
+        }
+    }
+
+    /**
+     * Build the stats row of a trip that was never materialized
+     *
+     * @return Distance contributed by the given new points, in kilometers
+     */
+    private double materialize(UUID tripId, List<TrackPoint> newPoints) {
+        Set<Long> newIds = new HashSet<>();
+        for (TrackPoint point : newPoints) {
+            newIds.add(point.getId());
+        }
+
+        TripStats stats = lockOrCreate(tripId);
+        TripStats withoutNew = new TripStats(tripId);
+        resetPoints(stats);
+        forEachPoint(tripId, point -> {
+            appendPoint(stats, point);
+            if (!newIds.contains(point.getId())) {
+                appendPoint(withoutNew, point);
+            }
+        });
+        addPosts(stats);
+        tripStatsRepository.save(stats);
+
+        log.info("Materialized stats for trip {} on write", tripId);
+        return stats.getDistanceKm() - withoutNew.getDistanceKm();
+    }
+
+    /**
+     * Reset the stats row and recompute it from the trip's points and posts
+     */
+    private void rebuild(TripStats stats) {
+        resetPoints(stats);
+        forEachPoint(stats.getTripId(), point -> appendPoint(stats, point));
+        addPosts(stats);
+    }
+
+    private void resetPoints(TripStats stats) {
+        stats.setPointsCount(0);
+        stats.setDistanceKm(0);
+        stats.setLastLat(null);
+        stats.setLastLon(null);
+        stats.setLastTs(null);
+        stats.setWalkingKm(0);
+        stats.setBikingKm(0);
+        stats.setDrivingKm(0);
+        stats.setFlyingKm(0);
+    }
+
+    private void addPosts(TripStats stats) {
+        UUID tripId = stats.getTripId();
+        stats.getCountries().clear();
+        stats.getCities().clear();
+        stats.setCountriesCount(0);
+        stats.setCitiesCount(0);
+
+        List<Post> posts = postRepository.findByTripId(tripId);
+        for (Post post : posts) {
+            addPlace(stats, post.getCountry(), post.getCity());
+        }
+        stats.setPostsCount(posts.size());
+        stats.setPhotosCount((int) mediaRepository.countByPostTripId(tripId));
+    }
+
+    /**
+     * Stream the trip's points in timestamp order without keeping them in the persistence context
+     */
+    private void forEachPoint(UUID tripId, Consumer<TrackPoint> action) {
+        try (Stream<TrackPoint> points = trackPointRepository.streamByTripId(tripId)) {
+            points.forEach(point -> {
+                entityManager.detach(point);
+                action.accept(point);
+            });
+        }
+    }
+
+    /**
+     * Load the stats row under a write lock, creating it if missing
+     * The insert goes first so two first writers cannot both try to create the row
+     */
+    private TripStats lockOrCreate(UUID tripId) {
+        tripStatsRepository.insertIfAbsent(tripId);
+        return tripStatsRepository.findByIdForUpdate(tripId)
+                .orElseThrow(() -> new RuntimeException("Trip stats not found"));
+    }
+
+    /**
+     * Extend running distance and transport split with the next point of the series
+     */
+    private void appendPoint(TripStats stats, TrackPoint point) {
+        if (stats.getLastLat() != null && stats.getLastLon() != null
+                && point.getLat() != null && point.getLon() != null) {
+            double distance = GeoDistance.km(
+                    stats.getLastLat(), stats.getLastLon(),
+                    point.getLat(), point.getLon()
+            );
+            stats.setDistanceKm(stats.getDistanceKm() + distance);
+
+            // Convert speed from m/s to km/h (1 m/s = 3.6 km/h)
+            if (point.getSpeedMps() != null) {
+                double speedKmh = point.getSpeedMps() * 3.6;
+                if (speedKmh < WALKING_MAX_KMH) {
+                    stats.setWalkingKm(stats.getWalkingKm() + distance);
+                } else if (speedKmh < BIKING_MAX_KMH) {
+                    stats.setBikingKm(stats.getBikingKm() + distance);
+                } else if (speedKmh < DRIVING_MAX_KMH) {
+                    stats.setDrivingKm(stats.getDrivingKm() + distance);
+                } else {
+                    stats.setFlyingKm(stats.getFlyingKm() + distance);
+                }
+            }
+        }
+
+        stats.setLastLat(point.getLat());
+        stats.setLastLon(point.getLon());
+        stats.setLastTs(point.getTs());
+        stats.setPointsCount(stats.getPointsCount() + 1);
+    }
+
+    /**
+     * Add a post location to the distinct country and city sets
+     */
+    private void addPlace(TripStats stats, String country, String city) {
+        if (country != null && !country.isBlank() && stats.getCountries().add(country)) {
+            stats.setCountriesCount(stats.getCountries().size());
+        }
+        if (city != null && !city.isBlank() && stats.getCities().add(city)) {
+            stats.setCitiesCount(stats.getCities().size());
+        }
+    }
+
+    private TripStatsDTO mapToDto(TripStats stats) {
+        // Only include methods that were actually used
+        Map<String, Double> transportMethods = new HashMap<>();
+        if (stats.getWalkingKm() > MIN_TRANSPORT_DISTANCE_KM) {
+            transportMethods.put("Walking", stats.getWalkingKm());
+        }
+        if (stats.getBikingKm() > MIN_TRANSPORT_DISTANCE_KM) {
+            transportMethods.put("Biking", stats.getBikingKm());
+        }
+        if (stats.getDrivingKm() > MIN_TRANSPORT_DISTANCE_KM) {
+            transportMethods.put("Driving", stats.getDrivingKm());
+        }
+        if (stats.getFlyingKm() > MIN_TRANSPORT_DISTANCE_KM) {
+            transportMethods.put("Flying", stats.getFlyingKm());
+        }
+
+        return new TripStatsDTO(
+                stats.getPostsCount(), // stepsCount
+                stats.getDistanceKm(),
+                stats.getCountriesCount(),
+                stats.getCitiesCount(),
+                stats.getPhotosCount(),
+                transportMethods
+        );
+    }
+}
@@ -0,0 +1,254 @@
+package tn.esprit.exam.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import tn.esprit.exam.dto.MediaResponse;
+import tn.esprit.exam.dto.PostResponse;
+import tn.esprit.exam.dto.TimelineItemResponse;
+import tn.esprit.exam.dto.TimelineResponse;
+import tn.esprit.exam.entity.Media;
+import tn.esprit.exam.entity.Post;
+import tn.esprit.exam.entity.TrackPoint;
+import tn.esprit.exam.repository.MediaRepository;
+import tn.esprit.exam.repository.PostRepository;
+import tn.esprit.exam.repository.TrackPointRepository;
+
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+
+/**
+ * Builds a trip timeline in a single pass over its track points
+ * Loads track points, posts and media with one query each, so the
+ * number of statements does not grow with the number of points
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class TripTimelineEngine {
+
+    private final TrackPointRepository trackPointRepository;
+    private final PostRepository postRepository;
+    private final MediaRepository mediaRepository;
+
+    /**
+     * Build the timeline for a trip
+     * Callers are expected to run inside a read-only transaction
+     *
+     * @param tripId Trip identifier
+     * @return Timeline with items and statistics
+     */
+    public TimelineResponse build(UUID tripId) {
+        return build(tripId, false);
+    }
+
+    /**
+     * Build the timeline for a trip
+     * A compact timeline only lists the points with posts and carries the
+     * whole track as encoded polylines
+     *
+     * @param tripId Trip identifier
+     * @param compact Whether to encode the track instead of listing every point
+     * @return Timeline with items and statistics
+     */
+    public TimelineResponse build(UUID tripId, boolean compact) {
+        List<TrackPoint> trackPoints =
+                trackPointRepository.findByTripIdOrderByTsAsc(tripId);
+        Map<UUID, List<MediaResponse>> mediaByPost = loadMediaByPost(tripId);
+        Map<Long, List<PostResponse>> postsByTrackPoint =
+                loadPostsByTrackPoint(tripId, mediaByPost);
+
+        log.info(
+                "Found {} track points ({} with posts) for trip {}",
+                trackPoints.size(),
+                postsByTrackPoint.size(),
+                tripId
+        );
+
+        List<TimelineItemResponse> items = new ArrayList<>(trackPoints.size());
+        TrackPoint previousPoint = null;
+        // Last point listed in the timeline, which differs from previousPoint in compact mode
+        TrackPoint previousItemPoint = null;
+        double distanceSinceItem = 0;
+
+        double totalDistance = 0;
+        long totalDuration = 0;
+        double maxSpeed = 0;
+        int totalPhotos = 0;
+        double totalSpeed = 0;
+        int pointsWithSpeed = 0;
+
+        for (TrackPoint trackPoint : trackPoints) {
+            List<PostResponse> posts = postsByTrackPoint
+                    .getOrDefault(trackPoint.getId(), List.of());
+
+            int photoCount = 0;
+            for (PostResponse post : posts) {
+                photoCount += post.media().size();
+            }
+            totalPhotos += photoCount;
+
+            if (previousPoint != null) {
+                double segment = GeoDistance.km(
+                        previousPoint.getLat(), previousPoint.getLon(),
+                        trackPoint.getLat(), trackPoint.getLon()
+                );
+                totalDistance += segment;
+                totalDuration += previousPoint.getTs()
+                        .until(trackPoint.getTs(), ChronoUnit.SECONDS);
+                distanceSinceItem += segment;
+            }
+            previousPoint = trackPoint;
+
+            Double speedKmh = trackPoint.getSpeedMps() != null
+                    ? trackPoint.getSpeedMps() * 3.6
+                    : null;
+
+            if (speedKmh != null) {
+                maxSpeed = Math.max(maxSpeed, speedKmh);
+                totalSpeed += speedKmh;
+                pointsWithSpeed++;
+            }
+
+            if (compact && posts.isEmpty()) {
+                continue;
+            }
+
+            // Distance travelled along the track and time elapsed since the previous listed point
+            Double distanceFromPrevious = null;
+            Long timeFromPrevious = null;
+            if (previousItemPoint != null) {
+                distanceFromPrevious = distanceSinceItem;
+                timeFromPrevious = previousItemPoint.getTs()
+                        .until(trackPoint.getTs(), ChronoUnit.SECONDS);
+            }
+
+            items.add(TimelineItemResponse.builder()
+                    .trackPointId(trackPoint.getId())
+                    .timestamp(trackPoint.getTs())
+                    .latitude(trackPoint.getLat())
+                    .longitude(trackPoint.getLon())
+                    .locationName(resolveLocationName(trackPoint, posts))
+                    .speedKmh(speedKmh)
+                    .accuracyMeters(trackPoint.getAccuracyM())
+                    // Mark as significant if has photos
+                    .isSignificant(photoCount > 0)
+                    .distanceFromPreviousKm(distanceFromPrevious)
+                    .timeFromPreviousSeconds(timeFromPrevious)
+                    .posts(posts)
+                    .photoCount(photoCount)
+                    .build());
+
+            previousItemPoint = trackPoint;
+            distanceSinceItem = 0;
+        }
+
+        double avgSpeed = pointsWithSpeed > 0
+                ? totalSpeed / pointsWithSpeed
+                : 0;
+
+        TimelineResponse.TimelineStats stats =
+                TimelineResponse.TimelineStats.builder()
+                        .totalDistanceKm(totalDistance)
+                        .totalDurationSeconds(totalDuration)
+                        .avgSpeedKmh(avgSpeed)
+                        .maxSpeedKmh(maxSpeed)
+                        .totalPhotos(totalPhotos)
+                        .totalTrackPoints(trackPoints.size())
+                        .build();
+
+        log.info(
+                "Generated timeline with {} items, total distance: {}km, total photos: {}",
+                items.size(),
+                totalDistance,
+                totalPhotos
+        );
+
+        return TimelineResponse.builder()
+                .items(items)
+                .stats(stats)
+                .track(compact ? TrackCodec.encode(tripId, trackPoints) : null)
+                .build();
+    }
+
+    /**
+     * Load every media of the trip and group it by post id
+     */
+    private Map<UUID, List<MediaResponse>> loadMediaByPost(UUID tripId) {
+        Map<UUID, List<MediaResponse>> mediaByPost = new HashMap<>();
+        for (Media m : mediaRepository.findByPostTripId(tripId)) {
+            // Reading the id of the lazy post proxy does not initialize it
+            mediaByPost.computeIfAbsent(m.getPost().getId(), k -> new ArrayList<>())
+                    .add(new MediaResponse(
+                            m.getId(),
+                            m.getType(),
+                            m.getUrl(),
+                            m.getSizeBytes(),
+                            m.getWidth(),
+                            m.getHeight(),
+                            m.getDurationS()
+                    ));
+        }
+        return mediaByPost;
+    }
+
+    /**
+     * Load the trip's posts (with user and track point) and group them by track point id
+     * Posts without a track point never appear on the timeline and are dropped
+     */
+    private Map<Long, List<PostResponse>> loadPostsByTrackPoint(
+            UUID tripId,
+            Map<UUID, List<MediaResponse>> mediaByPost
+    ) {
+        Map<Long, List<PostResponse>> postsByTrackPoint = new HashMap<>();
+        for (Post post : postRepository.findByTripIdWithTrackPoint(tripId)) {
+            TrackPoint trackPoint = post.getTrackPoint();
+            if (trackPoint == null) {
+                continue;
+            }
+            postsByTrackPoint.computeIfAbsent(trackPoint.getId(), k -> new ArrayList<>())
+                    .add(new PostResponse(
+                            post.getId(),
+                            post.getText(),
+                            post.getVisibility(),
+                            post.getTs(),
+                            tripId,
+                            trackPoint.getId(),
+                            trackPoint.getLat(),
+                            trackPoint.getLon(),
+                            post.getUser().getId(),
+                            post.getUser().getEmail(),
+                            post.getUser().getUsername(),
+                            post.getCity(),
+                            post.getCountry(),
+                            mediaByPost.getOrDefault(post.getId(), List.of())
+                    ));
+        }
+        return postsByTrackPoint;
+    }
+
+    /**
+     * Get location name with priority: TrackPoint > first Post city/country
+     */
+    private String resolveLocationName(TrackPoint trackPoint, List<PostResponse> posts) {
+        String locationName = trackPoint.getLocationName();
+        if ((locationName != null && !locationName.isBlank()) || posts.isEmpty()) {
+            return locationName;
+        }
+
+        PostResponse firstPost = posts.get(0);
+        boolean hasCity = firstPost.city() != null && !firstPost.city().isBlank();
+        boolean hasCountry = firstPost.country() != null && !firstPost.country().isBlank();
+
+        if (hasCity && hasCountry) {
+            return firstPost.city() + ", " + firstPost.country();
+        }
+        if (hasCity) {
+            return firstPost.city();
+        }
+        if (hasCountry) {
+            return firstPost.country();
+        }
+        return locationName;
+    }
+}
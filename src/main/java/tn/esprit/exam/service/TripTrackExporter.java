@@ -0,0 +1,298 @@
+package tn.esprit.exam.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import tn.esprit.exam.entity.Trip;
+import tn.esprit.exam.repository.TripRepository;
+
+import javax.sql.DataSource;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+import java.util.UUID;
+
+/**
+ * Streams a trip's track to an output stream as GPX, GeoJSON or CSV
+ * Rows come from a forward-only cursor with a bounded fetch size and are written
+ * as they arrive, so memory use does not depend on the length of the trip
+ */
+@Component
+@Slf4j
+public class TripTrackExporter {
+
+    private static final int FETCH_SIZE = 1000;
+
+    private static final String SELECT_SQL =
+            "SELECT ts, lat, lon, accuracy_m, speed_mps, location_name " +
+            "FROM track_points WHERE trip_id = ? ORDER BY ts ASC";
+
+    private static final DateTimeFormatter UTC_TIME = DateTimeFormatter.ISO_INSTANT;
+
+    public enum Format {
+        GPX("application/gpx+xml", "gpx"),
+        GEOJSON("application/geo+json", "geojson"),
+        CSV("text/csv", "csv");
+
+        private final String contentType;
+        private final String extension;
+
+        Format(String contentType, String extension) {
+            this.contentType = contentType;
+            this.extension = extension;
+        }
+
+        public String contentType() {
+            return contentType;
+        }
+
+        public String extension() {
+            return extension;
+        }
+
+        public static Format parse(String value) {
+            try {
+                return Format.valueOf(value.toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unsupported export format: " + value);
+            }
+        }
+    }
+
+    private final JdbcTemplate cursorTemplate;
+    private final TransactionTemplate readOnlyTransaction;
+    private final TripRepository tripRepository;
+
+    public TripTrackExporter(DataSource dataSource,
+                             PlatformTransactionManager transactionManager,
+                             TripRepository tripRepository) {
+        // PostgreSQL only uses a cursor with a fetch size inside a transaction
+        this.cursorTemplate = new JdbcTemplate(dataSource);
+        this.cursorTemplate.setFetchSize(FETCH_SIZE);
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.tripRepository = tripRepository;
+    }
+
+    /**
+     * Load the trip being exported, before the response starts streaming
+     */
+    public Trip getTrip(UUID tripId) {
+        return tripRepository.findById(tripId)
+                .orElseThrow(() -> new RuntimeException("Trip not found"));
+    }
+
+    /**
+     * Write the whole track of a trip
+     *
+     * @param trip Trip to export
+     * @param format Output format
+     * @param outputStream Response body, not closed by this method
+     */
+    public void export(Trip trip, Format format, OutputStream outputStream) throws IOException {
+        long start = System.nanoTime();
+        Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8), 64 * 1024);
+        RowWriter rowWriter = switch (format) {
+            case GPX -> new GpxWriter(writer, trip.getTitle());
+            case GEOJSON -> new GeoJsonWriter(writer);
+            case CSV -> new CsvWriter(writer);
+        };
+
+        rowWriter.begin();
+        long[] rows = {0};
+        try {
+            readOnlyTransaction.executeWithoutResult(status ->
+                    cursorTemplate.query(SELECT_SQL, (RowCallbackHandler) rs -> {
+                        try {
+                            rowWriter.row(rs);
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                        rows[0]++;
+                    }, trip.getId()));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        rowWriter.end();
+        writer.flush();
+
+        log.info("Exported {} track points of trip {} as {} in {} ms",
+                rows[0], trip.getId(), format, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private interface RowWriter {
+        void begin() throws IOException;
+
+        void row(ResultSet rs) throws IOException, SQLException;
+
+        void end() throws IOException;
+    }
+
+    private record GpxWriter(Writer writer, String title) implements RowWriter {
+
+        @Override
+        public void begin() throws IOException {
+            writer.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+            writer.write("<gpx version=\"1.1\" creator=\"app-backend\" xmlns=\"http://www.topografix.com/GPX/1/1\">\n");
+            writer.write("<trk><name>");
+            writer.write(escapeXml(title != null ? title : ""));
+            writer.write("</name><trkseg>\n");
+        }
+
+        @Override
+        public void row(ResultSet rs) throws IOException, SQLException {
+            writer.write("<trkpt lat=\"");
+            writer.write(Double.toString(rs.getDouble("lat")));
+            writer.write("\" lon=\"");
+            writer.write(Double.toString(rs.getDouble("lon")));
+            writer.write("\"><time>");
+            writer.write(UTC_TIME.format(rs.getObject("ts", OffsetDateTime.class).withOffsetSameInstant(ZoneOffset.UTC)));
+            writer.write("</time>");
+            String name = rs.getString("location_name");
+            if (name != null) {
+                writer.write("<name>");
+                writer.write(escapeXml(name));
+                writer.write("</name>");
+            }
+            writer.write("</trkpt>\n");
+        }
+
+        @Override
+        public void end() throws IOException {
+            writer.write("</trkseg></trk>\n</gpx>\n");
+        }
+    }
+
+    /**
+     * One Point feature per track point, so properties can be written without buffering
+     */
+    private static final class GeoJsonWriter implements RowWriter {
+
+        private final Writer writer;
+        private boolean first = true;
+
+        private GeoJsonWriter(Writer writer) {
+            this.writer = writer;
+        }
+
+        @Override
+        public void begin() throws IOException {
+            writer.write("{\"type\":\"FeatureCollection\",\"features\":[");
+        }
+
+        @Override
+        public void row(ResultSet rs) throws IOException, SQLException {
+            if (!first) {
+                writer.write(',');
+            }
+            first = false;
+
+            writer.write("\n{\"type\":\"Feature\",\"geometry\":{\"type\":\"Point\",\"coordinates\":[");
+            writer.write(Double.toString(rs.getDouble("lon")));
+            writer.write(',');
+            writer.write(Double.toString(rs.getDouble("lat")));
+            writer.write("]},\"properties\":{\"time\":\"");
+            writer.write(UTC_TIME.format(rs.getObject("ts", OffsetDateTime.class).withOffsetSameInstant(ZoneOffset.UTC)));
+            writer.write('"');
+            writeNumber("accuracyM", rs.getObject("accuracy_m", Double.class));
+            writeNumber("speedMps", rs.getObject("speed_mps", Double.class));
+            String name = rs.getString("location_name");
+            if (name != null) {
+                writer.write(",\"locationName\":\"");
+                writer.write(escapeJson(name));
+                writer.write('"');
+            }
+            writer.write("}}");
+        }
+
+        private void writeNumber(String key, Double value) throws IOException {
+            if (value != null) {
+                writer.write(",\"");
+                writer.write(key);
+                writer.write("\":");
+                writer.write(Double.toString(value));
+            }
+        }
+
+        @Override
+        public void end() throws IOException {
+            writer.write("\n]}\n");
+        }
+    }
+
+    private record CsvWriter(Writer writer) implements RowWriter {
+
+        @Override
+        public void begin() throws IOException {
+            writer.write("ts,lat,lon,accuracy_m,speed_mps,location_name\n");
+        }
+
+        @Override
+        public void row(ResultSet rs) throws IOException, SQLException {
+            writer.write(UTC_TIME.format(rs.getObject("ts", OffsetDateTime.class).withOffsetSameInstant(ZoneOffset.UTC)));
+            writer.write(',');
+            writer.write(Double.toString(rs.getDouble("lat")));
+            writer.write(',');
+            writer.write(Double.toString(rs.getDouble("lon")));
+            writer.write(',');
+            writeNullable(rs.getObject("accuracy_m", Double.class));
+            writer.write(',');
+            writeNullable(rs.getObject("speed_mps", Double.class));
+            writer.write(',');
+            String name = rs.getString("location_name");
+            if (name != null) {
+                writer.write('"');
+                writer.write(name.replace("\"", "\"\""));
+                writer.write('"');
+            }
+            writer.write('\n');
+        }
+
+        private void writeNullable(Double value) throws IOException {
+            if (value != null) {
+                writer.write(Double.toString(value));
+            }
+        }
+
+        @Override
+        public void end() {
+        }
+    }
+
+    private static String escapeXml(String value) {
+        return value.replace("&", "&amp;")
+                .replace("<", "&lt;")
+                .replace(">", "&gt;")
+                .replace("\"", "&quot;");
+    }
+
+    private static String escapeJson(String value) {
+        StringBuilder sb = new StringBuilder(value.length() + 8);
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> sb.append("\\\"");
+                case '\\' -> sb.append("\\\\");
+                case '\n' -> sb.append("\\n");
+                case '\r' -> sb.append("\\r");
+                case '\t' -> sb.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        sb.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        sb.append(c);
+                    }
+                }
+            }
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,138 @@
+package tn.esprit.exam.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+import tn.esprit.exam.repository.ConversationRepository;
+import tn.esprit.exam.repository.DirectMessageRepository;
+import tn.esprit.exam.repository.NotificationRepository;
+import tn.esprit.exam.repository.UserRepository;
+
+import java.util.*;
+
+/**
+ * Unread counters of notifications (users.unread_notifications_count) and direct messages
+ * (conversations.unread_count_a / unread_count_b), changed with atomic updates in the caller's transaction
+ * A null counter was never computed: it is counted once under the row lock, then only shifted
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class UnreadCounters {
+
+    private final UserRepository userRepository;
+    private final ConversationRepository conversationRepository;
+    private final NotificationRepository notificationRepository;
+    private final DirectMessageRepository directMessageRepository;
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Unread notifications of a user, requires a read-write transaction
+     */
+    public long notifications(UUID userId) {
+        Integer count = userRepository.findUnreadNotificationsCount(userId);
+        if (count != null) {
+            return count;
+        }
+
+        // Concurrent increments wait for the lock, and no-op on null before it
+        userRepository.lockById(userId);
+        count = userRepository.findUnreadNotificationsCount(userId);
+        if (count == null) {
+            count = notificationRepository.countUnreadByUserId(userId).intValue();
+            userRepository.setUnreadNotifications(userId, count);
+            log.debug("Initialized unread notification counter of user {} to {}", userId, count);
+        }
+        return count;
+    }
+
+    public void addNotifications(UUID userId, int delta) {
+        userRepository.addUnreadNotifications(userId, delta);
+    }
+
+    /**
+     * Call before marking the notifications read, the row lock keeps concurrent inserts counted
+     */
+    public void resetNotifications(UUID userId) {
+        userRepository.setUnreadNotifications(userId, 0);
+    }
+
+    /**
+     * Count one more notification for every user, with one statement
+     * Rows are locked in id order so concurrent batches cannot deadlock
+     *
+     * @return Unread notifications of each user
+     */
+    public Map<UUID, Long> incrementNotifications(Collection<UUID> userIds) {
+        String in = placeholders(userIds.size());
+        Object[] args = userIds.toArray();
+
+        Map<UUID, Long> counts = new HashMap<>();
+        List<UUID> uncounted = new ArrayList<>();
+        jdbcTemplate.query(
+                "UPDATE users SET unread_notifications_count = unread_notifications_count + 1 " +
+                "WHERE id IN (SELECT id FROM users WHERE id IN " + in + " ORDER BY id FOR UPDATE) " +
+                "RETURNING id, unread_notifications_count",
+                (RowCallbackHandler) rs -> {
+                    UUID userId = rs.getObject("id", UUID.class);
+                    long count = rs.getLong("unread_notifications_count");
+                    if (rs.wasNull()) {
+                        uncounted.add(userId);
+                    } else {
+                        counts.put(userId, count);
+                    }
+                },
+                args
+        );
+
+        // Rows are already locked, so the count includes every committed and own notification
+        if (!uncounted.isEmpty()) {
+            jdbcTemplate.query(
+                    "UPDATE users u SET unread_notifications_count = (" +
+                    "SELECT COUNT(*) FROM notifications n WHERE n.user_id = u.id AND n.is_read = false) " +
+                    "WHERE u.id IN " + placeholders(uncounted.size()) + " " +
+                    "RETURNING u.id, u.unread_notifications_count",
+                    (RowCallbackHandler) rs -> counts.put(
+                            rs.getObject("id", UUID.class), rs.getLong("unread_notifications_count")),
+                    uncounted.toArray()
+            );
+        }
+        return counts;
+    }
+
+    /**
+     * Unread messages of a participant, requires a read-write transaction
+     */
+    public long conversation(UUID conversationId, UUID userId) {
+        Integer count = conversationRepository.findUnreadCount(conversationId, userId);
+        if (count != null) {
+            return count;
+        }
+
+        conversationRepository.lockById(conversationId);
+        count = conversationRepository.findUnreadCount(conversationId, userId);
+        if (count == null) {
+            count = directMessageRepository.countUnreadForUser(conversationId, userId).intValue();
+            conversationRepository.setUnread(conversationId, userId, count);
+            log.debug("Initialized unread counter of user {} in conversation {} to {}", userId, conversationId, count);
+        }
+        return count;
+    }
+
+    public void incrementConversation(UUID conversationId, UUID userId) {
+        conversationRepository.incrementUnread(conversationId, userId);
+    }
+
+    /**
+     * Call before marking the messages read, the row lock keeps concurrent messages counted
+     */
+    public void resetConversation(UUID conversationId, UUID userId) {
+        conversationRepository.setUnread(conversationId, userId, 0);
+    }
+
+    private static String placeholders(int count) {
+        return "(" + String.join(", ", Collections.nCopies(count, "?")) + ")";
+    }
+}
@@ -1,8 +1,10 @@
 package tn.esprit.exam.service;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.security.core.Authentication;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import tn.esprit.exam.config.AuthenticatedUser;
 import tn.esprit.exam.dto.UserRequest;
 import tn.esprit.exam.dto.UserResponse;
 import tn.esprit.exam.entity.Role;
@@ -18,6 +20,7 @@ import java.util.UUID;
 public class UserServiceImpl implements IUserService{
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
+    private final PostSearchIndexer searchIndexer;
 
     @Override
     public List<UserResponse> retrieveAllUsers() {
@@ -65,6 +68,10 @@ public class UserServiceImpl implements IUserService{
         }
         
         userRepository.save(user);
+        if (request.username() != null) {
+            // The author's username is part of their posts' search documents
+            searchIndexer.reindexAuthor(userId);
+        }
         return toDto(user);
     }
 
@@ -80,6 +87,15 @@ public class UserServiceImpl implements IUserService{
                 .orElseThrow(() -> new RuntimeException("User not found"));
     }
 
+    @Override
+    public UUID getCurrentUserId(Authentication auth) {
+        // Access tokens carry the id, only tokens without it need the lookup
+        if (auth.getPrincipal() instanceof AuthenticatedUser principal && principal.uid() != null) {
+            return principal.uid();
+        }
+        return getUserIdByEmail(auth.getName());
+    }
+
     // 🔹 Utility mapper
     private UserResponse toDto(User user) {
         return new UserResponse(
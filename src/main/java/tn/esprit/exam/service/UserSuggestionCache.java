@@ -0,0 +1,42 @@
+package tn.esprit.exam.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+import tn.esprit.exam.dto.UserSuggestionResponse;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+/**
+ * Read-through cache of the stored suggestions of a user
+ */
+@Component
+public class UserSuggestionCache {
+
+    private static final int MAX_ENTRIES = 10_000;
+    private static final long TTL_MILLIS = 300_000;
+
+    private final BoundedTtlCache<UUID, List<UserSuggestionResponse>> suggestions;
+
+    public UserSuggestionCache(MeterRegistry meterRegistry) {
+        this.suggestions = new BoundedTtlCache<>(meterRegistry, "users.suggestions.cache",
+                "User suggestions", MAX_ENTRIES, TTL_MILLIS);
+    }
+
+    /**
+     * Get the suggestions of a user
+     *
+     * @param loader Loads all stored suggestions on a miss
+     */
+    public List<UserSuggestionResponse> get(UUID userId, Supplier<List<UserSuggestionResponse>> loader) {
+        return suggestions.get(userId, () -> List.copyOf(loader.get()));
+    }
+
+    /**
+     * Drop the suggestions of a user once the current transaction commits
+     */
+    public void evict(UUID userId) {
+        suggestions.evict(userId);
+    }
+}
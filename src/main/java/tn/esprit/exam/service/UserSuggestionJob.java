@@ -0,0 +1,298 @@
+package tn.esprit.exam.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.*;
+
+/**
+ * Computes "people you may know" suggestions into user_suggestions
+ * Candidates are friends of friends, ranked by mutual follows, and authors who posted in the same cities
+ * <p>
+ * Each run claims the users whose suggestions are missing or oldest and recomputes them in full,
+ * one transaction per user, with a batch sized so every user is refreshed once per REFRESH_AFTER
+ * Between two recomputations follows and unfollows are applied incrementally by onFollow and onUnfollow
+ * Every scan is capped so memory stays bounded whatever the graph looks like
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class UserSuggestionJob {
+
+    private static final long RUN_INTERVAL_MILLIS = 300_000;
+    private static final Duration REFRESH_AFTER = Duration.ofDays(1);
+    private static final int MIN_USERS_PER_RUN = 100;
+    // Claimed users whose computation never finished are due again after this
+    private static final Duration CLAIM_LEASE = Duration.ofMinutes(30);
+
+    private static final int MAX_FOLLOWING_SCANNED = 1000;
+    private static final int MAX_FOLLOW_CANDIDATES = 200;
+    private static final int MAX_EDGES_SCANNED = 200_000;
+    private static final int MAX_CANDIDATES = 1 << 16;
+    private static final int MAX_PLACES = 20;
+    private static final int MAX_POSTS_PER_PLACE = 500;
+    private static final int MAX_PLACE_AUTHORS = 5000;
+    private static final int SUGGESTIONS_PER_USER = 20;
+
+    private static final double MUTUAL_WEIGHT = 1.0;
+    private static final double PLACE_WEIGHT = 0.5;
+
+    // Never computed users first, then the stalest; SKIP LOCKED lets instances claim disjoint batches
+    // The lease moves the claimed users back in the queue, so they are not claimed again while computed
+    private static final String CLAIM_SQL =
+            "UPDATE users SET suggestions_computed_at = ? WHERE id IN (" +
+            "SELECT id FROM users WHERE suggestions_computed_at IS NULL OR suggestions_computed_at < ? " +
+            "ORDER BY suggestions_computed_at NULLS FIRST LIMIT ? FOR UPDATE SKIP LOCKED) " +
+            "RETURNING id";
+
+    // Most recent follows first, through idx_follows_follower_created
+    private static final String FOLLOWING_SQL =
+            "SELECT following_id FROM follows WHERE follower_id = ? ORDER BY created_at DESC LIMIT ?";
+
+    // Accounts the user already follows, whatever their number, through the unique (follower_id, following_id) index
+    private static final String NOT_FOLLOWED_SQL =
+            "NOT EXISTS (SELECT 1 FROM follows mine WHERE mine.follower_id = ? AND mine.following_id = ";
+
+    private static final String FRIENDS_OF_FRIENDS_SQL =
+            "SELECT f2.following_id FROM follows f2 WHERE f2.follower_id IN (" + FOLLOWING_SQL + ") " +
+            "AND f2.following_id <> ? AND " + NOT_FOLLOWED_SQL + "f2.following_id) LIMIT ?";
+
+    // Only the latest public posts of each place, through idx_posts_location_ts, so a popular city
+    // costs the same as a quiet one
+    private static final String CO_LOCATED_SQL =
+            "SELECT recent.user_id, COUNT(DISTINCT (mine.country, mine.city)) AS places " +
+            "FROM (SELECT DISTINCT country, city FROM posts " +
+            "WHERE user_id = ? AND country IS NOT NULL AND city IS NOT NULL LIMIT ?) mine " +
+            "CROSS JOIN LATERAL (SELECT p.user_id FROM posts p " +
+            "WHERE p.visibility = 'PUBLIC' AND p.country = mine.country AND p.city = mine.city " +
+            "ORDER BY p.ts DESC, p.id DESC LIMIT ?) recent " +
+            "WHERE recent.user_id <> ? AND " + NOT_FOLLOWED_SQL + "recent.user_id) " +
+            "GROUP BY recent.user_id ORDER BY places DESC LIMIT ?";
+
+    private static final String INSERT_SQL =
+            "INSERT INTO user_suggestions (id, user_id, suggested_user_id, score, mutual_follows, shared_places, computed_at) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?)";
+
+    // Whom the new followee follows is one more mutual follow for the follower
+    private static final String FOLLOW_SQL =
+            "INSERT INTO user_suggestions (id, user_id, suggested_user_id, score, mutual_follows, shared_places, computed_at) " +
+            "SELECT gen_random_uuid(), ?, f.following_id, ?, 1, 0, ? " +
+            "FROM (SELECT following_id FROM follows WHERE follower_id = ? ORDER BY created_at DESC LIMIT ?) f " +
+            "WHERE f.following_id <> ? " +
+            "AND NOT EXISTS (SELECT 1 FROM follows mine WHERE mine.follower_id = ? AND mine.following_id = f.following_id) " +
+            "ON CONFLICT (user_id, suggested_user_id) DO UPDATE " +
+            "SET mutual_follows = user_suggestions.mutual_follows + 1, score = user_suggestions.score + EXCLUDED.score";
+
+    // Whom the former followee follows is one mutual follow less for the follower
+    private static final String UNFOLLOW_SQL =
+            "UPDATE user_suggestions s SET mutual_follows = s.mutual_follows - 1, score = s.score - ? " +
+            "FROM (SELECT following_id FROM follows WHERE follower_id = ? ORDER BY created_at DESC LIMIT ?) f " +
+            "WHERE s.user_id = ? AND s.suggested_user_id = f.following_id AND s.mutual_follows > 0";
+
+    private static final String DROP_EMPTY_SQL =
+            "DELETE FROM user_suggestions WHERE user_id = ? AND mutual_follows = 0 AND shared_places = 0";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final UserSuggestionCache suggestionCache;
+
+    @Scheduled(initialDelay = 120_000, fixedDelay = RUN_INTERVAL_MILLIS)
+    public void run() {
+        long start = System.nanoTime();
+        OffsetDateTime now = OffsetDateTime.now();
+        List<UUID> due = jdbcTemplate.query(
+                CLAIM_SQL,
+                (rs, rowNum) -> rs.getObject("id", UUID.class),
+                now.minus(REFRESH_AFTER).plus(CLAIM_LEASE), now.minus(REFRESH_AFTER), usersPerRun()
+        );
+
+        int computed = 0;
+        for (UUID userId : due) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> compute(userId));
+                computed++;
+            } catch (RuntimeException e) {
+                log.warn("Computing suggestions of user {} failed: {}", userId, e.getMessage());
+            }
+        }
+
+        if (computed > 0) {
+            log.info("Computed suggestions of {} users in {} ms", computed, (System.nanoTime() - start) / 1_000_000);
+        }
+    }
+
+    /**
+     * Apply a new follow to the stored suggestions of the follower, in the caller's transaction
+     * Users the followee follows gain a mutual follow, new ones are added until the next recomputation trims them
+     */
+    public void onFollow(UUID followerId, UUID followingId) {
+        jdbcTemplate.update(
+                FOLLOW_SQL,
+                followerId, MUTUAL_WEIGHT, OffsetDateTime.now(), followingId, MAX_FOLLOW_CANDIDATES,
+                followerId, followerId
+        );
+    }
+
+    /**
+     * Apply an unfollow to the stored suggestions of the follower, in the caller's transaction
+     * Users the former followee follows lose a mutual follow, and are dropped once nothing links them
+     * The former followee itself only comes back as a suggestion at the next recomputation
+     */
+    public void onUnfollow(UUID followerId, UUID followingId) {
+        int updated = jdbcTemplate.update(
+                UNFOLLOW_SQL,
+                MUTUAL_WEIGHT, followingId, MAX_FOLLOW_CANDIDATES, followerId
+        );
+        if (updated > 0) {
+            jdbcTemplate.update(DROP_EMPTY_SQL, followerId);
+        }
+    }
+
+    /**
+     * Users per run so the whole table is refreshed once per REFRESH_AFTER, with a quarter of headroom
+     * for runs that are late or failed
+     */
+    private int usersPerRun() {
+        long users = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM users", Long.class);
+        long runs = REFRESH_AFTER.toMillis() / RUN_INTERVAL_MILLIS;
+        long perRun = (users * 5 / 4 + runs - 1) / runs;
+        return (int) Math.min(Math.max(perRun, MIN_USERS_PER_RUN), Integer.MAX_VALUE);
+    }
+
+    private void compute(UUID userId) {
+        // The user and the accounts they follow are excluded in SQL
+        CandidateTable candidates = new CandidateTable(MAX_CANDIDATES);
+        jdbcTemplate.query(
+                FRIENDS_OF_FRIENDS_SQL,
+                (RowCallbackHandler) rs -> candidates.addMutual(rs.getObject("following_id", UUID.class)),
+                userId, MAX_FOLLOWING_SCANNED, userId, userId, MAX_EDGES_SCANNED
+        );
+        jdbcTemplate.query(
+                CO_LOCATED_SQL,
+                (RowCallbackHandler) rs -> candidates.addPlaces(rs.getObject("user_id", UUID.class), rs.getInt("places")),
+                userId, MAX_PLACES, MAX_POSTS_PER_PLACE, userId, userId, MAX_PLACE_AUTHORS
+        );
+
+        OffsetDateTime now = OffsetDateTime.now();
+        List<Object[]> rows = new ArrayList<>(SUGGESTIONS_PER_USER);
+        for (int slot : candidates.top(SUGGESTIONS_PER_USER)) {
+            rows.add(new Object[]{
+                    UUID.randomUUID(),
+                    userId,
+                    candidates.key(slot),
+                    candidates.score(slot),
+                    candidates.mutual[slot],
+                    candidates.places[slot],
+                    now
+            });
+        }
+
+        jdbcTemplate.update("DELETE FROM user_suggestions WHERE user_id = ?", userId);
+        if (!rows.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_SQL, rows);
+        }
+        jdbcTemplate.update("UPDATE users SET suggestions_computed_at = ? WHERE id = ?", now, userId);
+        suggestionCache.evict(userId);
+    }
+
+    /**
+     * Open addressing table of candidate counts keyed by the two halves of the UUID
+     * Fixed capacity: once it is full, new candidates are ignored and known ones still count
+     */
+    private static final class CandidateTable {
+
+        private final long[] most;
+        private final long[] least;
+        private final boolean[] used;
+        final int[] mutual;
+        final int[] places;
+        private final int mask;
+        private final int maxSize;
+        private int size;
+
+        CandidateTable(int maxSize) {
+            // Power of two, at most half full
+            int capacity = Integer.highestOneBit(maxSize) << 1;
+            this.most = new long[capacity];
+            this.least = new long[capacity];
+            this.used = new boolean[capacity];
+            this.mutual = new int[capacity];
+            this.places = new int[capacity];
+            this.mask = capacity - 1;
+            this.maxSize = maxSize;
+        }
+
+        void addMutual(UUID id) {
+            int slot = slot(id);
+            if (slot >= 0) {
+                mutual[slot]++;
+            }
+        }
+
+        void addPlaces(UUID id, int count) {
+            int slot = slot(id);
+            if (slot >= 0) {
+                places[slot] += count;
+            }
+        }
+
+        UUID key(int slot) {
+            return new UUID(most[slot], least[slot]);
+        }
+
+        double score(int slot) {
+            return MUTUAL_WEIGHT * mutual[slot] + PLACE_WEIGHT * places[slot];
+        }
+
+        /**
+         * Slots of the k best candidates, best first
+         */
+        List<Integer> top(int k) {
+            PriorityQueue<Integer> best = new PriorityQueue<>(Comparator.comparingDouble(this::score));
+            for (int slot = 0; slot <= mask; slot++) {
+                if (!used[slot]) {
+                    continue;
+                }
+                if (best.size() < k) {
+                    best.add(slot);
+                } else if (score(slot) > score(best.peek())) {
+                    best.poll();
+                    best.add(slot);
+                }
+            }
+            List<Integer> slots = new ArrayList<>(best);
+            slots.sort(Comparator.comparingDouble(this::score).reversed());
+            return slots;
+        }
+
+        /**
+         * Slot of an id, inserting it when there is room, -1 when the table is full
+         */
+        private int slot(UUID id) {
+            long hi = id.getMostSignificantBits();
+            long lo = id.getLeastSignificantBits();
+            int slot = Long.hashCode(hi * 31 + lo) & mask;
+            while (used[slot]) {
+                if (most[slot] == hi && least[slot] == lo) {
+                    return slot;
+                }
+                slot = (slot + 1) & mask;
+            }
+            if (size >= maxSize) {
+                return -1;
+            }
+            used[slot] = true;
+            most[slot] = hi;
+            least[slot] = lo;
+            size++;
+            return slot;
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package tn.esprit.exam.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import tn.esprit.exam.dto.UserSuggestionResponse;
+import tn.esprit.exam.repository.UserSuggestionRepository;
+
+import java.util.List;
+import java.util.UUID;
+
+@Service
+@RequiredArgsConstructor
+public class UserSuggestionServiceImpl implements IUserSuggestionService {
+
+    private static final int MAX_SUGGESTIONS = 20;
+
+    private final UserSuggestionRepository suggestionRepository;
+    private final UserSuggestionCache suggestionCache;
+    private final UserSuggestionJob suggestionJob;
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<UserSuggestionResponse> getSuggestions(UUID userId, int limit) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("Limit must be positive");
+        }
+        List<UserSuggestionResponse> suggestions = suggestionCache.get(
+                userId,
+                () -> suggestionRepository.findTopByUserId(userId, Limit.of(MAX_SUGGESTIONS))
+        );
+        return suggestions.subList(0, Math.min(limit, suggestions.size()));
+    }
+
+    @Override
+    @Transactional
+    public void onFollow(UUID followerId, UUID followingId) {
+        suggestionRepository.deleteByUserIdAndSuggestedUserId(followerId, followingId);
+        // The follower keeps their place in the refresh queue, only the new edge is applied
+        suggestionJob.onFollow(followerId, followingId);
+        suggestionCache.evict(followerId);
+    }
+
+    @Override
+    @Transactional
+    public void onUnfollow(UUID followerId, UUID followingId) {
+        suggestionJob.onUnfollow(followerId, followingId);
+        suggestionCache.evict(followerId);
+    }
+}
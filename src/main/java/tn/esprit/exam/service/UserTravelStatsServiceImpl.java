@@ -0,0 +1,237 @@
+package tn.esprit.exam.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import tn.esprit.exam.dto.UserStatsConsistencyReport;
+import tn.esprit.exam.dto.UserStatsResponse;
+import tn.esprit.exam.entity.UserTravelStats;
+import tn.esprit.exam.repository.MediaRepository;
+import tn.esprit.exam.repository.PostRepository;
+import tn.esprit.exam.repository.TripRepository;
+import tn.esprit.exam.repository.TripStatsRepository;
+import tn.esprit.exam.repository.UserTravelStatsRepository;
+
+import java.util.*;
+
+/**
+ * Service implementation for the per-user travel stats rollup
+ * The endpoint reads one row; write paths apply deltas under a row lock
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class UserTravelStatsServiceImpl implements IUserTravelStatsService {
+
+    // Distances closer than this (in km) are considered equal by the checker
+    private static final double DISTANCE_TOLERANCE_KM = 0.001;
+
+    private final UserTravelStatsRepository userTravelStatsRepository;
+    private final TripRepository tripRepository;
+    private final TripStatsRepository tripStatsRepository;
+    private final PostRepository postRepository;
+    private final MediaRepository mediaRepository;
+
+    @Override
+    @Transactional
+    public UserStatsResponse getUserTravelStats(UUID userId) {
+        return userTravelStatsRepository.findById(userId)
+                .map(this::mapToResponse)
+                .orElseGet(() -> rebuildUserTravelStats(userId));
+    }
+
+    @Override
+    @Transactional
+    public void recordTrip(UUID userId) {
+        lockExisting(userId).ifPresent(stats -> {
+            stats.setTripsCount(stats.getTripsCount() + 1);
+            userTravelStatsRepository.save(stats);
+        });
+    }
+
+    @Override
+    @Transactional
+    public void recordDistance(UUID userId, double distanceKm) {
+        if (distanceKm == 0) {
+            return;
+        }
+        lockExisting(userId).ifPresent(stats -> {
+            stats.setDistanceKm(Math.max(0, stats.getDistanceKm() + distanceKm));
+            userTravelStatsRepository.save(stats);
+        });
+    }
+
+    @Override
+    @Transactional
+    public void recordPost(UUID userId, String country, String city, int photosCount) {
+        lockExisting(userId).ifPresent(stats -> {
+            stats.setPostsCount(stats.getPostsCount() + 1);
+            stats.setPhotosCount(stats.getPhotosCount() + photosCount);
+            if (country != null && !country.isBlank() && stats.getCountries().add(country)) {
+                stats.setCountriesCount(stats.getCountries().size());
+            }
+            if (city != null && !city.isBlank() && stats.getCities().add(city)) {
+                stats.setCitiesCount(stats.getCities().size());
+            }
+            userTravelStatsRepository.save(stats);
+        });
+    }
+
+    @Override
+    @Transactional
+    public void recordMedia(UUID userId, int mediaCount) {
+        lockExisting(userId).ifPresent(stats -> {
+            stats.setPhotosCount(stats.getPhotosCount() + mediaCount);
+            userTravelStatsRepository.save(stats);
+        });
+    }
+
+    @Override
+    @Transactional
+    public UserStatsResponse rebuildUserTravelStats(UUID userId) {
+        log.info("Rebuilding travel stats rollup for user {}", userId);
+
+        Snapshot snapshot = recompute(userId);
+
+        UserTravelStats stats = lockOrCreate(userId);
+        stats.setTripsCount(snapshot.tripsCount());
+        stats.setDistanceKm(snapshot.distanceKm());
+        stats.setPostsCount(snapshot.postsCount());
+        stats.setPhotosCount(snapshot.photosCount());
+        stats.getCountries().clear();
+        stats.getCountries().addAll(snapshot.countries());
+        stats.setCountriesCount(snapshot.countries().size());
+        stats.getCities().clear();
+        stats.getCities().addAll(snapshot.cities());
+        stats.setCitiesCount(snapshot.cities().size());
+
+        return mapToResponse(userTravelStatsRepository.save(stats));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public UserStatsConsistencyReport checkConsistency(UUID userId) {
+        UserStatsResponse stored = userTravelStatsRepository.findById(userId)
+                .map(this::mapToResponse)
+                .orElse(null);
+        UserStatsResponse recomputed = snapshotToResponse(recompute(userId));
+
+        List<String> differences = new ArrayList<>();
+        if (stored == null) {
+            differences.add("rollup row missing");
+        } else {
+            compare(differences, "tripsCount", stored.tripsCount(), recomputed.tripsCount());
+            if (Math.abs(stored.totalDistanceKm() - recomputed.totalDistanceKm()) > DISTANCE_TOLERANCE_KM) {
+                differences.add(String.format("totalDistanceKm: stored=%.3f, recomputed=%.3f",
+                        stored.totalDistanceKm(), recomputed.totalDistanceKm()));
+            }
+            compare(differences, "countriesVisited", stored.countriesVisited(), recomputed.countriesVisited());
+            compare(differences, "citiesVisited", stored.citiesVisited(), recomputed.citiesVisited());
+            compare(differences, "postsCount", stored.postsCount(), recomputed.postsCount());
+            compare(differences, "photosCount", stored.photosCount(), recomputed.photosCount());
+        }
+
+        if (!differences.isEmpty()) {
+            log.warn("Travel stats rollup of user {} drifted: {}", userId, differences);
+        }
+
+        return new UserStatsConsistencyReport(
+                userId,
+                differences.isEmpty(),
+                stored,
+                recomputed,
+                differences
+        );
+    }
+
+    /**
+     * Full recompute from aggregate queries: trip count, the trips' materialized distances and posts
+     * No track point is read, trips not yet materialized by TripStatsRebuildJob add no distance
+     */
+    private Snapshot recompute(UUID userId) {
+        double distanceKm = tripStatsRepository.sumDistanceKmByUserId(userId);
+
+        Set<String> countries = new HashSet<>();
+        for (String country : postRepository.findDistinctCountriesByTripUserId(userId)) {
+            if (!country.isBlank()) {
+                countries.add(country);
+            }
+        }
+        Set<String> cities = new HashSet<>();
+        for (String city : postRepository.findDistinctCitiesByTripUserId(userId)) {
+            if (!city.isBlank()) {
+                cities.add(city);
+            }
+        }
+
+        return new Snapshot(
+                (int) tripRepository.countByUserId(userId),
+                distanceKm,
+                (int) postRepository.countByTripUserId(userId),
+                (int) mediaRepository.countByPostTripUserId(userId),
+                countries,
+                cities
+        );
+    }
+
+    /**
+     * Lock the rollup row for a delta update
+     * A user without a row is materialized with a full recompute instead,
+     * which already includes the write that triggered the call
+     */
+    private Optional<UserTravelStats> lockExisting(UUID userId) {
+        Optional<UserTravelStats> locked = userTravelStatsRepository.findByIdForUpdate(userId);
+        if (locked.isEmpty()) {
+            rebuildUserTravelStats(userId);
+        }
+        return locked;
+    }
+
+    /**
+     * Load the rollup row under a write lock, creating it if missing
+     * The insert goes first so two first writers cannot both try to create the row
+     */
+    private UserTravelStats lockOrCreate(UUID userId) {
+        userTravelStatsRepository.insertIfAbsent(userId);
+        return userTravelStatsRepository.findByIdForUpdate(userId)
+                .orElseThrow(() -> new RuntimeException("User travel stats not found"));
+    }
+
+    private void compare(List<String> differences, String field, int stored, int recomputed) {
+        if (stored != recomputed) {
+            differences.add(field + ": stored=" + stored + ", recomputed=" + recomputed);
+        }
+    }
+
+    private UserStatsResponse mapToResponse(UserTravelStats stats) {
+        return new UserStatsResponse(
+                stats.getTripsCount(),
+                stats.getDistanceKm(),
+                stats.getCountriesCount(),
+                stats.getCitiesCount(),
+                stats.getPostsCount(),
+                stats.getPhotosCount()
+        );
+    }
+
+    private UserStatsResponse snapshotToResponse(Snapshot snapshot) {
+        return new UserStatsResponse(
+                snapshot.tripsCount(),
+                snapshot.distanceKm(),
+                snapshot.countries().size(),
+                snapshot.cities().size(),
+                snapshot.postsCount(),
+                snapshot.photosCount()
+        );
+    }
+
+    private record Snapshot(
+            int tripsCount,
+            double distanceKm,
+            int postsCount,
+            int photosCount,
+            Set<String> countries,
+            Set<String> cities
+    ) {}
+}
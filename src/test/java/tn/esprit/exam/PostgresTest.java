@@ -0,0 +1,18 @@
+package tn.esprit.exam;
+
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+/**
+ * Base class of the tests that need a real PostgreSQL (native queries, ON CONFLICT, FOR UPDATE)
+ * One container for the whole run, the tests are skipped where Docker is not available
+ */
+@Testcontainers(disabledWithoutDocker = true)
+public abstract class PostgresTest {
+
+    @Container
+    @ServiceConnection
+    static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:16-alpine");
+}
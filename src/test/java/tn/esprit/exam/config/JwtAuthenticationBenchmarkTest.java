@@ -0,0 +1,89 @@
+package tn.esprit.exam.config;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Cost of authenticating a bearer token: key and parser rebuilt on every call, as the filter used to do,
+ * against the parser JwtService builds once
+ * Run with: mvn test -Pbenchmark
+ */
+@Tag("benchmark")
+@Slf4j
+class JwtAuthenticationBenchmarkTest {
+
+    private static final String SECRET = "benchmark-secret-benchmark-secret-benchmark-secret";
+    private static final int WARMUP = 20_000;
+    private static final int ITERATIONS = 200_000;
+
+    @Test
+    void prebuiltParserAgainstPerCallRebuild() {
+        JwtService jwtService = new JwtService();
+        ReflectionTestUtils.setField(jwtService, "secret", SECRET);
+        ReflectionTestUtils.setField(jwtService, "jwtExpiration", 900_000L);
+        jwtService.init();
+
+        UUID userId = UUID.randomUUID();
+        String token = jwtService.generateToken("traveler@test.tn", Map.of("uid", userId.toString(), "role", "USER"));
+
+        Function<String, AuthenticatedUser> rebuilt = JwtAuthenticationBenchmarkTest::authenticateRebuildingParser;
+        Function<String, AuthenticatedUser> prebuilt = jwtService::authenticate;
+        assertThat(rebuilt.apply(token)).isEqualTo(prebuilt.apply(token));
+
+        long rebuiltNanos = time(rebuilt, token);
+        long prebuiltNanos = time(prebuilt, token);
+
+        log.info("{} authentications: rebuilt key and parser {} ns/token, prebuilt parser {} ns/token ({}x)",
+                ITERATIONS, rebuiltNanos / ITERATIONS, prebuiltNanos / ITERATIONS,
+                String.format("%.2f", (double) rebuiltNanos / prebuiltNanos));
+    }
+
+    /**
+     * Warmup, then the total time of ITERATIONS calls
+     */
+    private static long time(Function<String, AuthenticatedUser> authenticate, String token) {
+        AuthenticatedUser last = null;
+        for (int i = 0; i < WARMUP; i++) {
+            last = authenticate.apply(token);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            last = authenticate.apply(token);
+        }
+        long nanos = System.nanoTime() - start;
+        // Keeps the calls from being optimized away
+        assertThat(last).isNotNull();
+        return nanos;
+    }
+
+    /**
+     * Previous implementation: a new key and parser for every token
+     */
+    private static AuthenticatedUser authenticateRebuildingParser(String token) {
+        SecretKey key = Keys.hmacShaKeyFor(SECRET.getBytes(StandardCharsets.UTF_8));
+        Claims claims = Jwts.parser()
+                .verifyWith(key)
+                .build()
+                .parseSignedClaims(token)
+                .getPayload();
+        String uid = claims.get("uid", String.class);
+        return new AuthenticatedUser(
+                uid != null ? UUID.fromString(uid) : null,
+                claims.getSubject(),
+                claims.get("role", String.class)
+        );
+    }
+}
@@ -0,0 +1,64 @@
+package tn.esprit.exam.control;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import tn.esprit.exam.dto.PageCursor;
+import tn.esprit.exam.service.ITripService;
+import tn.esprit.exam.service.ITripStatsService;
+import tn.esprit.exam.service.TripStatsRebuildJob;
+import tn.esprit.exam.service.TripTrackExporter;
+
+import java.util.UUID;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class BadRequestHandlerTest {
+
+    private ITripService tripService;
+    private TripTrackExporter tripTrackExporter;
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        tripService = mock(ITripService.class);
+        tripTrackExporter = mock(TripTrackExporter.class);
+        TripController controller = new TripController(
+                tripService, mock(ITripStatsService.class), mock(TripStatsRebuildJob.class), tripTrackExporter);
+        mockMvc = MockMvcBuilders.standaloneSetup(controller)
+                .setControllerAdvice(new BadRequestHandler())
+                .build();
+    }
+
+    @Test
+    void unknownExportFormatIsABadRequest() throws Exception {
+        mockMvc.perform(get("/trips/{tripId}/export", UUID.randomUUID()).param("format", "kml"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("Unsupported export format: kml"));
+        verifyNoInteractions(tripTrackExporter);
+    }
+
+    @Test
+    void malformedCursorIsABadRequest() throws Exception {
+        UUID userId = UUID.randomUUID();
+        when(tripService.getTripsByUser(eq(userId), any(), anyInt()))
+                .thenAnswer(invocation -> {
+                    // Same first step as every keyset listing
+                    PageCursor.decode(invocation.getArgument(1));
+                    return null;
+                });
+
+        mockMvc.perform(get("/trips/user/{userId}", userId).param("cursor", "not-a-cursor"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("Invalid cursor"));
+    }
+}
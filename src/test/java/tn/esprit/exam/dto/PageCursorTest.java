@@ -0,0 +1,51 @@
+package tn.esprit.exam.dto;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.Base64;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PageCursorTest {
+
+    @Test
+    void roundTripKeepsMicroseconds() {
+        PageCursor cursor = new PageCursor(
+                OffsetDateTime.of(2025, 3, 14, 9, 26, 53, 589_793_000, ZoneOffset.ofHours(1)),
+                UUID.randomUUID()
+        );
+
+        PageCursor decoded = PageCursor.decode(cursor.encode());
+
+        assertThat(decoded.id()).isEqualTo(cursor.id());
+        assertThat(decoded.ts()).isEqualTo(cursor.ts().withOffsetSameInstant(ZoneOffset.UTC));
+    }
+
+    @Test
+    void encodingIsUrlSafe() {
+        String encoded = new PageCursor(OffsetDateTime.now(), UUID.randomUUID()).encode();
+        assertThat(encoded).matches("[A-Za-z0-9_-]+");
+    }
+
+    @Test
+    void missingCursorIsTheFirstPage() {
+        assertThat(PageCursor.decode(null)).isNull();
+        assertThat(PageCursor.decode(" ")).isNull();
+    }
+
+    @Test
+    void malformedCursorsAreRejected() {
+        String noSeparator = Base64.getUrlEncoder().encodeToString("12345".getBytes());
+        String badId = Base64.getUrlEncoder().encodeToString("12345:not-a-uuid".getBytes());
+
+        for (String cursor : new String[]{"%%%", noSeparator, badId}) {
+            assertThatThrownBy(() -> PageCursor.decode(cursor))
+                    .isInstanceOf(IllegalArgumentException.class)
+                    .hasMessage("Invalid cursor");
+        }
+    }
+}
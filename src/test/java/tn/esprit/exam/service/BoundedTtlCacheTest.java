@@ -0,0 +1,152 @@
+package tn.esprit.exam.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class BoundedTtlCacheTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void servesHitsUntilTheEntryExpires() throws InterruptedException {
+        BoundedTtlCache<String, Integer> cache = cache(100, 50);
+        AtomicInteger loads = new AtomicInteger();
+
+        assertThat(cache.get("a", loads::incrementAndGet)).isEqualTo(1);
+        assertThat(cache.get("a", loads::incrementAndGet)).isEqualTo(1);
+        Thread.sleep(80);
+        assertThat(cache.get("a", loads::incrementAndGet)).isEqualTo(2);
+
+        assertThat(meterRegistry.get("test.cache").tag("result", "hit").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("test.cache").tag("result", "miss").counter().count()).isEqualTo(2);
+    }
+
+    @Test
+    void evictingAKeyLeavesTheOthers() {
+        BoundedTtlCache<String, Integer> cache = cache(100, 60_000);
+        cache.get("a", () -> 1);
+        cache.get("b", () -> 2);
+
+        cache.evict("a");
+
+        assertThat(cache.get("a", () -> 10)).isEqualTo(10);
+        assertThat(cache.get("b", () -> 20)).isEqualTo(2);
+    }
+
+    @Test
+    void conditionalEvictionKeepsUnaffectedEntries() {
+        BoundedTtlCache<String, Integer> cache = cache(100, 60_000);
+        cache.get("a", () -> 1);
+        cache.get("b", () -> 2);
+
+        cache.evictIf("a", value -> value == 5);
+        cache.evictIf("b", value -> value == 2);
+
+        assertThat(cache.get("a", () -> 10)).isEqualTo(1);
+        assertThat(cache.get("b", () -> 20)).isEqualTo(20);
+    }
+
+    @Test
+    void concurrentMissesShareOneLoad() throws Exception {
+        BoundedTtlCache<String, Integer> cache = cache(100, 60_000);
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Integer>> results = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                results.add(executor.submit(() -> cache.get("hot", () -> {
+                    loads.incrementAndGet();
+                    await(release);
+                    return 42;
+                })));
+            }
+            Thread.sleep(100);
+            release.countDown();
+            for (Future<Integer> result : results) {
+                assertThat(result.get(5, TimeUnit.SECONDS)).isEqualTo(42);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertThat(loads).hasValue(1);
+    }
+
+    @Test
+    void loadRacingWithAnEvictionIsNotCached() throws Exception {
+        BoundedTtlCache<String, Integer> cache = cache(100, 60_000);
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<Integer> stale = executor.submit(() -> cache.get("a", () -> {
+                loading.countDown();
+                await(release);
+                return 1;
+            }));
+            loading.await();
+            cache.invalidate("a");
+            release.countDown();
+            assertThat(stale.get(5, TimeUnit.SECONDS)).isEqualTo(1);
+        } finally {
+            executor.shutdownNow();
+        }
+        assertThat(cache.get("a", () -> 2)).isEqualTo(2);
+    }
+
+    @Test
+    void failedLoadIsNotCached() {
+        BoundedTtlCache<String, Integer> cache = cache(100, 60_000);
+
+        assertThatThrownBy(() -> cache.get("a", () -> {
+            throw new IllegalStateException("down");
+        })).hasMessage("down");
+
+        assertThat(cache.get("a", () -> 1)).isEqualTo(1);
+    }
+
+    @Test
+    void staysWithinCapacityDroppingTheLeastRecentlyRead() throws InterruptedException {
+        BoundedTtlCache<Integer, Integer> cache = cache(100, 60_000);
+        cache.get(0, () -> 0);
+        for (int i = 1; i < 100; i++) {
+            int value = i;
+            cache.get(i, () -> value);
+        }
+        // Key 0 is read again so key 1 is now the least recently read
+        Thread.sleep(5);
+        cache.get(0, () -> -1);
+        Thread.sleep(5);
+
+        cache.get(100, () -> 100);
+
+        assertThat(cache.size()).isLessThanOrEqualTo(100);
+        assertThat(cache.get(0, () -> -1)).isZero();
+        assertThat(cache.get(1, () -> -1)).isEqualTo(-1);
+    }
+
+    private <K> BoundedTtlCache<K, Integer> cache(int maxEntries, long ttlMillis) {
+        return new BoundedTtlCache<>(meterRegistry, "test.cache", "Test values", maxEntries, ttlMillis);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
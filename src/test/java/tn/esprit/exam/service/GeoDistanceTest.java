@@ -0,0 +1,31 @@
+package tn.esprit.exam.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class GeoDistanceTest {
+
+    @Test
+    void samePointIsZero() {
+        assertThat(GeoDistance.meters(36.8065, 10.1815, 36.8065, 10.1815)).isZero();
+    }
+
+    @Test
+    void tunisToParis() {
+        // About 1475 km on the great circle
+        assertThat(GeoDistance.km(36.8065, 10.1815, 48.8566, 2.3522)).isCloseTo(1475, within(10.0));
+    }
+
+    @Test
+    void oneDegreeOfLatitude() {
+        assertThat(GeoDistance.meters(0, 0, 1, 0)).isCloseTo(111_195, within(1.0));
+    }
+
+    @Test
+    void kilometersAndMetersAgree() {
+        double meters = GeoDistance.meters(35.8256, 10.6369, 33.8869, 9.5375);
+        assertThat(GeoDistance.km(35.8256, 10.6369, 33.8869, 9.5375)).isCloseTo(meters / 1000, within(1e-9));
+    }
+}
@@ -0,0 +1,63 @@
+package tn.esprit.exam.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class GeohashTest {
+
+    @Test
+    void knownHashes() {
+        assertThat(Geohash.encode(57.64911, 10.40744, 11)).isEqualTo("u4pruydqqvj");
+        assertThat(Geohash.encode(0, 0, 5)).isEqualTo("s0000");
+        assertThat(Geohash.encode(-90, -180, 3)).isEqualTo("000");
+    }
+
+    @Test
+    void shorterPrecisionIsAPrefix() {
+        String full = Geohash.encode(36.8065, 10.1815, Geohash.STORED_PRECISION);
+        for (int precision = 1; precision < Geohash.STORED_PRECISION; precision++) {
+            assertThat(full).startsWith(Geohash.encode(36.8065, 10.1815, precision));
+        }
+    }
+
+    @Test
+    void precisionShrinksAsRadiusGrows() {
+        int previous = Geohash.STORED_PRECISION;
+        for (double radius = 1; radius < 5_000_000; radius *= 3) {
+            int precision = Geohash.precisionForRadius(36.8, radius);
+            assertThat(precision).isLessThanOrEqualTo(previous);
+            previous = precision;
+        }
+        assertThat(Geohash.precisionForRadius(36.8, 20_000_000)).isZero();
+    }
+
+    @Test
+    void coveringCellsContainEveryPointOfTheCircle() {
+        double lat = 36.8065;
+        double lon = 10.1815;
+        for (double radius : new double[]{5, 120, 2_500, 40_000}) {
+            Set<String> cells = Geohash.coveringCells(lat, lon, radius);
+            int precision = Geohash.precisionForRadius(lat, radius);
+            assertThat(cells).hasSizeBetween(1, 9);
+
+            // Points on the circle, just inside the radius, in every direction
+            for (int bearing = 0; bearing < 360; bearing += 15) {
+                double distance = radius * 0.999;
+                double pointLat = lat + Math.toDegrees(distance * Math.cos(Math.toRadians(bearing)) / GeoDistance.EARTH_RADIUS_M);
+                double pointLon = lon + Math.toDegrees(distance * Math.sin(Math.toRadians(bearing))
+                        / (GeoDistance.EARTH_RADIUS_M * Math.cos(Math.toRadians(lat))));
+                assertThat(cells).contains(Geohash.encode(pointLat, pointLon, precision));
+            }
+        }
+    }
+
+    @Test
+    void coveringCellsWrapAroundTheAntimeridian() {
+        Set<String> cells = Geohash.coveringCells(0, 179.9999, 50);
+        int precision = Geohash.precisionForRadius(0, 50);
+        assertThat(cells).contains(Geohash.encode(0, -179.9999, precision));
+    }
+}
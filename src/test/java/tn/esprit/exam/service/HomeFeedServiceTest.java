@@ -0,0 +1,209 @@
+package tn.esprit.exam.service;
+
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import tn.esprit.exam.PostgresTest;
+import tn.esprit.exam.dto.CursorPage;
+import tn.esprit.exam.dto.PageCursor;
+import tn.esprit.exam.entity.*;
+
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(HomeFeedServiceImpl.class)
+class HomeFeedServiceTest extends PostgresTest {
+
+    private static final OffsetDateTime START = OffsetDateTime.parse("2024-05-01T08:00:00Z");
+
+    @Autowired
+    HomeFeedServiceImpl homeFeedService;
+
+    @Autowired
+    EntityManager entityManager;
+
+    User viewer;
+    User author;
+    User celebrity;
+    User stranger;
+
+    @BeforeEach
+    void createAccounts() {
+        viewer = createUser(0);
+        author = createUser(1);
+        celebrity = createUser(HomeFeedServiceImpl.CELEBRITY_FOLLOWERS + 1);
+        stranger = createUser(1);
+        follow(viewer, author);
+        follow(viewer, celebrity);
+    }
+
+    @Test
+    void firstPageRebuildsTheFeedOnceAndMergesCelebrityPosts() {
+        List<UUID> authorPosts = createPosts(author, 3, 0);
+        List<UUID> celebrityPosts = createPosts(celebrity, 3, 1);
+        createPosts(stranger, 3, 2);
+        flushAndClear();
+
+        List<UUID> feed = readFeed(viewer.getId(), 4);
+
+        // Only the regular author is materialized, the celebrity is read at request time
+        assertThat(feedEntries(viewer.getId())).containsExactlyInAnyOrderElementsOf(authorPosts);
+        assertThat(feed).containsExactlyInAnyOrderElementsOf(concat(authorPosts, celebrityPosts));
+        assertThat(feed).containsExactlyElementsOf(newestFirst(feed));
+        assertThat(entityManager.find(User.class, viewer.getId()).getHomeFeedBuiltAt()).isNotNull();
+    }
+
+    @Test
+    void builtMarkerKeepsAnEmptiedFeedFromBeingRebuilt() {
+        List<UUID> authorPosts = createPosts(author, 2, 0);
+        List<UUID> celebrityPosts = createPosts(celebrity, 2, 1);
+        flushAndClear();
+
+        readFeed(viewer.getId(), 10);
+        homeFeedService.onUnfollow(viewer.getId(), author.getId());
+        flushAndClear();
+
+        assertThat(feedEntries(viewer.getId())).isEmpty();
+        assertThat(readFeed(viewer.getId(), 10)).containsExactlyInAnyOrderElementsOf(celebrityPosts);
+        assertThat(feedEntries(viewer.getId())).doesNotContainAnyElementsOf(authorPosts);
+    }
+
+    @Test
+    void publishPushesRegularPostsAndLeavesCelebrityPostsToTheRead() {
+        flushAndClear();
+        readFeed(viewer.getId(), 10);
+
+        Post regular = createPost(author, START.plusMinutes(1));
+        Post famous = createPost(celebrity, START.plusMinutes(2));
+        entityManager.flush();
+        homeFeedService.publish(regular);
+        homeFeedService.publish(famous);
+        flushAndClear();
+
+        assertThat(feedEntries(viewer.getId())).containsExactly(regular.getId());
+        assertThat(readFeed(viewer.getId(), 10)).containsExactly(famous.getId(), regular.getId());
+    }
+
+    @Test
+    void tiesAreOrderedLikePostgresAcrossBothSources() {
+        // Same timestamp, ids on both sides of the sign bit: a signed comparison would swap them
+        UUID high = UUID.fromString("80000000-0000-4000-8000-000000000000");
+        UUID low = UUID.fromString("7fffffff-ffff-4fff-bfff-ffffffffffff");
+        Post pushed = createPost(author, START);
+        Post pulled = createPost(celebrity, START);
+        flushAndClear();
+        setId(pushed.getId(), low);
+        setId(pulled.getId(), high);
+
+        List<UUID> feed = readFeed(viewer.getId(), 1);
+
+        assertThat(feed).containsExactly(high, low);
+        assertThat(feed).containsExactlyElementsOf(newestFirst(feed));
+    }
+
+    /**
+     * Every post of a feed, following the cursors page by page
+     */
+    private List<UUID> readFeed(UUID userId, int pageSize) {
+        List<UUID> postIds = new ArrayList<>();
+        PageCursor after = null;
+        do {
+            CursorPage<PageCursor> page = homeFeedService.getFeedPage(userId, after, pageSize);
+            page.items().forEach(cursor -> postIds.add(cursor.id()));
+            after = PageCursor.decode(page.nextCursor());
+        } while (after != null);
+        entityManager.clear();
+        return postIds;
+    }
+
+    /**
+     * The posts in the order Postgres sorts them for a feed page
+     */
+    private List<UUID> newestFirst(List<UUID> postIds) {
+        return entityManager
+                .createNativeQuery("SELECT id FROM posts WHERE id IN (:ids) ORDER BY ts DESC, id DESC", UUID.class)
+                .setParameter("ids", postIds)
+                .getResultList();
+    }
+
+    private List<UUID> feedEntries(UUID userId) {
+        return entityManager
+                .createQuery("SELECT e.postId FROM HomeFeedEntry e WHERE e.userId = :userId", UUID.class)
+                .setParameter("userId", userId)
+                .getResultList();
+    }
+
+    private void setId(UUID postId, UUID newId) {
+        entityManager.createNativeQuery("UPDATE posts SET id = :newId WHERE id = :id")
+                .setParameter("newId", newId)
+                .setParameter("id", postId)
+                .executeUpdate();
+    }
+
+    private User createUser(int followers) {
+        String name = UUID.randomUUID().toString().substring(0, 8);
+        User user = new User();
+        user.setEmail(name + "@test.tn");
+        user.setUsername(name);
+        user.setPasswordHash("x");
+        user.setFollowersCount(followers);
+        entityManager.persist(user);
+        return user;
+    }
+
+    private void follow(User follower, User following) {
+        Follow follow = new Follow();
+        follow.setFollower(follower);
+        follow.setFollowing(following);
+        entityManager.persist(follow);
+    }
+
+    /**
+     * Public posts three minutes apart, offset so that authors interleave in the feed
+     */
+    private List<UUID> createPosts(User user, int count, int offsetMinutes) {
+        List<UUID> postIds = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            postIds.add(createPost(user, START.plusMinutes(offsetMinutes + i * 3L)).getId());
+        }
+        return postIds;
+    }
+
+    private Post createPost(User user, OffsetDateTime ts) {
+        Trip trip = new Trip();
+        trip.setUser(user);
+        trip.setTitle("Trip " + user.getUsername());
+        trip.setStartedAt(ts);
+        entityManager.persist(trip);
+
+        Post post = new Post();
+        post.setTrip(trip);
+        post.setUser(user);
+        post.setText("Post " + ts);
+        post.setVisibility(Visibility.PUBLIC);
+        post.setTs(ts);
+        entityManager.persist(post);
+        return post;
+    }
+
+    private void flushAndClear() {
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    private static List<UUID> concat(List<UUID> first, List<UUID> second) {
+        List<UUID> all = new ArrayList<>(first);
+        all.addAll(second);
+        return all;
+    }
+}
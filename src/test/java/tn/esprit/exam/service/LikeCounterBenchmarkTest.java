@@ -0,0 +1,144 @@
+package tn.esprit.exam.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import tn.esprit.exam.PostgresTest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Burst of likes on one hot post: LikeCounter with its flushes against one row update per like,
+ * with readers checking that a count never goes back (missed flush) nor overshoots (flush counted twice)
+ * Run with: mvn test -Pbenchmark
+ */
+@Tag("benchmark")
+@Slf4j
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(LikeCounter.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class LikeCounterBenchmarkTest extends PostgresTest {
+
+    private static final int WRITERS = 32;
+    private static final int LIKES_PER_WRITER = 2000;
+    private static final int READERS = 4;
+
+    @Autowired
+    LikeCounter likeCounter;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Test
+    void hotPostBurst() throws Exception {
+        long total = (long) WRITERS * LIKES_PER_WRITER;
+
+        UUID counted = post();
+        long counterNanos = burstThroughCounter(counted, total);
+        assertThat(persisted(counted)).isEqualTo(total);
+
+        UUID updated = post();
+        long updateNanos = burst(() -> jdbcTemplate.update(
+                "UPDATE posts SET likes_count = likes_count + 1 WHERE id = ?", updated));
+        assertThat(persisted(updated)).isEqualTo(total);
+
+        log.info("{} likes on one post from {} threads: counter {} likes/s, row update per like {} likes/s",
+                total, WRITERS, total * 1_000_000_000L / counterNanos, total * 1_000_000_000L / updateNanos);
+    }
+
+    private long burstThroughCounter(UUID postId, long total) throws Exception {
+        AtomicBoolean running = new AtomicBoolean(true);
+        ExecutorService background = Executors.newFixedThreadPool(READERS + 1);
+        background.submit(() -> {
+            while (running.get()) {
+                likeCounter.flush();
+            }
+            return null;
+        });
+        List<Future<Long>> readers = new ArrayList<>();
+        for (int i = 0; i < READERS; i++) {
+            readers.add(background.submit(() -> {
+                long last = 0;
+                long reads = 0;
+                while (running.get()) {
+                    long count = likeCounter.get(postId);
+                    assertThat(count).isBetween(last, total);
+                    last = count;
+                    reads++;
+                }
+                return reads;
+            }));
+        }
+
+        long nanos;
+        try {
+            nanos = burst(() -> likeCounter.add(postId, 1));
+        } finally {
+            running.set(false);
+            background.shutdown();
+        }
+        long reads = 0;
+        for (Future<Long> reader : readers) {
+            reads += reader.get();
+        }
+        likeCounter.flush();
+        log.info("{} consistent reads during the counter burst", reads);
+        return nanos;
+    }
+
+    private long burst(Runnable like) throws Exception {
+        ExecutorService writers = Executors.newFixedThreadPool(WRITERS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> done = new ArrayList<>();
+        for (int i = 0; i < WRITERS; i++) {
+            done.add(writers.submit(() -> {
+                start.await();
+                for (int n = 0; n < LIKES_PER_WRITER; n++) {
+                    like.run();
+                }
+                return null;
+            }));
+        }
+
+        long begin = System.nanoTime();
+        start.countDown();
+        for (Future<?> writer : done) {
+            writer.get();
+        }
+        long nanos = System.nanoTime() - begin;
+        writers.shutdown();
+        return nanos;
+    }
+
+    private UUID post() {
+        UUID userId = UUID.randomUUID();
+        UUID tripId = UUID.randomUUID();
+        UUID postId = UUID.randomUUID();
+        String name = userId.toString().substring(0, 8);
+        jdbcTemplate.update("INSERT INTO users (id, email, username, password_hash, role, default_visibility, created_at) " +
+                "VALUES (?, ?, ?, 'x', 'USER', 'PUBLIC', now())", userId, name + "@bench.tn", name);
+        jdbcTemplate.update("INSERT INTO trips (id, user_id, title, started_at) VALUES (?, ?, 'Hot trip', now())",
+                tripId, userId);
+        jdbcTemplate.update("INSERT INTO posts (id, trip_id, user_id, ts, visibility) VALUES (?, ?, ?, now(), 'PUBLIC')",
+                postId, tripId, userId);
+        return postId;
+    }
+
+    private long persisted(UUID postId) {
+        return jdbcTemplate.queryForObject("SELECT likes_count FROM posts WHERE id = ?", Long.class, postId);
+    }
+}
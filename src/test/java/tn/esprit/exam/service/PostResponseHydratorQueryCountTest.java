@@ -0,0 +1,142 @@
+package tn.esprit.exam.service;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import tn.esprit.exam.PostgresTest;
+import tn.esprit.exam.dto.PostResponse;
+import tn.esprit.exam.entity.*;
+
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(PostResponseHydrator.class)
+class PostResponseHydratorQueryCountTest extends PostgresTest {
+
+    private static final int PAGE = 100;
+
+    @Autowired
+    PostResponseHydrator hydrator;
+
+    @Autowired
+    EntityManager entityManager;
+
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    Statistics statistics;
+
+    @BeforeEach
+    void enableStatistics() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Test
+    void pageOfIdsTakesTwoStatements() {
+        List<UUID> postIds = createPosts(PAGE);
+
+        statistics.clear();
+        List<PostResponse> responses = hydrator.hydrateIds(postIds, post -> true);
+
+        // Posts with their author and track point, then media
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+        assertThat(responses).extracting(PostResponse::id).containsExactlyElementsOf(postIds);
+        assertThat(responses).allSatisfy(response -> {
+            assertThat(response.media()).hasSize(2);
+            assertThat(response.latitude()).isNotNull();
+        });
+    }
+
+    @Test
+    void lazyPostsTakeThreeStatementsWhateverThePageSize() {
+        List<UUID> smallIds = createPosts(10);
+        List<UUID> largeIds = createPosts(PAGE);
+
+        long small = statementsToHydrateLazy(smallIds);
+        long large = statementsToHydrateLazy(largeIds);
+
+        // Authors, track points and media, one IN query each
+        assertThat(large).isEqualTo(3);
+        assertThat(small).isEqualTo(large);
+    }
+
+    private long statementsToHydrateLazy(List<UUID> postIds) {
+        List<Post> posts = entityManager
+                .createQuery("SELECT p FROM Post p WHERE p.id IN :ids ORDER BY p.ts DESC", Post.class)
+                .setParameter("ids", postIds)
+                .getResultList();
+
+        statistics.clear();
+        List<PostResponse> responses = hydrator.hydrate(posts);
+        long statements = statistics.getPrepareStatementCount();
+
+        assertThat(responses).hasSize(postIds.size());
+        assertThat(responses).allSatisfy(response -> assertThat(response.username()).isNotNull());
+        entityManager.clear();
+        return statements;
+    }
+
+    /**
+     * Posts by distinct authors, each on its own track point with two photos
+     */
+    private List<UUID> createPosts(int count) {
+        OffsetDateTime start = OffsetDateTime.parse("2024-05-01T08:00:00Z");
+        List<UUID> postIds = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String name = UUID.randomUUID().toString().substring(0, 8);
+            User user = new User();
+            user.setEmail(name + "@test.tn");
+            user.setUsername(name);
+            user.setPasswordHash("x");
+            entityManager.persist(user);
+
+            Trip trip = new Trip();
+            trip.setUser(user);
+            trip.setTitle("Trip " + name);
+            trip.setStartedAt(start);
+            entityManager.persist(trip);
+
+            TrackPoint point = new TrackPoint();
+            point.setTrip(trip);
+            point.setTs(start.plusMinutes(i));
+            point.setLat(36.8 + i * 0.001);
+            point.setLon(10.18);
+            entityManager.persist(point);
+
+            Post post = new Post();
+            post.setTrip(trip);
+            post.setUser(user);
+            post.setTrackPoint(point);
+            post.setText("Post " + i);
+            post.setVisibility(Visibility.PUBLIC);
+            post.setTs(start.plusMinutes(count - i));
+            entityManager.persist(post);
+            postIds.add(post.getId());
+
+            for (int m = 0; m < 2; m++) {
+                Media media = new Media();
+                media.setPost(post);
+                media.setType(MediaKind.PHOTO);
+                media.setUrl("/uploads/" + UUID.randomUUID() + ".jpg");
+                entityManager.persist(media);
+            }
+        }
+
+        entityManager.flush();
+        entityManager.clear();
+        return postIds;
+    }
+}
@@ -0,0 +1,115 @@
+package tn.esprit.exam.service;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Wraps the DataSource to count the round trips sent per statement type (insert, select, ...)
+ * Every execute call is one round trip, and so is every executeBatch whatever its row count
+ */
+final class StatementCounter implements BeanPostProcessor {
+
+    private final Map<String, AtomicLong> roundTrips = new ConcurrentHashMap<>();
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (bean instanceof DataSource dataSource) {
+            return proxy(DataSource.class, dataSource, (target, method, args) -> {
+                Object result = invoke(target, method, args);
+                return result instanceof Connection connection ? connection(connection) : result;
+            });
+        }
+        return bean;
+    }
+
+    /**
+     * Round trips of a statement type since the last reset
+     *
+     * @param type First SQL keyword, e.g. "insert"
+     */
+    long roundTrips(String type) {
+        AtomicLong count = roundTrips.get(type);
+        return count != null ? count.get() : 0;
+    }
+
+    void reset() {
+        roundTrips.clear();
+    }
+
+    private Connection connection(Connection connection) {
+        return proxy(Connection.class, connection, (target, method, args) -> {
+            Object result = invoke(target, method, args);
+            if (result instanceof Statement statement) {
+                // Prepared statements carry their SQL, plain statements get it on execute
+                String sql = args != null && args.length > 0 && args[0] instanceof String s ? s : null;
+                return statement(statement, sql);
+            }
+            return result;
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    private <S extends Statement> S statement(S statement, String preparedSql) {
+        return (S) Proxy.newProxyInstance(getClass().getClassLoader(), statementInterfaces(statement),
+                (proxy, method, args) -> {
+                    if (method.getName().startsWith("execute")) {
+                        String sql = args != null && args.length > 0 && args[0] instanceof String s ? s : preparedSql;
+                        roundTrips.computeIfAbsent(type(sql), key -> new AtomicLong()).incrementAndGet();
+                    }
+                    return invoke(statement, method, args);
+                });
+    }
+
+    private static Class<?>[] statementInterfaces(Statement statement) {
+        if (statement instanceof CallableStatement) {
+            return new Class<?>[]{CallableStatement.class};
+        }
+        if (statement instanceof PreparedStatement) {
+            return new Class<?>[]{PreparedStatement.class};
+        }
+        return new Class<?>[]{Statement.class};
+    }
+
+    private static String type(String sql) {
+        if (sql == null) {
+            return "unknown";
+        }
+        String trimmed = sql.stripLeading();
+        int end = 0;
+        while (end < trimmed.length() && Character.isLetter(trimmed.charAt(end))) {
+            end++;
+        }
+        return trimmed.substring(0, end).toLowerCase(Locale.ROOT);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, T target, Handler<T> handler) {
+        InvocationHandler invocationHandler = (proxy, method, args) -> handler.handle(target, method, args);
+        return (T) Proxy.newProxyInstance(StatementCounter.class.getClassLoader(), new Class<?>[]{type}, invocationHandler);
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private interface Handler<T> {
+        Object handle(T target, Method method, Object[] args) throws Throwable;
+    }
+}
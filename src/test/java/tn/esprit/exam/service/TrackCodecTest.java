@@ -0,0 +1,152 @@
+package tn.esprit.exam.service;
+
+import org.junit.jupiter.api.Test;
+import tn.esprit.exam.dto.EncodedTrackResponse;
+import tn.esprit.exam.entity.TrackPoint;
+
+import java.nio.ByteBuffer;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TrackCodecTest {
+
+    private static final OffsetDateTime START = OffsetDateTime.of(2025, 6, 1, 8, 30, 15, 250_000_000, ZoneOffset.UTC);
+
+    @Test
+    void binaryRoundTrip() {
+        List<TrackPoint> points = track();
+        ByteBuffer in = ByteBuffer.wrap(TrackCodec.toBinary(points));
+
+        assertThat(in.get()).isEqualTo((byte) 1);
+        assertThat(readVarint(in)).isEqualTo(points.size());
+        long startSecond = unzigzag(readVarint(in));
+        assertThat(startSecond).isEqualTo(START.toEpochSecond());
+
+        long lat = 0, lon = 0, second = 0, speed = 0, id = 0;
+        for (TrackPoint tp : points) {
+            lat += unzigzag(readVarint(in));
+            lon += unzigzag(readVarint(in));
+            second += unzigzag(readVarint(in));
+            speed += unzigzag(readVarint(in));
+            id += unzigzag(readVarint(in));
+
+            assertThat(lat).isEqualTo(Math.round(tp.getLat() * 1e5));
+            assertThat(lon).isEqualTo(Math.round(tp.getLon() * 1e5));
+            assertThat(startSecond + second).isEqualTo(tp.getTs().toEpochSecond());
+            assertThat(speed).isEqualTo(tp.getSpeedMps() == null ? -1 : Math.round(tp.getSpeedMps() * 10));
+            assertThat(id).isEqualTo(tp.getId());
+        }
+        assertThat(in.hasRemaining()).isFalse();
+    }
+
+    @Test
+    void polylineRoundTrip() {
+        List<TrackPoint> points = track();
+        UUID tripId = UUID.randomUUID();
+        EncodedTrackResponse encoded = TrackCodec.encode(tripId, points);
+
+        assertThat(encoded.tripId()).isEqualTo(tripId);
+        assertThat(encoded.pointsCount()).isEqualTo(points.size());
+        assertThat(encoded.startTs()).isEqualTo(START);
+
+        List<Long> coordinates = decodePolyline(encoded.polyline(), 2);
+        List<Long> seconds = decodePolyline(encoded.timestamps(), 1);
+        List<Long> speeds = decodePolyline(encoded.speeds(), 1);
+        List<Long> ids = decodePolyline(encoded.trackPointIds(), 1);
+        for (int i = 0; i < points.size(); i++) {
+            TrackPoint tp = points.get(i);
+            assertThat(coordinates.get(2 * i)).isEqualTo(Math.round(tp.getLat() * 1e5));
+            assertThat(coordinates.get(2 * i + 1)).isEqualTo(Math.round(tp.getLon() * 1e5));
+            assertThat(START.toEpochSecond() + seconds.get(i)).isEqualTo(tp.getTs().toEpochSecond());
+            assertThat(speeds.get(i)).isEqualTo(tp.getSpeedMps() == null ? -1 : Math.round(tp.getSpeedMps() * 10));
+            assertThat(ids.get(i)).isEqualTo(tp.getId());
+        }
+    }
+
+    @Test
+    void streamedColumnsMatchEntities() {
+        List<TrackPoint> points = track();
+        UUID tripId = UUID.randomUUID();
+
+        // Same calls as TrackEncodingReader: a timestamp for the first row, epoch seconds afterwards
+        TrackCodec.PolylineEncoder polyline = new TrackCodec.PolylineEncoder(0);
+        TrackCodec.BinaryEncoder binary = new TrackCodec.BinaryEncoder(0);
+        for (TrackPoint tp : points) {
+            double speed = tp.getSpeedMps() != null ? tp.getSpeedMps() : Double.NaN;
+            if (polyline.isEmpty()) {
+                polyline.add(tp.getId(), tp.getLat(), tp.getLon(), tp.getTs(), speed);
+            } else {
+                polyline.add(tp.getId(), tp.getLat(), tp.getLon(), tp.getTs().toEpochSecond(), speed);
+            }
+            binary.add(tp.getId(), tp.getLat(), tp.getLon(), tp.getTs().toEpochSecond(), speed);
+        }
+
+        assertThat(polyline.finish(tripId)).isEqualTo(TrackCodec.encode(tripId, points));
+        assertThat(binary.finish()).isEqualTo(TrackCodec.toBinary(points));
+    }
+
+    @Test
+    void emptyTrack() {
+        assertThat(TrackCodec.encode(null, List.of()).pointsCount()).isZero();
+        assertThat(TrackCodec.toBinary(List.of())).containsExactly(1, 0, 0);
+    }
+
+    private static List<TrackPoint> track() {
+        List<TrackPoint> points = new ArrayList<>();
+        long id = 1000;
+        for (int i = 0; i < 200; i++) {
+            id += 1 + i % 3;
+            Double speed = i % 7 == 0 ? null : (i % 30) * 0.7;
+            // Crosses the equator so deltas and values go negative
+            points.add(new TrackPoint(id, null, START.plusSeconds(i * 17L + i % 5),
+                    -0.01 + i * 0.000123, 10.5 - i * 0.000987, 5.0, speed, null, null));
+        }
+        return points;
+    }
+
+    private static long readVarint(ByteBuffer in) {
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /**
+     * Decodes a polyline series back into absolute values
+     *
+     * @param stride Number of interleaved series, each delta encoded on its own
+     */
+    private static List<Long> decodePolyline(String encoded, int stride) {
+        List<Long> values = new ArrayList<>();
+        long[] last = new long[stride];
+        int i = 0;
+        while (i < encoded.length()) {
+            long v = 0;
+            int shift = 0;
+            int chunk;
+            do {
+                chunk = encoded.charAt(i++) - 63;
+                v |= (long) (chunk & 0x1f) << shift;
+                shift += 5;
+            } while (chunk >= 0x20);
+            int series = values.size() % stride;
+            last[series] += (v & 1) != 0 ? ~(v >> 1) : v >> 1;
+            values.add(last[series]);
+        }
+        return values;
+    }
+}
@@ -0,0 +1,104 @@
+package tn.esprit.exam.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import tn.esprit.exam.dto.TrackPointResponse;
+import tn.esprit.exam.entity.TrackPoint;
+import tn.esprit.exam.entity.Trip;
+
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * JSON payload size and serialization time of a long recorded track at each zoom level,
+ * against the raw track
+ * Run with: mvn test -Pbenchmark
+ */
+@Tag("benchmark")
+@Slf4j
+class TrackPayloadSizeBenchmarkTest {
+
+    private static final int POINTS = 50_000;
+    private static final int[] ZOOMS = {5, 10, 13, 15, 17, 19};
+    private static final int WARMUP_ROUNDS = 5;
+    private static final int MEASURED_ROUNDS = 20;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
+    @Test
+    void payloadSizePerZoom() throws Exception {
+        UUID tripId = UUID.randomUUID();
+        List<TrackPoint> track = randomWalk(tripId);
+        TrackSimplifier simplifier = new TrackSimplifier();
+
+        List<TrackPointResponse> raw = track.stream().map(TrackPointResponse::fromEntity).toList();
+        int rawBytes = objectMapper.writeValueAsBytes(raw).length;
+        double rawMillis = serializationMillis(raw);
+        log.info("Raw: {} points, {} KB, serialized in {} ms",
+                raw.size(), rawBytes / 1024, String.format("%.2f", rawMillis));
+
+        for (int zoom : ZOOMS) {
+            double tolerance = TrackSimplifier.toleranceForZoom(zoom);
+            List<TrackPointResponse> level = simplifier.isRaw(tolerance)
+                    ? raw
+                    : simplifier.simplify(tripId, tolerance, () -> track);
+            int bytes = objectMapper.writeValueAsBytes(level).length;
+            double millis = serializationMillis(level);
+            log.info("Zoom {} ({} m): {} points, {} KB, {}% of raw, serialized in {} ms ({}% of raw)",
+                    zoom, Math.round(tolerance), level.size(), bytes / 1024, 100L * bytes / rawBytes,
+                    String.format("%.2f", millis), Math.round(100 * millis / rawMillis));
+            assertThat(bytes).isLessThanOrEqualTo(rawBytes);
+        }
+    }
+
+    /**
+     * Mean time to serialize a level, after a few warmup rounds
+     */
+    private double serializationMillis(List<TrackPointResponse> level) throws Exception {
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            objectMapper.writeValueAsBytes(level);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < MEASURED_ROUNDS; i++) {
+            objectMapper.writeValueAsBytes(level);
+        }
+        return (System.nanoTime() - start) / 1e6 / MEASURED_ROUNDS;
+    }
+
+    /**
+     * A point per second with GPS noise, like a phone recording a long drive
+     */
+    private static List<TrackPoint> randomWalk(UUID tripId) {
+        Trip trip = new Trip();
+        trip.setId(tripId);
+        Random random = new Random(42);
+        OffsetDateTime start = OffsetDateTime.parse("2024-05-01T08:00:00Z");
+        double lat = 36.8;
+        double lon = 10.18;
+        double heading = 0;
+        List<TrackPoint> points = new ArrayList<>(POINTS);
+        for (int i = 0; i < POINTS; i++) {
+            heading += random.nextGaussian() * 0.05;
+            lat += Math.cos(heading) * 0.0002 + random.nextGaussian() * 0.00001;
+            lon += Math.sin(heading) * 0.0002 + random.nextGaussian() * 0.00001;
+
+            TrackPoint point = new TrackPoint();
+            point.setId((long) i + 1);
+            point.setTrip(trip);
+            point.setTs(start.plusSeconds(i));
+            point.setLat(lat);
+            point.setLon(lon);
+            point.setAccuracyM(5.0);
+            point.setSpeedMps(20.0);
+            points.add(point);
+        }
+        return points;
+    }
+}
@@ -0,0 +1,55 @@
+package tn.esprit.exam.service;
+
+import jakarta.persistence.EntityManager;
+import tn.esprit.exam.dto.TrackPointRequest;
+import tn.esprit.exam.entity.Trip;
+import tn.esprit.exam.entity.User;
+
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Users, trips and GPS batches for the track point tests
+ */
+final class TrackPointFixtures {
+
+    private TrackPointFixtures() {
+    }
+
+    static Trip trip(EntityManager entityManager) {
+        String name = UUID.randomUUID().toString().substring(0, 8);
+        User user = new User();
+        user.setEmail(name + "@test.tn");
+        user.setUsername(name);
+        user.setPasswordHash("x");
+        entityManager.persist(user);
+
+        Trip trip = new Trip();
+        trip.setUser(user);
+        trip.setTitle("Trip " + name);
+        trip.setStartedAt(OffsetDateTime.parse("2024-05-01T08:00:00Z"));
+        entityManager.persist(trip);
+        entityManager.flush();
+        return trip;
+    }
+
+    /**
+     * Points a minute and about 110 m apart, so the ingestion filter keeps all of them
+     */
+    static List<TrackPointRequest> requests(OffsetDateTime start, int count) {
+        List<TrackPointRequest> requests = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            requests.add(new TrackPointRequest(
+                    36.8 + i * 0.001,
+                    10.18,
+                    5.0,
+                    4.0,
+                    null,
+                    start.plusMinutes(i)
+            ));
+        }
+        return requests;
+    }
+}
@@ -0,0 +1,60 @@
+package tn.esprit.exam.service;
+
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import tn.esprit.exam.PostgresTest;
+import tn.esprit.exam.entity.TrackPoint;
+import tn.esprit.exam.entity.Trip;
+import tn.esprit.exam.repository.TrackPointRepository;
+
+import java.time.OffsetDateTime;
+import java.util.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(TrackPointIngestionPipeline.class)
+class TrackPointIngestionPipelineTest extends PostgresTest {
+
+    @Autowired
+    TrackPointIngestionPipeline pipeline;
+
+    @Autowired
+    TrackPointRepository trackPointRepository;
+
+    @Autowired
+    EntityManager entityManager;
+
+    @Test
+    void idsArePositiveAndDoNotOverlapHibernateBlocks() {
+        Trip trip = TrackPointFixtures.trip(entityManager);
+        OffsetDateTime start = OffsetDateTime.parse("2024-05-01T08:00:00Z");
+
+        List<TrackPoint> first = pipeline.ingest(trip, TrackPointFixtures.requests(start, 120));
+
+        // Hibernate allocates from the same sequence
+        TrackPoint viaHibernate = new TrackPoint();
+        viaHibernate.setTrip(trip);
+        viaHibernate.setTs(start.minusDays(1));
+        viaHibernate.setLat(36.0);
+        viaHibernate.setLon(10.0);
+        trackPointRepository.saveAndFlush(viaHibernate);
+
+        List<TrackPoint> second = pipeline.ingest(trip, TrackPointFixtures.requests(start.plusDays(1), 120));
+
+        Set<Long> ids = new HashSet<>();
+        for (TrackPoint point : first) {
+            ids.add(point.getId());
+        }
+        for (TrackPoint point : second) {
+            ids.add(point.getId());
+        }
+        assertThat(ids).hasSize(240).allMatch(id -> id > 0).doesNotContain(viaHibernate.getId());
+        assertThat(viaHibernate.getId()).isPositive();
+    }
+}
@@ -0,0 +1,196 @@
+package tn.esprit.exam.service;
+
+import jakarta.persistence.*;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import tn.esprit.exam.PostgresTest;
+import tn.esprit.exam.dto.TrackPointRequest;
+import tn.esprit.exam.entity.TrackPoint;
+import tn.esprit.exam.entity.Trip;
+import tn.esprit.exam.repository.TrackPointRepository;
+
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * INSERT round trips of a 1,000-point upload with IDENTITY ids (the old mapping) against the pooled sequence
+ * with JDBC batching, counted at the JDBC level, then insert throughput of the three write paths
+ * Run with: mvn test -Pbenchmark
+ */
+@Tag("benchmark")
+@Slf4j
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.jdbc.batch_size=50")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({TrackPointIngestionPipeline.class, TrackPointInsertBenchmarkTest.CountingConfig.class})
+class TrackPointInsertBenchmarkTest extends PostgresTest {
+
+    private static final int UPLOAD = 1000;
+    private static final int POINTS = 20_000;
+    private static final int BATCH = 500;
+    private static final int ROUNDS = 3;
+
+    @Autowired
+    TrackPointIngestionPipeline pipeline;
+
+    @Autowired
+    TrackPointRepository trackPointRepository;
+
+    @Autowired
+    EntityManager entityManager;
+
+    @Autowired
+    StatementCounter statementCounter;
+
+    @TestConfiguration
+    static class CountingConfig {
+
+        @Bean
+        static StatementCounter statementCounter() {
+            return new StatementCounter();
+        }
+    }
+
+    /**
+     * Same columns as track_points, with the IDENTITY id TrackPoint had before the sequence
+     */
+    @Entity
+    @Table(name = "track_points_identity")
+    @Getter
+    @Setter
+    @NoArgsConstructor
+    @FieldDefaults(level = AccessLevel.PRIVATE)
+    static class IdentityTrackPoint {
+
+        @Id
+        @GeneratedValue(strategy = GenerationType.IDENTITY)
+        Long id;
+
+        @Column(name = "trip_id", nullable = false)
+        UUID tripId;
+
+        @Column(nullable = false)
+        OffsetDateTime ts;
+
+        Double lat;
+        Double lon;
+        Double accuracyM;
+        Double speedMps;
+    }
+
+    @Test
+    void insertRoundTripsOfAThousandPointUpload() {
+        Trip trip = TrackPointFixtures.trip(entityManager);
+        OffsetDateTime start = OffsetDateTime.parse("2024-05-01T08:00:00Z");
+        List<TrackPointRequest> upload = TrackPointFixtures.requests(start, UPLOAD);
+
+        statementCounter.reset();
+        for (TrackPointRequest request : upload) {
+            IdentityTrackPoint point = new IdentityTrackPoint();
+            point.setTripId(trip.getId());
+            point.setTs(request.recordedAt());
+            point.setLat(request.lat());
+            point.setLon(request.lon());
+            point.setAccuracyM(request.accuracyM());
+            point.setSpeedMps(request.speedMps());
+            entityManager.persist(point);
+        }
+        entityManager.flush();
+        long identityInserts = statementCounter.roundTrips("insert");
+
+        statementCounter.reset();
+        trackPointRepository.saveAll(toEntities(trip, upload));
+        entityManager.flush();
+        long sequenceInserts = statementCounter.roundTrips("insert");
+        long sequenceSelects = statementCounter.roundTrips("select");
+
+        Trip pipelineTrip = TrackPointFixtures.trip(entityManager);
+        statementCounter.reset();
+        assertThat(pipeline.ingest(pipelineTrip, upload)).hasSize(UPLOAD);
+        long pipelineInserts = statementCounter.roundTrips("insert");
+        long pipelineSelects = statementCounter.roundTrips("select");
+
+        log.info("INSERT round trips for {} points: IDENTITY {}, sequence with saveAll {} (+{} selects), " +
+                        "ingestion pipeline {} (+{} selects)",
+                UPLOAD, identityInserts, sequenceInserts, sequenceSelects, pipelineInserts, pipelineSelects);
+
+        // One INSERT per row: IDENTITY turns batching off
+        assertThat(identityInserts).isEqualTo(UPLOAD);
+        // hibernate.jdbc.batch_size=50, and one nextval per 50 ids
+        assertThat(sequenceInserts).isEqualTo(UPLOAD / 50);
+        assertThat(sequenceSelects).isLessThanOrEqualTo(UPLOAD / TrackPoint.ID_ALLOCATION_SIZE + 1);
+        // JDBC batches of 500
+        assertThat(pipelineInserts).isEqualTo(2);
+    }
+
+    @Test
+    void pipelineAgainstSaveAll() {
+        for (int round = 0; round < ROUNDS; round++) {
+            long pipelineNanos = timePipeline();
+            long saveAllNanos = timeSaveAll();
+            log.info("Round {}: pipeline {} points/s, saveAll {} points/s", round,
+                    POINTS * 1_000_000_000L / pipelineNanos, POINTS * 1_000_000_000L / saveAllNanos);
+        }
+    }
+
+    private static List<TrackPoint> toEntities(Trip trip, List<TrackPointRequest> requests) {
+        List<TrackPoint> points = new ArrayList<>(requests.size());
+        for (TrackPointRequest request : requests) {
+            TrackPoint point = new TrackPoint();
+            point.setTrip(trip);
+            point.setTs(request.recordedAt());
+            point.setLat(request.lat());
+            point.setLon(request.lon());
+            point.setAccuracyM(request.accuracyM());
+            point.setSpeedMps(request.speedMps());
+            points.add(point);
+        }
+        return points;
+    }
+
+    private long timePipeline() {
+        Trip trip = TrackPointFixtures.trip(entityManager);
+        OffsetDateTime start = OffsetDateTime.parse("2024-05-01T08:00:00Z");
+
+        long begin = System.nanoTime();
+        int stored = 0;
+        for (int offset = 0; offset < POINTS; offset += BATCH) {
+            List<TrackPointRequest> batch = TrackPointFixtures.requests(start.plusMinutes(offset), BATCH);
+            stored += pipeline.ingest(trip, batch).size();
+        }
+        long nanos = System.nanoTime() - begin;
+
+        assertThat(stored).isEqualTo(POINTS);
+        entityManager.clear();
+        return nanos;
+    }
+
+    private long timeSaveAll() {
+        Trip trip = TrackPointFixtures.trip(entityManager);
+        OffsetDateTime start = OffsetDateTime.parse("2024-05-01T08:00:00Z");
+
+        long begin = System.nanoTime();
+        for (int offset = 0; offset < POINTS; offset += BATCH) {
+            trackPointRepository.saveAll(toEntities(trip, TrackPointFixtures.requests(start.plusMinutes(offset), BATCH)));
+            entityManager.flush();
+            entityManager.clear();
+            trip = entityManager.getReference(Trip.class, trip.getId());
+        }
+        return System.nanoTime() - begin;
+    }
+}
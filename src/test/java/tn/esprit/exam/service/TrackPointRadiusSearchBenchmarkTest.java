@@ -0,0 +1,117 @@
+package tn.esprit.exam.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import tn.esprit.exam.PostgresTest;
+import tn.esprit.exam.dto.TrackPointResponse;
+
+import java.time.OffsetDateTime;
+import java.util.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Cross-trip radius search latency over 10M track points spread across Tunisia,
+ * first while the geohash backfill fallback is active, then once it is complete
+ * Run with: mvn test -Pbenchmark
+ */
+@Tag("benchmark")
+@Slf4j
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({TrackPointSpatialIndex.class, TrackPointGeohashBackfillJob.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class TrackPointRadiusSearchBenchmarkTest extends PostgresTest {
+
+    private static final int POINTS = 10_000_000;
+    private static final int USERS = 1000;
+    private static final int TRIPS = 10_000;
+    private static final int BATCH = 5000;
+    private static final int SEARCHES = 500;
+
+    // Bounding box of the generated points
+    private static final double MIN_LAT = 33.0, MAX_LAT = 37.3;
+    private static final double MIN_LON = 8.0, MAX_LON = 11.5;
+
+    @Autowired
+    TrackPointSpatialIndex spatialIndex;
+
+    @Autowired
+    TrackPointGeohashBackfillJob geohashBackfill;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Test
+    void radiusSearchOverTenMillionPoints() {
+        List<UUID> users = load();
+        Random random = new Random(42);
+        UUID viewer = users.get(0);
+
+        measure("fallback active", viewer, random);
+        geohashBackfill.backfill();
+        assertThat(geohashBackfill.isComplete()).isTrue();
+        measure("backfill complete", viewer, random);
+    }
+
+    private void measure(String phase, UUID viewer, Random random) {
+        for (double radius : new double[]{100, 1000, 10_000}) {
+            long[] nanos = new long[SEARCHES];
+            long returned = 0;
+            for (int i = 0; i < SEARCHES; i++) {
+                double lat = MIN_LAT + random.nextDouble() * (MAX_LAT - MIN_LAT);
+                double lon = MIN_LON + random.nextDouble() * (MAX_LON - MIN_LON);
+                long begin = System.nanoTime();
+                List<TrackPointResponse> points = spatialIndex.findNear(viewer, null, lat, lon, radius, 200);
+                nanos[i] = System.nanoTime() - begin;
+                returned += points.size();
+            }
+            Arrays.sort(nanos);
+            log.info("{}, radius {}m: p50 {} us, p99 {} us, {} points per search", phase, radius,
+                    nanos[SEARCHES / 2] / 1000, nanos[SEARCHES * 99 / 100] / 1000, returned / SEARCHES);
+        }
+    }
+
+    /**
+     * Users split between public and private sharing, trips spread over them, points spread over the trips
+     */
+    private List<UUID> load() {
+        jdbcTemplate.update("INSERT INTO users (id, email, username, password_hash, role, default_visibility, created_at) " +
+                "SELECT gen_random_uuid(), 'u' || i || '@bench.tn', 'u' || i, 'x', 'USER', " +
+                "CASE WHEN i % 2 = 0 THEN 'PUBLIC' ELSE 'PRIVATE' END, now() FROM generate_series(1, ?) i", USERS);
+        List<UUID> users = jdbcTemplate.queryForList("SELECT id FROM users ORDER BY username", UUID.class);
+        jdbcTemplate.update("INSERT INTO trips (id, user_id, title, started_at) " +
+                "SELECT gen_random_uuid(), u.id, 'trip', now() FROM users u, generate_series(1, ?)", TRIPS / USERS);
+        List<UUID> trips = jdbcTemplate.queryForList("SELECT id FROM trips", UUID.class);
+        jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_track_points_missing_geohash " +
+                "ON track_points (lat, lon) WHERE geohash IS NULL");
+
+        Random random = new Random(7);
+        OffsetDateTime start = OffsetDateTime.parse("2024-05-01T08:00:00Z");
+        long id = 1;
+        List<Object[]> batch = new ArrayList<>(BATCH);
+        while (id <= POINTS) {
+            double lat = MIN_LAT + random.nextDouble() * (MAX_LAT - MIN_LAT);
+            double lon = MIN_LON + random.nextDouble() * (MAX_LON - MIN_LON);
+            // One point in a hundred predates the geohash column
+            String geohash = id % 100 == 0 ? null : Geohash.encode(lat, lon, Geohash.STORED_PRECISION);
+            batch.add(new Object[]{id, trips.get((int) (id % trips.size())), start.plusSeconds(id), lat, lon, geohash});
+            if (batch.size() == BATCH) {
+                jdbcTemplate.batchUpdate("INSERT INTO track_points (id, trip_id, ts, lat, lon, geohash) " +
+                        "VALUES (?, ?, ?, ?, ?, ?)", batch);
+                batch.clear();
+            }
+            id++;
+        }
+        jdbcTemplate.execute("ANALYZE track_points");
+        return users;
+    }
+}
@@ -0,0 +1,101 @@
+package tn.esprit.exam.service;
+
+import org.junit.jupiter.api.Test;
+import tn.esprit.exam.dto.TrackPointResponse;
+import tn.esprit.exam.entity.TrackPoint;
+import tn.esprit.exam.entity.Trip;
+
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TrackSimplifierTest {
+
+    @Test
+    void straightLineKeepsOnlyEndpoints() {
+        double[] x = {0, 1, 2, 3, 4, 5};
+        double[] y = {0, 1, 2, 3, 4, 5};
+
+        assertThat(TrackSimplifier.douglasPeucker(x, y, 0.1))
+                .containsExactly(true, false, false, false, false, true);
+    }
+
+    @Test
+    void deviationAboveToleranceIsKept() {
+        double[] x = {0, 50, 100};
+        double[] y = {0, 10, 0};
+
+        assertThat(TrackSimplifier.douglasPeucker(x, y, 5)).containsExactly(true, true, true);
+        assertThat(TrackSimplifier.douglasPeucker(x, y, 20)).containsExactly(true, false, true);
+    }
+
+    @Test
+    void shortTracksAreKeptWhole() {
+        assertThat(TrackSimplifier.douglasPeucker(new double[]{0, 1}, new double[]{0, 1}, 100))
+                .containsExactly(true, true);
+        assertThat(TrackSimplifier.douglasPeucker(new double[0], new double[0], 100)).isEmpty();
+    }
+
+    @Test
+    void coarserTolerancesReturnFewerPoints() {
+        TrackSimplifier simplifier = new TrackSimplifier();
+        UUID tripId = UUID.randomUUID();
+        List<TrackPoint> track = zigZag(tripId, 1000);
+
+        List<TrackPointResponse> fine = simplifier.simplify(tripId, 2, () -> track);
+        List<TrackPointResponse> coarse = simplifier.simplify(tripId, 2048, () -> track);
+
+        assertThat(fine.size()).isGreaterThan(coarse.size());
+        assertThat(coarse.get(0).id()).isEqualTo(track.get(0).getId());
+        assertThat(coarse.get(coarse.size() - 1).id()).isEqualTo(track.get(track.size() - 1).getId());
+    }
+
+    @Test
+    void cachedLevelsAreReusedUntilEvicted() {
+        TrackSimplifier simplifier = new TrackSimplifier();
+        UUID tripId = UUID.randomUUID();
+        List<TrackPoint> track = zigZag(tripId, 100);
+        AtomicInteger loads = new AtomicInteger();
+
+        simplifier.simplify(tripId, 8, () -> {
+            loads.incrementAndGet();
+            return track;
+        });
+        simplifier.simplify(tripId, 128, () -> {
+            loads.incrementAndGet();
+            return track;
+        });
+        assertThat(loads).hasValue(1);
+
+        simplifier.evict(tripId);
+        simplifier.simplify(tripId, 8, () -> {
+            loads.incrementAndGet();
+            return track;
+        });
+        assertThat(loads).hasValue(2);
+    }
+
+    /**
+     * Points about 11 m apart heading north, alternating 20 m east and west
+     */
+    static List<TrackPoint> zigZag(UUID tripId, int count) {
+        Trip trip = new Trip();
+        trip.setId(tripId);
+        OffsetDateTime start = OffsetDateTime.parse("2024-05-01T08:00:00Z");
+        List<TrackPoint> points = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            TrackPoint point = new TrackPoint();
+            point.setId((long) i + 1);
+            point.setTrip(trip);
+            point.setTs(start.plusSeconds(i));
+            point.setLat(36.8 + i * 0.0001);
+            point.setLon(10.18 + (i % 2 == 0 ? 0 : 0.00022));
+            points.add(point);
+        }
+        return points;
+    }
+}
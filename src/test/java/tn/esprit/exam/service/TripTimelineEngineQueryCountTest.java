@@ -0,0 +1,132 @@
+package tn.esprit.exam.service;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import tn.esprit.exam.PostgresTest;
+import tn.esprit.exam.dto.TimelineResponse;
+import tn.esprit.exam.entity.*;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(TripTimelineEngine.class)
+class TripTimelineEngineQueryCountTest extends PostgresTest {
+
+    @Autowired
+    TripTimelineEngine engine;
+
+    @Autowired
+    EntityManager entityManager;
+
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    Statistics statistics;
+
+    @BeforeEach
+    void enableStatistics() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Test
+    void statementCountDoesNotGrowWithTrackPointsOrPosts() {
+        UUID smallTrip = createTrip(10, 2);
+        UUID largeTrip = createTrip(500, 50);
+        UUID longTrip = createTrip(10_000, 100);
+
+        long small = statementsToBuild(smallTrip);
+        long large = statementsToBuild(largeTrip);
+        long longest = statementsToBuild(longTrip);
+
+        // Track points, media and posts with their user and track point
+        assertThat(small).isEqualTo(3);
+        assertThat(large).isEqualTo(small);
+        assertThat(longest).isEqualTo(small);
+    }
+
+    @Test
+    void compactTimelineUsesTheSameStatements() {
+        UUID tripId = createTrip(200, 20);
+
+        statistics.clear();
+        TimelineResponse timeline = engine.build(tripId, true);
+
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(3);
+        assertThat(timeline.items()).hasSize(20);
+        assertThat(timeline.stats().totalTrackPoints()).isEqualTo(200);
+    }
+
+    private long statementsToBuild(UUID tripId) {
+        statistics.clear();
+        TimelineResponse timeline = engine.build(tripId);
+        assertThat(timeline.stats().totalTrackPoints()).isPositive();
+        return statistics.getPrepareStatementCount();
+    }
+
+    /**
+     * Trip with pointCount points, a post with two photos on every (pointCount / postCount)th point
+     */
+    private UUID createTrip(int pointCount, int postCount) {
+        String name = UUID.randomUUID().toString().substring(0, 8);
+        User user = new User();
+        user.setEmail(name + "@test.tn");
+        user.setUsername(name);
+        user.setPasswordHash("x");
+        entityManager.persist(user);
+
+        Trip trip = new Trip();
+        trip.setUser(user);
+        trip.setTitle("Trip " + name);
+        OffsetDateTime start = OffsetDateTime.parse("2024-05-01T08:00:00Z");
+        trip.setStartedAt(start);
+        entityManager.persist(trip);
+
+        int postEvery = pointCount / postCount;
+        for (int i = 0; i < pointCount; i++) {
+            TrackPoint point = new TrackPoint();
+            point.setTrip(trip);
+            point.setTs(start.plusSeconds(10L * i));
+            point.setLat(36.8 + i * 0.0001);
+            point.setLon(10.18 + i * 0.0001);
+            point.setSpeedMps(5.0);
+            entityManager.persist(point);
+
+            if (i % postEvery == 0) {
+                Post post = new Post();
+                post.setTrip(trip);
+                post.setUser(user);
+                post.setTrackPoint(point);
+                post.setText("Post " + i);
+                post.setCity("Tunis");
+                post.setCountry("Tunisia");
+                post.setVisibility(Visibility.PUBLIC);
+                entityManager.persist(post);
+
+                for (int m = 0; m < 2; m++) {
+                    Media media = new Media();
+                    media.setPost(post);
+                    media.setType(MediaKind.PHOTO);
+                    media.setUrl("/uploads/" + UUID.randomUUID() + ".jpg");
+                    entityManager.persist(media);
+                }
+            }
+        }
+
+        entityManager.flush();
+        entityManager.clear();
+        return trip.getId();
+    }
+}
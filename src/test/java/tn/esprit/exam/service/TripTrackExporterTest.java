@@ -0,0 +1,112 @@
+package tn.esprit.exam.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import tn.esprit.exam.PostgresTest;
+import tn.esprit.exam.entity.Trip;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Exports a 1M point trip and checks every row is written while heap use stays flat
+ * Runs outside a test transaction, the exporter reads through its own cursor transaction
+ */
+@Slf4j
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(TripTrackExporter.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class TripTrackExporterTest extends PostgresTest {
+
+    private static final int POINTS = 1_000_000;
+
+    // A materialized List<TrackPointResponse> of 1M points takes several hundred MB
+    private static final long MAX_HEAP_GROWTH = 64L * 1024 * 1024;
+
+    @Autowired
+    TripTrackExporter exporter;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Test
+    void exportsOneMillionPointsWithFlatHeap() throws IOException {
+        Trip trip = exporter.getTrip(insertTrip());
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+
+        for (TripTrackExporter.Format format : TripTrackExporter.Format.values()) {
+            System.gc();
+            long before = memory.getHeapMemoryUsage().getUsed();
+            LineCounter out = new LineCounter(memory);
+
+            exporter.export(trip, format, out);
+
+            long growth = out.peakHeap - before;
+            log.info("{}: {} bytes, {} lines, heap growth {} KB", format, out.bytes, out.lines, growth / 1024);
+            assertThat(out.lines).isGreaterThanOrEqualTo(POINTS);
+            assertThat(growth).isLessThan(MAX_HEAP_GROWTH);
+        }
+    }
+
+    private UUID insertTrip() {
+        UUID userId = UUID.randomUUID();
+        UUID tripId = UUID.randomUUID();
+        jdbcTemplate.update("INSERT INTO users (id, email, username, password_hash, role, default_visibility, created_at) " +
+                "VALUES (?, 'export@test.tn', 'export', 'x', 'USER', 'PRIVATE', now())", userId);
+        jdbcTemplate.update("INSERT INTO trips (id, user_id, title, started_at) VALUES (?, ?, 'Export', now())",
+                tripId, userId);
+        jdbcTemplate.update("INSERT INTO track_points (id, trip_id, ts, lat, lon, accuracy_m, speed_mps) " +
+                "SELECT i, ?, timestamptz '2024-05-01 08:00:00+00' + i * interval '1 second', " +
+                "36.8 + i * 1e-6, 10.18 + i * 1e-6, 5.0, 4.0 FROM generate_series(1, ?) i", tripId, POINTS);
+        return tripId;
+    }
+
+    /**
+     * Discards the export, counting lines and sampling the heap as it goes
+     */
+    private static final class LineCounter extends OutputStream {
+
+        private final MemoryMXBean memory;
+        private long bytes;
+        private long lines;
+        private long peakHeap;
+        private int flushes;
+
+        private LineCounter(MemoryMXBean memory) {
+            this.memory = memory;
+        }
+
+        @Override
+        public void write(int b) {
+            bytes++;
+            if (b == '\n') {
+                lines++;
+            }
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            for (int i = off; i < off + len; i++) {
+                write(b[i]);
+            }
+            // Live heap after a forced collection, sampled every 16 buffer flushes (1 MB of output)
+            if (flushes++ % 16 == 0) {
+                System.gc();
+                peakHeap = Math.max(peakHeap, memory.getHeapMemoryUsage().getUsed());
+            }
+        }
+    }
+}